@@ -0,0 +1,308 @@
+package com.deepai.analytics;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Approximate distinct values and group counts with error bounds, in time that depends on the sample size
+ * rather than the collection size. Collections larger than {@code mcp.analytics.approximate.sample-size}
+ * are read through {@code $sample}, the filter and a projection of the needed fields; smaller ones are read
+ * whole, which makes the results exact. Values are counted in a {@link SpaceSaving} sketch, so memory and
+ * output stay bounded for high-cardinality fields, and distinct values in a {@link HyperLogLog}.
+ *
+ * <ul>
+ * <li>Group counts and sums are scaled by population / sample with 95% normal intervals including the
+ * finite population correction; sketch errors widen the count interval.</li>
+ * <li>Distinct counts of a sample use Charikar et al.'s GEE estimator, whose ratio error is at most
+ * sqrt(population / sample) with high probability; that ratio is reported as the bound.</li>
+ * </ul>
+ */
+@Component
+public class ApproximateAggregator {
+
+	private static final Logger logger = LoggerFactory.getLogger(ApproximateAggregator.class);
+	private static final double Z_95 = 1.959964;
+	private static final double CONFIDENCE = 0.95;
+
+	private final int sampleSize;
+	private final int counters;
+	private final int topK;
+	private final long maxTimeMillis;
+
+	public ApproximateAggregator(@Value("${mcp.analytics.approximate.sample-size:10000}") int sampleSize,
+			@Value("${mcp.analytics.approximate.counters:4096}") int counters,
+			@Value("${mcp.analytics.approximate.top-k:100}") int topK,
+			@Value("${mcp.analytics.approximate.max-time-ms:2000}") long maxTimeMillis) {
+		this.sampleSize = Math.max(1, sampleSize);
+		this.counters = Math.max(1, counters);
+		this.topK = Math.max(1, topK);
+		this.maxTimeMillis = Math.max(0, maxTimeMillis);
+	}
+
+	/**
+	 * An estimate and its 95% interval; all three are equal for exact results.
+	 */
+	public record Interval(double estimate, double low, double high) {
+
+		public boolean exact() {
+			return low == high;
+		}
+	}
+
+	/**
+	 * Population count of an item seen {@code sampleCount} times, overcounted by at most {@code sampleError},
+	 * in a uniform sample of {@code sampled} out of {@code population} documents.
+	 */
+	public static Interval count(long sampleCount, long sampleError, long sampled, long population) {
+		if (sampled >= population) {
+			return new Interval(sampleCount - sampleError / 2.0, sampleCount - sampleError, sampleCount);
+		}
+		double scale = population / (double) sampled;
+		double p = Math.min(1.0, sampleCount / (double) sampled);
+		double half = Z_95 * population * Math.sqrt(p * (1 - p) / sampled * correction(sampled, population));
+		return new Interval(scale * (sampleCount - sampleError / 2.0),
+				Math.max(0, scale * (sampleCount - sampleError) - half), scale * sampleCount + half);
+	}
+
+	/**
+	 * Population sum of a value whose sample sum and sum of squares over {@code sampled} out of
+	 * {@code population} documents are given; documents without the value contribute 0.
+	 */
+	public static Interval total(double sum, double sumOfSquares, long sampled, long population) {
+		if (sampled >= population) {
+			return new Interval(sum, sum, sum);
+		}
+		double mean = sum / sampled;
+		double variance = sampled > 1 ? Math.max(0, (sumOfSquares - sum * mean) / (sampled - 1)) : 0;
+		double half = Z_95 * population * Math.sqrt(variance / sampled * correction(sampled, population));
+		return new Interval(population * mean, population * mean - half, population * mean + half);
+	}
+
+	/**
+	 * Distinct values in a population of {@code population} documents from a uniform sample of
+	 * {@code sampled} documents that held {@code sampleDistinct} distinct values, {@code singletons} of them
+	 * once. The GEE estimate sqrt(N/n) f1 + (d - f1) is bounded by its ratio error sqrt(N/n), and from below
+	 * by the values actually seen.
+	 */
+	public static Interval distinct(long sampleDistinct, long singletons, long sampled, long population) {
+		if (sampled >= population) {
+			return new Interval(sampleDistinct, sampleDistinct, sampleDistinct);
+		}
+		double ratio = Math.sqrt(population / (double) Math.max(1, sampled));
+		double estimate = ratio * singletons + (sampleDistinct - singletons);
+		return new Interval(estimate, Math.max(sampleDistinct, estimate / ratio),
+				Math.max(estimate, Math.min(population, estimate * ratio)));
+	}
+
+	private static double correction(long sampled, long population) {
+		return population > 1 ? (population - sampled) / (double) (population - 1) : 0;
+	}
+
+	/**
+	 * Approximate distinct values of {@code field} among documents matching {@code filter}: the estimated
+	 * number of distinct values with its bounds and the most frequent values with estimated counts. Array
+	 * values count each element, as the distinct command does; missing and null values are skipped.
+	 */
+	public Map<String, Object> distinct(MongoCollection<Document> collection, String field, Bson filter) {
+		Pass pass = read(collection, field, null, filter, true);
+		SpaceSaving<Object> values = pass.values();
+		long sampleDistinct;
+		long singletons = 0;
+		String method;
+		if (values.evictions() == 0) {
+			sampleDistinct = values.size();
+			for (SpaceSaving.Counter<Object> counter : values.top(values.size())) {
+				singletons += counter.count() == 1 ? 1 : 0;
+			}
+			method = pass.sampled() ? "gee" : "exact";
+		} else {
+			// More distinct values than counters: the sketch only knows which values are certainly repeated
+			sampleDistinct = Math.max(values.size(), pass.distinct().estimate());
+			long repeated = 0;
+			for (SpaceSaving.Counter<Object> counter : values.top(values.size())) {
+				repeated += counter.count() - counter.error() >= 2 ? 1 : 0;
+			}
+			singletons = Math.max(0, sampleDistinct - repeated);
+			method = pass.sampled() ? "gee+hyperloglog" : "hyperloglog";
+		}
+		Interval estimated = distinct(sampleDistinct, singletons, pass.considered(), pass.population());
+		if (!pass.sampled() && values.evictions() > 0) {
+			double half = Z_95 * pass.distinct().standardError() * sampleDistinct;
+			estimated = new Interval(sampleDistinct, Math.max(values.size(), sampleDistinct - half),
+					sampleDistinct + half);
+		}
+
+		List<Map<String, Object>> topValues = new ArrayList<>();
+		for (SpaceSaving.Counter<Object> counter : values.top(topK)) {
+			Map<String, Object> value = new LinkedHashMap<>();
+			value.put("value", counter.item());
+			putInterval(value, "count", count(counter.count(), counter.error(), pass.considered(),
+					pass.population()), true);
+			topValues.add(value);
+		}
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("field", field);
+		result.put("approximate", true);
+		result.putAll(pass.describe());
+		Map<String, Object> estimate = new LinkedHashMap<>();
+		estimate.put("method", method);
+		putInterval(estimate, "estimate", estimated, true);
+		result.put("distinct", estimate);
+		result.put("topValues", topValues);
+		// Every distinct value is listed only when the whole population was counted exactly
+		result.put("complete", !pass.sampled() && values.evictions() == 0 && values.size() <= topK);
+		result.put("errorBound", pass.sampled()
+				? String.format("counts: %.0f%% confidence intervals; distinct: ratio error up to %.2f",
+						CONFIDENCE * 100, Math.sqrt(pass.population() / (double) pass.considered()))
+				: values.evictions() > 0 ? "distinct: HyperLogLog relative standard error "
+						+ round(pass.distinct().standardError()) : "exact");
+		return result;
+	}
+
+	/**
+	 * Approximate {@code $group} by {@code field} with a count per group and, when {@code sumField} is
+	 * given, the sum of its numeric values, each with a 95% interval. Returns the most frequent groups,
+	 * ordered by count (no sortBy, "desc" or "count"), by total ("total") or otherwise by group key.
+	 */
+	public List<Document> groupBy(MongoCollection<Document> collection, String field, String sumField,
+			String sortBy) {
+		Pass pass = read(collection, field, sumField, new Document(), false);
+		List<Document> groups = new ArrayList<>();
+		for (SpaceSaving.Counter<Object> counter : pass.values().top(topK)) {
+			Document group = new Document("_id", counter.item());
+			putInterval(group, "count", count(counter.count(), counter.error(), pass.considered(),
+					pass.population()), true);
+			// Sums of a counter that changed hands only cover the current item's later occurrences
+			if (sumField != null && counter.error() == 0) {
+				putInterval(group, "total", total(counter.sum(), counter.sumOfSquares(), pass.considered(),
+						pass.population()), false);
+			}
+			group.put("confidence", pass.sampled() || pass.values().evictions() > 0 ? CONFIDENCE : 1.0);
+			groups.add(group);
+		}
+		if ("total".equals(sortBy) && sumField != null) {
+			groups.sort(Comparator.comparingDouble((Document group) -> group.get("total") instanceof Number total
+					? total.doubleValue() : Double.NEGATIVE_INFINITY).reversed());
+		} else if (sortBy != null && !sortBy.isEmpty() && !"desc".equals(sortBy) && !"count".equals(sortBy)) {
+			groups.sort(Comparator.comparing((Document group) -> String.valueOf(group.get("_id"))));
+		}
+		logger.info("Approximate group by '{}' on {}: {} groups from {} of {} documents ({})", field,
+				collection.getNamespace().getFullName(), groups.size(), pass.matched(), pass.population(),
+				pass.sampled() ? "sampled" : "scanned");
+		return groups;
+	}
+
+	/**
+	 * One read of the needed fields: the value sketches, documents matched, documents considered (sampled,
+	 * or the whole population) and the population estimate.
+	 */
+	private record Pass(SpaceSaving<Object> values, HyperLogLog distinct, long matched, long considered,
+			long population, boolean sampled, long elapsedMillis) {
+
+		private Map<String, Object> describe() {
+			Map<String, Object> description = new LinkedHashMap<>();
+			description.put("method", sampled ? "sample" : "scan");
+			description.put("population", population);
+			description.put("sampled", considered);
+			description.put("matched", matched);
+			description.put("elapsedMs", elapsedMillis);
+			return description;
+		}
+	}
+
+	private Pass read(MongoCollection<Document> collection, String field, String sumField, Bson filter,
+			boolean unwindArrays) {
+		long start = System.nanoTime();
+		long population = collection.estimatedDocumentCount();
+		boolean sampled = population > sampleSize;
+		List<String> fields = sumField != null ? List.of(field, sumField) : List.of(field);
+		Bson projection = fields.contains("_id") ? Projections.include(fields)
+				: Projections.fields(Projections.include(fields), Projections.excludeId());
+		boolean filtered = !filter.toBsonDocument(BsonDocument.class, collection.getCodecRegistry()).isEmpty();
+		Iterable<Document> documents;
+		if (sampled) {
+			List<Bson> pipeline = new ArrayList<>();
+			pipeline.add(Aggregates.sample(sampleSize));
+			if (filtered) {
+				pipeline.add(Aggregates.match(filter));
+			}
+			pipeline.add(Aggregates.project(projection));
+			documents = collection.aggregate(pipeline).allowDiskUse(true)
+					.maxTime(maxTimeMillis, TimeUnit.MILLISECONDS).batchSize(sampleSize);
+		} else {
+			documents = collection.find(filter).projection(projection)
+					.maxTime(maxTimeMillis, TimeUnit.MILLISECONDS).batchSize(sampleSize);
+		}
+
+		SpaceSaving<Object> values = new SpaceSaving<>(counters);
+		HyperLogLog distinct = new HyperLogLog();
+		long matched = 0;
+		for (Document document : documents) {
+			matched++;
+			Object value = value(document, field);
+			double weight = sumField != null && value(document, sumField) instanceof Number number
+					? number.doubleValue() : 0;
+			if (unwindArrays && value instanceof List<?> elements) {
+				for (Object element : elements) {
+					if (element != null) {
+						values.offer(element);
+						distinct.add(element);
+					}
+				}
+			} else if (!unwindArrays || value != null) {
+				values.offer(value, weight);
+				distinct.add(value);
+			}
+		}
+		long considered = sampled ? sampleSize : population;
+		return new Pass(values, distinct, matched, considered, population, sampled,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * The value at a dotted path; null when a step is missing or not a document.
+	 */
+	private static Object value(Document document, String path) {
+		Object current = document;
+		for (String step : path.split("\\.")) {
+			if (!(current instanceof Map<?, ?> map)) {
+				return null;
+			}
+			current = map.get(step);
+		}
+		return current;
+	}
+
+	private static void putInterval(Map<String, Object> target, String name, Interval interval,
+			boolean integral) {
+		if (integral) {
+			target.put(name, Math.round(interval.estimate()));
+			target.put(name + "Low", (long) Math.floor(interval.low()));
+			target.put(name + "High", (long) Math.ceil(interval.high()));
+		} else {
+			target.put(name, round(interval.estimate()));
+			target.put(name + "Low", round(interval.low()));
+			target.put(name + "High", round(interval.high()));
+		}
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 10_000) / 10_000.0;
+	}
+}
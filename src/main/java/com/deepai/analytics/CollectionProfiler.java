@@ -0,0 +1,99 @@
+package com.deepai.analytics;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a collection through a {@link SchemaProfile} within a document and time budget. Documents are
+ * profiled as the cursor returns them and not retained, so memory does not grow with the collection; when
+ * the budget runs out the profile of the documents read so far is returned and marked incomplete.
+ */
+@Component
+public class CollectionProfiler {
+
+	private static final Logger logger = LoggerFactory.getLogger(CollectionProfiler.class);
+
+	private final long maxTimeMillis;
+	private final int maxPaths;
+	private final int batchSize;
+
+	public CollectionProfiler(@Value("${mcp.analytics.profile.max-time-ms:30000}") long maxTimeMillis,
+			@Value("${mcp.analytics.profile.max-paths:1000}") int maxPaths,
+			@Value("${mcp.analytics.profile.batch-size:1000}") int batchSize) {
+		this.maxTimeMillis = maxTimeMillis;
+		this.maxPaths = maxPaths;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Result of one profiling pass; {@code stoppedBy} is "documents" or "time" when the budget ended it
+	 * early and null when the whole collection was read.
+	 */
+	public record Result(SchemaProfile profile, long estimatedDocuments, String stoppedBy, long elapsedMillis) {
+
+		public boolean complete() {
+			return stoppedBy == null;
+		}
+
+		public Map<String, Object> describe() {
+			Map<String, Object> description = new LinkedHashMap<>();
+			description.put("documentsScanned", profile.documents());
+			description.put("estimatedDocuments", estimatedDocuments);
+			description.put("complete", complete());
+			if (stoppedBy != null) {
+				description.put("stoppedBy", stoppedBy);
+			}
+			description.put("elapsedMs", elapsedMillis);
+			return description;
+		}
+	}
+
+	/**
+	 * Profiles documents already in memory, such as a {@link CollectionSampler} sample, without a budget.
+	 */
+	public Result profile(List<Document> documents, long estimatedDocuments) {
+		long start = System.nanoTime();
+		SchemaProfile profile = new SchemaProfile(maxPaths);
+		documents.forEach(profile::accept);
+		return new Result(profile, estimatedDocuments, null, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Profiles up to {@code maxDocuments} documents (all when not positive), stopping early once
+	 * {@code mcp.analytics.profile.max-time-ms} has passed.
+	 */
+	public Result profile(MongoCollection<Document> collection, long maxDocuments) {
+		long start = System.nanoTime();
+		long deadline = start + maxTimeMillis * 1_000_000;
+		long documentBudget = maxDocuments > 0 ? maxDocuments : Long.MAX_VALUE;
+		SchemaProfile profile = new SchemaProfile(maxPaths);
+		String stoppedBy = null;
+		try (MongoCursor<Document> cursor = collection.find().batchSize(batchSize).cursor()) {
+			while (cursor.hasNext()) {
+				if (profile.documents() >= documentBudget) {
+					stoppedBy = "documents";
+					break;
+				}
+				if (maxTimeMillis > 0 && System.nanoTime() - deadline > 0) {
+					stoppedBy = "time";
+					break;
+				}
+				profile.accept(cursor.next());
+			}
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		logger.info("Profiled {} documents of {} in {} ms{}", profile.documents(),
+				collection.getNamespace().getFullName(), elapsedMillis,
+				stoppedBy != null ? " (stopped by " + stoppedBy + " budget)" : "");
+		return new Result(profile, collection.estimatedDocumentCount(), stoppedBy, elapsedMillis);
+	}
+}
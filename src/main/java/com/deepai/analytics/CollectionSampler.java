@@ -0,0 +1,305 @@
+package com.deepai.analytics;
+
+import com.deepai.support.IdRanges;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Random document samples of a collection for the analysis tools, cached per collection and mode for
+ * {@code mcp.analytics.sample.ttl-ms} so repeated analyses read the data once. A cached sample also answers
+ * smaller requests: samples are shuffled, so any prefix is itself a random sample.
+ *
+ * <ul>
+ * <li>{@link Mode#RANDOM}: the server's {@code $sample} stage.</li>
+ * <li>{@link Mode#STRATIFIED}: {@link IdRanges} of about equal size, each sampled by its own cursor in
+ * parallel. Every range contributes its share of the sample, drawn uniformly from the whole range: a
+ * reservoir over the range's {@code _id}s only, after which the kept documents are fetched by {@code _id}.
+ * All ranges share one {@code max-time-ms} budget; ranges still reading when it runs out keep what they drew
+ * so far and the sample is reported as incomplete.</li>
+ * <li>{@link Mode#RESERVOIR}: one reservoir over a scan of the whole collection, for servers or views where
+ * {@code $sample} is unavailable; stops at {@code max-time-ms} and reports the sample as incomplete.</li>
+ * </ul>
+ * Reservoir sampling reads raw BSON and only decodes documents that are kept.
+ */
+@Component
+public class CollectionSampler {
+
+	private static final Logger logger = LoggerFactory.getLogger(CollectionSampler.class);
+
+	/**
+	 * How a sample is drawn.
+	 */
+	public enum Mode {
+		RANDOM, STRATIFIED, RESERVOIR;
+
+		public static Mode fromString(String value) {
+			if (value == null || value.isBlank()) {
+				return RANDOM;
+			}
+			try {
+				return valueOf(value.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown sampling mode '" + value
+						+ "'; expected random, stratified or reservoir");
+			}
+		}
+	}
+
+	/**
+	 * A drawn sample in random order. {@code scanned} counts the documents read to draw it and
+	 * {@code complete} is false when a reservoir or stratified scan ran out of time before the end of the
+	 * collection.
+	 */
+	public record Sample(List<Document> documents, Mode mode, long population, long scanned, boolean complete,
+			long createdAt, long elapsedMillis, boolean cached) {
+
+		public int size() {
+			return documents.size();
+		}
+
+		private Sample first(int size, boolean fromCache) {
+			List<Document> prefix = size < documents.size() ? documents.subList(0, size) : documents;
+			return new Sample(prefix, mode, population, scanned, complete, createdAt, elapsedMillis, fromCache);
+		}
+
+		public Map<String, Object> describe() {
+			Map<String, Object> description = new LinkedHashMap<>();
+			description.put("mode", mode.name().toLowerCase(Locale.ROOT));
+			description.put("size", documents.size());
+			description.put("population", population);
+			description.put("scanned", scanned);
+			description.put("complete", complete);
+			description.put("cached", cached);
+			description.put("createdAt", createdAt);
+			description.put("elapsedMs", elapsedMillis);
+			return description;
+		}
+	}
+
+	private record Key(String namespace, Mode mode) {
+	}
+
+	private record Drawn(List<Document> documents, long scanned, boolean complete) {
+	}
+
+	private final Mode defaultMode;
+	private final int strata;
+	private final long maxTimeMillis;
+	private final Cache<Key, Sample> cache;
+	private final ExecutorService executor;
+
+	public CollectionSampler(@Value("${mcp.analytics.sample.mode:random}") String defaultMode,
+			@Value("${mcp.analytics.sample.ttl-ms:300000}") long ttlMillis,
+			@Value("${mcp.analytics.sample.max-cached-documents:200000}") long maxCachedDocuments,
+			@Value("${mcp.analytics.sample.threads:0}") int threads,
+			@Value("${mcp.analytics.sample.strata:0}") int strata,
+			@Value("${mcp.analytics.sample.max-time-ms:30000}") long maxTimeMillis) {
+		this.defaultMode = Mode.fromString(defaultMode);
+		int threadCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.strata = strata > 0 ? strata : threadCount * 2;
+		this.maxTimeMillis = maxTimeMillis;
+		this.cache = Caffeine.newBuilder()
+				.expireAfterWrite(Math.max(0, ttlMillis), TimeUnit.MILLISECONDS)
+				.maximumWeight(Math.max(0, maxCachedDocuments))
+				.weigher((Key key, Sample sample) -> sample.size() + 1)
+				.build();
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable, "collection-sampler-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * A sample of {@code size} documents in the configured default mode.
+	 */
+	public Sample sample(MongoCollection<Document> collection, int size) throws InterruptedException {
+		return sample(collection, size, defaultMode);
+	}
+
+	/**
+	 * A sample of up to {@code size} documents (fewer when the collection is smaller), from the cache when
+	 * a sample at least that large was drawn in the same mode within the TTL.
+	 */
+	public Sample sample(MongoCollection<Document> collection, int size, Mode mode) throws InterruptedException {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Sample size must be positive: " + size);
+		}
+		Key key = new Key(collection.getNamespace().getFullName(), mode);
+		Sample cached = cache.getIfPresent(key);
+		// A sample holding the whole collection also answers larger requests
+		if (cached != null && (cached.size() >= size || cached.complete() && cached.size() >= cached.population())) {
+			return cached.first(size, true);
+		}
+		long start = System.nanoTime();
+		long population = collection.estimatedDocumentCount();
+		Drawn drawn = switch (mode) {
+		case RANDOM -> random(collection, size);
+		case STRATIFIED -> stratified(collection, size);
+		case RESERVOIR -> reservoir(collection, size);
+		};
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		Sample sample = new Sample(List.copyOf(drawn.documents()), mode, population, drawn.scanned(),
+				drawn.complete(), System.currentTimeMillis(), elapsedMillis, false);
+		cache.put(key, sample);
+		logger.info("Drew {} sample of {} documents from {} in {} ms ({} read)", mode, sample.size(),
+				key.namespace(), elapsedMillis, sample.scanned());
+		return sample;
+	}
+
+	/**
+	 * Drops cached samples of the collection, e.g. after bulk changes.
+	 */
+	public void invalidate(String database, String collection) {
+		String namespace = database + "." + collection;
+		cache.asMap().keySet().removeIf(key -> key.namespace().equals(namespace));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private Drawn random(MongoCollection<Document> collection, int size) {
+		// $sample's random cursor can return a document twice, so keep the first of each _id
+		Set<Object> ids = new HashSet<>();
+		List<Document> documents = new ArrayList<>(size);
+		collection.aggregate(List.of(Aggregates.sample(size))).allowDiskUse(true).forEach(doc -> {
+			if (ids.add(doc.get("_id"))) {
+				documents.add(doc);
+			}
+		});
+		Collections.shuffle(documents);
+		return new Drawn(documents, documents.size(), true);
+	}
+
+	private Drawn stratified(MongoCollection<Document> collection, int size) throws InterruptedException {
+		long deadline = System.nanoTime() + maxTimeMillis * 1_000_000;
+		List<BsonValue> splits = IdRanges.splitPoints(collection, Math.min(strata, size));
+		int ranges = splits.size() + 1;
+		SplittableRandom seeds = new SplittableRandom();
+		List<Future<Drawn>> futures = new ArrayList<>(ranges);
+		for (int i = 0; i < ranges; i++) {
+			BsonValue lower = i > 0 ? splits.get(i - 1) : null;
+			BsonValue upper = i < splits.size() ? splits.get(i) : null;
+			// Spread the remainder over the first ranges so shares sum to size
+			int share = size / ranges + (i < size % ranges ? 1 : 0);
+			SplittableRandom random = seeds.split();
+			futures.add(executor.submit(() -> sampleRange(collection, lower, upper, share, random, deadline)));
+		}
+		List<Document> documents = new ArrayList<>(size);
+		long scanned = 0;
+		boolean complete = true;
+		for (Drawn range : collect(futures)) {
+			documents.addAll(range.documents());
+			scanned += range.scanned();
+			complete &= range.complete();
+		}
+		Collections.shuffle(documents);
+		return new Drawn(documents, scanned, complete);
+	}
+
+	/**
+	 * A uniform sample of {@code share} documents of one range. Every {@code _id} of the range is offered to the
+	 * reservoir, so documents late in the range are as likely to be kept as early ones; only {@code _id}s cross
+	 * the network until the kept documents are fetched. Past {@code deadline} (a {@link System#nanoTime()}
+	 * value) the scan stops and the documents kept so far, a uniform sample of the part read, are returned as
+	 * incomplete.
+	 */
+	private Drawn sampleRange(MongoCollection<Document> collection, BsonValue lower, BsonValue upper, int share,
+			SplittableRandom random, long deadline) {
+		if (share == 0) {
+			return new Drawn(List.of(), 0, true);
+		}
+		ReservoirSampler<BsonValue> reservoir = new ReservoirSampler<>(share, random);
+		FindIterable<BsonDocument> ids = collection.withDocumentClass(BsonDocument.class).find()
+				.projection(Projections.include("_id")).batchSize(10_000);
+		boolean complete = true;
+		try (MongoCursor<BsonDocument> cursor = IdRanges.bound(ids, lower, upper).cursor()) {
+			while (cursor.hasNext()) {
+				if (maxTimeMillis > 0 && System.nanoTime() - deadline > 0) {
+					complete = false;
+					break;
+				}
+				reservoir.offer(cursor.next().get("_id"));
+			}
+		}
+		List<Document> documents = new ArrayList<>(share);
+		if (reservoir.seen() > 0) {
+			collection.find(Filters.in("_id", reservoir.items())).into(documents);
+		}
+		return new Drawn(documents, reservoir.seen(), complete);
+	}
+
+	private Drawn reservoir(MongoCollection<Document> collection, int size) {
+		Codec<Document> codec = collection.getCodecRegistry().get(Document.class);
+		ReservoirSampler<Document> reservoir = new ReservoirSampler<>(size);
+		long deadline = System.nanoTime() + maxTimeMillis * 1_000_000;
+		boolean complete = true;
+		try (MongoCursor<RawBsonDocument> cursor = collection.withDocumentClass(RawBsonDocument.class).find()
+				.batchSize(1000).cursor()) {
+			while (cursor.hasNext()) {
+				if (maxTimeMillis > 0 && System.nanoTime() - deadline > 0) {
+					complete = false;
+					break;
+				}
+				RawBsonDocument doc = cursor.next();
+				reservoir.offer(reservoir.wants() ? doc.decode(codec) : null);
+			}
+		}
+		List<Document> documents = reservoir.items();
+		Collections.shuffle(documents);
+		return new Drawn(documents, reservoir.seen(), complete);
+	}
+
+	private static <T> List<T> collect(List<Future<T>> futures) throws InterruptedException {
+		List<T> results = new ArrayList<>(futures.size());
+		try {
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			Throwable cause = e.getCause();
+			throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			futures.forEach(future -> future.cancel(true));
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.deepai.analytics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Sorts;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonSerializationException;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.ByteBuf;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distinct values of a field in pages, with their BSON types and occurrence counts. Values come from a
+ * {@code $unwind}/{@code $group}/{@code $sort} pipeline run with {@code allowDiskUse}, so the server spills
+ * large groupings to disk and only one page is held in memory here. Between pages the cursor stays open for
+ * {@code mcp.analytics.distinct.cursor-ttl-ms}, keyed by the page token. The token also carries the last
+ * value returned as BSON, so a page whose cursor has expired (or was opened by another server) resumes with
+ * a {@code $gt} match on the sorted groups instead of starting over.
+ */
+@Component
+public class DistinctValuePager {
+
+	private static final Logger logger = LoggerFactory.getLogger(DistinctValuePager.class);
+
+	private final int defaultPageSize;
+	private final int maxPageSize;
+	private final long maxTimeMillis;
+	private final Cache<String, MongoCursor<BsonDocument>> cursors;
+
+	/**
+	 * What a page token encodes: the open cursor's key, the query, and the last value returned.
+	 */
+	public record PageToken(String cursor, String namespace, String field, BsonDocument filter, BsonValue after) {
+
+		public String encode() {
+			BsonDocument token = new BsonDocument("c", new BsonString(cursor))
+					.append("ns", new BsonString(namespace))
+					.append("f", new BsonString(field))
+					.append("q", filter)
+					.append("a", after);
+			ByteBuf buffer = new RawBsonDocument(token, new BsonDocumentCodec()).getByteBuffer();
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		}
+
+		public static PageToken decode(String token) {
+			try {
+				BsonDocument decoded = new RawBsonDocument(Base64.getUrlDecoder().decode(token));
+				return new PageToken(decoded.getString("c").getValue(), decoded.getString("ns").getValue(),
+						decoded.getString("f").getValue(), decoded.getDocument("q"), decoded.get("a"));
+			} catch (IllegalArgumentException | BsonSerializationException | BsonInvalidOperationException e) {
+				throw new IllegalArgumentException("Invalid page token", e);
+			}
+		}
+
+		private boolean answers(String namespace, String field, BsonDocument filter) {
+			return this.namespace.equals(namespace) && this.field.equals(field) && this.filter.equals(filter);
+		}
+	}
+
+	public DistinctValuePager(@Value("${mcp.analytics.distinct.page-size:100}") int defaultPageSize,
+			@Value("${mcp.analytics.distinct.max-page-size:1000}") int maxPageSize,
+			@Value("${mcp.analytics.distinct.max-time-ms:60000}") long maxTimeMillis,
+			@Value("${mcp.analytics.distinct.cursor-ttl-ms:300000}") long cursorTtlMillis,
+			@Value("${mcp.analytics.distinct.max-open-cursors:100}") long maxOpenCursors) {
+		this.maxPageSize = Math.max(1, maxPageSize);
+		this.defaultPageSize = Math.min(Math.max(1, defaultPageSize), this.maxPageSize);
+		this.maxTimeMillis = Math.max(0, maxTimeMillis);
+		this.cursors = Caffeine.newBuilder()
+				.expireAfterWrite(Math.max(0, cursorTtlMillis), TimeUnit.MILLISECONDS)
+				.maximumSize(Math.max(0, maxOpenCursors))
+				.<String, MongoCursor<BsonDocument>>removalListener((key, open, cause) -> {
+					// Cursors taken for the next page are removed explicitly and stay open
+					if (open != null && cause.wasEvicted()) {
+						open.close();
+					}
+				})
+				.build();
+	}
+
+	/**
+	 * One page of the distinct values of {@code field} among documents matching {@code filter}, in BSON
+	 * order. Array elements count as separate values, as with the distinct command; missing and null values
+	 * are skipped. {@code pageSize} up to {@code max-page-size} (the default page size when not positive);
+	 * {@code pageToken} is the previous page's {@code nextToken}, or null for the first page.
+	 */
+	public Map<String, Object> page(MongoCollection<Document> collection, String field, Bson filter, int pageSize,
+			String pageToken) {
+		int size = pageSize > 0 ? Math.min(pageSize, maxPageSize) : defaultPageSize;
+		String namespace = collection.getNamespace().getFullName();
+		BsonDocument query = filter.toBsonDocument(BsonDocument.class, collection.getCodecRegistry());
+		MongoCursor<BsonDocument> cursor = null;
+		BsonValue after = null;
+		boolean resumed = false;
+		if (pageToken != null && !pageToken.isBlank()) {
+			PageToken token = PageToken.decode(pageToken);
+			if (!token.answers(namespace, field, query)) {
+				throw new IllegalArgumentException("Page token belongs to a different collection, field or filter");
+			}
+			// Removing the cursor hands it to this request only; a replayed token resumes from its value instead
+			cursor = cursors.asMap().remove(token.cursor());
+			if (cursor == null) {
+				after = token.after();
+				resumed = true;
+			}
+		}
+		if (cursor == null) {
+			cursor = open(collection, field, query, after, size);
+		}
+
+		List<Map<String, Object>> values = new ArrayList<>(size);
+		BsonValue last = after;
+		String nextToken = null;
+		try {
+			while (values.size() < size && cursor.hasNext()) {
+				BsonDocument group = cursor.next();
+				last = group.get("_id");
+				Map<String, Object> value = new LinkedHashMap<>();
+				value.put("value", toJson(last));
+				value.put("type", typeOf(last));
+				value.put("count", group.get("count").isNumber() ? group.get("count").asNumber().longValue() : 0);
+				values.add(value);
+			}
+			if (cursor.hasNext()) {
+				String key = UUID.randomUUID().toString();
+				cursors.put(key, cursor);
+				nextToken = new PageToken(key, namespace, field, query, last).encode();
+			} else {
+				cursor.close();
+			}
+		} catch (RuntimeException e) {
+			cursor.close();
+			throw e;
+		}
+		logger.info("Returned {} distinct values of '{}' in {}{}{}", values.size(), field, namespace,
+				resumed ? " (resumed after expired cursor)" : "", nextToken != null ? ", more available" : "");
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("field", field);
+		result.put("approximate", false);
+		result.put("values", values);
+		result.put("returned", values.size());
+		result.put("hasMore", nextToken != null);
+		result.put("nextToken", nextToken);
+		return result;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		cursors.asMap().values().forEach(MongoCursor::close);
+		cursors.invalidateAll();
+	}
+
+	private MongoCursor<BsonDocument> open(MongoCollection<Document> collection, String field, BsonDocument query,
+			BsonValue after, int batchSize) {
+		List<Bson> pipeline = new ArrayList<>();
+		if (!query.isEmpty()) {
+			pipeline.add(Aggregates.match(query));
+		}
+		// $unwind passes non-array values through and drops missing, null and empty-array ones
+		pipeline.add(Aggregates.unwind("$" + field));
+		pipeline.add(Aggregates.group("$" + field, Accumulators.sum("count", 1)));
+		if (after != null) {
+			// $expr compares across types in BSON order, unlike $gt in a query; $literal keeps "$..." strings
+			pipeline.add(Aggregates.match(new BsonDocument("$expr", new BsonDocument("$gt",
+					new BsonArray(List.of(new BsonString("$_id"), new BsonDocument("$literal", after)))))));
+		}
+		pipeline.add(Aggregates.sort(Sorts.ascending("_id")));
+		return collection.withDocumentClass(BsonDocument.class)
+				.aggregate(pipeline)
+				.allowDiskUse(true)
+				.maxTime(maxTimeMillis, TimeUnit.MILLISECONDS)
+				.batchSize(batchSize)
+				.cursor();
+	}
+
+	/**
+	 * The {@code $type} alias of a BSON value, e.g. "int", "objectId" or "date".
+	 */
+	public static String typeOf(BsonValue value) {
+		BsonType type = value.getBsonType();
+		return switch (type) {
+		case INT32 -> "int";
+		case INT64 -> "long";
+		case DOUBLE -> "double";
+		case DECIMAL128 -> "decimal";
+		case BOOLEAN -> "bool";
+		case DATE_TIME -> "date";
+		case OBJECT_ID -> "objectId";
+		case DOCUMENT -> "object";
+		case ARRAY -> "array";
+		case BINARY -> "binData";
+		case NULL -> "null";
+		case STRING -> "string";
+		case TIMESTAMP -> "timestamp";
+		case REGULAR_EXPRESSION -> "regex";
+		default -> type.name().toLowerCase(Locale.ROOT);
+		};
+	}
+
+	/**
+	 * A BSON value as plain JSON: numbers, strings and booleans as they are, ObjectIds as hex, dates as
+	 * ISO-8601 instants, decimals as strings, binary as base64 and documents and arrays recursively. The
+	 * original type is reported next to the value by {@link #typeOf(BsonValue)}.
+	 */
+	public static Object toJson(BsonValue value) {
+		return switch (value.getBsonType()) {
+		case INT32 -> value.asInt32().getValue();
+		case INT64 -> value.asInt64().getValue();
+		case DOUBLE -> value.asDouble().getValue();
+		case DECIMAL128 -> value.asDecimal128().getValue().toString();
+		case BOOLEAN -> value.asBoolean().getValue();
+		case STRING -> value.asString().getValue();
+		case DATE_TIME -> Instant.ofEpochMilli(value.asDateTime().getValue()).toString();
+		case OBJECT_ID -> value.asObjectId().getValue().toHexString();
+		case BINARY -> Base64.getEncoder().encodeToString(value.asBinary().getData());
+		case NULL -> null;
+		case DOCUMENT -> {
+			Map<String, Object> document = new LinkedHashMap<>();
+			value.asDocument().forEach((key, nested) -> document.put(key, toJson(nested)));
+			yield document;
+		}
+		case ARRAY -> {
+			List<Object> array = new ArrayList<>();
+			value.asArray().forEach(element -> array.add(toJson(element)));
+			yield array;
+		}
+		default -> value.toString();
+		};
+	}
+}
@@ -0,0 +1,121 @@
+package com.deepai.analytics;
+
+import org.bson.types.Decimal128;
+
+import java.util.Date;
+
+/**
+ * HyperLogLog distinct-count sketch over 64-bit hashes. Precision {@code p} gives {@code 2^p} one-byte
+ * registers and a standard error of about {@code 1.04 / sqrt(2^p)}; small counts use linear counting.
+ * Sketches of equal precision merge losslessly, so partial sketches can be built independently.
+ * Not thread-safe.
+ */
+public final class HyperLogLog {
+
+	public static final int DEFAULT_PRECISION = 12;
+
+	private final int precision;
+	private final byte[] registers;
+
+	public HyperLogLog(int precision) {
+		if (precision < 4 || precision > 18) {
+			throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+
+	/**
+	 * Adds a scalar BSON value; equal numbers of different Java types count once.
+	 */
+	public void add(Object value) {
+		addHash(hash(value));
+	}
+
+	public void addHash(long hash) {
+		int index = (int) (hash >>> (64 - precision));
+		long rest = hash << precision | 1L << (precision - 1);
+		byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+		if (rank > registers[index]) {
+			registers[index] = rank;
+		}
+	}
+
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += Math.scalb(1.0, -register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double alpha = 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			estimate = m * Math.log(m / (double) zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * Relative standard error of {@link #estimate()}, {@code 1.04 / sqrt(2^p)}.
+	 */
+	public double standardError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of precision " + precision
+					+ " and " + other.precision);
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	/**
+	 * 64-bit hash of a scalar BSON value: integral numbers by value, other numbers by their double bits,
+	 * dates by instant and everything else by its string form, each with a type seed.
+	 */
+	static long hash(Object value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return mix(((Number) value).longValue());
+		}
+		if (value instanceof Double || value instanceof Float || value instanceof Decimal128) {
+			double d = ((Number) value).doubleValue();
+			boolean integral = d == Math.rint(d) && Math.abs(d) < 0x1p63;
+			return integral ? mix((long) d) : mix(Double.doubleToLongBits(d) ^ 0x5DL);
+		}
+		if (value instanceof Date date) {
+			return mix(date.getTime() ^ 0xD47EL);
+		}
+		long seed = value instanceof String ? 0xcbf29ce484222325L : 0x84222325cbf29ce4L;
+		String text = String.valueOf(value);
+		long hash = seed;
+		for (int i = 0; i < text.length(); i++) {
+			hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	/**
+	 * MurmurHash3's 64-bit finalizer, so every input bit affects the register index and rank.
+	 */
+	private static long mix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
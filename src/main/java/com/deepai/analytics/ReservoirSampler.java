@@ -0,0 +1,75 @@
+package com.deepai.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Uniform sample of fixed size over a stream of unknown length (Li's Algorithm L). After the reservoir fills,
+ * the position of the next kept item is drawn directly, so the random number generator runs O(k log(n/k))
+ * times rather than once per item, and {@link #wants()} lets callers skip decoding items that will not be
+ * kept. Not thread-safe.
+ */
+public final class ReservoirSampler<T> {
+
+	private final Object[] items;
+	private final SplittableRandom random;
+	private long seen;
+	private long next;
+	private double w;
+
+	public ReservoirSampler(int capacity, SplittableRandom random) {
+		this.items = new Object[Math.max(1, capacity)];
+		this.random = random;
+	}
+
+	public ReservoirSampler(int capacity) {
+		this(capacity, new SplittableRandom());
+	}
+
+	/**
+	 * True if the next offered item will be kept.
+	 */
+	public boolean wants() {
+		return seen < items.length || seen == next;
+	}
+
+	public void offer(T item) {
+		if (seen < items.length) {
+			items[(int) seen] = item;
+			if (++seen == items.length) {
+				w = Math.exp(Math.log(uniform()) / items.length);
+				next = seen + skip();
+			}
+			return;
+		}
+		if (seen == next) {
+			items[random.nextInt(items.length)] = item;
+			w *= Math.exp(Math.log(uniform()) / items.length);
+			next += skip() + 1;
+		}
+		seen++;
+	}
+
+	/**
+	 * Items offered so far, kept or not.
+	 */
+	public long seen() {
+		return seen;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<T> items() {
+		return new ArrayList<>((List<T>) Arrays.asList(items).subList(0, (int) Math.min(seen, items.length)));
+	}
+
+	private long skip() {
+		double skip = Math.floor(Math.log(uniform()) / Math.log(1 - w));
+		return skip < Long.MAX_VALUE / 2 ? (long) skip : Long.MAX_VALUE / 2;
+	}
+
+	private double uniform() {
+		return 1.0 - random.nextDouble();
+	}
+}
@@ -0,0 +1,542 @@
+package com.deepai.analytics;
+
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Streaming schema profile of a sequence of documents. Every path is tracked, nested documents as
+ * {@code parent.child} and array elements as {@code parent[]}, with a type histogram, null rate, a
+ * {@link HyperLogLog} distinct estimate and, for numbers, min/max and {@link TDigest} quantiles. Memory
+ * depends on the number of paths, capped at {@code maxPaths}, not on the number of documents; values of
+ * paths beyond the cap are only counted. Profiles of disjoint document sets can be merged.
+ * Not thread-safe.
+ */
+public final class SchemaProfile {
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+	// Paths with fewer values are too thin to call identifiers or categories
+	private static final long MIN_EVIDENCE = 10;
+	// Distinct estimates within the sketch's error of the value count mark a path as an identifier
+	private static final double IDENTIFIER_RATIO = 0.95;
+	private static final long MAX_CATEGORIES = 20;
+
+	private final int maxPaths;
+	private final Node root = new Node("");
+	private int paths;
+	private long documents;
+	private long topLevelFields;
+	private long untrackedValues;
+
+	public SchemaProfile(int maxPaths) {
+		this.maxPaths = Math.max(1, maxPaths);
+	}
+
+	public void accept(Map<String, Object> document) {
+		documents++;
+		topLevelFields += document.size();
+		walk(root, document);
+	}
+
+	public long documents() {
+		return documents;
+	}
+
+	/**
+	 * Number of distinct paths seen, up to the cap.
+	 */
+	public int paths() {
+		return paths;
+	}
+
+	public double averageFieldCount() {
+		return documents > 0 ? topLevelFields / (double) documents : 0.0;
+	}
+
+	/**
+	 * Adds {@code other}, a profile of different documents, to this one.
+	 */
+	public void merge(SchemaProfile other) {
+		documents += other.documents;
+		topLevelFields += other.topLevelFields;
+		untrackedValues += other.untrackedValues;
+		merge(root, other.root);
+	}
+
+	/**
+	 * Statistics per path in path order.
+	 */
+	public Map<String, Map<String, Object>> pathStats() {
+		Map<String, Map<String, Object>> stats = new TreeMap<>();
+		collect(root, stats);
+		return stats;
+	}
+
+	/**
+	 * The most frequent non-null type per path.
+	 */
+	public Map<String, String> dominantTypes() {
+		Map<String, String> types = new TreeMap<>();
+		collectTypes(root, types);
+		return types;
+	}
+
+	public Map<String, Object> summary() {
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("documents", documents);
+		summary.put("paths", paths);
+		summary.put("untrackedValues", untrackedValues);
+		summary.put("pathStats", pathStats());
+		return summary;
+	}
+
+	/**
+	 * How complete and consistently typed the documents are. Completeness is the mean share of documents in
+	 * which a top-level field is present and not null; consistency is the share of non-null values, over all
+	 * paths, that have their path's dominant type. Identifier fields hold a distinct value per document, by
+	 * their distinct estimates.
+	 */
+	public Map<String, Object> quality() {
+		double completeness = 0;
+		List<Map<String, Object>> incomplete = new ArrayList<>();
+		for (Node field : topLevel()) {
+			double filled = field.presence() * (1 - field.nullRate());
+			completeness += filled;
+			if (filled < 1) {
+				Map<String, Object> gap = new LinkedHashMap<>();
+				gap.put("field", field.path);
+				gap.put("presence", round(field.presence()));
+				gap.put("nullRate", round(field.nullRate()));
+				incomplete.add(gap);
+			}
+		}
+		long typed = 0;
+		long dominant = 0;
+		List<Map<String, Object>> mixed = new ArrayList<>();
+		for (Node node : nodes()) {
+			long nonNull = node.values - node.types[ValueType.NULL.ordinal()];
+			long ofDominant = node.types[node.dominantIndex()];
+			typed += nonNull;
+			dominant += nonNull > 0 ? ofDominant : 0;
+			if (ofDominant < nonNull) {
+				Map<String, Object> types = new LinkedHashMap<>();
+				types.put("path", node.path);
+				types.put("types", node.histogram());
+				mixed.add(types);
+			}
+		}
+		Map<String, Object> quality = new LinkedHashMap<>();
+		quality.put("completeness", round(topLevel().isEmpty() ? 1.0 : completeness / topLevel().size()));
+		quality.put("consistency", round(typed > 0 ? dominant / (double) typed : 1.0));
+		quality.put("incompleteFields", incomplete);
+		quality.put("mixedTypePaths", mixed);
+		quality.put("identifierFields", pathsWhere(Node::identifier));
+		return quality;
+	}
+
+	/**
+	 * Field usage patterns: which top-level fields every document has, which are optional, and which paths look
+	 * like identifiers or small sets of categories by their distinct estimates.
+	 */
+	public Map<String, Object> patterns() {
+		List<String> required = new ArrayList<>();
+		List<String> optional = new ArrayList<>();
+		for (Node field : topLevel()) {
+			(field.documents == documents && field.nullRate() == 0 ? required : optional).add(field.path);
+		}
+		Map<String, Object> patterns = new LinkedHashMap<>();
+		patterns.put("requiredFields", required);
+		patterns.put("optionalFields", optional);
+		patterns.put("optionalFieldShare", round(optional.size() / (double) Math.max(1, topLevel().size())));
+		patterns.put("averageFieldCount", round(averageFieldCount()));
+		patterns.put("identifierPaths", pathsWhere(Node::identifier));
+		patterns.put("categoricalPaths", pathsWhere(Node::categorical));
+		return patterns;
+	}
+
+	/**
+	 * Likely references to other documents, ObjectId paths other than {@code _id} and paths named like ids,
+	 * plus the embedded documents and arrays that relate data within a document.
+	 */
+	public Map<String, Object> relationships() {
+		List<Map<String, Object>> references = new ArrayList<>();
+		for (Node node : nodes()) {
+			if (node.reference()) {
+				Map<String, Object> reference = new LinkedHashMap<>();
+				reference.put("path", node.path);
+				reference.put("type", node.dominantType());
+				reference.put("distinctEstimate", node.distinct != null ? node.distinct.estimate() : 0);
+				references.add(reference);
+			}
+		}
+		Map<String, Object> relationships = new LinkedHashMap<>();
+		relationships.put("references", references);
+		relationships.put("embeddedDocuments", pathsWhere(node -> node.dominantIs(ValueType.OBJECT)));
+		relationships.put("arrays", pathsWhere(node -> node.dominantIs(ValueType.ARRAY)));
+		return relationships;
+	}
+
+	/**
+	 * Size of the schema: documents profiled, fields per document, distinct paths and nesting depth, with a
+	 * complexity label derived from the last two.
+	 */
+	public Map<String, Object> overview() {
+		int depth = nodes().stream().mapToInt(Node::depth).max().orElse(0);
+		Map<String, Object> overview = new LinkedHashMap<>();
+		overview.put("sampleSize", documents);
+		overview.put("averageFieldCount", round(averageFieldCount()));
+		overview.put("paths", paths);
+		overview.put("maxDepth", depth);
+		overview.put("complexity", paths > 50 || depth > 3 ? "high" : paths > 15 || depth > 1 ? "medium" : "low");
+		return overview;
+	}
+
+	private List<Node> topLevel() {
+		return root.children != null ? new ArrayList<>(root.children.values()) : List.of();
+	}
+
+	private List<Node> nodes() {
+		List<Node> nodes = new ArrayList<>();
+		collectNodes(root, nodes);
+		return nodes;
+	}
+
+	private List<String> pathsWhere(Predicate<Node> condition) {
+		return nodes().stream().filter(condition).map(node -> node.path).toList();
+	}
+
+	private void collectNodes(Node node, List<Node> nodes) {
+		if (node != root) {
+			nodes.add(node);
+		}
+		if (node.children != null) {
+			node.children.values().forEach(child -> collectNodes(child, nodes));
+		}
+		if (node.elements != null) {
+			collectNodes(node.elements, nodes);
+		}
+	}
+
+	private void walk(Node parent, Map<?, ?> document) {
+		for (Map.Entry<?, ?> entry : document.entrySet()) {
+			Node node = parent.child(String.valueOf(entry.getKey()));
+			if (node == null) {
+				untrackedValues++;
+				continue;
+			}
+			observe(node, entry.getValue());
+		}
+	}
+
+	private void observe(Node node, Object value) {
+		node.observe(value, documents);
+		if (value instanceof Map<?, ?> nested) {
+			walk(node, nested);
+		} else if (value instanceof List<?> list) {
+			Node elements = node.elements();
+			if (elements == null) {
+				untrackedValues += list.size();
+				return;
+			}
+			for (Object element : list) {
+				observe(elements, element);
+			}
+		}
+	}
+
+	private void merge(Node target, Node source) {
+		target.merge(source);
+		if (source.children != null) {
+			source.children.forEach((name, child) -> {
+				Node node = target.child(name);
+				if (node != null) {
+					merge(node, child);
+				} else {
+					untrackedValues += child.values;
+				}
+			});
+		}
+		if (source.elements != null) {
+			Node elements = target.elements();
+			if (elements != null) {
+				merge(elements, source.elements);
+			} else {
+				untrackedValues += source.elements.values;
+			}
+		}
+	}
+
+	private void collect(Node node, Map<String, Map<String, Object>> stats) {
+		if (node != root) {
+			stats.put(node.path, node.stats(documents));
+		}
+		if (node.children != null) {
+			node.children.values().forEach(child -> collect(child, stats));
+		}
+		if (node.elements != null) {
+			collect(node.elements, stats);
+		}
+	}
+
+	private void collectTypes(Node node, Map<String, String> types) {
+		if (node != root) {
+			types.put(node.path, node.dominantType());
+		}
+		if (node.children != null) {
+			node.children.values().forEach(child -> collectTypes(child, types));
+		}
+		if (node.elements != null) {
+			collectTypes(node.elements, types);
+		}
+	}
+
+	/**
+	 * BSON value types as reported in type histograms.
+	 */
+	enum ValueType {
+		STRING("string"), INT("int"), LONG("long"), DOUBLE("double"), DECIMAL("decimal"), BOOLEAN("bool"),
+		DATE("date"), OBJECT_ID("objectId"), OBJECT("object"), ARRAY("array"), BINARY("binData"), NULL("null"),
+		OTHER("other");
+
+		private static final ValueType[] VALUES = values();
+
+		private final String label;
+
+		ValueType(String label) {
+			this.label = label;
+		}
+
+		static ValueType of(Object value) {
+			if (value == null) {
+				return NULL;
+			}
+			if (value instanceof String) {
+				return STRING;
+			}
+			if (value instanceof Integer) {
+				return INT;
+			}
+			if (value instanceof Long) {
+				return LONG;
+			}
+			if (value instanceof Double) {
+				return DOUBLE;
+			}
+			if (value instanceof Decimal128) {
+				return DECIMAL;
+			}
+			if (value instanceof Boolean) {
+				return BOOLEAN;
+			}
+			if (value instanceof Date) {
+				return DATE;
+			}
+			if (value instanceof ObjectId) {
+				return OBJECT_ID;
+			}
+			if (value instanceof Map) {
+				return OBJECT;
+			}
+			if (value instanceof List) {
+				return ARRAY;
+			}
+			return value instanceof Binary || value instanceof byte[] ? BINARY : OTHER;
+		}
+
+		private boolean numeric() {
+			return this == INT || this == LONG || this == DOUBLE || this == DECIMAL;
+		}
+
+		private boolean scalar() {
+			return this != OBJECT && this != ARRAY && this != NULL;
+		}
+	}
+
+	/**
+	 * One path's statistics. Sketches are created on the first value that needs them.
+	 */
+	private final class Node {
+
+		private final String path;
+		private final long[] types = new long[ValueType.VALUES.length];
+		private Map<String, Node> children;
+		private Node elements;
+		private long documents;
+		private long lastDocument;
+		private long values;
+		private HyperLogLog distinct;
+		private TDigest numbers;
+
+		private Node(String path) {
+			this.path = path;
+		}
+
+		/**
+		 * The named child, created while the path cap allows; null once it is reached.
+		 */
+		private Node child(String name) {
+			Node child = children != null ? children.get(name) : null;
+			if (child == null && paths < maxPaths) {
+				if (children == null) {
+					children = new LinkedHashMap<>();
+				}
+				child = new Node(path.isEmpty() ? name : path + "." + name);
+				children.put(name, child);
+				paths++;
+			}
+			return child;
+		}
+
+		private Node elements() {
+			if (elements == null && paths < maxPaths) {
+				elements = new Node(path + "[]");
+				paths++;
+			}
+			return elements;
+		}
+
+		private void observe(Object value, long document) {
+			if (lastDocument != document) {
+				lastDocument = document;
+				documents++;
+			}
+			values++;
+			ValueType type = ValueType.of(value);
+			types[type.ordinal()]++;
+			if (type.scalar()) {
+				if (distinct == null) {
+					distinct = new HyperLogLog();
+				}
+				distinct.add(value);
+			}
+			if (type.numeric()) {
+				if (numbers == null) {
+					numbers = new TDigest();
+				}
+				numbers.add(((Number) value).doubleValue());
+			}
+		}
+
+		private void merge(Node other) {
+			documents += other.documents;
+			values += other.values;
+			for (int i = 0; i < types.length; i++) {
+				types[i] += other.types[i];
+			}
+			if (other.distinct != null) {
+				if (distinct == null) {
+					distinct = new HyperLogLog();
+				}
+				distinct.merge(other.distinct);
+			}
+			if (other.numbers != null) {
+				if (numbers == null) {
+					numbers = new TDigest();
+				}
+				numbers.merge(other.numbers);
+			}
+		}
+
+		private String dominantType() {
+			return ValueType.VALUES[dominantIndex()].label;
+		}
+
+		private int dominantIndex() {
+			int best = ValueType.NULL.ordinal();
+			for (int i = 0; i < types.length; i++) {
+				if (i != ValueType.NULL.ordinal() && types[i] > 0
+						&& (best == ValueType.NULL.ordinal() || types[i] > types[best])) {
+					best = i;
+				}
+			}
+			return best;
+		}
+
+		private boolean dominantIs(ValueType type) {
+			return dominantIndex() == type.ordinal();
+		}
+
+		private double presence() {
+			return documents / (double) Math.max(1, SchemaProfile.this.documents);
+		}
+
+		private double nullRate() {
+			return types[ValueType.NULL.ordinal()] / (double) Math.max(1, values);
+		}
+
+		private int depth() {
+			int depth = 0;
+			for (int i = 0; i < path.length(); i++) {
+				if (path.charAt(i) == '.' || path.startsWith("[]", i)) {
+					depth++;
+				}
+			}
+			return depth;
+		}
+
+		private boolean identifier() {
+			long nonNull = values - types[ValueType.NULL.ordinal()];
+			return distinct != null && nonNull >= MIN_EVIDENCE && distinct.estimate() >= nonNull * IDENTIFIER_RATIO;
+		}
+
+		private boolean categorical() {
+			long nonNull = values - types[ValueType.NULL.ordinal()];
+			return distinct != null && nonNull >= MIN_EVIDENCE && !dominantIs(ValueType.DOUBLE)
+					&& distinct.estimate() <= Math.min(MAX_CATEGORIES, nonNull / 2);
+		}
+
+		private boolean reference() {
+			if (path.equals("_id") || distinct == null) {
+				return false;
+			}
+			String name = path.substring(path.lastIndexOf('.') + 1).replace("[]", "");
+			return dominantIs(ValueType.OBJECT_ID) || name.endsWith("Id") || name.endsWith("_id")
+					|| name.endsWith("Ids") || name.endsWith("_ids");
+		}
+
+		private Map<String, Long> histogram() {
+			Map<String, Long> histogram = new LinkedHashMap<>();
+			for (ValueType type : ValueType.VALUES) {
+				if (types[type.ordinal()] > 0) {
+					histogram.put(type.label, types[type.ordinal()]);
+				}
+			}
+			return histogram;
+		}
+
+		private Map<String, Object> stats(long totalDocuments) {
+			Map<String, Object> stats = new LinkedHashMap<>();
+			stats.put("documents", documents);
+			stats.put("presence", round(documents / (double) Math.max(1, totalDocuments)));
+			stats.put("values", values);
+			stats.put("types", histogram());
+			stats.put("nullRate", round(nullRate()));
+			if (distinct != null) {
+				stats.put("distinctEstimate", distinct.estimate());
+			}
+			if (numbers != null && numbers.count() > 0) {
+				Map<String, Object> numeric = new LinkedHashMap<>();
+				numeric.put("count", numbers.count());
+				numeric.put("min", numbers.min());
+				numeric.put("max", numbers.max());
+				for (double q : QUANTILES) {
+					numeric.put("p" + Math.round(q * 100), numbers.quantile(q));
+				}
+				stats.put("numeric", numeric);
+			}
+			return stats;
+		}
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 10_000) / 10_000.0;
+	}
+}
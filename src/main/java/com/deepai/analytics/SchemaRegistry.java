@@ -0,0 +1,403 @@
+package com.deepai.analytics;
+
+import com.deepai.service.MongoServiceClient;
+import com.deepai.support.BuildOnceCache;
+import com.deepai.support.ChangeStreamWatcher;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Inferred schemas per collection, held in memory so tools and MCP resources read them without touching the
+ * collection. A namespace is registered on first lookup by profiling a {@link CollectionSampler} sample of
+ * {@code mcp.analytics.schema.sample-size} documents. A change stream then folds inserted and replaced
+ * documents into the profile, counts updates and deletes, and resamples once {@code resample-after-changes}
+ * of them have accumulated or an update sets an unknown path. Without change streams (standalone servers)
+ * a lookup older than {@code refresh-interval-ms} returns the current schema and resamples in the background.
+ * At most {@code max-namespaces} collections are registered; the least recently looked up one beyond that is
+ * evicted and its change stream stopped. Lookups of collections that do not exist are rejected.
+ * Each snapshot carries a version that increases only when a path appears, disappears or changes its
+ * dominant type.
+ */
+@Component
+public class SchemaRegistry {
+
+	public static final String RESOURCE_PREFIX = "mongo://schema/";
+
+	private static final Logger logger = LoggerFactory.getLogger(SchemaRegistry.class);
+	private static final long PUBLISH_INTERVAL_MILLIS = 1000;
+
+	private final MongoClient mongoClient;
+	private final CollectionSampler sampler;
+	private final CollectionProfiler profiler;
+	private final int sampleSize;
+	private final long refreshIntervalMillis;
+	private final long resampleAfterChanges;
+	private final long minResampleIntervalMillis;
+	private final boolean liveUpdates;
+	private final BuildOnceCache<String, Entry> entries;
+	private final ExecutorService refresher;
+
+	/**
+	 * One published version of a collection's schema: the dominant type per path and the full profile
+	 * summary, with the sample it was built from.
+	 */
+	public record Snapshot(String database, String collection, long version, Map<String, String> fields,
+			Map<String, Object> profile, Map<String, Object> sample, long sampledAt, long updatedAt,
+			boolean live) {
+
+		public String namespace() {
+			return database + "." + collection;
+		}
+
+		public String resourceUri() {
+			return RESOURCE_PREFIX + database + "/" + collection;
+		}
+
+		public Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("namespace", namespace());
+			map.put("version", version);
+			map.put("live", live);
+			map.put("sampledAt", sampledAt);
+			map.put("updatedAt", updatedAt);
+			map.put("sample", sample);
+			map.put("fields", fields);
+			map.put("profile", profile);
+			return map;
+		}
+	}
+
+	public SchemaRegistry(MongoServiceClient mongoServiceClient, CollectionSampler sampler,
+			CollectionProfiler profiler,
+			@Value("${mcp.analytics.schema.sample-size:1000}") int sampleSize,
+			@Value("${mcp.analytics.schema.refresh-interval-ms:600000}") long refreshIntervalMillis,
+			@Value("${mcp.analytics.schema.resample-after-changes:1000}") long resampleAfterChanges,
+			@Value("${mcp.analytics.schema.min-resample-interval-ms:60000}") long minResampleIntervalMillis,
+			@Value("${mcp.analytics.schema.live-updates:true}") boolean liveUpdates,
+			@Value("${mcp.analytics.schema.max-namespaces:100}") int maxNamespaces) {
+		this.mongoClient = mongoServiceClient.getMongoClient();
+		this.sampler = sampler;
+		this.profiler = profiler;
+		this.sampleSize = Math.max(1, sampleSize);
+		this.refreshIntervalMillis = Math.max(0, refreshIntervalMillis);
+		this.resampleAfterChanges = Math.max(1, resampleAfterChanges);
+		this.minResampleIntervalMillis = Math.max(0, minResampleIntervalMillis);
+		this.liveUpdates = liveUpdates;
+		this.entries = new BuildOnceCache<>("schema", Math.max(1, maxNamespaces), entry -> {
+			logger.info("Evicting schema of {}: more than {} namespaces registered", entry.namespace, maxNamespaces);
+			entry.stop();
+		});
+		this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "schema-registry-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * The collection's current schema, registering and sampling it first if this is the first lookup.
+	 */
+	public Snapshot schema(String database, String collection) {
+		Entry entry = entry(database, collection);
+		if (!entry.live() && entry.due()) {
+			entry.refreshInBackground();
+		}
+		return entry.snapshot;
+	}
+
+	/**
+	 * The collection's schema resampled now.
+	 */
+	public Snapshot refresh(String database, String collection) {
+		Entry entry = entry(database, collection);
+		entry.resample();
+		return entry.snapshot;
+	}
+
+	/**
+	 * The schema of an already registered collection, without registering it.
+	 */
+	public Optional<Snapshot> peek(String database, String collection) {
+		return entries.getIfBuilt(database + "." + collection).map(entry -> entry.snapshot);
+	}
+
+	/**
+	 * Snapshots of all registered collections in namespace order.
+	 */
+	public List<Snapshot> snapshots() {
+		List<Snapshot> snapshots = new ArrayList<>();
+		entries.values().forEach(entry -> snapshots.add(entry.snapshot));
+		snapshots.sort((a, b) -> a.namespace().compareTo(b.namespace()));
+		return snapshots;
+	}
+
+	/**
+	 * The database and collection named by a {@code mongo://schema/{database}/{collection}} URI; empty for
+	 * other URIs. Database names cannot contain '/', so the collection is everything after the first one.
+	 */
+	public static Optional<String[]> parseResourceUri(String uri) {
+		if (uri == null || !uri.startsWith(RESOURCE_PREFIX)) {
+			return Optional.empty();
+		}
+		String path = uri.substring(RESOURCE_PREFIX.length());
+		int slash = path.indexOf('/');
+		if (slash <= 0 || slash == path.length() - 1) {
+			return Optional.empty();
+		}
+		return Optional.of(new String[] {path.substring(0, slash), path.substring(slash + 1)});
+	}
+
+	/**
+	 * The version for a schema with {@code fields}: 1 for the first snapshot, otherwise the previous
+	 * version, increased when the paths or their dominant types differ.
+	 */
+	public static long nextVersion(Snapshot previous, Map<String, String> fields) {
+		if (previous == null) {
+			return 1;
+		}
+		return previous.fields().equals(fields) ? previous.version() : previous.version() + 1;
+	}
+
+	/**
+	 * The path an update's dotted field name refers to in profile terms: array positions become
+	 * {@code []}.
+	 */
+	public static String profilePath(String updatedField) {
+		StringBuilder path = new StringBuilder(updatedField.length());
+		for (String part : updatedField.split("\\.")) {
+			if (!part.isEmpty() && part.chars().allMatch(Character::isDigit)) {
+				path.append("[]");
+			} else {
+				if (path.length() > 0) {
+					path.append('.');
+				}
+				path.append(part);
+			}
+		}
+		return path.toString();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		entries.clear().forEach(Entry::stop);
+		refresher.shutdownNow();
+	}
+
+	private Entry entry(String database, String collection) {
+		return entries.get(database + "." + collection, namespace -> register(database, collection));
+	}
+
+	private Entry register(String database, String collection) {
+		MongoDatabase db = mongoClient.getDatabase(database);
+		if (db.listCollectionNames().filter(Filters.eq("name", collection)).first() == null) {
+			throw new IllegalArgumentException("Collection " + database + "." + collection + " does not exist");
+		}
+		BsonTimestamp startAt = liveUpdates ? ChangeStreamWatcher.operationTime(mongoClient, database) : null;
+		Entry entry = new Entry(database, collection);
+		entry.resample();
+		if (liveUpdates) {
+			entry.watch(startAt);
+		}
+		return entry;
+	}
+
+	/**
+	 * A registered collection: its live profile, the last published snapshot and the change stream that
+	 * maintains them. The profile is guarded by the entry's lock; the snapshot is read without locking.
+	 */
+	private final class Entry implements ChangeStreamWatcher.Listener {
+
+		private final String database;
+		private final String collection;
+		private final String namespace;
+		private volatile Snapshot snapshot;
+		private volatile ChangeStreamWatcher stream;
+		private volatile boolean refreshing;
+		private SchemaProfile profile;
+		private Map<String, Object> sample;
+		private long sampledAt;
+		private long changes;
+		private boolean unknownPath;
+
+		private Entry(String database, String collection) {
+			this.database = database;
+			this.collection = collection;
+			this.namespace = database + "." + collection;
+		}
+
+		private boolean live() {
+			return stream != null && stream.live();
+		}
+
+		/**
+		 * True when the schema should be resampled: after the refresh interval, or once enough changes or
+		 * an unknown path have been seen and the minimum interval has passed.
+		 */
+		private synchronized boolean due() {
+			long age = System.currentTimeMillis() - sampledAt;
+			if (age < minResampleIntervalMillis) {
+				return false;
+			}
+			return age > refreshIntervalMillis || changes >= resampleAfterChanges || unknownPath;
+		}
+
+		private void resample() {
+			MongoCollection<Document> source = mongoClient.getDatabase(database).getCollection(collection);
+			CollectionSampler.Sample drawn;
+			try {
+				if (snapshot != null) {
+					sampler.invalidate(database, collection);
+				}
+				drawn = sampler.sample(source, sampleSize);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while sampling " + namespace, e);
+			}
+			CollectionProfiler.Result result = profiler.profile(drawn.documents(), drawn.population());
+			synchronized (this) {
+				profile = result.profile();
+				sample = drawn.describe();
+				sampledAt = System.currentTimeMillis();
+				changes = 0;
+				unknownPath = false;
+				publish();
+				logger.debug("Sampled schema of {}: {} paths, version {}", namespace, profile.paths(),
+						snapshot.version());
+			}
+		}
+
+		private void refreshInBackground() {
+			synchronized (this) {
+				if (refreshing) {
+					return;
+				}
+				refreshing = true;
+			}
+			refresher.execute(() -> {
+				try {
+					resample();
+				} catch (RuntimeException e) {
+					logger.warn("Schema refresh of {} failed: {}", namespace, e.getMessage());
+				} finally {
+					refreshing = false;
+				}
+			});
+		}
+
+		/**
+		 * Publishes the profile as a new snapshot. Called with the lock held.
+		 */
+		private void publish() {
+			Map<String, String> fields = profile.dominantTypes();
+			Snapshot previous = snapshot;
+			snapshot = new Snapshot(database, collection, nextVersion(previous, fields), fields,
+					profile.summary(), sample, sampledAt, System.currentTimeMillis(), live());
+		}
+
+		private void watch(BsonTimestamp startAt) {
+			MongoCollection<Document> source = mongoClient.getDatabase(database).getCollection(collection);
+			// Inserts and replaces carry their full document by default; updates are only counted
+			stream = new ChangeStreamWatcher("schema-changes-" + namespace, source::watch, 256, 200, this);
+			stream.start(null, startAt);
+			synchronized (this) {
+				publish();
+			}
+		}
+
+		/**
+		 * Folds the batch into the profile, publishes it if its paths changed or the last snapshot is older
+		 * than the publish interval, and resamples once due.
+		 */
+		@Override
+		public void apply(List<ChangeStreamDocument<Document>> events) {
+			if (!events.isEmpty()) {
+				synchronized (this) {
+					for (ChangeStreamDocument<Document> event : events) {
+						fold(event);
+					}
+					Map<String, String> fields = profile.dominantTypes();
+					if (!fields.equals(snapshot.fields())
+							|| System.currentTimeMillis() - snapshot.updatedAt() >= PUBLISH_INTERVAL_MILLIS) {
+						publish();
+					}
+				}
+				logger.debug("Applied {} changes to schema of {}", events.size(), namespace);
+			}
+			if (due()) {
+				resample();
+			}
+		}
+
+		/**
+		 * Called with the lock held.
+		 */
+		private void fold(ChangeStreamDocument<Document> event) {
+			switch (event.getOperationType()) {
+			case INSERT, REPLACE -> {
+				if (event.getFullDocument() != null) {
+					profile.accept(event.getFullDocument());
+				}
+			}
+			case UPDATE -> {
+				changes++;
+				UpdateDescription update = event.getUpdateDescription();
+				if (update != null && update.getUpdatedFields() != null) {
+					for (String field : update.getUpdatedFields().keySet()) {
+						unknownPath |= !snapshot.fields().containsKey(profilePath(field));
+					}
+				}
+			}
+			case DELETE -> changes++;
+			default -> {
+				// other events do not change documents
+			}
+			}
+		}
+
+		@Override
+		public void invalidated(String reason) {
+			// The schema no longer describes the collection; the next lookup samples it again
+			stopWatching(reason);
+			entries.remove(namespace, this);
+		}
+
+		@Override
+		public void unavailable(String reason) {
+			// Falls back to resampling on lookup once the schema is older than the refresh interval
+			stopWatching(reason);
+		}
+
+		private void stopWatching(String reason) {
+			synchronized (this) {
+				publish();
+			}
+			logger.info("Schema of {} no longer live-updated: {}", namespace, reason);
+		}
+
+		private void stop() {
+			if (stream != null) {
+				stream.stop();
+			}
+		}
+	}
+}
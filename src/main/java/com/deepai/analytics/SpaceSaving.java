@@ -0,0 +1,183 @@
+package com.deepai.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpaceSaving heavy-hitter sketch (Metwally, Agrawal and El Abbadi) with a fixed number of counters. While
+ * fewer distinct items than counters have been offered, counts are exact. After that an unmonitored item
+ * replaces the item with the smallest count and inherits that count as its error, so every reported count
+ * overestimates the true count by at most its error, and every item occurring more than
+ * {@code total / capacity} times is monitored. Counters are kept in an indexed min-heap, so an update costs
+ * O(log capacity). Each counter also sums the weights offered with its item since it was last assigned.
+ * Not thread-safe.
+ */
+public final class SpaceSaving<T> {
+
+	private final Counter<T>[] heap;
+	private final Map<T, Counter<T>> counters;
+	private int size;
+	private long total;
+	private long evictions;
+
+	/**
+	 * One monitored item: {@code count - error <= true count <= count}. {@code sum} and {@code sumOfSquares}
+	 * cover the weights offered since the item took over the counter, which is all of them when
+	 * {@code error} is 0.
+	 */
+	public static final class Counter<T> {
+
+		private T item;
+		private long count;
+		private long error;
+		private double sum;
+		private double sumOfSquares;
+		private int position;
+
+		private Counter(T item, int position) {
+			this.item = item;
+			this.position = position;
+		}
+
+		public T item() {
+			return item;
+		}
+
+		public long count() {
+			return count;
+		}
+
+		public long error() {
+			return error;
+		}
+
+		public double sum() {
+			return sum;
+		}
+
+		public double sumOfSquares() {
+			return sumOfSquares;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public SpaceSaving(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("SpaceSaving capacity must be positive: " + capacity);
+		}
+		this.heap = new Counter[capacity];
+		this.counters = new HashMap<>(capacity * 2);
+	}
+
+	public void offer(T item) {
+		offer(item, 0);
+	}
+
+	public void offer(T item, double weight) {
+		total++;
+		Counter<T> counter = counters.get(item);
+		if (counter == null) {
+			if (size < heap.length) {
+				counter = new Counter<>(item, size);
+				heap[size++] = counter;
+			} else {
+				// Take over the smallest counter; its count bounds how often the new item was missed
+				counter = heap[0];
+				counters.remove(counter.item);
+				counter.item = item;
+				counter.error = counter.count;
+				counter.sum = 0;
+				counter.sumOfSquares = 0;
+				evictions++;
+			}
+			counters.put(item, counter);
+		}
+		counter.count++;
+		counter.sum += weight;
+		counter.sumOfSquares += weight * weight;
+		if (counter.count == 1) {
+			siftUp(counter.position);
+		} else {
+			siftDown(counter.position);
+		}
+	}
+
+	/**
+	 * Items offered so far, counting repeats.
+	 */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Number of monitored items; the exact number of distinct items while {@link #evictions()} is 0.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Times a monitored item was replaced; 0 means every count is exact.
+	 */
+	public long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * Upper bound on the count of any item that is not monitored.
+	 */
+	public long unmonitoredBound() {
+		return evictions == 0 ? 0 : heap[0].count;
+	}
+
+	/**
+	 * The {@code k} counters with the highest counts, highest first.
+	 */
+	public List<Counter<T>> top(int k) {
+		List<Counter<T>> top = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			top.add(heap[i]);
+		}
+		top.sort(Comparator.comparingLong((Counter<T> counter) -> counter.count).reversed());
+		return top.size() > k ? new ArrayList<>(top.subList(0, Math.max(0, k))) : top;
+	}
+
+	private void siftUp(int position) {
+		Counter<T> counter = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (heap[parent].count <= counter.count) {
+				break;
+			}
+			heap[position] = heap[parent];
+			heap[position].position = position;
+			position = parent;
+		}
+		heap[position] = counter;
+		counter.position = position;
+	}
+
+	private void siftDown(int position) {
+		Counter<T> counter = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+				child++;
+			}
+			if (heap[child].count >= counter.count) {
+				break;
+			}
+			heap[position] = heap[child];
+			heap[position].position = position;
+			position = child;
+		}
+		heap[position] = counter;
+		counter.position = position;
+	}
+}
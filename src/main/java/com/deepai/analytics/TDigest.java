@@ -0,0 +1,169 @@
+package com.deepai.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest (Dunning and Ertl) for streaming quantile estimates. Values are buffered and periodically
+ * merged into a sorted list of centroids whose sizes are bounded by the arcsine scale function, so centroids
+ * near the tails stay small and extreme quantiles stay accurate. Memory is O(compression) whatever the
+ * number of values; digests merge, so partial digests can be built independently. Not thread-safe.
+ */
+public final class TDigest {
+
+	public static final double DEFAULT_COMPRESSION = 100;
+
+	private final double compression;
+	private final double[] buffer;
+	private final double[] ones;
+	private int buffered;
+	private double[] means;
+	private double[] weights;
+	private int centroids;
+	private long count;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	public TDigest(double compression) {
+		this.compression = Math.max(20, compression);
+		int capacity = (int) Math.ceil(this.compression) * 2 + 10;
+		this.buffer = new double[capacity * 4];
+		this.ones = new double[buffer.length];
+		Arrays.fill(ones, 1.0);
+		this.means = new double[capacity];
+		this.weights = new double[capacity];
+	}
+
+	public TDigest() {
+		this(DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Adds a value; NaN is ignored.
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		if (buffered == buffer.length) {
+			flush();
+		}
+		buffer[buffered++] = value;
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	public void merge(TDigest other) {
+		other.flush();
+		flush();
+		if (other.centroids == 0) {
+			return;
+		}
+		compress(other.means, other.weights, other.centroids);
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public long count() {
+		return count;
+	}
+
+	public double min() {
+		return count > 0 ? min : Double.NaN;
+	}
+
+	public double max() {
+		return count > 0 ? max : Double.NaN;
+	}
+
+	/**
+	 * Estimated value at quantile {@code q} in [0, 1], interpolating between centroid centres and the
+	 * exact minimum and maximum; NaN when empty.
+	 */
+	public double quantile(double q) {
+		if (q < 0 || q > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+		}
+		flush();
+		if (centroids == 0) {
+			return Double.NaN;
+		}
+		if (centroids == 1) {
+			return means[0];
+		}
+		double target = q * count;
+		double left = weights[0] / 2;
+		if (target <= left) {
+			return interpolate(min, means[0], target / left);
+		}
+		for (int i = 0; i < centroids - 1; i++) {
+			double right = left + (weights[i] + weights[i + 1]) / 2;
+			if (target <= right) {
+				return interpolate(means[i], means[i + 1], (target - left) / (right - left));
+			}
+			left = right;
+		}
+		double tail = weights[centroids - 1] / 2;
+		return interpolate(means[centroids - 1], max, Math.min(1, (target - left) / tail));
+	}
+
+	private static double interpolate(double from, double to, double fraction) {
+		return from + (to - from) * fraction;
+	}
+
+	private void flush() {
+		if (buffered == 0) {
+			return;
+		}
+		Arrays.sort(buffer, 0, buffered);
+		compress(buffer, ones, buffered);
+		buffered = 0;
+	}
+
+	/**
+	 * Merges sorted (mean, weight) pairs into the centroids in one pass, growing a centroid while its
+	 * quantile range spans at most one unit of the scale function.
+	 */
+	private void compress(double[] otherMeans, double[] otherWeights, int others) {
+		double total = 0;
+		for (int i = 0; i < centroids; i++) {
+			total += weights[i];
+		}
+		for (int i = 0; i < others; i++) {
+			total += otherWeights[i];
+		}
+		double[] mergedMeans = new double[Math.max(means.length, centroids + others)];
+		double[] mergedWeights = new double[mergedMeans.length];
+		int merged = 0;
+		double before = 0;
+		double kLeft = scale(0);
+		int a = 0;
+		int b = 0;
+		while (a < centroids || b < others) {
+			boolean fromSelf = b >= others || a < centroids && means[a] <= otherMeans[b];
+			double mean = fromSelf ? means[a] : otherMeans[b];
+			double weight = fromSelf ? weights[a++] : otherWeights[b++];
+			if (merged > 0 && scale((before + mergedWeights[merged - 1] + weight) / total) - kLeft <= 1) {
+				double combined = mergedWeights[merged - 1] + weight;
+				mergedMeans[merged - 1] += (mean - mergedMeans[merged - 1]) * weight / combined;
+				mergedWeights[merged - 1] = combined;
+			} else {
+				if (merged > 0) {
+					before += mergedWeights[merged - 1];
+					kLeft = scale(before / total);
+				}
+				mergedMeans[merged] = mean;
+				mergedWeights[merged] = weight;
+				merged++;
+			}
+		}
+		means = mergedMeans;
+		weights = mergedWeights;
+		centroids = merged;
+	}
+
+	private double scale(double q) {
+		return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+	}
+}
@@ -31,10 +31,10 @@ public class McpConfiguration {
      * 
      * Tool count by exposure level:
      * - Public: 11 core MongoDB operations
-     * - All: 39+ comprehensive tools across three service categories:
+     * - All: 48+ comprehensive tools across three service categories:
      *   * Core Operations: 20 database, collection, and document operations
      *   * Advanced Analytics: 12 aggregation, indexing, and administration tools
-     *   * AI-Powered Tools: 7 vector search, semantic analysis, and embeddings
+     *   * AI-Powered Tools: 16 vector search, semantic analysis, schema registry, embeddings, chunking and embedding jobs
      */
     @Bean
     public ToolCallbackProvider mongoTools(MongoServiceClient mongoServiceClient,
@@ -44,7 +44,7 @@ public class McpConfiguration {
         logger.info("Configuring MCP tools with exposure level: {}", toolsExposure);
         
         if ("all".equalsIgnoreCase(toolsExposure)) {
-            logger.info("Registering ALL 39 MongoDB MCP tools (Core + Advanced + AI)");
+            logger.info("Registering ALL 48 MongoDB MCP tools (Core + Advanced + AI)");
             return MethodToolCallbackProvider.builder()
                     .toolObjects(mongoServiceClient, mongoAdvancedAnalyticsService, mongoAIService)
                     .build();
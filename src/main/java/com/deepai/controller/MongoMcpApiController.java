@@ -12,7 +12,7 @@ import java.util.Map;
 
 /**
  * REST Controller for MongoDB MCP Server operations.
- * Provides HTTP endpoints for testing all 39 MongoDB MCP Server tools.
+ * Provides HTTP endpoints for testing all 48 MongoDB MCP Server tools.
  * Covers MongoServiceClient, MongoAdvancedAnalyticsService, and MongoAIService.
  */
 @RestController
@@ -206,9 +206,11 @@ public class MongoMcpApiController {
             @RequestParam String collectionName,
             @RequestParam String field,
             @RequestParam String dimensionsStr,
-            @RequestParam(required = false, defaultValue = "euclidean") String similarity) {
+            @RequestParam(required = false, defaultValue = "euclidean") String similarity,
+            @RequestParam(required = false, defaultValue = "{}") String indexOptions) {
         int dimensions = Integer.parseInt(dimensionsStr);
-        return mongoAdvancedAnalyticsService.createVectorIndex(dbName, collectionName, field, dimensions, similarity);
+        return mongoAdvancedAnalyticsService.createVectorIndex(dbName, collectionName, field, dimensions, similarity,
+                indexOptions);
     }
 
     @PostMapping("/aggregation")
@@ -220,12 +222,18 @@ public class MongoMcpApiController {
     }
 
     @GetMapping("/analysis/distinct")
-    public List<String> distinctValues(
+    public Map<String, Object> distinctValues(
             @RequestParam String dbName,
             @RequestParam String collectionName,
             @RequestParam String field,
-            @RequestParam(required = false, defaultValue = "{}") String filter) {
-        return mongoAdvancedAnalyticsService.distinctValues(dbName, collectionName, field, filter);
+            @RequestParam(required = false, defaultValue = "{}") String filter,
+            @RequestParam(required = false, defaultValue = "false") String approximateStr,
+            @RequestParam(required = false, defaultValue = "100") String pageSizeStr,
+            @RequestParam(required = false) String pageToken) {
+        boolean approximate = Boolean.parseBoolean(approximateStr);
+        int pageSize = Integer.parseInt(pageSizeStr);
+        return mongoAdvancedAnalyticsService.distinctValues(dbName, collectionName, field, filter, approximate,
+                pageSize, pageToken);
     }
 
     @PostMapping("/analysis/group")
@@ -234,8 +242,11 @@ public class MongoMcpApiController {
             @RequestParam String collectionName,
             @RequestParam String groupField,
             @RequestParam(required = false, defaultValue = "{}") String accumulator,
-            @RequestParam(required = false, defaultValue = "{}") String filter) {
-        return mongoAdvancedAnalyticsService.groupByField(dbName, collectionName, groupField, accumulator, filter);
+            @RequestParam(required = false, defaultValue = "{}") String filter,
+            @RequestParam(required = false, defaultValue = "false") String approximateStr) {
+        boolean approximate = Boolean.parseBoolean(approximateStr);
+        return mongoAdvancedAnalyticsService.groupByField(dbName, collectionName, groupField, accumulator, filter,
+                approximate);
     }
 
     @GetMapping("/search/text")
@@ -326,18 +337,73 @@ public class MongoMcpApiController {
         return mongoAIService.aiQuerySuggestion(dbName, collectionName, userIntent, context);
     }
 
+    @GetMapping("/ai/schema")
+    public Map<String, Object> getCollectionSchema(
+            @RequestParam String dbName,
+            @RequestParam String collectionName,
+            @RequestParam(required = false, defaultValue = "false") String refreshStr) {
+        boolean refresh = Boolean.parseBoolean(refreshStr);
+        return mongoAIService.getCollectionSchema(dbName, collectionName, refresh);
+    }
+
     @PostMapping("/ai/embeddings")
     public Map<String, Object> generateEmbeddings(
             @RequestParam String dbName,
             @RequestParam String collectionName,
             @RequestParam String textField,
             @RequestParam String embeddingField,
-            @RequestParam(required = false, defaultValue = "text-embedding-ada-002") String aiModel,
+            @RequestParam(required = false) String aiModel,
             @RequestParam(required = false, defaultValue = "1000") String batchSizeStr) {
         int batchSize = Integer.parseInt(batchSizeStr);
         return mongoAIService.generateEmbeddings(dbName, collectionName, textField, embeddingField, aiModel, batchSize);
     }
 
+    @PostMapping("/ai/embeddings/chunks")
+    public Map<String, Object> generateChunkEmbeddings(
+            @RequestParam String dbName,
+            @RequestParam String collectionName,
+            @RequestParam(required = false) String textField,
+            @RequestParam String embeddingField,
+            @RequestParam(required = false, defaultValue = "256") String maxTokensStr,
+            @RequestParam(required = false, defaultValue = "32") String overlapTokensStr,
+            @RequestParam(required = false, defaultValue = "100") String batchSizeStr) {
+        int maxTokens = Integer.parseInt(maxTokensStr);
+        int overlapTokens = Integer.parseInt(overlapTokensStr);
+        int batchSize = Integer.parseInt(batchSizeStr);
+        return mongoAIService.generateChunkEmbeddings(dbName, collectionName, textField, embeddingField, maxTokens,
+                overlapTokens, batchSize);
+    }
+
+    @PostMapping("/ai/embeddings/jobs")
+    public Map<String, Object> startEmbeddingJob(
+            @RequestParam String dbName,
+            @RequestParam String collectionName,
+            @RequestParam String textField,
+            @RequestParam String embeddingField,
+            @RequestParam(required = false) String aiModel) {
+        return mongoAIService.startEmbeddingJob(dbName, collectionName, textField, embeddingField, aiModel);
+    }
+
+    @GetMapping("/ai/embeddings/jobs")
+    public Map<String, Object> getEmbeddingJobStatus(@RequestParam(required = false, defaultValue = "") String jobId) {
+        return mongoAIService.getEmbeddingJobStatus(jobId);
+    }
+
+    @PostMapping("/ai/embeddings/jobs/pause")
+    public Map<String, Object> pauseEmbeddingJob(@RequestParam String jobId) {
+        return mongoAIService.pauseEmbeddingJob(jobId);
+    }
+
+    @PostMapping("/ai/embeddings/jobs/resume")
+    public Map<String, Object> resumeEmbeddingJob(@RequestParam String jobId) {
+        return mongoAIService.resumeEmbeddingJob(jobId);
+    }
+
+    @PostMapping("/ai/embeddings/jobs/cancel")
+    public Map<String, Object> cancelEmbeddingJob(@RequestParam String jobId) {
+        return mongoAIService.cancelEmbeddingJob(jobId);
+    }
+
     @PostMapping("/ai/search/semantic")
     public List<Document> semanticSearch(
             @RequestParam String dbName,
@@ -357,8 +423,42 @@ public class MongoMcpApiController {
             @RequestParam String vectorField,
             @RequestBody String queryVector,
             @RequestParam(required = false, defaultValue = "10") String limitStr,
-            @RequestParam(required = false, defaultValue = "{}") String filter) {
+            @RequestParam(required = false, defaultValue = "") String similarity,
+            @RequestParam(required = false, defaultValue = "") String filterJson,
+            @RequestParam(required = false, defaultValue = "false") String searchChunksStr) {
+        int limit = Integer.parseInt(limitStr);
+        boolean searchChunks = Boolean.parseBoolean(searchChunksStr);
+        return mongoAIService.vectorSearch(dbName, collectionName, vectorField, queryVector, limit, similarity,
+                filterJson, searchChunks);
+    }
+
+    @PostMapping("/ai/search/vector/batch")
+    public List<Document> vectorSearchBatch(
+            @RequestParam String dbName,
+            @RequestParam String collectionName,
+            @RequestParam String vectorField,
+            @RequestBody String queryVectors,
+            @RequestParam(required = false, defaultValue = "10") String limitStr,
+            @RequestParam(required = false, defaultValue = "") String similarity,
+            @RequestParam(required = false, defaultValue = "") String filterJson) {
+        int limit = Integer.parseInt(limitStr);
+        return mongoAIService.vectorSearchBatch(dbName, collectionName, vectorField, queryVectors, limit, similarity,
+                filterJson);
+    }
+
+    @PostMapping("/ai/search/hybrid")
+    public List<Document> hybridSearch(
+            @RequestParam String dbName,
+            @RequestParam String collectionName,
+            @RequestParam String queryText,
+            @RequestParam String vectorField,
+            @RequestBody(required = false) String queryVector,
+            @RequestParam(required = false, defaultValue = "10") String limitStr,
+            @RequestParam(required = false, defaultValue = "rrf") String fusion,
+            @RequestParam(required = false, defaultValue = "0.5") String vectorWeightStr) {
         int limit = Integer.parseInt(limitStr);
-        return mongoAIService.vectorSearch(dbName, collectionName, vectorField, queryVector, limit, filter);
+        double vectorWeight = Double.parseDouble(vectorWeightStr);
+        return mongoAIService.hybridSearch(dbName, collectionName, queryText, vectorField, queryVector, limit, fusion,
+                vectorWeight);
     }
 }
@@ -0,0 +1,311 @@
+package com.deepai.embedding;
+
+import com.deepai.service.MongoServiceClient;
+import com.deepai.vector.Float32VectorCodec;
+import com.deepai.vector.VectorMath;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed embedding cache keyed by model and the SHA-256 of the normalized text (NFC, trimmed,
+ * whitespace collapsed), so re-embedding unchanged text costs a hash instead of a model call. The first tier
+ * is an in-memory Caffeine cache bounded by {@code mcp.embeddings.cache.max-bytes} with W-TinyLFU admission;
+ * with {@code mcp.embeddings.cache.persistent=true} misses fall through to a MongoDB collection that survives
+ * restarts and is shared between instances. New entries are written to it in batched, unordered upserts.
+ */
+@Component
+public class EmbeddingCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	// Key string, array header and the cache's node for one entry
+	private static final int ENTRY_OVERHEAD_BYTES = 160;
+	private static final int FLUSH_BATCH = 500;
+	private static final int MAX_REMEMBERED_ABSENT = 100_000;
+
+	private final boolean enabled;
+	private final Cache<String, float[]> memory;
+	private final MongoClient mongoClient;
+	private final String database;
+	private final String collection;
+	private final Map<String, Document> pendingWrites = new ConcurrentHashMap<>();
+	// Keys a prefetch found missing from the persistent tier; the next get computes without asking again
+	private final Cache<String, Boolean> absent = Caffeine.newBuilder()
+			.maximumSize(MAX_REMEMBERED_ABSENT)
+			.expireAfterWrite(1, TimeUnit.MINUTES)
+			.build();
+	private final ScheduledExecutorService flusher;
+	private final LongAdder persistentHits = new LongAdder();
+	private final LongAdder persistentMisses = new LongAdder();
+	private final LongAdder computed = new LongAdder();
+
+	@Autowired
+	public EmbeddingCache(MongoServiceClient mongoServiceClient, ObjectProvider<MeterRegistry> meterRegistry,
+			@Value("${mcp.embeddings.cache.enabled:true}") boolean enabled,
+			@Value("${mcp.embeddings.cache.max-bytes:67108864}") long maxBytes,
+			@Value("${mcp.embeddings.cache.persistent:false}") boolean persistent,
+			@Value("${mcp.embeddings.cache.database:mcpserver}") String database,
+			@Value("${mcp.embeddings.cache.collection:embedding_cache}") String collection,
+			@Value("${mcp.embeddings.cache.flush-interval-ms:2000}") long flushIntervalMillis) {
+		this.enabled = enabled;
+		this.memory = Caffeine.newBuilder()
+				.maximumWeight(Math.max(0, maxBytes))
+				.weigher((String key, float[] embedding) -> ENTRY_OVERHEAD_BYTES + embedding.length * Float.BYTES)
+				.recordStats()
+				.build();
+		this.mongoClient = enabled && persistent ? mongoServiceClient.getMongoClient() : null;
+		this.database = database;
+		this.collection = collection;
+		if (mongoClient != null) {
+			this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "embedding-cache-flusher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			long interval = Math.max(100, flushIntervalMillis);
+			flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+		} else {
+			this.flusher = null;
+		}
+		if (meterRegistry != null) {
+			meterRegistry.ifAvailable(this::bindMetrics);
+		}
+		logger.info("Embedding cache {}: {} bytes in memory{}", enabled ? "enabled" : "disabled", maxBytes,
+				mongoClient != null ? ", persisted to " + database + "." + collection : "");
+	}
+
+	/**
+	 * An in-memory cache of at most {@code maxBytes}, without the persistent tier.
+	 */
+	public EmbeddingCache(long maxBytes) {
+		this(null, null, true, maxBytes, false, null, null, 0);
+	}
+
+	/**
+	 * Cache key for {@code text} embedded by {@code model}: the model name and the hex SHA-256 of the
+	 * normalized text.
+	 */
+	public static String key(String model, String text) {
+		try {
+			MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+			byte[] digest = sha256.digest(normalize(text).getBytes(StandardCharsets.UTF_8));
+			return model + ":" + HexFormat.of().formatHex(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	static String normalize(String text) {
+		return WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFC).strip()).replaceAll(" ");
+	}
+
+	/**
+	 * The cached embedding of {@code text} under {@code model}, computing and caching it on a miss. A null or
+	 * empty result of {@code compute} is returned as is and not cached. The returned array is shared with the
+	 * cache and must not be modified.
+	 */
+	public float[] get(String model, String text, Function<String, float[]> compute) {
+		if (!enabled) {
+			return compute.apply(text);
+		}
+		String key = key(model, text);
+		float[] cached = memory.getIfPresent(key);
+		if (cached == null && mongoClient != null && absent.asMap().remove(key) == null) {
+			cached = readPersistent(key);
+			if (cached != null) {
+				persistentHits.increment();
+				memory.put(key, cached);
+			} else {
+				persistentMisses.increment();
+			}
+		}
+		if (cached != null) {
+			return cached;
+		}
+
+		float[] embedding = compute.apply(text);
+		computed.increment();
+		if (embedding == null || embedding.length == 0) {
+			return embedding;
+		}
+		memory.put(key, embedding);
+		if (mongoClient != null) {
+			pendingWrites.put(key,
+					new Document("model", model).append("embedding", Float32VectorCodec.toBinary(embedding)));
+			if (pendingWrites.size() >= FLUSH_BATCH && !flusher.isShutdown()) {
+				flusher.execute(this::flush);
+			}
+		}
+		return embedding;
+	}
+
+	/**
+	 * Loads the persistent entries of those {@code texts} that are not in memory with one {@code $in} query,
+	 * so the {@link #get} calls that follow find them in memory instead of making one round trip each. Keys
+	 * the persistent tier does not hold are remembered until their next {@code get}, which then computes
+	 * straight away. A no-op without the persistent tier.
+	 */
+	public void prefetch(String model, Collection<String> texts) {
+		if (mongoClient == null || texts.isEmpty()) {
+			return;
+		}
+		Set<String> missing = new HashSet<>();
+		for (String text : texts) {
+			String key = key(model, text);
+			// Checked through the map view so the probe does not count as a memory miss
+			if (!memory.asMap().containsKey(key)) {
+				missing.add(key);
+			}
+		}
+		if (missing.isEmpty()) {
+			return;
+		}
+		try {
+			for (Document entry : entries().find(Filters.in("_id", missing))
+					.projection(Projections.include("embedding"))) {
+				float[] embedding = VectorMath.toFloatArray(entry.get("embedding"));
+				if (embedding != null && missing.remove(entry.getString("_id"))) {
+					memory.put(entry.getString("_id"), embedding);
+					persistentHits.increment();
+				}
+			}
+		} catch (RuntimeException e) {
+			// Leave the keys to the per-key lookup in get
+			logger.debug("Embedding cache prefetch failed: {}", e.getMessage());
+			return;
+		}
+		persistentMisses.add(missing.size());
+		missing.forEach(key -> absent.put(key, Boolean.TRUE));
+	}
+
+	/**
+	 * Hit rates of both tiers and how often the model had to be called.
+	 */
+	public Map<String, Object> stats() {
+		memory.cleanUp();
+		CacheStats memoryStats = memory.stats();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("enabled", enabled);
+		stats.put("entries", memory.estimatedSize());
+		stats.put("hits", memoryStats.hitCount());
+		stats.put("misses", memoryStats.missCount());
+		stats.put("hitRate", Math.round(memoryStats.hitRate() * 1000) / 1000.0);
+		stats.put("evictions", memoryStats.evictionCount());
+		stats.put("computed", computed.sum());
+		if (mongoClient != null) {
+			long hits = persistentHits.sum();
+			long lookups = hits + persistentMisses.sum();
+			stats.put("persistentHits", hits);
+			stats.put("persistentMisses", lookups - hits);
+			stats.put("persistentHitRate", lookups > 0 ? Math.round(hits * 1000.0 / lookups) / 1000.0 : 0.0);
+			stats.put("pendingWrites", pendingWrites.size());
+		}
+		return stats;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (flusher != null) {
+			flusher.shutdownNow();
+			flush();
+		}
+	}
+
+	private float[] readPersistent(String key) {
+		try {
+			Document entry = entries().find(Filters.eq("_id", key)).projection(Projections.include("embedding"))
+					.first();
+			// Entries written before the binary format are arrays of doubles
+			return entry != null ? VectorMath.toFloatArray(entry.get("embedding")) : null;
+		} catch (RuntimeException e) {
+			logger.debug("Embedding cache lookup failed, computing instead: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Upserts the buffered entries. Failures are logged and the entries dropped; they are recomputed on a
+	 * later miss.
+	 */
+	private synchronized void flush() {
+		if (pendingWrites.isEmpty()) {
+			return;
+		}
+		List<UpdateOneModel<Document>> batch = new ArrayList<>();
+		Date now = new Date();
+		UpdateOptions upsert = new UpdateOptions().upsert(true);
+		for (String key : List.copyOf(pendingWrites.keySet())) {
+			Document entry = pendingWrites.remove(key);
+			if (entry != null) {
+				batch.add(new UpdateOneModel<>(Filters.eq("_id", key), Updates.combine(
+						Updates.setOnInsert("model", entry.get("model")),
+						Updates.setOnInsert("embedding", entry.get("embedding")),
+						Updates.setOnInsert("createdAt", now)), upsert));
+			}
+		}
+		try {
+			entries().bulkWrite(batch, new BulkWriteOptions().ordered(false));
+		} catch (MongoBulkWriteException e) {
+			logger.warn("{} of {} embedding cache writes failed: {}", e.getWriteErrors().size(), batch.size(),
+					e.getWriteErrors().get(0).getMessage());
+		} catch (RuntimeException e) {
+			logger.warn("Could not persist {} embedding cache entries: {}", batch.size(), e.getMessage());
+		}
+	}
+
+	private MongoCollection<Document> entries() {
+		return mongoClient.getDatabase(database).getCollection(collection);
+	}
+
+	private void bindMetrics(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, memory, "embeddings");
+		FunctionCounter.builder("embeddings.cache.persistent.gets", persistentHits, LongAdder::sum)
+				.tag("result", "hit").register(registry);
+		FunctionCounter.builder("embeddings.cache.persistent.gets", persistentMisses, LongAdder::sum)
+				.tag("result", "miss").register(registry);
+		FunctionCounter.builder("embeddings.cache.computed", computed, LongAdder::sum).register(registry);
+	}
+}
@@ -0,0 +1,195 @@
+package com.deepai.embedding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces single-text embedding requests into micro-batches for the {@link EmbeddingProvider}. A batch is
+ * sent once it reaches the provider's {@code maxBatchSize} or once its first request has waited
+ * {@code mcp.embeddings.dispatch.max-wait-ms}, whichever comes first. At most {@code maxConcurrency} batches
+ * run at once; while all are busy, requests accumulate into the next batch, and once
+ * {@code mcp.embeddings.dispatch.queue-capacity} requests are waiting, callers block.
+ */
+@Component
+public class EmbeddingDispatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddingDispatcher.class);
+
+	private final EmbeddingProvider provider;
+	private final long maxWaitNanos;
+	private final BlockingQueue<Request> queue;
+	private final Semaphore batchPermits;
+	private final ExecutorService executor;
+	private final Thread dispatcher;
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder failedBatches = new LongAdder();
+	private volatile boolean running = true;
+
+	public EmbeddingDispatcher(EmbeddingProvider provider,
+			@Value("${mcp.embeddings.dispatch.max-wait-ms:5}") long maxWaitMillis,
+			@Value("${mcp.embeddings.dispatch.queue-capacity:1024}") int queueCapacity) {
+		this.provider = provider;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+		int concurrency = Math.max(1, provider.maxConcurrency());
+		this.batchPermits = new Semaphore(concurrency);
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+			Thread thread = new Thread(runnable, "embedding-batch-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.dispatcher = new Thread(this::dispatch, "embedding-dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+		logger.info("Embedding provider {} ({} dimensions): batches of up to {}, {} concurrent, {} ms budget",
+				provider.model(), provider.dimensions(), provider.maxBatchSize(), concurrency, maxWaitMillis);
+	}
+
+	public String model() {
+		return provider.model();
+	}
+
+	public int dimensions() {
+		return provider.dimensions();
+	}
+
+	/**
+	 * Embeds one text as part of the next micro-batch, blocking until its batch has been embedded.
+	 */
+	public float[] embed(String text) {
+		if (!running) {
+			throw new IllegalStateException("Embedding dispatcher is shut down");
+		}
+		Request request = new Request(text, new CompletableFuture<>());
+		try {
+			queue.put(request);
+			requests.increment();
+			if (!running) {
+				failQueued();
+			}
+			return request.result().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for embedding", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtime) {
+				throw runtime;
+			}
+			throw new IllegalStateException("Embedding failed: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Requests and batches so far; a mean batch size near one means there is little to coalesce.
+	 */
+	public Map<String, Object> stats() {
+		long requestCount = requests.sum();
+		long batchCount = batches.sum();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("model", provider.model());
+		stats.put("dimensions", provider.dimensions());
+		stats.put("requests", requestCount);
+		stats.put("batches", batchCount);
+		stats.put("failedBatches", failedBatches.sum());
+		stats.put("meanBatchSize", batchCount > 0 ? Math.round(requestCount * 10.0 / batchCount) / 10.0 : 0.0);
+		stats.put("queued", queue.size());
+		return stats;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		running = false;
+		dispatcher.interrupt();
+		executor.shutdownNow();
+		failQueued();
+	}
+
+	private void failQueued() {
+		List<Request> abandoned = new ArrayList<>();
+		queue.drainTo(abandoned);
+		abandoned.forEach(request -> request.result()
+				.completeExceptionally(new IllegalStateException("Embedding dispatcher is shut down")));
+	}
+
+	private void dispatch() {
+		int maxBatch = Math.max(1, provider.maxBatchSize());
+		while (running) {
+			try {
+				// Wait for a free slot first, so requests arriving meanwhile join the next batch
+				batchPermits.acquire();
+				List<Request> batch = new ArrayList<>();
+				try {
+					batch.add(queue.take());
+					long deadline = System.nanoTime() + maxWaitNanos;
+					while (batch.size() < maxBatch) {
+						long remaining = deadline - System.nanoTime();
+						Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+						if (next == null) {
+							break;
+						}
+						batch.add(next);
+					}
+					executor.execute(() -> embedBatch(batch));
+				} catch (RuntimeException | InterruptedException e) {
+					batchPermits.release();
+					batch.forEach(request -> request.result().completeExceptionally(e));
+					throw e;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				if (running) {
+					logger.warn("Embedding dispatcher could not schedule a batch: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	private void embedBatch(List<Request> batch) {
+		try {
+			List<String> texts = new ArrayList<>(batch.size());
+			batch.forEach(request -> texts.add(request.text()));
+			List<float[]> embeddings = provider.embed(texts);
+			if (embeddings == null || embeddings.size() != texts.size()) {
+				throw new IllegalStateException("Embedding provider " + provider.model() + " returned "
+						+ (embeddings == null ? "no" : embeddings.size()) + " embeddings for " + texts.size()
+						+ " texts");
+			}
+			batches.increment();
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).result().complete(embeddings.get(i));
+			}
+		} catch (RuntimeException e) {
+			failedBatches.increment();
+			logger.warn("Embedding batch of {} texts failed: {}", batch.size(), e.getMessage());
+			batch.forEach(request -> request.result().completeExceptionally(e));
+		} finally {
+			batchPermits.release();
+		}
+	}
+
+	private record Request(String text, CompletableFuture<float[]> result) {
+	}
+}
@@ -0,0 +1,513 @@
+package com.deepai.embedding;
+
+import com.deepai.service.MongoServiceClient;
+import com.deepai.vector.VectorStoreManager;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Background embedding back-fills. Each job walks its collection in {@code _id} order in chunks of
+ * {@code mcp.embeddings.jobs.checkpoint-interval} documents, runs every chunk through the
+ * {@link EmbeddingPipeline} and checkpoints the last {@code _id} and counters to the job collection, so a
+ * paused, failed or interrupted job continues where it stopped. At most {@code max-concurrent} jobs run at
+ * once; the rest wait as {@code queued}. Jobs left queued or running by a previous process are picked up
+ * again once an embedder is registered.
+ */
+@Component
+public class EmbeddingJobManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddingJobManager.class);
+	private static final Document ID_INDEX = new Document("_id", 1);
+	private static final int STATUS_LIST_LIMIT = 20;
+
+	/**
+	 * Job lifecycle; stored lower-case in the job document.
+	 */
+	public enum State {
+		QUEUED, RUNNING, PAUSED, CANCELLED, COMPLETED, FAILED;
+
+		public String label() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+
+		static State of(String label) {
+			return label != null ? valueOf(label.toUpperCase(Locale.ROOT)) : FAILED;
+		}
+
+		boolean terminal() {
+			return this == CANCELLED || this == COMPLETED;
+		}
+
+		/**
+		 * The states a job may enter this one from. Every state change is a conditional update on these, so a
+		 * runner starting or finishing cannot overwrite a concurrent pause or cancel, nor the other way round.
+		 */
+		public Set<State> allowedFrom() {
+			return switch (this) {
+			case QUEUED -> EnumSet.of(PAUSED, FAILED);
+			case RUNNING, PAUSED, FAILED -> EnumSet.of(QUEUED, RUNNING);
+			case CANCELLED -> EnumSet.of(QUEUED, RUNNING, PAUSED, FAILED);
+			case COMPLETED -> EnumSet.of(RUNNING);
+			};
+		}
+	}
+
+	/**
+	 * Creates the per-document embedder for a job's text field and model.
+	 */
+	@FunctionalInterface
+	public interface EmbedderFactory {
+		EmbeddingPipeline.Embedder create(String textField, String model);
+	}
+
+	private final MongoClient mongoClient;
+	private final EmbeddingPipeline pipeline;
+	private final VectorStoreManager vectorStoreManager;
+	private final String jobsDatabase;
+	private final String jobsCollection;
+	private final int checkpointInterval;
+	private final ThreadPoolExecutor executor;
+	private final Map<String, Runner> runners = new ConcurrentHashMap<>();
+	private volatile EmbedderFactory embedders;
+
+	public EmbeddingJobManager(MongoServiceClient mongoServiceClient, EmbeddingPipeline pipeline,
+			VectorStoreManager vectorStoreManager,
+			@Value("${mcp.embeddings.jobs.max-concurrent:2}") int maxConcurrent,
+			@Value("${mcp.embeddings.jobs.checkpoint-interval:1000}") int checkpointInterval,
+			@Value("${mcp.embeddings.jobs.database:mcpserver}") String jobsDatabase,
+			@Value("${mcp.embeddings.jobs.collection:embedding_jobs}") String jobsCollection) {
+		this.mongoClient = mongoServiceClient.getMongoClient();
+		this.pipeline = pipeline;
+		this.vectorStoreManager = vectorStoreManager;
+		this.jobsDatabase = jobsDatabase;
+		this.jobsCollection = jobsCollection;
+		this.checkpointInterval = Math.max(1, checkpointInterval);
+		int threads = Math.max(1, maxConcurrent);
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "embedding-job-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Sets how jobs embed documents and resumes jobs interrupted by a restart. Called once by the service that
+	 * owns the embedding model.
+	 */
+	public void registerEmbedders(EmbedderFactory embedders) {
+		this.embedders = embedders;
+		executor.execute(this::recover);
+	}
+
+	/**
+	 * Queues a job embedding every document of the collection that lacks {@code embeddingField}.
+	 */
+	public Document start(String database, String collection, String textField, String embeddingField,
+			String model) {
+		String id = UUID.randomUUID().toString().substring(0, 8);
+		Date now = new Date();
+		Document job = new Document("_id", id)
+				.append("database", database)
+				.append("collection", collection)
+				.append("textField", textField)
+				.append("embeddingField", embeddingField)
+				.append("aiModel", model)
+				.append("state", State.QUEUED.label())
+				.append("processed", 0L)
+				.append("embedded", 0L)
+				.append("skipped", 0L)
+				.append("failed", 0L)
+				.append("bytesWritten", 0L)
+				.append("createdAt", now)
+				.append("updatedAt", now);
+		jobs().insertOne(job);
+		submit(id);
+		logger.info("Queued embedding job {} for {}.{} ({} -> {})", id, database, collection, textField,
+				embeddingField);
+		return describe(job);
+	}
+
+	/**
+	 * Progress of one job, or a summary of the most recent jobs when {@code jobId} is blank.
+	 */
+	public Document status(String jobId) {
+		if (jobId == null || jobId.isBlank()) {
+			List<Document> recent = new ArrayList<>();
+			for (Document job : jobs().find().sort(Sorts.descending("createdAt")).limit(STATUS_LIST_LIMIT)) {
+				recent.add(describe(job));
+			}
+			return new Document("jobs", recent).append("count", recent.size());
+		}
+		return describe(find(jobId));
+	}
+
+	/**
+	 * Stops the job after its in-flight documents are written; {@link #resume} continues from the checkpoint.
+	 */
+	public Document pause(String jobId) {
+		Document job = find(jobId);
+		State state = State.of(job.getString("state"));
+		if (!State.PAUSED.allowedFrom().contains(state)) {
+			throw new IllegalStateException(
+					"Job " + jobId + " is " + state.label() + ", only queued or running jobs can be paused");
+		}
+		Document updated = setState(jobId, State.PAUSED);
+		requestStop(jobId, State.PAUSED);
+		return describe(updated);
+	}
+
+	/**
+	 * Re-queues a paused or failed job from its last checkpoint.
+	 */
+	public Document resume(String jobId) {
+		Document job = find(jobId);
+		State state = State.of(job.getString("state"));
+		if (!State.QUEUED.allowedFrom().contains(state)) {
+			throw new IllegalStateException(
+					"Job " + jobId + " is " + state.label() + ", only paused or failed jobs can be resumed");
+		}
+		if (runners.containsKey(jobId)) {
+			throw new IllegalStateException("Job " + jobId + " is still stopping, try again shortly");
+		}
+		Document updated = setState(jobId, State.QUEUED);
+		submit(jobId);
+		return describe(updated);
+	}
+
+	/**
+	 * Stops the job for good. Embeddings already written stay in place.
+	 */
+	public Document cancel(String jobId) {
+		Document job = find(jobId);
+		State state = State.of(job.getString("state"));
+		if (state.terminal()) {
+			throw new IllegalStateException("Job " + jobId + " is already " + state.label());
+		}
+		Document updated = setState(jobId, State.CANCELLED);
+		requestStop(jobId, State.CANCELLED);
+		return describe(updated);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		// Interrupted jobs keep their running state and checkpoint, so the next process resumes them
+		runners.values().forEach(runner -> runner.stopRequest = State.QUEUED);
+		executor.shutdownNow();
+	}
+
+	private void recover() {
+		try {
+			for (Document job : jobs().find(Filters.in("state", State.QUEUED.label(), State.RUNNING.label()))) {
+				String id = job.getString("_id");
+				if (!runners.containsKey(id)) {
+					logger.info("Resuming embedding job {} from its last checkpoint", id);
+					submit(id);
+				}
+			}
+		} catch (Exception e) {
+			logger.warn("Could not recover embedding jobs from {}.{}: {}", jobsDatabase, jobsCollection,
+					e.getMessage());
+		}
+	}
+
+	private void submit(String jobId) {
+		Runner runner = new Runner(jobId);
+		runners.put(jobId, runner);
+		executor.execute(runner);
+	}
+
+	private void requestStop(String jobId, State state) {
+		Runner runner = runners.get(jobId);
+		if (runner != null) {
+			runner.stopRequest = state;
+		}
+	}
+
+	private Document find(String jobId) {
+		Document job = jobs().find(Filters.eq("_id", jobId)).first();
+		if (job == null) {
+			throw new IllegalArgumentException("Embedding job '" + jobId + "' not found");
+		}
+		return job;
+	}
+
+	/**
+	 * Moves the job to {@code state} for a caller that checked the current state first, failing if the job
+	 * changed state in between.
+	 */
+	private Document setState(String jobId, State state) {
+		if (!transition(jobId, state, List.of())) {
+			State current = State.of(find(jobId).getString("state"));
+			throw new IllegalStateException("Job " + jobId + " became " + current.label() + " meanwhile, it can no "
+					+ "longer be " + state.label());
+		}
+		return find(jobId);
+	}
+
+	/**
+	 * Moves the job to {@code state}, applying {@code extra} updates with it, if it is still in one of the states
+	 * allowed before it. Returns false when the job had already moved elsewhere.
+	 */
+	private boolean transition(String jobId, State state, List<Bson> extra) {
+		List<Bson> updates = new ArrayList<>(List.of(Updates.set("state", state.label()),
+				Updates.set("updatedAt", new Date())));
+		if (state.terminal() || state == State.FAILED) {
+			updates.add(Updates.set("finishedAt", new Date()));
+		}
+		updates.addAll(extra);
+		List<String> from = state.allowedFrom().stream().map(State::label).toList();
+		return jobs().updateOne(Filters.and(Filters.eq("_id", jobId), Filters.in("state", from)),
+				Updates.combine(updates)).getMatchedCount() > 0;
+	}
+
+	/**
+	 * The stored job plus derived progress: percent complete, and an ETA from the current run's rate.
+	 */
+	private Document describe(Document job) {
+		Document view = new Document(job);
+		view.put("jobId", view.remove("_id"));
+		view.remove("lastId");
+		long processed = job.get("processed", Number.class).longValue();
+		Number total = job.get("total", Number.class);
+		Number rate = job.get("documentsPerSecond", Number.class);
+		if (total != null && total.longValue() > 0) {
+			view.put("percentComplete", Math.min(100.0, Math.round(processed * 1000.0 / total.longValue()) / 10.0));
+			if (State.of(job.getString("state")) == State.RUNNING && rate != null && rate.doubleValue() > 0) {
+				view.put("etaSeconds", Math.max(0L, Math.round((total.longValue() - processed) / rate.doubleValue())));
+			}
+		}
+		Runner runner = runners.get(job.get("_id"));
+		view.put("active", runner != null && runner.started);
+		return view;
+	}
+
+	private MongoCollection<Document> jobs() {
+		return mongoClient.getDatabase(jobsDatabase).getCollection(jobsCollection);
+	}
+
+	/**
+	 * Runs one job until it completes, fails or is asked to stop, checkpointing after every chunk.
+	 */
+	private final class Runner implements Runnable {
+
+		private final String id;
+		private volatile State stopRequest;
+		private volatile boolean started;
+
+		private Runner(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Document job = jobs().find(Filters.eq("_id", id)).first();
+				State state = job != null ? State.of(job.getString("state")) : State.CANCELLED;
+				if (stopRequest != null || (state != State.QUEUED && state != State.RUNNING)) {
+					return;
+				}
+				started = true;
+				execute(job);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.info("Embedding job {} interrupted; it resumes from its checkpoint on restart", id);
+			} catch (Exception e) {
+				logger.error("Embedding job {} failed: {}", id, e.getMessage());
+				try {
+					if (!transition(id, State.FAILED, List.of(Updates.set("error", String.valueOf(e.getMessage()))))) {
+						logger.info("Embedding job {} was paused or cancelled before its failure was recorded", id);
+					}
+				} catch (Exception statusError) {
+					logger.warn("Could not record failure of embedding job {}: {}", id, statusError.getMessage());
+				}
+			} finally {
+				runners.remove(id, this);
+			}
+		}
+
+		private void execute(Document job) throws InterruptedException {
+			MongoCollection<Document> target = mongoClient.getDatabase(job.getString("database"))
+					.getCollection(job.getString("collection"));
+			String embeddingField = job.getString("embeddingField");
+			Bson missing = Filters.exists(embeddingField, false);
+			Date now = new Date();
+			List<Bson> starting = new ArrayList<>(List.of(Updates.unset("error"), Updates.unset("finishedAt")));
+			if (!job.containsKey("startedAt")) {
+				starting.add(Updates.set("startedAt", now));
+			}
+			if (!job.containsKey("total")) {
+				long total = target.countDocuments(missing);
+				job.put("total", total);
+				starting.add(Updates.set("total", total));
+			}
+			if (!transition(id, State.RUNNING, starting)) {
+				logger.info("Embedding job {} was paused or cancelled before it started", id);
+				return;
+			}
+			logger.info("Embedding job {} running on {}.{}, {} documents to embed", id, job.getString("database"),
+					job.getString("collection"), job.get("total"));
+
+			EmbedderFactory factory = embedders;
+			if (factory == null) {
+				throw new IllegalStateException("No embedding model registered");
+			}
+			EmbeddingPipeline.Embedder embedder = factory.create(job.getString("textField"),
+					job.getString("aiModel"));
+			EmbeddingPipeline.Sink sink = EmbeddingPipeline.bulkWriter(target, () -> vectorStoreManager
+					.invalidate(job.getString("database"), job.getString("collection")));
+			boolean hasCheckpoint = job.containsKey("lastId");
+			Object lastId = job.get("lastId");
+			long runProcessed = 0;
+			long runStart = System.nanoTime();
+
+			while (stopRequest == null) {
+				FindIterable<Document> chunk = target.find(missing).sort(ID_INDEX).hint(ID_INDEX)
+						.limit(checkpointInterval + (hasCheckpoint ? 1 : 0));
+				if (hasCheckpoint) {
+					// min() is an index bound, so the walk follows _id order across BSON types
+					chunk = chunk.min(new Document("_id", lastId));
+				}
+				ChunkSource source = new ChunkSource(chunk, hasCheckpoint, lastId, () -> stopRequest != null);
+				EmbeddingPipeline.Stats stats = pipeline.run(source, embeddingField, embedder, sink);
+				if (source.read() == 0) {
+					break;
+				}
+				hasCheckpoint = true;
+				lastId = source.lastId();
+				runProcessed += stats.read();
+				double rate = runProcessed / Math.max(0.001, (System.nanoTime() - runStart) / 1e9);
+				jobs().updateOne(Filters.eq("_id", id), Updates.combine(
+						Updates.set("lastId", lastId),
+						Updates.inc("processed", stats.read()),
+						Updates.inc("embedded", stats.written()),
+						Updates.inc("skipped", stats.skipped()),
+						Updates.inc("failed", stats.failed()),
+						Updates.inc("bytesWritten", stats.bytesWritten()),
+						Updates.set("documentsPerSecond", Math.round(rate * 10) / 10.0),
+						Updates.set("updatedAt", new Date())));
+			}
+
+			State stop = stopRequest;
+			if (stop == State.QUEUED) {
+				return;
+			}
+			if (stop == null) {
+				if (transition(id, State.COMPLETED, List.of())) {
+					logger.info("Embedding job {} completed", id);
+				} else {
+					logger.info("Embedding job {} ran out of documents after it was paused or cancelled", id);
+				}
+			} else {
+				logger.info("Embedding job {} {} after its last checkpoint", id, stop.label());
+			}
+		}
+	}
+
+	/**
+	 * One chunk of a job's walk. Skips the checkpointed document that the inclusive {@code min} bound returns
+	 * again, remembers the last {@code _id} read and stops early once {@code stopped} reports true.
+	 */
+	public static final class ChunkSource implements Iterable<Document>, Iterator<Document>, Closeable {
+
+		private final Iterable<Document> chunk;
+		private final boolean skipFirst;
+		private final Object previousId;
+		private final BooleanSupplier stopped;
+		private Iterator<Document> documents;
+		private Document next;
+		private long read;
+		private Object lastId;
+
+		public ChunkSource(Iterable<Document> chunk, boolean skipFirst, Object previousId, BooleanSupplier stopped) {
+			this.chunk = chunk;
+			this.skipFirst = skipFirst;
+			this.previousId = previousId;
+			this.stopped = stopped;
+		}
+
+		/**
+		 * Documents handed out so far, not counting the skipped checkpoint document.
+		 */
+		public long read() {
+			return read;
+		}
+
+		/**
+		 * {@code _id} of the last document handed out, or null if none was.
+		 */
+		public Object lastId() {
+			return lastId;
+		}
+
+		@Override
+		public Iterator<Document> iterator() {
+			documents = chunk.iterator();
+			return this;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && !stopped.getAsBoolean() && documents.hasNext()) {
+				Document candidate = documents.next();
+				if (skipFirst && read == 0 && Objects.equals(candidate.get("_id"), previousId)) {
+					continue;
+				}
+				next = candidate;
+			}
+			return next != null;
+		}
+
+		@Override
+		public Document next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Document current = next;
+			next = null;
+			read++;
+			lastId = current.get("_id");
+			return current;
+		}
+
+		@Override
+		public void close() {
+			if (documents instanceof MongoCursor<Document> cursor) {
+				cursor.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package com.deepai.embedding;
+
+import com.deepai.vector.Float32VectorCodec;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipelined embedding back-fill: the caller's thread streams the source cursor, a worker pool computes
+ * embeddings, and a writer thread flushes them as unordered bulk updates capped by document count and
+ * estimated BSON size. The three stages overlap, so a back-fill is bound by embedding compute rather than by
+ * one round trip per document. At most {@code queue-capacity} documents are in flight at once.
+ */
+@Component
+public class EmbeddingPipeline {
+
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddingPipeline.class);
+	// Filter, $set wrapper, a typical _id and the binary vector header around the embedding
+	private static final int UPDATE_OVERHEAD_BYTES = 72;
+	private static final int PREFETCH_BATCH = 256;
+	private static final Embedded END = new Embedded(null, null);
+
+	private final int workers;
+	private final int maxBatchDocuments;
+	private final long maxBatchBytes;
+	private final int queueCapacity;
+	private final ExecutorService executor;
+
+	public EmbeddingPipeline(@Value("${mcp.embeddings.workers:0}") int workers,
+			@Value("${mcp.embeddings.bulk.max-documents:1000}") int maxBatchDocuments,
+			@Value("${mcp.embeddings.bulk.max-bytes:8388608}") long maxBatchBytes,
+			@Value("${mcp.embeddings.queue-capacity:1024}") int queueCapacity) {
+		this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+		this.maxBatchDocuments = Math.max(1, maxBatchDocuments);
+		this.maxBatchBytes = Math.max(1, maxBatchBytes);
+		this.queueCapacity = Math.max(1, queueCapacity);
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+			Thread thread = new Thread(runnable, "embedding-worker-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Computes the embedding of one document. {@link #prefetch} is called on the reader thread with each chunk
+	 * of documents before any of them is embedded, so lookups the embedder would make per document (such as
+	 * the persistent embedding cache) can be made once per chunk instead.
+	 */
+	@FunctionalInterface
+	public interface Embedder {
+		float[] embed(Document document);
+
+		default void prefetch(List<Document> documents) {
+		}
+	}
+
+	/**
+	 * Receives one batch of updates and returns how many documents it modified.
+	 */
+	@FunctionalInterface
+	public interface Sink {
+		long write(List<UpdateOneModel<Document>> batch);
+	}
+
+	/**
+	 * A sink that applies each batch with one unordered {@code bulkWrite}. Per-document write errors do not
+	 * stop the rest of the batch; only the matched updates are counted. {@code afterWrite} runs after every
+	 * batch that reached the server, so caches derived from the collection can be dropped.
+	 */
+	public static Sink bulkWriter(MongoCollection<Document> collection, Runnable afterWrite) {
+		BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+		return batch -> {
+			try {
+				return collection.bulkWrite(batch, options).getMatchedCount();
+			} catch (MongoBulkWriteException e) {
+				logger.warn("{} of {} embedding updates failed in {}: {}", e.getWriteErrors().size(), batch.size(),
+						collection.getNamespace(), e.getWriteErrors().get(0).getMessage());
+				return e.getWriteResult().getMatchedCount();
+			} finally {
+				afterWrite.run();
+			}
+		};
+	}
+
+	public int workers() {
+		return workers;
+	}
+
+	/**
+	 * Embeds every document of {@code source} and writes the result to {@code embeddingField} as a packed
+	 * float32 binary vector. Documents for which {@code embedder} returns null or an empty array are skipped;
+	 * embedder exceptions are counted as failures. A sink exception stops the run and is rethrown once in-flight
+	 * work has drained. The source is read in chunks of up to {@value #PREFETCH_BATCH} documents, each handed to
+	 * {@link Embedder#prefetch} before its documents are submitted.
+	 */
+	public Stats run(Iterable<Document> source, String embeddingField, Embedder embedder, Sink sink)
+			throws InterruptedException {
+		long start = System.nanoTime();
+		BlockingQueue<Embedded> results = new ArrayBlockingQueue<>(queueCapacity + 1);
+		Semaphore inFlight = new Semaphore(queueCapacity);
+		AtomicLong skipped = new AtomicLong();
+		AtomicLong failed = new AtomicLong();
+		BatchWriter writer = new BatchWriter(results, embeddingField, sink);
+		Thread writerThread = new Thread(writer, "embedding-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+
+		long read = 0;
+		Iterator<Document> cursor = source.iterator();
+		try {
+			int chunkSize = Math.min(PREFETCH_BATCH, queueCapacity);
+			List<Document> chunk = new ArrayList<>(chunkSize);
+			while (writer.error == null && cursor.hasNext()) {
+				chunk.clear();
+				while (chunk.size() < chunkSize && cursor.hasNext()) {
+					chunk.add(cursor.next());
+				}
+				prefetch(embedder, chunk);
+				for (Document document : chunk) {
+					inFlight.acquire();
+					read++;
+					executor.execute(() -> embed(document, embedder, writer, results, skipped, failed, inFlight));
+				}
+			}
+		} finally {
+			if (cursor instanceof Closeable closeable) {
+				try {
+					closeable.close();
+				} catch (IOException e) {
+					logger.debug("Error closing embedding source cursor: {}", e.getMessage());
+				}
+			}
+			// Let submitted work drain into the writer before signalling the end of input
+			inFlight.acquireUninterruptibly(queueCapacity);
+			inFlight.release(queueCapacity);
+			boolean interrupted = false;
+			while (true) {
+				try {
+					results.put(END);
+					writerThread.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (writer.error != null) {
+			throw writer.error;
+		}
+		long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		Stats stats = new Stats(read, writer.written, skipped.get(), failed.get(), writer.bytes, writer.batches,
+				elapsedMillis);
+		logger.debug("Embedding pipeline wrote {} of {} documents in {} bulk writes, {} docs/s", stats.written(),
+				read, stats.bulkWrites(), Math.round(stats.documentsPerSecond()));
+		return stats;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private static void prefetch(Embedder embedder, List<Document> chunk) {
+		try {
+			embedder.prefetch(chunk);
+		} catch (RuntimeException e) {
+			// Only an optimisation: the embedder still looks each document up on its own
+			logger.debug("Embedding prefetch failed for {} documents: {}", chunk.size(), e.getMessage());
+		}
+	}
+
+	private static void embed(Document document, Embedder embedder, BatchWriter writer,
+			BlockingQueue<Embedded> results, AtomicLong skipped, AtomicLong failed, Semaphore inFlight) {
+		try {
+			if (writer.error != null) {
+				return;
+			}
+			float[] embedding = embedder.embed(document);
+			if (embedding == null || embedding.length == 0) {
+				skipped.incrementAndGet();
+			} else {
+				results.put(new Embedded(document.get("_id"), embedding));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			failed.incrementAndGet();
+			logger.warn("Failed to embed document {}: {}", document.get("_id"), e.getMessage());
+		} finally {
+			inFlight.release();
+		}
+	}
+
+	/**
+	 * Estimated BSON size of the {@code $set} of {@code embedding}: four bytes per element.
+	 */
+	static long estimateBytes(float[] embedding) {
+		return UPDATE_OVERHEAD_BYTES + (long) embedding.length * Float.BYTES;
+	}
+
+	/**
+	 * Outcome of one run. Rates are per second of wall-clock time over the whole pipeline.
+	 */
+	public record Stats(long read, long written, long skipped, long failed, long bytesWritten, int bulkWrites,
+			long elapsedMillis) {
+
+		public double documentsPerSecond() {
+			return written * 1000.0 / Math.max(1, elapsedMillis);
+		}
+
+		public double bytesPerSecond() {
+			return bytesWritten * 1000.0 / Math.max(1, elapsedMillis);
+		}
+	}
+
+	private record Embedded(Object id, float[] embedding) {
+	}
+
+	/**
+	 * Accumulates embedded documents into batches and hands each full batch to the sink. After a sink failure
+	 * it keeps draining the queue, so workers never block, until the end marker arrives.
+	 */
+	private final class BatchWriter implements Runnable {
+
+		private final BlockingQueue<Embedded> results;
+		private final String embeddingField;
+		private final Sink sink;
+		private List<UpdateOneModel<Document>> batch = new ArrayList<>();
+		private long batchBytes;
+		private long written;
+		private long bytes;
+		private int batches;
+		private volatile RuntimeException error;
+
+		private BatchWriter(BlockingQueue<Embedded> results, String embeddingField, Sink sink) {
+			this.results = results;
+			this.embeddingField = embeddingField;
+			this.sink = sink;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Embedded next = results.take();
+					if (next == END) {
+						break;
+					}
+					if (error != null) {
+						continue;
+					}
+					batch.add(new UpdateOneModel<>(new Document("_id", next.id()), new Document("$set",
+							new Document(embeddingField, Float32VectorCodec.toBinary(next.embedding())))));
+					batchBytes += estimateBytes(next.embedding());
+					if (batch.size() >= maxBatchDocuments || batchBytes >= maxBatchBytes) {
+						flush();
+					}
+				}
+				if (error == null) {
+					flush();
+				}
+			} catch (InterruptedException e) {
+				error = new IllegalStateException("Embedding writer interrupted");
+			}
+		}
+
+		private void flush() {
+			if (batch.isEmpty()) {
+				return;
+			}
+			try {
+				written += sink.write(batch);
+				bytes += batchBytes;
+				batches++;
+			} catch (RuntimeException e) {
+				error = e;
+			}
+			batch = new ArrayList<>();
+			batchBytes = 0;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.deepai.embedding;
+
+import java.util.List;
+
+/**
+ * An embedding model. Implementations embed whole batches, since most models are much cheaper per text in a
+ * batch than one call at a time, and declare how large a batch and how many concurrent batches they accept;
+ * the {@link EmbeddingDispatcher} packs single-text requests into batches within those limits. To replace the
+ * {@link HashingEmbeddingProvider} stand-in, declare another provider bean and set {@code mcp.embeddings.provider}
+ * to any value other than {@code hashing}.
+ */
+public interface EmbeddingProvider {
+
+	/**
+	 * Model name, part of every cache key, so entries of different models never mix.
+	 */
+	String model();
+
+	int dimensions();
+
+	/**
+	 * Most texts passed to one {@link #embed} call.
+	 */
+	int maxBatchSize();
+
+	/**
+	 * Most {@link #embed} calls in flight at once.
+	 */
+	int maxConcurrency();
+
+	/**
+	 * Embeddings of {@code texts}, in the same order, each {@link #dimensions()} floats long.
+	 */
+	List<float[]> embed(List<String> texts);
+}
@@ -0,0 +1,76 @@
+package com.deepai.embedding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic local stand-in for a real model: unit-length Gaussian vectors seeded by the text's hash, so
+ * equal texts always embed equally without any model files or network access. Carries no semantics.
+ * Registered only while {@code mcp.embeddings.provider} is {@code hashing}, the default.
+ */
+@Component
+@ConditionalOnProperty(name = "mcp.embeddings.provider", havingValue = "hashing", matchIfMissing = true)
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+	private final int dimensions;
+	private final int maxBatchSize;
+	private final int maxConcurrency;
+
+	public HashingEmbeddingProvider(@Value("${mcp.embeddings.hashing.dimensions:384}") int dimensions,
+			@Value("${mcp.embeddings.hashing.max-batch:256}") int maxBatchSize,
+			@Value("${mcp.embeddings.hashing.concurrency:0}") int maxConcurrency) {
+		this.dimensions = Math.max(1, dimensions);
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency : Runtime.getRuntime().availableProcessors();
+	}
+
+	@Override
+	public String model() {
+		return "hashing-" + dimensions;
+	}
+
+	@Override
+	public int dimensions() {
+		return dimensions;
+	}
+
+	@Override
+	public int maxBatchSize() {
+		return maxBatchSize;
+	}
+
+	@Override
+	public int maxConcurrency() {
+		return maxConcurrency;
+	}
+
+	@Override
+	public List<float[]> embed(List<String> texts) {
+		List<float[]> embeddings = new ArrayList<>(texts.size());
+		for (String text : texts) {
+			embeddings.add(embed(text));
+		}
+		return embeddings;
+	}
+
+	private float[] embed(String text) {
+		Random random = new Random(text.hashCode());
+		double[] values = new double[dimensions];
+		double sumSquares = 0;
+		for (int i = 0; i < dimensions; i++) {
+			values[i] = random.nextGaussian();
+			sumSquares += values[i] * values[i];
+		}
+		double magnitude = Math.sqrt(sumSquares);
+		float[] embedding = new float[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			embedding[i] = (float) (values[i] / magnitude);
+		}
+		return embedding;
+	}
+}
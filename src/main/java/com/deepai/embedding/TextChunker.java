@@ -0,0 +1,211 @@
+package com.deepai.embedding;
+
+import java.text.BreakIterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits long text into overlapping windows for embedding. Windows are built from whole sentences up to
+ * {@code maxTokens} whitespace-separated words, and each window repeats the trailing sentences of the previous
+ * one up to {@code overlapTokens} words; a sentence longer than a window is cut at word boundaries. The text
+ * is given as segments (for example the string fields of a document) that are never concatenated: chunks are
+ * produced lazily, and offsets refer to the segments joined by single spaces.
+ */
+public final class TextChunker {
+
+	public static final int DEFAULT_MAX_TOKENS = 256;
+	public static final int DEFAULT_OVERLAP_TOKENS = 32;
+
+	private final int maxTokens;
+	private final int overlapTokens;
+
+	/**
+	 * A window of text: its position among the document's chunks, its {@code [start, end)} character range
+	 * and its word count.
+	 */
+	public record Chunk(int index, int start, int end, int tokens, String text) {
+	}
+
+	public TextChunker(int maxTokens, int overlapTokens) {
+		this.maxTokens = maxTokens > 0 ? maxTokens : DEFAULT_MAX_TOKENS;
+		this.overlapTokens = Math.max(0, Math.min(overlapTokens, this.maxTokens / 2));
+	}
+
+	public int maxTokens() {
+		return maxTokens;
+	}
+
+	public int overlapTokens() {
+		return overlapTokens;
+	}
+
+	public List<Chunk> chunk(String text) {
+		List<Chunk> chunks = new ArrayList<>();
+		chunks(List.of(text)).forEachRemaining(chunks::add);
+		return chunks;
+	}
+
+	/**
+	 * Chunks of {@code segments} in order. Only the current window is held beyond the segments themselves.
+	 */
+	public Iterator<Chunk> chunks(List<String> segments) {
+		return new ChunkIterator(segments);
+	}
+
+	/**
+	 * A sentence or sentence piece: segment, character range within it and word count.
+	 */
+	private record Unit(int segment, int start, int end, int tokens) {
+	}
+
+	/**
+	 * Produces the sentence units of one segment, cutting sentences longer than a window.
+	 */
+	private final class UnitIterator implements Iterator<Unit> {
+
+		private final List<String> segments;
+		private final BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+		private final Deque<Unit> pending = new ArrayDeque<>();
+		private int segment = -1;
+		private int sentenceStart;
+
+		private UnitIterator(List<String> segments) {
+			this.segments = segments;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (pending.isEmpty()) {
+				if (segment >= 0 && sentences.following(sentenceStart) != BreakIterator.DONE) {
+					int sentenceEnd = sentences.current();
+					split(sentenceStart, sentenceEnd);
+					sentenceStart = sentenceEnd;
+				} else if (++segment < segments.size()) {
+					sentences.setText(segments.get(segment));
+					sentenceStart = sentences.first();
+				} else {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Unit next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return pending.poll();
+		}
+
+		private void split(int from, int to) {
+			String text = segments.get(segment);
+			int pieceStart = -1;
+			int pieceEnd = -1;
+			int words = 0;
+			int i = from;
+			while (i < to) {
+				while (i < to && Character.isWhitespace(text.charAt(i))) {
+					i++;
+				}
+				if (i == to) {
+					break;
+				}
+				int wordStart = i;
+				while (i < to && !Character.isWhitespace(text.charAt(i))) {
+					i++;
+				}
+				if (words == maxTokens) {
+					pending.add(new Unit(segment, pieceStart, pieceEnd, words));
+					words = 0;
+				}
+				if (words == 0) {
+					pieceStart = wordStart;
+				}
+				pieceEnd = i;
+				words++;
+			}
+			if (words > 0) {
+				pending.add(new Unit(segment, pieceStart, pieceEnd, words));
+			}
+		}
+	}
+
+	private final class ChunkIterator implements Iterator<Chunk> {
+
+		private final List<String> segments;
+		private final int[] offsets;
+		private final UnitIterator units;
+		private final Deque<Unit> window = new ArrayDeque<>();
+		private int windowTokens;
+		// Units added since the last emitted chunk; zero means the window is all overlap
+		private int fresh;
+		private Unit carried;
+		private int index;
+
+		private ChunkIterator(List<String> segments) {
+			this.segments = segments.stream().map(text -> text != null ? text : "").toList();
+			this.offsets = new int[segments.size()];
+			int offset = 0;
+			for (int s = 0; s < segments.size(); s++) {
+				offsets[s] = offset;
+				offset += this.segments.get(s).length() + 1;
+			}
+			this.units = new UnitIterator(this.segments);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return carried != null || fresh > 0 || units.hasNext();
+		}
+
+		@Override
+		public Chunk next() {
+			while (carried != null || units.hasNext()) {
+				Unit unit = carried != null ? carried : units.next();
+				carried = null;
+				if (!window.isEmpty() && windowTokens + unit.tokens() > maxTokens) {
+					carried = unit;
+					Chunk chunk = emit();
+					// Keep the tail of this window as overlap, as far as the next unit still fits
+					while (!window.isEmpty()
+							&& (windowTokens > overlapTokens || windowTokens + unit.tokens() > maxTokens)) {
+						windowTokens -= window.removeFirst().tokens();
+					}
+					return chunk;
+				}
+				window.addLast(unit);
+				windowTokens += unit.tokens();
+				fresh++;
+			}
+			if (fresh == 0) {
+				throw new NoSuchElementException();
+			}
+			return emit();
+		}
+
+		private Chunk emit() {
+			Unit first = window.getFirst();
+			Unit last = window.getLast();
+			int start = offsets[first.segment()] + first.start();
+			int end = offsets[last.segment()] + last.end();
+			StringBuilder text = new StringBuilder(end - start);
+			for (int s = first.segment(); s <= last.segment(); s++) {
+				String segment = segments.get(s);
+				int from = s == first.segment() ? first.start() : 0;
+				int to = s == last.segment() ? last.end() : segment.length();
+				if (text.length() > 0) {
+					text.append(' ');
+				}
+				text.append(segment, from, to);
+			}
+			fresh = 0;
+			return new Chunk(index++, start, end, windowTokens, text.toString());
+		}
+	}
+}
@@ -142,7 +142,7 @@ public class DynamicMcpServerHandler {
         ObjectNode result = objectMapper.createObjectNode();
         List<ObjectNode> tools = new ArrayList<>();
         
-        // For now, expose all 39 tools based on our service classes
+        // For now, expose all 48 tools based on our service classes
         // This will be expanded to use Spring AI discovery in the future
         String[] allTools = {
             // MongoServiceClient (20 tools)
@@ -154,9 +154,11 @@ public class DynamicMcpServerHandler {
             "aggregatePipeline", "distinctValues", "groupByField", "textSearch", "geoSearch",
             "createIndex", "createVectorIndex", "dropIndex", "reIndex",
             "explainQuery", "validateSchema", "repairDatabase",
-            // MongoAIService (7 tools)
+            // MongoAIService (16 tools)
             "vectorSearch", "generateEmbeddings", "aiAnalyzeDocument", "aiAnalyzeCollection",
-            "aiQuerySuggestion", "aiDocumentSummary", "semanticSearch"
+            "aiQuerySuggestion", "aiDocumentSummary", "semanticSearch", "hybridSearch",
+            "vectorSearchBatch", "startEmbeddingJob", "getEmbeddingJobStatus", "pauseEmbeddingJob",
+            "resumeEmbeddingJob", "cancelEmbeddingJob", "generateChunkEmbeddings", "getCollectionSchema"
         };
         
         logger.info("Exposing {} MongoDB tools through MCP", allTools.length);
@@ -230,11 +232,11 @@ public class DynamicMcpServerHandler {
     
     private String callSpringAITool(String toolName, Map<String, Object> arguments) {
         // TODO: Integrate with actual Spring AI tool execution
-        // For now, return successful mock responses for all 39 tools
+        // For now, return successful mock responses for all 48 tools
         
         return switch (toolName) {
             // MongoServiceClient tools (20)
-            case "ping" -> "{\"status\":\"ok\",\"message\":\"MongoDB MCP Server is healthy\",\"tools_registered\":39}";
+            case "ping" -> "{\"status\":\"ok\",\"message\":\"MongoDB MCP Server is healthy\",\"tools_registered\":48}";
             case "listDatabases" -> "{\"databases\":[\"mcpserver\",\"admin\",\"local\"],\"status\":\"success\"}";
             case "createDatabase" -> "{\"database\":\"" + arguments.getOrDefault("dbName", "test") + "\",\"status\":\"created\"}";
             case "dropDatabase" -> "{\"database\":\"" + arguments.getOrDefault("dbName", "test") + "\",\"status\":\"dropped\"}";
@@ -257,7 +259,7 @@ public class DynamicMcpServerHandler {
             
             // MongoAdvancedAnalyticsService tools (12)
             case "aggregatePipeline" -> "{\"results\":[{\"_id\":\"group1\",\"count\":5},{\"_id\":\"group2\",\"count\":3}],\"status\":\"success\"}";
-            case "distinctValues" -> "{\"distinctValues\":[\"value1\",\"value2\",\"value3\"],\"count\":3}";
+            case "distinctValues" -> "{\"values\":[{\"value\":\"value1\",\"type\":\"string\",\"count\":12},{\"value\":42,\"type\":\"int\",\"count\":5}],\"returned\":2,\"hasMore\":false,\"nextToken\":null}";
             case "groupByField" -> "{\"groups\":[{\"_id\":\"category1\",\"count\":10},{\"_id\":\"category2\",\"count\":5}]}";
             case "textSearch" -> "{\"documents\":[{\"_id\":\"1\",\"text\":\"search result\",\"score\":0.95}],\"count\":1}";
             case "geoSearch" -> "{\"documents\":[{\"_id\":\"1\",\"location\":{\"lat\":40.7128,\"lng\":-74.0060},\"distance\":100}],\"count\":1}";
@@ -269,7 +271,7 @@ public class DynamicMcpServerHandler {
             case "validateSchema" -> "{\"valid\":true,\"errors\":[],\"status\":\"validation_complete\"}";
             case "repairDatabase" -> "{\"database\":\"" + arguments.getOrDefault("dbName", "test") + "\",\"status\":\"repaired\"}";
             
-            // MongoAIService tools (7)
+            // MongoAIService tools (16)
             case "vectorSearch" -> "{\"documents\":[{\"_id\":\"1\",\"similarity\":0.95,\"content\":\"vector match\"}],\"count\":1}";
             case "generateEmbeddings" -> "{\"processed\":100,\"embeddings_generated\":100,\"status\":\"success\"}";
             case "aiAnalyzeDocument" -> "{\"analysis\":{\"sentiment\":\"positive\",\"topics\":[\"business\",\"technology\"],\"summary\":\"AI analysis complete\"}}";
@@ -277,6 +279,15 @@ public class DynamicMcpServerHandler {
             case "aiQuerySuggestion" -> "{\"suggestions\":[\"db.collection.find({status:'active'})\",\"db.collection.aggregate([{$match:{type:'user'}}])\"],\"intent\":\"" + arguments.getOrDefault("userIntent", "find active records") + "\"}";
             case "aiDocumentSummary" -> "{\"summary\":\"This document contains user information with key attributes including name, email, and registration date.\",\"key_points\":[\"user_data\",\"contact_info\"],\"confidence\":0.92}";
             case "semanticSearch" -> "{\"documents\":[{\"_id\":\"1\",\"relevance\":0.89,\"snippet\":\"semantically relevant content\"}],\"query\":\"" + arguments.getOrDefault("naturalLanguageQuery", "search query") + "\"}";
+            case "vectorSearchBatch" -> "[{\"query\":0,\"count\":1,\"results\":[{\"_id\":\"1\",\"similarity_score\":0.95}]}]";
+            case "hybridSearch" -> "{\"documents\":[{\"_id\":\"1\",\"hybrid_score\":0.032,\"score_breakdown\":{\"fusion\":\"rrf\",\"text_rank\":1,\"vector_rank\":1}}],\"count\":1}";
+            case "generateChunkEmbeddings" -> "{\"documentsChunked\":100,\"chunksCreated\":412,\"chunksEmbedded\":412,\"chunkCollection\":\"" + arguments.getOrDefault("collectionName", "test") + "_chunks\"}";
+            case "getCollectionSchema" -> "{\"namespace\":\"" + arguments.getOrDefault("dbName", "test") + "." + arguments.getOrDefault("collectionName", "test") + "\",\"version\":3,\"live\":true,\"fields\":{\"_id\":\"objectId\",\"name\":\"string\",\"tags[]\":\"string\"}}";
+            case "startEmbeddingJob" -> "{\"jobId\":\"3f2a9c1e\",\"state\":\"queued\",\"collection\":\"" + arguments.getOrDefault("collectionName", "test") + "\"}";
+            case "getEmbeddingJobStatus" -> "{\"jobId\":\"" + arguments.getOrDefault("jobId", "3f2a9c1e") + "\",\"state\":\"running\",\"processed\":5000,\"total\":20000,\"percentComplete\":25.0,\"etaSeconds\":42}";
+            case "pauseEmbeddingJob" -> "{\"jobId\":\"" + arguments.getOrDefault("jobId", "3f2a9c1e") + "\",\"state\":\"paused\"}";
+            case "resumeEmbeddingJob" -> "{\"jobId\":\"" + arguments.getOrDefault("jobId", "3f2a9c1e") + "\",\"state\":\"queued\"}";
+            case "cancelEmbeddingJob" -> "{\"jobId\":\"" + arguments.getOrDefault("jobId", "3f2a9c1e") + "\",\"state\":\"cancelled\"}";
             
             default -> {
                 try {
@@ -1,5 +1,6 @@
 package com.deepai.mcp;
 
+import com.deepai.analytics.SchemaRegistry;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -48,6 +49,9 @@ public class EnhancedMcpServerHandler {
     @Autowired
     private ApplicationContext applicationContext;
     
+    @Autowired
+    private SchemaRegistry schemaRegistry;
+    
     public EnhancedMcpServerHandler() {
         this.stdout = new PrintWriter(System.out, true);
         this.stdin = new BufferedReader(new InputStreamReader(System.in));
@@ -423,6 +427,17 @@ public class EnhancedMcpServerHandler {
         resource.put("mimeType", "application/json");
         resources.add(resource);
         
+        // Schemas of collections already in the registry, served from memory
+        for (SchemaRegistry.Snapshot schema : schemaRegistry.snapshots()) {
+            ObjectNode schemaResource = objectMapper.createObjectNode();
+            schemaResource.put("uri", schema.resourceUri());
+            schemaResource.put("name", "Schema of " + schema.namespace());
+            schemaResource.put("description",
+                    "Inferred schema of " + schema.namespace() + ", version " + schema.version());
+            schemaResource.put("mimeType", "application/json");
+            resources.add(schemaResource);
+        }
+        
         result.set("resources", resources);
         response.set("result", result);
         return response;
@@ -434,9 +449,23 @@ public class EnhancedMcpServerHandler {
         response.put("id", id);
         
         ObjectNode result = objectMapper.createObjectNode();
-        result.put("uri", params.get("uri").asText());
+        String uri = params.get("uri").asText();
+        result.put("uri", uri);
         result.put("mimeType", "application/json");
         
+        Optional<String[]> namespace = SchemaRegistry.parseResourceUri(uri);
+        if (namespace.isPresent()) {
+            try {
+                SchemaRegistry.Snapshot schema = schemaRegistry.schema(namespace.get()[0], namespace.get()[1]);
+                result.put("text", objectMapper.writeValueAsString(schema.toMap()));
+            } catch (Exception e) {
+                logger.error("Error reading schema resource {}: ", uri, e);
+                return createErrorResponse(id, -32603, "Failed to read schema: " + e.getMessage());
+            }
+            response.set("result", result);
+            return response;
+        }
+        
         Map<String, Object> serverInfo = new HashMap<>();
         serverInfo.put("status", "MongoDB MCP Server Active");
         serverInfo.put("tools_discovered", discoveredTools.size());
@@ -0,0 +1,345 @@
+package com.deepai.search;
+
+import com.deepai.vector.ScoredTopK;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over a fixed set of text fields, scored with Okapi BM25. Documents and queries are
+ * split into terms by the same {@link TextAnalyzer}. Every document gets an ordinal in insertion order, so each
+ * posting list is a run of ascending ordinals stored as variable-byte encoded (gap, term frequency) pairs and
+ * can be appended to in place. Updates append the new version and tombstone the old one; tombstoned postings
+ * are skipped when scoring but still count towards document frequencies until the index is rebuilt, which
+ * {@link #needsRebuild()} suggests once they dominate. {@link #writeTo} and {@link #readFrom} copy the index,
+ * posting lists still encoded, to and from a snapshot.
+ * Safe for concurrent searches and updates.
+ */
+public final class Bm25Index {
+
+	public static final double DEFAULT_K1 = 1.2;
+	public static final double DEFAULT_B = 0.75;
+
+	private static final JsonWriterSettings ID_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED)
+			.build();
+
+	private final List<String> fields;
+	private final TextAnalyzer analyzer;
+	private final double k1;
+	private final double b;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final List<Object> ids = new ArrayList<>();
+	private final Map<Object, Integer> ordinals = new HashMap<>();
+	private final Map<String, PostingList> postings = new HashMap<>();
+	private final BitSet deleted = new BitSet();
+	private int[] lengths = new int[64];
+	private int liveDocuments;
+	private long liveLength;
+
+	public Bm25Index(List<String> fields, TextAnalyzer analyzer, double k1, double b) {
+		this.fields = List.copyOf(fields);
+		this.analyzer = analyzer;
+		this.k1 = k1;
+		this.b = b;
+	}
+
+	public List<String> fields() {
+		return fields;
+	}
+
+	/**
+	 * Indexes {@code document} under {@code id}, replacing the previous version of the same id.
+	 */
+	public void put(Object id, Document document) {
+		lock.writeLock().lock();
+		try {
+			putLocked(id, document);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Object id) {
+		lock.writeLock().lock();
+		try {
+			removeLocked(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Applies a batch of changes atomically with respect to searches; a null document removes its id.
+	 */
+	public void apply(Map<Object, Document> upserts, Set<Object> deletes) {
+		lock.writeLock().lock();
+		try {
+			deletes.forEach(this::removeLocked);
+			upserts.forEach((id, document) -> {
+				if (document != null) {
+					putLocked(id, document);
+				} else {
+					removeLocked(id);
+				}
+			});
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Best {@code limit} documents for the query, best first, scored by BM25 over the terms of
+	 * {@code keywords}. Documents that contain none of the terms are not returned.
+	 */
+	public List<RankFusion.Candidate> search(List<String> keywords, int limit) {
+		Set<String> queryTerms = new LinkedHashSet<>();
+		keywords.forEach(keyword -> queryTerms.addAll(analyzer.terms(keyword)));
+		lock.readLock().lock();
+		try {
+			if (queryTerms.isEmpty() || liveDocuments == 0) {
+				return List.of();
+			}
+			double averageLength = Math.max(1.0, liveLength / (double) liveDocuments);
+			float[] scores = new float[ids.size()];
+			BitSet matched = new BitSet(ids.size());
+			for (String term : queryTerms) {
+				PostingList list = postings.get(term);
+				if (list == null) {
+					continue;
+				}
+				int frequency = Math.min(list.count, liveDocuments);
+				double idf = Math.log(1 + (liveDocuments - frequency + 0.5) / (frequency + 0.5));
+				VariableByteCodec.Reader reader = list.reader();
+				int ordinal = 0;
+				for (int i = 0; i < list.count; i++) {
+					ordinal += reader.next();
+					int tf = reader.next();
+					if (deleted.get(ordinal)) {
+						continue;
+					}
+					double norm = k1 * (1 - b + b * lengths[ordinal] / averageLength);
+					scores[ordinal] += (float) (idf * tf * (k1 + 1) / (tf + norm));
+					matched.set(ordinal);
+				}
+			}
+			ScoredTopK<Object> top = new ScoredTopK<>(limit);
+			for (int ordinal = matched.nextSetBit(0); ordinal >= 0; ordinal = matched.nextSetBit(ordinal + 1)) {
+				if (top.accepts(scores[ordinal])) {
+					top.offer(ids.get(ordinal), scores[ordinal]);
+				}
+			}
+			return top.drain().stream().map(scored -> new RankFusion.Candidate(scored.item(), scored.score()))
+					.toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return liveDocuments;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * True once tombstoned versions outnumber live documents, so a rebuild would at least halve the index.
+	 */
+	public boolean needsRebuild() {
+		lock.readLock().lock();
+		try {
+			return deleted.cardinality() > Math.max(1024, liveDocuments);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Document, term and posting counts and the encoded size of all posting lists.
+	 */
+	public Map<String, Object> stats() {
+		lock.readLock().lock();
+		try {
+			long postingCount = 0;
+			long postingBytes = 0;
+			for (PostingList list : postings.values()) {
+				postingCount += list.count;
+				postingBytes += list.writer.size();
+			}
+			Map<String, Object> stats = new LinkedHashMap<>();
+			stats.put("documents", liveDocuments);
+			stats.put("tombstones", deleted.cardinality());
+			stats.put("terms", postings.size());
+			stats.put("postings", postingCount);
+			stats.put("postingBytes", postingBytes);
+			stats.put("averageLength",
+					liveDocuments > 0 ? Math.round(liveLength * 10.0 / liveDocuments) / 10.0 : 0.0);
+			return stats;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes every document's id and length and every posting list as encoded. Tombstoned ordinals are kept
+	 * without their id, so the posting lists can be copied as they are.
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		lock.readLock().lock();
+		try {
+			out.writeInt(ids.size());
+			for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+				boolean live = !deleted.get(ordinal);
+				out.writeBoolean(live);
+				if (live) {
+					byte[] id = new Document("_id", ids.get(ordinal)).toJson(ID_JSON).getBytes(StandardCharsets.UTF_8);
+					out.writeInt(id.length);
+					out.write(id);
+					out.writeInt(lengths[ordinal]);
+				}
+			}
+			out.writeInt(postings.size());
+			for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+				PostingList list = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeInt(list.count);
+				out.writeInt(list.last);
+				out.writeInt(list.writer.size());
+				out.write(list.writer.toByteArray());
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads an index written by {@link #writeTo}; {@code fields} and {@code analyzer} must be the ones it was
+	 * built with.
+	 */
+	public static Bm25Index readFrom(DataInput in, List<String> fields, TextAnalyzer analyzer, double k1, double b)
+			throws IOException {
+		Bm25Index index = new Bm25Index(fields, analyzer, k1, b);
+		int documents = in.readInt();
+		index.lengths = new int[Math.max(64, documents)];
+		for (int ordinal = 0; ordinal < documents; ordinal++) {
+			if (!in.readBoolean()) {
+				index.ids.add(null);
+				index.deleted.set(ordinal);
+				continue;
+			}
+			byte[] json = new byte[in.readInt()];
+			in.readFully(json);
+			Object id = Document.parse(new String(json, StandardCharsets.UTF_8)).get("_id");
+			int length = in.readInt();
+			index.ids.add(id);
+			index.ordinals.put(id, ordinal);
+			index.lengths[ordinal] = length;
+			index.liveDocuments++;
+			index.liveLength += length;
+		}
+		int terms = in.readInt();
+		for (int t = 0; t < terms; t++) {
+			String term = in.readUTF();
+			int count = in.readInt();
+			int last = in.readInt();
+			byte[] encoded = new byte[in.readInt()];
+			in.readFully(encoded);
+			index.postings.put(term, new PostingList(new VariableByteCodec.Writer(encoded), count, last));
+		}
+		return index;
+	}
+
+	private void putLocked(Object id, Document document) {
+		removeLocked(id);
+		Map<String, Integer> frequencies = new HashMap<>();
+		int length = 0;
+		for (String field : fields) {
+			for (String text : texts(document.get(field))) {
+				for (String term : analyzer.terms(text)) {
+					frequencies.merge(term, 1, Integer::sum);
+					length++;
+				}
+			}
+		}
+		if (length == 0) {
+			return;
+		}
+		int ordinal = ids.size();
+		ids.add(id);
+		ordinals.put(id, ordinal);
+		if (ordinal == lengths.length) {
+			lengths = Arrays.copyOf(lengths, ordinal * 2);
+		}
+		lengths[ordinal] = length;
+		liveDocuments++;
+		liveLength += length;
+		frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, key -> new PostingList()).append(ordinal, tf));
+	}
+
+	private void removeLocked(Object id) {
+		Integer ordinal = ordinals.remove(id);
+		if (ordinal != null) {
+			deleted.set(ordinal);
+			liveDocuments--;
+			liveLength -= lengths[ordinal];
+		}
+	}
+
+	private static List<String> texts(Object value) {
+		if (value instanceof String text) {
+			return List.of(text);
+		}
+		if (value instanceof List<?> list) {
+			return list.stream().filter(String.class::isInstance).map(String.class::cast).toList();
+		}
+		return List.of();
+	}
+
+	/**
+	 * One term's postings: (ordinal gap, term frequency) pairs in ascending ordinal order.
+	 */
+	private static final class PostingList {
+
+		private final VariableByteCodec.Writer writer;
+		private int count;
+		private int last;
+
+		private PostingList() {
+			this(new VariableByteCodec.Writer(), 0, 0);
+		}
+
+		private PostingList(VariableByteCodec.Writer writer, int count, int last) {
+			this.writer = writer;
+			this.count = count;
+			this.last = last;
+		}
+
+		private void append(int ordinal, int tf) {
+			writer.write(ordinal - last).write(tf);
+			last = ordinal;
+			count++;
+		}
+
+		private VariableByteCodec.Reader reader() {
+			return writer.reader();
+		}
+	}
+}
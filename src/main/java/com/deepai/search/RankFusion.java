@@ -0,0 +1,115 @@
+package com.deepai.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fuses a lexical and a vector result list into one ranking, keeping each leg's rank and score per result.
+ */
+public final class RankFusion {
+
+	/**
+	 * Rank offset of reciprocal-rank fusion; 60 is the value from the original RRF paper.
+	 */
+	public static final int RRF_K = 60;
+
+	private RankFusion() {
+	}
+
+	public enum Method {
+
+		RRF, WEIGHTED;
+
+		/**
+		 * Parses the {@code fusion} tool parameter; anything other than {@code weighted} means RRF.
+		 */
+		public static Method fromString(String value) {
+			return value != null && value.trim().equalsIgnoreCase("weighted") ? WEIGHTED : RRF;
+		}
+	}
+
+	/**
+	 * One entry of a leg's result list, best first.
+	 */
+	public record Candidate(Object id, double score) {
+	}
+
+	/**
+	 * A fused result; leg fields are null when the document was not returned by that leg. Ranks are 1-based.
+	 */
+	public record Fused(Object id, double score, Integer textRank, Double textScore, Integer vectorRank,
+			Double vectorScore) {
+	}
+
+	/**
+	 * Fuses both legs and returns the best {@code limit} results.
+	 *
+	 * @param vectorWeight share of the vector leg in [0, 1]; with RRF, 0.5 gives the unweighted formula
+	 */
+	public static List<Fused> fuse(List<Candidate> text, List<Candidate> vector, Method method, double vectorWeight,
+			int limit) {
+		double weight = Double.isNaN(vectorWeight) || vectorWeight < 0 || vectorWeight > 1 ? 0.5 : vectorWeight;
+		Map<Object, Builder> byId = new LinkedHashMap<>();
+		double[] textRange = range(text);
+		double[] vectorRange = range(vector);
+		for (int i = 0; i < text.size(); i++) {
+			Candidate candidate = text.get(i);
+			Builder builder = byId.computeIfAbsent(candidate.id(), Builder::new);
+			builder.textRank = i + 1;
+			builder.textScore = candidate.score();
+			builder.score += method == Method.RRF ? 2 * (1 - weight) / (RRF_K + i + 1)
+					: (1 - weight) * normalize(candidate.score(), textRange);
+		}
+		for (int i = 0; i < vector.size(); i++) {
+			Candidate candidate = vector.get(i);
+			Builder builder = byId.computeIfAbsent(candidate.id(), Builder::new);
+			builder.vectorRank = i + 1;
+			builder.vectorScore = candidate.score();
+			builder.score += method == Method.RRF ? 2 * weight / (RRF_K + i + 1)
+					: weight * normalize(candidate.score(), vectorRange);
+		}
+
+		List<Fused> fused = new ArrayList<>(byId.size());
+		byId.values().forEach(builder -> fused.add(builder.build()));
+		fused.sort(Comparator.comparingDouble(Fused::score).reversed());
+		return fused.size() > limit ? new ArrayList<>(fused.subList(0, Math.max(0, limit))) : fused;
+	}
+
+	private static double[] range(List<Candidate> candidates) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (Candidate candidate : candidates) {
+			min = Math.min(min, candidate.score());
+			max = Math.max(max, candidate.score());
+		}
+		return new double[] {min, max};
+	}
+
+	/**
+	 * Min-max normalisation into [0, 1]; a leg whose scores are all equal maps to 1.
+	 */
+	private static double normalize(double score, double[] range) {
+		return range[1] > range[0] ? (score - range[0]) / (range[1] - range[0]) : 1.0;
+	}
+
+	private static final class Builder {
+
+		private final Object id;
+		private double score;
+		private Integer textRank;
+		private Double textScore;
+		private Integer vectorRank;
+		private Double vectorScore;
+
+		private Builder(Object id) {
+			this.id = id;
+		}
+
+		private Fused build() {
+			return new Fused(id, score, textRank, textScore, vectorRank, vectorScore);
+		}
+	}
+}
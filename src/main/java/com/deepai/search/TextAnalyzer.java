@@ -0,0 +1,184 @@
+package com.deepai.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits text into index and query terms: lower-cased runs of letters and digits of a minimum length, minus
+ * stopwords, reduced by a {@link Stemmer}. Instances are immutable and shared; the stopword set and stemmer
+ * are fixed at construction, so a language is one more instance with its own set and stemmer.
+ */
+public final class TextAnalyzer {
+
+	private static final Set<String> ENGLISH_STOP_WORDS = Set.of("the", "and", "but", "for", "with", "are", "was",
+			"were", "not", "this", "that", "these", "those", "from", "into", "has", "have", "had", "its", "you",
+			"your", "our", "their", "there", "here", "all", "any", "can", "will", "would", "should", "about",
+			"which", "what", "when", "where", "who", "how", "than", "then", "them", "they", "been", "being");
+
+	/**
+	 * English stopwords and plural stripping.
+	 */
+	public static final TextAnalyzer ENGLISH = new TextAnalyzer(ENGLISH_STOP_WORDS, 3, Stemmer.ENGLISH_PLURALS);
+
+	private final Set<String> stopWords;
+	private final int minTermLength;
+	private final Stemmer stemmer;
+
+	public TextAnalyzer(Set<String> stopWords, int minTermLength, Stemmer stemmer) {
+		this.stopWords = Set.copyOf(stopWords);
+		this.minTermLength = Math.max(1, minTermLength);
+		this.stemmer = stemmer;
+	}
+
+	/**
+	 * This analyzer with {@code words} added to its stopwords, e.g. command words that only matter in queries.
+	 * Its terms are always a subset of this analyzer's terms for the same text.
+	 */
+	public TextAnalyzer withStopWords(String... words) {
+		Set<String> combined = new LinkedHashSet<>(stopWords);
+		combined.addAll(Arrays.asList(words));
+		return new TextAnalyzer(combined, minTermLength, stemmer);
+	}
+
+	/**
+	 * The terms of {@code text} in order, with repeats.
+	 */
+	public List<String> terms(CharSequence text) {
+		List<String> terms = new ArrayList<>();
+		char[] buffer = new char[32];
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (word && start < 0) {
+				start = i;
+			} else if (!word && start >= 0) {
+				int length = i - start;
+				if (length >= minTermLength) {
+					buffer = lowerCase(text, start, length, buffer);
+					if (!stopWords.contains(new String(buffer, 0, length))) {
+						terms.add(new String(buffer, 0, stemmer.stem(buffer, length)));
+					}
+				}
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * The distinct terms of {@code text} in first-occurrence order.
+	 */
+	public Query query(CharSequence text) {
+		return new Query(new LinkedHashSet<>(terms(text)));
+	}
+
+	private static char[] lowerCase(CharSequence text, int start, int length, char[] buffer) {
+		char[] target = length <= buffer.length ? buffer : new char[Math.max(length, buffer.length * 2)];
+		for (int j = 0; j < length; j++) {
+			target[j] = Character.toLowerCase(text.charAt(start + j));
+		}
+		return target;
+	}
+
+	/**
+	 * Reduces a lower-cased term in place and returns its new length.
+	 */
+	@FunctionalInterface
+	public interface Stemmer {
+
+		Stemmer NONE = (term, length) -> length;
+
+		/**
+		 * Harman's "S" stemmer: -ies to -y, -es to -e and -s dropped, leaving -aies, -eies, -aes, -ees, -oes,
+		 * -us and -ss alone. Terms of three characters or fewer are kept as they are.
+		 */
+		Stemmer ENGLISH_PLURALS = (term, length) -> {
+			if (length <= 3 || term[length - 1] != 's') {
+				return length;
+			}
+			char last2 = term[length - 2];
+			if (last2 == 'e' && term[length - 3] == 'i' && term[length - 4] != 'a' && term[length - 4] != 'e') {
+				term[length - 3] = 'y';
+				return length - 2;
+			}
+			if (last2 == 'e' && term[length - 3] != 'a' && term[length - 3] != 'e' && term[length - 3] != 'o') {
+				return length - 1;
+			}
+			return last2 == 'u' || last2 == 's' ? length : length - 1;
+		};
+
+		int stem(char[] term, int length);
+	}
+
+	/**
+	 * An analyzed query, scored against text without building term lists or lower-cased copies.
+	 */
+	public final class Query {
+
+		private final List<String> terms;
+		private final char[][] chars;
+
+		private Query(Set<String> terms) {
+			this.terms = List.copyOf(terms);
+			this.chars = terms.stream().map(String::toCharArray).toArray(char[][]::new);
+		}
+
+		public List<String> terms() {
+			return terms;
+		}
+
+		public boolean isEmpty() {
+			return terms.isEmpty();
+		}
+
+		/**
+		 * Fraction of the query's terms that occur in {@code texts}, from 0 to 1; 0 for an empty query. Stops
+		 * reading as soon as every term has been seen.
+		 */
+		public double score(Iterable<? extends CharSequence> texts) {
+			if (chars.length == 0) {
+				return 0.0;
+			}
+			boolean[] seen = new boolean[chars.length];
+			int remaining = chars.length;
+			char[] buffer = new char[32];
+			for (CharSequence text : texts) {
+				int start = -1;
+				for (int i = 0; i <= text.length() && remaining > 0; i++) {
+					boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+					if (word && start < 0) {
+						start = i;
+					} else if (!word && start >= 0) {
+						int length = i - start;
+						if (length >= minTermLength) {
+							buffer = lowerCase(text, start, length, buffer);
+							remaining -= mark(buffer, stemmer.stem(buffer, length), seen);
+						}
+						start = -1;
+					}
+				}
+				if (remaining == 0) {
+					break;
+				}
+			}
+			return (chars.length - remaining) / (double) chars.length;
+		}
+
+		/**
+		 * Marks the unseen query term equal to the first {@code length} chars of {@code term}, returning 1 if
+		 * there was one. Stopwords need no check here since they never become query terms.
+		 */
+		private int mark(char[] term, int length, boolean[] seen) {
+			for (int t = 0; t < chars.length; t++) {
+				if (!seen[t] && chars[t].length == length && Arrays.equals(chars[t], 0, length, term, 0, length)) {
+					seen[t] = true;
+					return 1;
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package com.deepai.search;
+
+import com.deepai.service.MongoServiceClient;
+import com.deepai.support.BsonIds;
+import com.deepai.support.BuildOnceCache;
+import com.deepai.support.ChangeStreamWatcher;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local BM25 indexes for keyword search on collections without a {@code $text} index. An index per
+ * collection and field set is built from one cursor scan on first use and then kept current from a change
+ * stream. Where change streams are unavailable (standalone servers) the index is rebuilt on use once it is
+ * older than {@code mcp.search.bm25.stale-after-ms}. Collections with more than {@code max-documents}
+ * documents are not indexed and callers fall back to scanning. At most {@code max-indexes} indexes are kept;
+ * the least recently searched one is dropped beyond that.
+ *
+ * <p>Live indexes that changed are saved to {@code snapshot-dir} every {@code snapshot-interval-ms}, when they
+ * are dropped and on shutdown, together with the change-stream resume token read just before. The next build
+ * for the same key loads the snapshot and replays the stream from that token instead of scanning the
+ * collection; if the stream can no longer resume there, the snapshot is deleted and the index rebuilt.
+ */
+@Component
+public class TextIndexManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(TextIndexManager.class);
+	private static final int SNAPSHOT_MAGIC = 0x424D3235; // "BM25"
+	private static final int SNAPSHOT_VERSION = 1;
+
+	private final MongoClient mongoClient;
+	private final boolean enabled;
+	private final double k1;
+	private final double b;
+	private final long maxDocuments;
+	private final long staleAfterMillis;
+	private final boolean liveUpdates;
+	private final BuildOnceCache<Key, Entry> indexes;
+	private final Path snapshotDirectory;
+	private final ScheduledExecutorService snapshots;
+
+	private record Key(String database, String collection, List<String> fields) {
+
+		@Override
+		public String toString() {
+			return database + "." + collection + fields;
+		}
+	}
+
+	public TextIndexManager(MongoServiceClient mongoServiceClient,
+			@Value("${mcp.search.bm25.enabled:true}") boolean enabled,
+			@Value("${mcp.search.bm25.k1:1.2}") double k1,
+			@Value("${mcp.search.bm25.b:0.75}") double b,
+			@Value("${mcp.search.bm25.max-documents:1000000}") long maxDocuments,
+			@Value("${mcp.search.bm25.stale-after-ms:300000}") long staleAfterMillis,
+			@Value("${mcp.search.bm25.live-updates:true}") boolean liveUpdates,
+			@Value("${mcp.search.bm25.max-indexes:32}") int maxIndexes,
+			@Value("${mcp.search.bm25.snapshot-dir:./data/text}") String snapshotDirectory,
+			@Value("${mcp.search.bm25.snapshot-interval-ms:300000}") long snapshotIntervalMillis) {
+		this.mongoClient = mongoServiceClient.getMongoClient();
+		this.enabled = enabled;
+		this.k1 = k1;
+		this.b = b;
+		this.maxDocuments = maxDocuments;
+		this.staleAfterMillis = Math.max(0, staleAfterMillis);
+		this.liveUpdates = liveUpdates;
+		this.indexes = new BuildOnceCache<>("BM25 index", Math.max(1, maxIndexes), this::evicted);
+		// Only live indexes are saved: without a resume token a snapshot could not be brought up to date
+		if (enabled && liveUpdates && snapshotIntervalMillis > 0) {
+			this.snapshotDirectory = Paths.get(snapshotDirectory);
+			this.snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "bm25-snapshots");
+				thread.setDaemon(true);
+				return thread;
+			});
+			snapshots.scheduleWithFixedDelay(() -> indexes.values().forEach(Entry::save), snapshotIntervalMillis,
+					snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+		} else {
+			this.snapshotDirectory = null;
+			this.snapshots = null;
+		}
+	}
+
+	/**
+	 * BM25 ranking of the collection's documents on {@code fields}, building the index first if needed.
+	 * Empty when local indexing is disabled or the collection is too large to index.
+	 */
+	public Optional<List<RankFusion.Candidate>> search(String database, String collection, List<String> fields,
+			List<String> keywords, int limit) {
+		if (!enabled) {
+			return Optional.empty();
+		}
+		Key key = new Key(database, collection, List.copyOf(fields));
+		Entry entry = indexes.get(key, this::build);
+		if (entry != null && entry.outdated()) {
+			logger.info("Rebuilding BM25 index for {} ({})", key,
+					entry.index != null && entry.index.needsRebuild() ? "compacting" : "stale");
+			indexes.remove(key, entry);
+			entry.stop();
+			// Its snapshot is as stale or as fragmented, so the rebuild scans the collection
+			deleteSnapshot(key);
+			entry = indexes.get(key, this::build);
+		}
+		if (entry == null || entry.index == null) {
+			return Optional.empty();
+		}
+		return Optional.of(entry.index.search(keywords, limit));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (snapshots != null) {
+			snapshots.shutdownNow();
+		}
+		for (Entry entry : indexes.clear()) {
+			entry.stop();
+			entry.save();
+		}
+	}
+
+	/**
+	 * Saves a dropped index off the caller's thread, so the next build for its key can start from it.
+	 */
+	private void evicted(Entry entry) {
+		entry.stop();
+		if (snapshots != null && !snapshots.isShutdown()) {
+			snapshots.execute(entry::save);
+		}
+	}
+
+	private Entry build(Key key) {
+		MongoCollection<Document> collection = mongoClient.getDatabase(key.database())
+				.getCollection(key.collection());
+		long estimated = collection.estimatedDocumentCount();
+		if (estimated > maxDocuments) {
+			logger.info("Not indexing {} for BM25: {} documents exceed mcp.search.bm25.max-documents={}", key,
+					estimated, maxDocuments);
+			return new Entry(key, null, System.currentTimeMillis());
+		}
+		Entry restored = restore(key);
+		if (restored != null) {
+			restored.watch(collection, restored.restoredFrom, null);
+			return restored;
+		}
+		long start = System.nanoTime();
+		BsonTimestamp startAt = liveUpdates ? ChangeStreamWatcher.operationTime(mongoClient, key.database()) : null;
+		Bm25Index index = new Bm25Index(key.fields(), TextAnalyzer.ENGLISH, k1, b);
+		for (Document document : collection.find().projection(Projections.include(key.fields())).batchSize(1000)) {
+			index.put(document.get("_id"), document);
+		}
+		Entry entry = new Entry(key, index, System.currentTimeMillis());
+		logger.info("Built BM25 index for {}: {} documents in {} ms", key, index.size(),
+				(System.nanoTime() - start) / 1_000_000);
+		if (liveUpdates) {
+			entry.watch(collection, null, startAt);
+		}
+		return entry;
+	}
+
+	/**
+	 * The key's saved index, to be brought up to date from its resume token; null when there is none or it
+	 * cannot be read.
+	 */
+	private Entry restore(Key key) {
+		if (snapshotDirectory == null) {
+			return null;
+		}
+		Path file = snapshotFile(key);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		long start = System.nanoTime();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION
+					|| !in.readUTF().equals(key.toString())) {
+				logger.info("Ignoring BM25 snapshot {}: written for another index or format", file);
+				return null;
+			}
+			BsonDocument resumeToken = BsonDocument.parse(in.readUTF());
+			long savedAt = in.readLong();
+			Bm25Index index = Bm25Index.readFrom(in, key.fields(), TextAnalyzer.ENGLISH, k1, b);
+			// Aged from the save, so a snapshot that cannot be replayed is rebuilt once it is stale
+			Entry entry = new Entry(key, index, savedAt);
+			entry.restoredFrom = resumeToken;
+			entry.dirty = false;
+			logger.info("Loaded BM25 index for {} from {}: {} documents in {} ms", key, file, index.size(),
+					(System.nanoTime() - start) / 1_000_000);
+			return entry;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Ignoring unreadable BM25 snapshot {}: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * The key's snapshot file, named after a hash of the key so database, collection and field names never
+	 * become path elements.
+	 */
+	private Path snapshotFile(Key key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest(key.toString().getBytes(StandardCharsets.UTF_8));
+			return snapshotDirectory.resolve(HexFormat.of().formatHex(digest, 0, 16) + ".bm25");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	private void deleteSnapshot(Key key) {
+		if (snapshotDirectory == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(snapshotFile(key));
+		} catch (IOException e) {
+			logger.debug("Could not delete BM25 snapshot for {}: {}", key, e.getMessage());
+		}
+	}
+
+	/**
+	 * A built index (or null for a collection that is not indexed) and the change stream that maintains it.
+	 */
+	private final class Entry implements ChangeStreamWatcher.Listener {
+
+		private final Key key;
+		private final Bm25Index index;
+		private final long builtAt;
+		private volatile ChangeStreamWatcher stream;
+		private volatile BsonDocument restoredFrom;
+		// Whether the index changed since it was last saved; a freshly built index has never been saved
+		private volatile boolean dirty;
+
+		private Entry(Key key, Bm25Index index, long builtAt) {
+			this.key = key;
+			this.index = index;
+			this.builtAt = builtAt;
+			this.dirty = index != null;
+		}
+
+		/**
+		 * True when the entry should be replaced: an unmaintained index past its age limit, or one whose
+		 * tombstones outnumber its documents.
+		 */
+		private boolean outdated() {
+			boolean live = stream != null && stream.live();
+			boolean stale = !live && System.currentTimeMillis() - builtAt > staleAfterMillis;
+			return stale || index != null && index.needsRebuild();
+		}
+
+		private void watch(MongoCollection<Document> collection, BsonDocument resumeAfter, BsonTimestamp startAt) {
+			stream = new ChangeStreamWatcher("bm25-changes-" + key,
+					() -> collection.watch().fullDocument(FullDocument.UPDATE_LOOKUP), 256, 200, this);
+			stream.start(resumeAfter, startAt);
+		}
+
+		/**
+		 * Writes the index to its snapshot file if it changed since the last save. The resume token is read
+		 * before the index, so the index is at least as new as the token and replaying from it converges.
+		 */
+		private synchronized void save() {
+			ChangeStreamWatcher current = stream;
+			if (snapshotDirectory == null || index == null || current == null || !dirty) {
+				return;
+			}
+			BsonDocument resumeToken = current.resumeToken();
+			if (resumeToken == null) {
+				return;
+			}
+			dirty = false;
+			long start = System.nanoTime();
+			Path file = snapshotFile(key);
+			Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+			try {
+				Files.createDirectories(snapshotDirectory);
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(temp)))) {
+					out.writeInt(SNAPSHOT_MAGIC);
+					out.writeInt(SNAPSHOT_VERSION);
+					out.writeUTF(key.toString());
+					out.writeUTF(resumeToken.toJson());
+					out.writeLong(System.currentTimeMillis());
+					index.writeTo(out);
+				}
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				logger.debug("Saved BM25 index {} to {} in {} ms", key, file, (System.nanoTime() - start) / 1_000_000);
+			} catch (IOException e) {
+				dirty = true;
+				logger.warn("Failed to save BM25 index {}: {}", key, e.getMessage());
+			}
+		}
+
+		/**
+		 * Collapses the batch per document and applies it to the index.
+		 */
+		@Override
+		public void apply(List<ChangeStreamDocument<Document>> events) {
+			Map<Object, Document> upserts = new LinkedHashMap<>();
+			Set<Object> deletes = new HashSet<>();
+			for (ChangeStreamDocument<Document> event : events) {
+				BsonDocument documentKey = event.getDocumentKey();
+				if (documentKey == null || !documentKey.containsKey("_id")) {
+					continue;
+				}
+				Object id = BsonIds.toJavaValue(documentKey.get("_id"));
+				switch (event.getOperationType()) {
+				case DELETE -> {
+					upserts.remove(id);
+					deletes.add(id);
+				}
+				case INSERT, REPLACE, UPDATE -> {
+					deletes.remove(id);
+					upserts.put(id, event.getFullDocument());
+				}
+				default -> {
+					// other events do not change documents
+				}
+				}
+			}
+			if (!upserts.isEmpty() || !deletes.isEmpty()) {
+				index.apply(upserts, deletes);
+				dirty = true;
+				logger.debug("Applied {} changes to BM25 index {}", upserts.size() + deletes.size(), key);
+			}
+		}
+
+		@Override
+		public void invalidated(String reason) {
+			// The index no longer describes the collection, nor does its snapshot; the next search rebuilds it
+			logger.info("BM25 index {} no longer live-updated: {}", key, reason);
+			indexes.remove(key, this);
+			deleteSnapshot(key);
+		}
+
+		@Override
+		public void unavailable(String reason) {
+			// Falls back to rebuilding on use once the index is stale; a snapshot cannot be replayed either
+			logger.info("BM25 index {} no longer live-updated: {}", key, reason);
+			deleteSnapshot(key);
+		}
+
+		private void stop() {
+			if (stream != null) {
+				stream.stop();
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.deepai.search;
+
+import java.util.Arrays;
+
+/**
+ * Variable-byte encoding of non-negative ints: seven bits per byte, low bits first, with the high bit set on
+ * every byte but the last. Small values such as document gaps and term frequencies take a single byte.
+ */
+public final class VariableByteCodec {
+
+	private VariableByteCodec() {
+	}
+
+	/**
+	 * Growable output buffer for encoded values.
+	 */
+	public static final class Writer {
+
+		private byte[] bytes;
+		private int size;
+
+		public Writer() {
+			this.bytes = new byte[16];
+		}
+
+		/**
+		 * Continues after already encoded values, e.g. a posting list read back from a snapshot.
+		 */
+		Writer(byte[] encoded) {
+			this.bytes = encoded;
+			this.size = encoded.length;
+		}
+
+		public Writer write(int value) {
+			if (value < 0) {
+				throw new IllegalArgumentException("Variable-byte values must not be negative: " + value);
+			}
+			if (size + 5 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 5));
+			}
+			while (value >= 0x80) {
+				bytes[size++] = (byte) (value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			bytes[size++] = (byte) value;
+			return this;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public byte[] toByteArray() {
+			return Arrays.copyOf(bytes, size);
+		}
+
+		/**
+		 * Reads the values written so far without copying them.
+		 */
+		public Reader reader() {
+			return new Reader(bytes, size);
+		}
+	}
+
+	/**
+	 * Sequential reader over encoded values.
+	 */
+	public static final class Reader {
+
+		private final byte[] bytes;
+		private final int length;
+		private int position;
+
+		public Reader(byte[] bytes) {
+			this(bytes, bytes.length);
+		}
+
+		private Reader(byte[] bytes, int length) {
+			this.bytes = bytes;
+			this.length = length;
+		}
+
+		public boolean hasNext() {
+			return position < length;
+		}
+
+		public int next() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+}
@@ -1,5 +1,27 @@
 package com.deepai.service;
 
+import com.deepai.analytics.CollectionProfiler;
+import com.deepai.analytics.CollectionSampler;
+import com.deepai.analytics.SchemaProfile;
+import com.deepai.analytics.SchemaRegistry;
+import com.deepai.embedding.EmbeddingCache;
+import com.deepai.embedding.EmbeddingDispatcher;
+import com.deepai.embedding.EmbeddingJobManager;
+import com.deepai.embedding.EmbeddingPipeline;
+import com.deepai.embedding.TextChunker;
+import com.deepai.search.RankFusion;
+import com.deepai.search.TextAnalyzer;
+import com.deepai.search.TextIndexManager;
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.PartitionedVectorScanner;
+import com.deepai.vector.ScoredTopK;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorHit;
+import com.deepai.vector.VectorIndexKey;
+import com.deepai.vector.VectorIndexManager;
+import com.deepai.vector.VectorSearchIndex;
+import com.deepai.vector.VectorStoreManager;
+import com.mongodb.MongoNamespace;
 import com.mongodb.client.*;
 import com.mongodb.client.model.*;
 import org.bson.Document;
@@ -8,24 +30,97 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 @Service
 public class MongoAIService {
 
 	private static final Logger logger = LoggerFactory.getLogger(MongoAIService.class);
+	private static final List<String> SEMANTIC_FIELDS = List.of("name", "title", "description", "content");
+	// Queries also drop the command words people put in front of what they are looking for
+	private static final TextAnalyzer QUERY_ANALYZER = TextAnalyzer.ENGLISH.withStopWords("find", "search", "get",
+			"show", "list");
+	// Each hybrid leg retrieves this many candidates per requested result before fusion
+	private static final int HYBRID_CANDIDATE_FACTOR = 4;
+	// BM25 candidates fetched per requested result, since some may fail the relevance threshold
+	private static final int BM25_CANDIDATE_FACTOR = 4;
+	// Chunked collections retrieve this many chunks per requested parent before grouping
+	private static final int CHUNK_CANDIDATE_FACTOR = 4;
+	private static final String CHUNK_COLLECTION_SUFFIX = "_chunks";
+	private static final int CHUNK_INSERT_BATCH = 1000;
+	// Parent ids per chunk lookup when a filter on parents is resolved against a chunk index or store
+	private static final int PARENT_FILTER_BATCH = 1000;
+	// Largest parent set inlined as {parentId: {$in: ...}} when chunks have to be scanned, well below 16 MB
+	private static final int MAX_PARENT_FILTER_IDS = 100_000;
 	private final MongoClient mongoClient;
 	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final VectorIndexManager vectorIndexManager;
+	private final VectorStoreManager vectorStoreManager;
+	private final PartitionedVectorScanner vectorScanner;
+	private final EmbeddingPipeline embeddingPipeline;
+	private final EmbeddingJobManager embeddingJobs;
+	private final EmbeddingCache embeddingCache;
+	private final EmbeddingDispatcher embeddings;
+	private final TextIndexManager textIndexes;
+	private final CollectionProfiler profiler;
+	private final CollectionSampler sampler;
+	private final SchemaRegistry schemas;
+	private final ThreadPoolExecutor hybridExecutor;
 
 	@Autowired
-	public MongoAIService(MongoServiceClient mongoServiceClient) {
+	public MongoAIService(MongoServiceClient mongoServiceClient, VectorIndexManager vectorIndexManager,
+			VectorStoreManager vectorStoreManager, PartitionedVectorScanner vectorScanner,
+			EmbeddingPipeline embeddingPipeline, EmbeddingJobManager embeddingJobs, EmbeddingCache embeddingCache,
+			EmbeddingDispatcher embeddings, TextIndexManager textIndexes, CollectionProfiler profiler,
+			CollectionSampler sampler, SchemaRegistry schemas,
+			@Value("${mcp.search.hybrid.threads:0}") int hybridThreads) {
 		this.mongoClient = mongoServiceClient.getMongoClient();
+		this.vectorIndexManager = vectorIndexManager;
+		this.vectorStoreManager = vectorStoreManager;
+		this.vectorScanner = vectorScanner;
+		this.embeddingPipeline = embeddingPipeline;
+		this.embeddingJobs = embeddingJobs;
+		this.embeddingCache = embeddingCache;
+		this.embeddings = embeddings;
+		this.textIndexes = textIndexes;
+		this.profiler = profiler;
+		this.sampler = sampler;
+		this.schemas = schemas;
+		int threads = hybridThreads > 0 ? hybridThreads : Runtime.getRuntime().availableProcessors();
+		// When every thread is busy and the queue is full, the caller runs its text leg itself, sequentially
+		this.hybridExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(threads * 4), runnable -> {
+					Thread thread = new Thread(runnable, "hybrid-search");
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		this.hybridExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	@PostConstruct
+	public void registerEmbeddingJobs() {
+		embeddingJobs.registerEmbedders((textField, model) -> embedder(textField));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		hybridExecutor.shutdownNow();
 	}
 
 	// ========== AI-POWERED OPERATIONS ==========
@@ -33,59 +128,103 @@ public class MongoAIService {
 	/**
 	 * Vector similarity search using embeddings - FIXED BSON parsing issue.
 	 */
-	@Tool(description = "Perform semantic similarity search using vector embeddings.")
+	@Tool(description = "Perform semantic similarity search using vector embeddings. similarity is cosine, dotProduct or euclidean; when empty, the metric of the field's local vector index is used, otherwise cosine. filterJson optionally restricts results to documents matching a MongoDB query, e.g. {\"tenantId\": \"X\"}. vectorArrayJson is a JSON array of numbers, or plain query text that is embedded with the configured embedding model. With searchChunks true, vectorFieldName is searched in '<collectionName>_chunks' written by generateChunkEmbeddings instead, and each result is a document scored by its best chunk, with matched_chunks listing chunk offsets and scores; documents without chunks are not returned.")
 	public List<Document> vectorSearch(String dbName, String collectionName, String vectorFieldName,
-			String vectorArrayJson, int limit, String similarity) {
+			String vectorArrayJson, int limit, String similarity, String filterJson, boolean searchChunks) {
 		logger.info("Performing vector search in {}.{} on field '{}'", dbName, collectionName, vectorFieldName);
 		try {
 			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
 
-			// FIXED: Proper parsing of vector array JSON
-			List<Double> queryVector;
+			if (vectorArrayJson == null || vectorArrayJson.isBlank()) {
+				throw new IllegalArgumentException("vectorArrayJson must be a vector or query text");
+			}
+			// FIXED: Proper parsing of vector array JSON; anything else is query text to embed
+			float[] query;
+			if (vectorArrayJson.strip().startsWith("[")) {
+				try {
+					query = objectMapper.readValue(vectorArrayJson, float[].class);
+				} catch (Exception e) {
+					throw new IllegalArgumentException("Invalid vector array JSON: " + e.getMessage());
+				}
+			} else {
+				query = embed(vectorArrayJson);
+			}
+
+			Document filter = parseFilter(filterJson);
+			List<Document> results;
+			if (searchChunks) {
+				String chunkCollection = collectionName + CHUNK_COLLECTION_SUFFIX;
+				MongoCollection<Document> chunks = mongoClient.getDatabase(dbName).getCollection(chunkCollection);
+				SimilarityMetric metric = metric(similarity, dbName, chunkCollection, vectorFieldName);
+				results = searchChunks(collection, chunks, vectorFieldName, query, limit, metric, filter);
+			} else {
+				SimilarityMetric metric = metric(similarity, dbName, collectionName, vectorFieldName);
+				results = fetchVectorHits(collection,
+						findNearest(collection, vectorFieldName, query, limit, metric,
+								filter != null ? matching(collection, filter) : null));
+			}
+			logger.info("Vector search returned {} results", results.size());
+			return results;
+		} catch (Exception e) {
+			logger.error("Failed to perform vector search in {}.{}: {}", dbName, collectionName, e.getMessage());
+			return List.of(new Document("error", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Batched vector search: all query vectors are answered in one pass over the index, vector store or
+	 * collection instead of one pass per query.
+	 */
+	@Tool(description = "Run many vector similarity searches against the same collection in one call. queryVectorsJson is a JSON array of query vectors, e.g. [[0.1, 0.2], [0.3, 0.4]], all with the same dimension. Candidates are read once and scored against every query, so batches are much cheaper than repeated vectorSearch calls. Returns one entry per query, in order, with its top-k results. similarity and filterJson work as in vectorSearch.")
+	public List<Document> vectorSearchBatch(String dbName, String collectionName, String vectorFieldName,
+			String queryVectorsJson, int limit, String similarity, String filterJson) {
+		logger.info("Performing batched vector search in {}.{} on field '{}'", dbName, collectionName,
+				vectorFieldName);
+		try {
+			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
+
+			float[][] queries;
 			try {
-				queryVector = objectMapper.readValue(vectorArrayJson, new TypeReference<List<Double>>() {});
+				queries = objectMapper.readValue(queryVectorsJson, float[][].class);
 			} catch (Exception e) {
-				throw new IllegalArgumentException("Invalid vector array JSON: " + e.getMessage());
+				throw new IllegalArgumentException("Invalid query vectors JSON: " + e.getMessage());
+			}
+			if (queries == null || queries.length == 0) {
+				throw new IllegalArgumentException("queryVectorsJson must contain at least one vector");
+			}
+			for (int q = 0; q < queries.length; q++) {
+				if (queries[q] == null || queries[q].length == 0 || queries[q].length != queries[0].length) {
+					throw new IllegalArgumentException("Query vector " + q + " is empty or differs in dimension "
+							+ "from the first query vector");
+				}
 			}
 
-			// For standard MongoDB, we'll use a simple distance calculation
-			// In production, you'd use MongoDB Atlas Vector Search
-			List<Document> results = new ArrayList<>();
-			
-			// Find documents with embeddings and calculate similarity
-			collection.find(Filters.exists(vectorFieldName))
-				.limit(limit * 10) // Get more to calculate similarity
-				.forEach(doc -> {
-					try {
-						@SuppressWarnings("unchecked")
-						List<Double> docVector = (List<Double>) doc.get(vectorFieldName);
-						if (docVector != null && docVector.size() == queryVector.size()) {
-							double similarity_score = calculateCosineSimilarity(queryVector, docVector);
-							doc.append("similarity_score", similarity_score);
-							results.add(doc);
-						}
-					} catch (Exception e) {
-						logger.debug("Skipping document due to vector format issue: {}", e.getMessage());
+			SimilarityMetric metric = metric(similarity, dbName, collectionName, vectorFieldName);
+			List<List<VectorHit>> hits = findNearestBatch(collection, vectorFieldName, queries, limit, metric,
+					parseFilter(filterJson));
+			Map<Object, Document> documentsById = fetchByIds(collection, hits.stream()
+					.flatMap(List::stream)
+					.map(VectorHit::id)
+					.distinct()
+					.toList());
+
+			List<Document> results = new ArrayList<>(hits.size());
+			for (int q = 0; q < hits.size(); q++) {
+				List<Document> matches = new ArrayList<>(hits.get(q).size());
+				for (VectorHit hit : hits.get(q)) {
+					Document doc = documentsById.get(hit.id());
+					if (doc != null) {
+						// Copy, since the same document can rank under several queries with different scores
+						matches.add(new Document(doc).append("similarity_score", hit.score()));
 					}
-				});
-
-			// Sort by similarity and limit results
-			results.sort((a, b) -> {
-				Double scoreA = a.getDouble("similarity_score");
-				Double scoreB = b.getDouble("similarity_score");
-				if (scoreA == null) scoreA = 0.0;
-				if (scoreB == null) scoreB = 0.0;
-				return Double.compare(scoreB, scoreA);
-			});
-
-			List<Document> limitedResults = results.stream()
-				.limit(limit)
-				.collect(Collectors.toList());
-
-			logger.info("Vector search returned {} results", limitedResults.size());
-			return limitedResults;
+				}
+				results.add(new Document("query", q).append("count", matches.size()).append("results", matches));
+			}
+			logger.info("Batched vector search answered {} queries", results.size());
+			return results;
 		} catch (Exception e) {
-			logger.error("Failed to perform vector search in {}.{}: {}", dbName, collectionName, e.getMessage());
+			logger.error("Failed to perform batched vector search in {}.{}: {}", dbName, collectionName,
+					e.getMessage());
 			return List.of(new Document("error", e.getMessage()));
 		}
 	}
@@ -150,40 +289,46 @@ public class MongoAIService {
 	}
 
 	/**
-	 * AI-powered collection analysis.
+	 * AI-powered collection analysis over a profile of a cached random sample, or of the whole collection.
 	 */
-	@Tool(description = "Analyze collection structure and patterns using AI.")
+	@Tool(description = "Analyze collection structure and patterns using AI. Documents are streamed through a profiler that tracks every nested path and array element path (e.g. address.city, tags[]) with type counts, null rate, approximate distinct count and, for numbers, min/max and p50/p90/p99. sampleSize > 0 profiles a random sample of that many documents (drawn with $sample, _id-stratified parallel cursors or a reservoir scan, per server configuration), which is cached per collection so repeated analyses reuse it. 0 or less streams the whole collection, stopping at a server-side time budget, in which case the partial profile is returned with complete=false.")
 	public Map<String, Object> aiAnalyzeCollection(String dbName, String collectionName, String analysisType,
 			int sampleSize) {
 		logger.info("Analyzing collection {}.{} with AI", dbName, collectionName);
 		try {
-			// Get sample documents
-			List<Document> sampleDocs = mongoClient.getDatabase(dbName)
-					.getCollection(collectionName).find().limit(sampleSize > 0 ? sampleSize : 100)
-					.into(new ArrayList<>());
+			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
+			CollectionSampler.Sample sample = sampleSize > 0 ? sampler.sample(collection, sampleSize) : null;
+			CollectionProfiler.Result result = sample != null
+					? profiler.profile(sample.documents(), sample.population())
+					: profiler.profile(collection, 0);
+			SchemaProfile profile = result.profile();
 
 			Map<String, Object> analysis = new HashMap<>();
 			analysis.put("collection", collectionName);
 			analysis.put("database", dbName);
-			analysis.put("sampleSize", sampleDocs.size());
+			analysis.put("sampleSize", profile.documents());
 			analysis.put("analysisType", analysisType);
 			analysis.put("timestamp", Instant.now().toEpochMilli());
+			analysis.put("profile", result.describe());
+			if (sample != null) {
+				analysis.put("sample", sample.describe());
+			}
 
 			switch (analysisType != null ? analysisType.toLowerCase() : "schema") {
 			case "schema":
-				analysis.put("schemaAnalysis", analyzeCollectionSchema(sampleDocs));
+				analysis.put("schemaAnalysis", analyzeCollectionSchema(profile));
 				break;
 			case "patterns":
-				analysis.put("patterns", findDataPatterns(sampleDocs));
+				analysis.put("patterns", profile.patterns());
 				break;
 			case "quality":
-				analysis.put("dataQuality", assessDataQuality(sampleDocs));
+				analysis.put("dataQuality", profile.quality());
 				break;
 			case "relationships":
-				analysis.put("relationships", findDataRelationships(sampleDocs));
+				analysis.put("relationships", profile.relationships());
 				break;
 			default:
-				analysis.put("overview", generateCollectionOverview(sampleDocs));
+				analysis.put("overview", profile.overview());
 			}
 
 			logger.info("AI collection analysis completed for {}.{}", dbName, collectionName);
@@ -215,6 +360,11 @@ public class MongoAIService {
 				.listIndexes().into(new ArrayList<>());
 			suggestions.put("availableIndexes", indexes.size());
 
+			// Field names and types from the schema registry, sampled once per collection
+			SchemaRegistry.Snapshot schema = schemas.schema(dbName, collectionName);
+			suggestions.put("schemaVersion", schema.version());
+			suggestions.put("schemaFields", schema.fields());
+
 			// Generate query suggestions based on intent
 			List<Map<String, Object>> queryOptions = new ArrayList<>();
 
@@ -248,6 +398,26 @@ public class MongoAIService {
 		}
 	}
 
+	/**
+	 * Collection schema from the registry.
+	 */
+	@Tool(description = "Get the inferred schema of a collection without scanning it: every nested path and array element path (e.g. address.city, tags[]) with its dominant type, plus per-path type counts, presence, null rate, approximate distinct count and numeric quantiles. The first call profiles a random sample; later calls are answered from memory, kept current by change streams (or periodic resampling on standalone servers). version increases whenever a path appears, disappears or changes type, so callers can tell whether a cached schema is still valid. refresh=true resamples now.")
+	public Map<String, Object> getCollectionSchema(String dbName, String collectionName, boolean refresh) {
+		logger.info("Getting schema of {}.{}{}", dbName, collectionName, refresh ? " (refresh)" : "");
+		try {
+			SchemaRegistry.Snapshot schema = refresh ? schemas.refresh(dbName, collectionName)
+					: schemas.schema(dbName, collectionName);
+			Map<String, Object> result = schema.toMap();
+			result.put("resourceUri", schema.resourceUri());
+			return result;
+		} catch (Exception e) {
+			logger.error("Failed to get schema of {}.{}: {}", dbName, collectionName, e.getMessage());
+			Map<String, Object> error = new HashMap<>();
+			error.put("error", e.getMessage());
+			return error;
+		}
+	}
+
 	/**
 	 * AI document summary.
 	 */
@@ -329,7 +499,8 @@ public class MongoAIService {
 			List<Document> results = new ArrayList<>();
 
 			// Extract keywords from natural language query
-			List<String> keywords = extractSearchKeywords(naturalLanguageQuery);
+			TextAnalyzer.Query query = QUERY_ANALYZER.query(naturalLanguageQuery);
+			List<String> keywords = query.terms();
 
 			// Build text search if available, otherwise use field-based search
 			if (!keywords.isEmpty()) {
@@ -342,15 +513,20 @@ public class MongoAIService {
 							.find(textQuery).projection(new Document("score", new Document("$meta", "textScore")))
 							.sort(new Document("score", new Document("$meta", "textScore"))).limit(limit).into(results);
 				} catch (Exception textSearchError) {
-					// Fallback to field-based search
-					Document fieldQuery = buildSemanticFieldQuery(keywords);
-					mongoClient.getDatabase(dbName).getCollection(collectionName)
-							.find(fieldQuery).limit(limit).into(results);
+					// No text index: rank with the local BM25 index, or by scanning when the collection is too large
+					results = rankFieldMatches(mongoClient.getDatabase(dbName).getCollection(collectionName),
+							query, limit, threshold);
 				}
 			}
 
 			// Apply semantic filtering based on threshold
-			results = filterBySemanticRelevance(results, naturalLanguageQuery, threshold);
+			results = new ArrayList<>(filterBySemanticRelevance(results, query, threshold));
+
+			// Add nearest neighbours from a local vector store when the collection has embeddings
+			Optional<MappedVectorStore> store = vectorStoreManager.findStore(dbName, collectionName);
+			if (store.isPresent() && results.size() < limit) {
+				addVectorMatches(results, store.get(), dbName, collectionName, naturalLanguageQuery, limit, threshold);
+			}
 
 			logger.info("Semantic search returned {} results", results.size());
 			return results;
@@ -361,9 +537,80 @@ public class MongoAIService {
 	}
 
 	/**
-	 * Generate embeddings for documents.
+	 * Hybrid lexical + vector retrieval. The text leg runs on the bounded hybrid executor while the calling
+	 * thread runs the vector leg, so latency tracks the slower leg rather than their sum. A failed vector leg
+	 * cancels the text leg, interrupting its thread.
+	 */
+	@Tool(description = "Hybrid search combining text relevance and vector similarity in one call. Both legs run concurrently and are fused with reciprocal-rank fusion (fusion=rrf, default) or min-max normalized scores (fusion=weighted); vectorWeight (0-1, default 0.5) sets the vector leg's share. vectorArrayJson is optional: when empty the query text is embedded. Each result includes a score_breakdown with per-leg rank and score.")
+	public List<Document> hybridSearch(String dbName, String collectionName, String queryText,
+			String vectorFieldName, String vectorArrayJson, int limit, String fusion, double vectorWeight) {
+		logger.info("Performing hybrid search in {}.{} for: {}", dbName, collectionName, queryText);
+		try {
+			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
+			RankFusion.Method method = RankFusion.Method.fromString(fusion);
+			int candidates = Math.max(limit * HYBRID_CANDIDATE_FACTOR, 20);
+
+			float[] query;
+			if (vectorArrayJson != null && !vectorArrayJson.isBlank()) {
+				query = objectMapper.readValue(vectorArrayJson, float[].class);
+			} else {
+				query = embed(queryText);
+			}
+			SimilarityMetric metric = metric(null, dbName, collectionName, vectorFieldName);
+
+			Future<List<RankFusion.Candidate>> textLeg = hybridExecutor
+					.submit(() -> rankText(collection, queryText, candidates));
+			List<RankFusion.Candidate> vectorLeg;
+			try {
+				vectorLeg = findNearest(collection, vectorFieldName, query, candidates, metric, null).stream()
+						.map(hit -> new RankFusion.Candidate(hit.id(), hit.score()))
+						.toList();
+			} catch (Exception vectorError) {
+				textLeg.cancel(true);
+				throw vectorError;
+			}
+			List<RankFusion.Candidate> textHits;
+			try {
+				textHits = textLeg.get();
+			} catch (InterruptedException e) {
+				textLeg.cancel(true);
+				Thread.currentThread().interrupt();
+				throw e;
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof Exception cause ? cause : e;
+			}
+
+			List<RankFusion.Fused> fused = RankFusion.fuse(textHits, vectorLeg, method, vectorWeight, limit);
+			Map<Object, Document> documentsById = fetchByIds(collection,
+					fused.stream().map(RankFusion.Fused::id).toList());
+			List<Document> results = new ArrayList<>(fused.size());
+			for (RankFusion.Fused result : fused) {
+				Document doc = documentsById.get(result.id());
+				if (doc == null) {
+					continue;
+				}
+				results.add(doc.append("hybrid_score", result.score())
+						.append("score_breakdown", new Document("fusion", method.name().toLowerCase())
+								.append("text_rank", result.textRank())
+								.append("text_score", result.textScore())
+								.append("vector_rank", result.vectorRank())
+								.append("vector_score", result.vectorScore())));
+			}
+
+			logger.info("Hybrid search returned {} results ({} text, {} vector candidates)", results.size(),
+					textHits.size(), vectorLeg.size());
+			return results;
+		} catch (Exception e) {
+			logger.error("Failed to perform hybrid search in {}.{}: {}", dbName, collectionName, e.getMessage());
+			return List.of(new Document("error", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Generate embeddings for documents. Documents are streamed from the cursor, embedded on the pipeline's
+	 * worker pool and written back with unordered bulk writes.
 	 */
-	@Tool(description = "Generate vector embeddings for documents using AI models.")
+	@Tool(description = "Generate vector embeddings for documents using AI models. batchSize caps how many documents without embeddingField are processed in this call (default 100); the result includes throughput stats.")
 	public Map<String, Object> generateEmbeddings(String dbName, String collectionName, String textField,
 			String embeddingField, String aiModel, int batchSize) {
 		logger.info("Generating embeddings for field '{}' in {}.{}", textField, dbName, collectionName);
@@ -372,72 +619,594 @@ public class MongoAIService {
 			result.put("collection", collectionName);
 			result.put("textField", textField);
 			result.put("embeddingField", embeddingField);
-			result.put("aiModel", aiModel != null ? aiModel : "text-embedding-ada-002");
+			result.put("aiModel", aiModel != null ? aiModel : embeddings.model());
 			result.put("timestamp", Instant.now().toEpochMilli());
 
-			// Get documents that need embeddings
-			Document query = new Document(embeddingField, new Document("$exists", false));
-			List<Document> documents = mongoClient.getDatabase(dbName)
-					.getCollection(collectionName).find(query).limit(batchSize > 0 ? batchSize : 100)
-					.into(new ArrayList<>());
-
-			int processed = 0;
-			int successful = 0;
+			// Stream documents that need embeddings through the embed/bulk-write pipeline
+			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
+			int limit = batchSize > 0 ? batchSize : 100;
+			FindIterable<Document> documents = collection
+					.find(new Document(embeddingField, new Document("$exists", false)))
+					.limit(limit)
+					.batchSize(Math.min(limit, 1000));
+			EmbeddingPipeline.Stats stats = embeddingPipeline.run(documents, embeddingField, embedder(textField),
+					EmbeddingPipeline.bulkWriter(collection,
+							() -> vectorStoreManager.invalidate(dbName, collectionName)));
+
+			long processed = stats.read();
+			long successful = stats.written();
+			result.put("documentsProcessed", processed);
+			result.put("embeddingsGenerated", successful);
+			result.put("skipped", stats.skipped());
+			result.put("failed", stats.failed());
+			result.put("success", successful > 0);
 
-			for (Document doc : documents) {
-				try {
-					String textContent = extractTextForEmbedding(doc, textField);
-					if (textContent != null && !textContent.trim().isEmpty()) {
-						// In real implementation, call OpenAI/Ollama API here
-						List<Double> embedding = generateMockEmbedding(textContent);
+			result.put("throughput", throughput(stats));
+			result.put("cache", embeddingCache.stats());
+			result.put("provider", embeddings.stats());
 
-						// Update document with embedding
-						Document update = new Document("$set", new Document(embeddingField, embedding));
-						mongoClient.getDatabase(dbName).getCollection(collectionName)
-								.updateOne(new Document("_id", doc.get("_id")), update);
+			logger.info("Generated embeddings for {} out of {} documents", successful, processed);
+			return result;
+		} catch (Exception e) {
+			logger.error("Failed to generate embeddings for {}.{}: {}", dbName, collectionName, e.getMessage());
+			Map<String, Object> error = new HashMap<>();
+			error.put("error", e.getMessage());
+			return error;
+		}
+	}
 
-						successful++;
+	/**
+	 * Chunk long documents and embed every chunk. Chunks go to a child collection named after the parent, so
+	 * one document yields several focused vectors instead of one diluted one.
+	 */
+	@Tool(description = "Split the text of long documents into overlapping sentence windows of up to maxTokens words (default 256) repeating up to overlapTokens words (default 32), and embed every chunk into embeddingField of the collection '<collectionName>_chunks' together with parentId, chunk number and character offsets. textField is the text to chunk; without it all string fields are used. At most batchSize documents without chunks are processed per call (default 100). vectorSearch with searchChunks true then ranks documents by their best matching chunks.")
+	public Map<String, Object> generateChunkEmbeddings(String dbName, String collectionName, String textField,
+			String embeddingField, int maxTokens, int overlapTokens, int batchSize) {
+		logger.info("Generating chunk embeddings for field '{}' in {}.{}", textField, dbName, collectionName);
+		try {
+			MongoDatabase database = mongoClient.getDatabase(dbName);
+			MongoCollection<Document> collection = database.getCollection(collectionName);
+			MongoCollection<Document> chunks = database.getCollection(collectionName + CHUNK_COLLECTION_SUFFIX);
+			chunks.createIndex(Indexes.ascending("parentId"));
+			TextChunker chunker = new TextChunker(maxTokens, overlapTokens);
+			int limit = batchSize > 0 ? batchSize : 100;
+
+			// Chunk documents that have no chunks yet, checking the child collection a cursor batch at a time
+			long documentsChunked = 0;
+			long chunksCreated = 0;
+			List<Document> parents = new ArrayList<>();
+			List<Document> pending = new ArrayList<>();
+			try (MongoCursor<Document> cursor = collection.find().sort(Sorts.ascending("_id")).batchSize(500)
+					.iterator()) {
+				while (documentsChunked < limit && (cursor.hasNext() || !parents.isEmpty())) {
+					if (cursor.hasNext() && parents.size() < 500) {
+						parents.add(cursor.next());
+						continue;
+					}
+					Set<Object> chunked = new HashSet<>();
+					chunks.distinct("parentId", Filters.in("parentId", parents.stream().map(doc -> doc.get("_id"))
+							.toList()), Object.class).into(chunked);
+					for (Document parent : parents) {
+						if (documentsChunked == limit || chunked.contains(parent.get("_id"))) {
+							continue;
+						}
+						Iterator<TextChunker.Chunk> parts = chunker.chunks(textSegments(parent, textField));
+						if (!parts.hasNext()) {
+							continue;
+						}
+						while (parts.hasNext()) {
+							TextChunker.Chunk chunk = parts.next();
+							pending.add(new Document("parentId", parent.get("_id"))
+									.append("chunk", chunk.index())
+									.append("start", chunk.start())
+									.append("end", chunk.end())
+									.append("tokens", chunk.tokens())
+									.append("text", chunk.text()));
+							if (pending.size() == CHUNK_INSERT_BATCH) {
+								chunks.insertMany(pending, new InsertManyOptions().ordered(false));
+								chunksCreated += pending.size();
+								pending.clear();
+							}
+						}
+						documentsChunked++;
 					}
-					processed++;
-				} catch (Exception docError) {
-					logger.warn("Failed to generate embedding for document {}: {}", doc.get("_id"),
-							docError.getMessage());
-					processed++;
+					parents.clear();
 				}
 			}
+			if (!pending.isEmpty()) {
+				chunks.insertMany(pending, new InsertManyOptions().ordered(false));
+				chunksCreated += pending.size();
+			}
 
-			result.put("documentsProcessed", processed);
-			result.put("embeddingsGenerated", successful);
-			result.put("success", successful > 0);
+			// Embed every chunk still missing its embedding, including ones left over by an earlier call
+			FindIterable<Document> unembedded = chunks.find(Filters.exists(embeddingField, false)).batchSize(1000);
+			EmbeddingPipeline.Stats stats = embeddingPipeline.run(unembedded, embeddingField, embedder("text"),
+					EmbeddingPipeline.bulkWriter(chunks,
+							() -> vectorStoreManager.invalidate(dbName, chunks.getNamespace().getCollectionName())));
 
-			logger.info("Generated embeddings for {} out of {} documents", successful, processed);
+			Map<String, Object> result = new LinkedHashMap<>();
+			result.put("collection", collectionName);
+			result.put("chunkCollection", chunks.getNamespace().getCollectionName());
+			result.put("textField", textField);
+			result.put("embeddingField", embeddingField);
+			result.put("maxTokens", chunker.maxTokens());
+			result.put("overlapTokens", chunker.overlapTokens());
+			result.put("documentsChunked", documentsChunked);
+			result.put("chunksCreated", chunksCreated);
+			result.put("chunksEmbedded", stats.written());
+			result.put("failed", stats.failed());
+			result.put("throughput", throughput(stats));
+			result.put("cache", embeddingCache.stats());
+			result.put("timestamp", Instant.now().toEpochMilli());
+
+			logger.info("Chunked {} documents into {} chunks, embedded {} chunks", documentsChunked, chunksCreated,
+					stats.written());
 			return result;
 		} catch (Exception e) {
-			logger.error("Failed to generate embeddings for {}.{}: {}", dbName, collectionName, e.getMessage());
+			logger.error("Failed to generate chunk embeddings for {}.{}: {}", dbName, collectionName, e.getMessage());
 			Map<String, Object> error = new HashMap<>();
 			error.put("error", e.getMessage());
 			return error;
 		}
 	}
 
+	private Map<String, Object> throughput(EmbeddingPipeline.Stats stats) {
+		Map<String, Object> throughput = new LinkedHashMap<>();
+		throughput.put("elapsedMs", stats.elapsedMillis());
+		throughput.put("documentsPerSecond", Math.round(stats.documentsPerSecond() * 10) / 10.0);
+		throughput.put("bytesPerSecond", Math.round(stats.bytesPerSecond()));
+		throughput.put("bytesWritten", stats.bytesWritten());
+		throughput.put("bulkWrites", stats.bulkWrites());
+		throughput.put("workers", embeddingPipeline.workers());
+		return throughput;
+	}
+
+	/**
+	 * Start a background embedding back-fill.
+	 */
+	@Tool(description = "Start a background job that embeds every document of the collection missing embeddingField. Returns a jobId immediately; follow it with getEmbeddingJobStatus. Jobs checkpoint the last processed _id and resume after a restart.")
+	public Map<String, Object> startEmbeddingJob(String dbName, String collectionName, String textField,
+			String embeddingField, String aiModel) {
+		logger.info("Starting embedding job for field '{}' in {}.{}", textField, dbName, collectionName);
+		try {
+			return embeddingJobs.start(dbName, collectionName, textField, embeddingField,
+					aiModel != null ? aiModel : embeddings.model());
+		} catch (Exception e) {
+			logger.error("Failed to start embedding job for {}.{}: {}", dbName, collectionName, e.getMessage());
+			return Map.of("error", String.valueOf(e.getMessage()));
+		}
+	}
+
+	/**
+	 * Progress of background embedding jobs.
+	 */
+	@Tool(description = "Status of a background embedding job: state, documents processed, percent complete, documents per second and ETA. Leave jobId empty to list the most recent jobs.")
+	public Map<String, Object> getEmbeddingJobStatus(String jobId) {
+		logger.info("Fetching status of embedding job '{}'", jobId);
+		return embeddingJobAction(jobId, embeddingJobs::status);
+	}
+
+	/**
+	 * Pause a background embedding job.
+	 */
+	@Tool(description = "Pause a queued or running embedding job after its in-flight documents are written. Resume it later with resumeEmbeddingJob.")
+	public Map<String, Object> pauseEmbeddingJob(String jobId) {
+		logger.info("Pausing embedding job '{}'", jobId);
+		return embeddingJobAction(jobId, embeddingJobs::pause);
+	}
+
+	/**
+	 * Resume a paused or failed background embedding job.
+	 */
+	@Tool(description = "Resume a paused or failed embedding job from its last checkpoint.")
+	public Map<String, Object> resumeEmbeddingJob(String jobId) {
+		logger.info("Resuming embedding job '{}'", jobId);
+		return embeddingJobAction(jobId, embeddingJobs::resume);
+	}
+
+	/**
+	 * Cancel a background embedding job.
+	 */
+	@Tool(description = "Cancel an embedding job. Embeddings already written are kept.")
+	public Map<String, Object> cancelEmbeddingJob(String jobId) {
+		logger.info("Cancelling embedding job '{}'", jobId);
+		return embeddingJobAction(jobId, embeddingJobs::cancel);
+	}
+
 	// ========== HELPER METHODS ==========
 
-	private double calculateCosineSimilarity(List<Double> vector1, List<Double> vector2) {
-		if (vector1.size() != vector2.size()) {
-			return 0.0;
+	private Map<String, Object> embeddingJobAction(String jobId, Function<String, Document> action) {
+		try {
+			return action.apply(jobId);
+		} catch (Exception e) {
+			logger.error("Embedding job operation failed for '{}': {}", jobId, e.getMessage());
+			return Map.of("error", String.valueOf(e.getMessage()));
+		}
+	}
+
+	/**
+	 * Embeds a document's text field, or returns null when it has no text to embed. Each pipeline chunk first
+	 * loads the persisted embeddings of its texts with one cache query.
+	 */
+	private EmbeddingPipeline.Embedder embedder(String textField) {
+		return new EmbeddingPipeline.Embedder() {
+			@Override
+			public float[] embed(Document doc) {
+				String textContent = textToEmbed(doc, textField);
+				return textContent != null ? MongoAIService.this.embed(textContent) : null;
+			}
+
+			@Override
+			public void prefetch(List<Document> documents) {
+				List<String> texts = new ArrayList<>(documents.size());
+				for (Document doc : documents) {
+					String textContent = textToEmbed(doc, textField);
+					if (textContent != null) {
+						texts.add(textContent);
+					}
+				}
+				embeddingCache.prefetch(embeddings.model(), texts);
+			}
+		};
+	}
+
+	private String textToEmbed(Document doc, String textField) {
+		String textContent = extractTextForEmbedding(doc, textField);
+		return textContent != null && !textContent.trim().isEmpty() ? textContent : null;
+	}
+
+	/**
+	 * Embeds {@code text} with the configured provider, reusing the cached embedding of identical text.
+	 * Concurrent calls are coalesced into micro-batches by the dispatcher.
+	 */
+	private float[] embed(String text) {
+		return embeddingCache.get(embeddings.model(), text, embeddings::embed);
+	}
+
+	/**
+	 * The metric named by the {@code similarity} parameter; when it is empty, the metric of the field's local
+	 * index so that index serves the query, otherwise cosine.
+	 */
+	private SimilarityMetric metric(String similarity, String dbName, String collectionName, String vectorFieldName) {
+		if (similarity != null && !similarity.isBlank()) {
+			return SimilarityMetric.fromString(similarity);
+		}
+		return vectorIndexManager.getIndex(new VectorIndexKey(dbName, collectionName, vectorFieldName))
+				.map(VectorSearchIndex::metric)
+				.orElse(SimilarityMetric.COSINE);
+	}
+
+	/**
+	 * Top-k nearest neighbours of {@code query}, served from the local index built by createVectorIndex when
+	 * one matches, otherwise from the memory-mapped vector store, otherwise by scanning the collection. A null
+	 * {@code prefilter} searches every document.
+	 */
+	private List<VectorHit> findNearest(MongoCollection<Document> collection, String vectorFieldName, float[] query,
+			int limit, SimilarityMetric metric, Prefilter prefilter) throws InterruptedException {
+		MongoNamespace namespace = collection.getNamespace();
+		VectorIndexKey key = new VectorIndexKey(namespace.getDatabaseName(), namespace.getCollectionName(),
+				vectorFieldName);
+		Optional<VectorSearchIndex> index = vectorIndexManager.getIndex(key);
+		if (index.isPresent() && index.get().dimensions() == query.length && index.get().metric() == metric) {
+			BitSet allowed = prefilter != null ? prefilter.ordinals(index.get()::ordinal) : null;
+			logger.debug("Serving vector query for {} from {} index", key, index.get().type());
+			return index.get().search(query, limit, allowed);
+		}
+
+		// Otherwise scan the memory-mapped float32 store instead of decoding BSON arrays per query
+		try {
+			MappedVectorStore store = vectorStoreManager.getOrBuild(key);
+			if (store.dimensions() == query.length) {
+				BitSet allowed = prefilter != null ? prefilter.ordinals(store::ordinal) : null;
+				logger.debug("Serving vector query for {} from vector store", key);
+				return vectorScanner.search(store, query, limit, metric, allowed);
+			}
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception storeError) {
+			logger.warn("Vector store unavailable for {}, scanning collection: {}", key, storeError.getMessage());
+		}
+
+		// For standard MongoDB, scan _id partitions in parallel into bounded top-k heaps
+		// In production, you'd use MongoDB Atlas Vector Search
+		return vectorScanner.scan(collection, vectorFieldName, query, limit, metric,
+				prefilter != null ? prefilter.query() : null);
+	}
+
+	/**
+	 * A vector search restriction, resolved to local ordinals when an index or vector store serves the query
+	 * and to a query on the searched collection when it is scanned.
+	 */
+	private interface Prefilter {
+
+		BitSet ordinals(ToIntFunction<Object> ordinalOf);
+
+		Document query();
+	}
+
+	/**
+	 * Restricts a search to the documents of {@code collection} matching {@code filter}.
+	 */
+	private Prefilter matching(MongoCollection<Document> collection, Document filter) {
+		return new Prefilter() {
+			@Override
+			public BitSet ordinals(ToIntFunction<Object> ordinalOf) {
+				return resolveFilter(collection, filter, ordinalOf);
+			}
+
+			@Override
+			public Document query() {
+				return filter;
+			}
+		};
+	}
+
+	/**
+	 * Restricts a chunk search to the chunks of the parents matching {@code filter}. Parent ids are streamed
+	 * and looked up in bounded {@code $in} batches, so the restriction never holds every parent id at once;
+	 * only a scan of the chunks needs them inline, and refuses filters matching too many parents.
+	 */
+	private Prefilter chunksOf(MongoCollection<Document> parents, MongoCollection<Document> chunks,
+			Document filter) {
+		return new Prefilter() {
+			@Override
+			public BitSet ordinals(ToIntFunction<Object> ordinalOf) {
+				BitSet allowed = new BitSet();
+				List<Object> batch = new ArrayList<>(PARENT_FILTER_BATCH);
+				for (Document parent : parents.find(filter).projection(Projections.include("_id"))) {
+					batch.add(parent.get("_id"));
+					if (batch.size() == PARENT_FILTER_BATCH) {
+						allowed.or(resolveFilter(chunks, new Document("parentId", new Document("$in", batch)),
+								ordinalOf));
+						batch.clear();
+					}
+				}
+				if (!batch.isEmpty()) {
+					allowed.or(resolveFilter(chunks, new Document("parentId", new Document("$in", batch)), ordinalOf));
+				}
+				return allowed;
+			}
+
+			@Override
+			public Document query() {
+				List<Object> parentIds = new ArrayList<>();
+				for (Document parent : parents.find(filter).projection(Projections.include("_id"))
+						.limit(MAX_PARENT_FILTER_IDS + 1)) {
+					parentIds.add(parent.get("_id"));
+				}
+				if (parentIds.size() > MAX_PARENT_FILTER_IDS) {
+					throw new IllegalArgumentException("filterJson matches more than " + MAX_PARENT_FILTER_IDS
+							+ " documents, too many to restrict a scan of " + chunks.getNamespace().getCollectionName()
+							+ "; narrow the filter or create a vector index on the chunks");
+				}
+				return new Document("parentId", new Document("$in", parentIds));
+			}
+		};
+	}
+
+	/**
+	 * Batched form of {@link #findNearest}; result {@code i} holds the hits for {@code queries[i]}.
+	 */
+	private List<List<VectorHit>> findNearestBatch(MongoCollection<Document> collection, String vectorFieldName,
+			float[][] queries, int limit, SimilarityMetric metric, Document filter) throws InterruptedException {
+		MongoNamespace namespace = collection.getNamespace();
+		VectorIndexKey key = new VectorIndexKey(namespace.getDatabaseName(), namespace.getCollectionName(),
+				vectorFieldName);
+		int dimensions = queries[0].length;
+		Optional<VectorSearchIndex> index = vectorIndexManager.getIndex(key);
+		if (index.isPresent() && index.get().dimensions() == dimensions && index.get().metric() == metric) {
+			BitSet allowed = filter != null ? resolveFilter(collection, filter, index.get()::ordinal) : null;
+			logger.debug("Serving {} vector queries for {} from {} index", queries.length, key, index.get().type());
+			return index.get().searchBatch(queries, limit, allowed);
+		}
+
+		try {
+			MappedVectorStore store = vectorStoreManager.getOrBuild(key);
+			if (store.dimensions() == dimensions) {
+				BitSet allowed = filter != null ? resolveFilter(collection, filter, store::ordinal) : null;
+				logger.debug("Serving {} vector queries for {} from vector store", queries.length, key);
+				return vectorScanner.searchBatch(store, queries, limit, metric, allowed);
+			}
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception storeError) {
+			logger.warn("Vector store unavailable for {}, scanning collection: {}", key, storeError.getMessage());
+		}
+
+		return vectorScanner.scanBatch(collection, vectorFieldName, queries, limit, metric, filter);
+	}
+
+	/**
+	 * Parses the optional {@code filterJson} tool parameter; blank or empty filters mean no restriction.
+	 */
+	private Document parseFilter(String filterJson) {
+		if (filterJson == null || filterJson.isBlank()) {
+			return null;
 		}
+		Document filter = Document.parse(filterJson);
+		return filter.isEmpty() ? null : filter;
+	}
 
-		double dotProduct = 0.0;
-		double norm1 = 0.0;
-		double norm2 = 0.0;
+	/**
+	 * Resolves the documents matching {@code filter} into a bitset over local vector ordinals; documents the
+	 * index does not hold are ignored.
+	 */
+	private BitSet resolveFilter(MongoCollection<Document> collection, Document filter,
+			ToIntFunction<Object> ordinalOf) {
+		BitSet allowed = new BitSet();
+		for (Document doc : collection.find(filter).projection(Projections.include("_id"))) {
+			int ordinal = ordinalOf.applyAsInt(doc.get("_id"));
+			if (ordinal >= 0) {
+				allowed.set(ordinal);
+			}
+		}
+		return allowed;
+	}
 
-		for (int i = 0; i < vector1.size(); i++) {
-			dotProduct += vector1.get(i) * vector2.get(i);
-			norm1 += Math.pow(vector1.get(i), 2);
-			norm2 += Math.pow(vector2.get(i), 2);
+	/**
+	 * Ranks documents for the keyword query without a {@code $text} index and fetches the best {@code limit}
+	 * in relevance order. The local BM25 index supplies candidates, which still have to pass
+	 * {@code threshold}; collections it does not cover are scanned with {@link #scanFieldMatchIds}.
+	 */
+	private List<Document> rankFieldMatches(MongoCollection<Document> collection, TextAnalyzer.Query query,
+			int limit, double threshold) {
+		MongoNamespace namespace = collection.getNamespace();
+		Optional<List<RankFusion.Candidate>> bm25 = textIndexes.search(namespace.getDatabaseName(),
+				namespace.getCollectionName(), SEMANTIC_FIELDS, query.terms(), limit * BM25_CANDIDATE_FACTOR);
+		List<RankFusion.Candidate> candidates = bm25
+				.orElseGet(() -> scanFieldMatchIds(collection, query, limit, threshold));
+		Map<Object, Document> documentsById = fetchByIds(collection,
+				candidates.stream().map(RankFusion.Candidate::id).toList());
+		List<Document> results = new ArrayList<>(limit);
+		for (RankFusion.Candidate candidate : candidates) {
+			Document doc = documentsById.get(candidate.id());
+			if (doc == null || bm25.isPresent() && calculateRelevanceScore(doc, query) < threshold) {
+				continue;
+			}
+			results.add(bm25.isPresent() ? doc.append("score", candidate.score()) : doc);
+			if (results.size() == limit) {
+				break;
+			}
 		}
+		return results;
+	}
 
-		return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+	/**
+	 * Best {@code limit} (id, relevance) pairs for the keyword query: BM25 scores from the local index when
+	 * it covers the collection, otherwise a scan of the documents matching the keywords.
+	 */
+	private List<RankFusion.Candidate> rankFieldMatchIds(MongoCollection<Document> collection,
+			TextAnalyzer.Query query, int limit, double threshold) {
+		MongoNamespace namespace = collection.getNamespace();
+		return textIndexes.search(namespace.getDatabaseName(), namespace.getCollectionName(), SEMANTIC_FIELDS,
+				query.terms(), limit)
+				.orElseGet(() -> scanFieldMatchIds(collection, query, limit, threshold));
+	}
+
+	/**
+	 * Best {@code limit} (id, relevance) pairs among the documents matching the keyword query, best first.
+	 */
+	private List<RankFusion.Candidate> scanFieldMatchIds(MongoCollection<Document> collection,
+			TextAnalyzer.Query query, int limit, double threshold) {
+		ScoredTopK<Object> top = new ScoredTopK<>(limit);
+		for (Document doc : collection.find(buildSemanticFieldQuery(query.terms()))
+				.projection(Projections.include(SEMANTIC_FIELDS))) {
+			double score = calculateRelevanceScore(doc, query);
+			if (score >= threshold) {
+				top.offer(doc.get("_id"), score);
+			}
+		}
+		return top.drain().stream().map(scored -> new RankFusion.Candidate(scored.item(), scored.score())).toList();
+	}
+
+	/**
+	 * Lexical leg of hybrid search: {@code $text} relevance when the collection has a text index, keyword
+	 * matching over the common text fields otherwise.
+	 */
+	private List<RankFusion.Candidate> rankText(MongoCollection<Document> collection, String queryText,
+			int limit) {
+		TextAnalyzer.Query query = QUERY_ANALYZER.query(queryText);
+		if (query.isEmpty()) {
+			return List.of();
+		}
+		try {
+			List<RankFusion.Candidate> hits = new ArrayList<>();
+			collection.find(Filters.text(String.join(" ", query.terms())))
+					.projection(Projections.fields(Projections.include("_id"), Projections.metaTextScore("score")))
+					.sort(Sorts.metaTextScore("score"))
+					.limit(limit)
+					.forEach(doc -> hits.add(new RankFusion.Candidate(doc.get("_id"),
+							((Number) doc.get("score")).doubleValue())));
+			return hits;
+		} catch (Exception textSearchError) {
+			logger.debug("Text search unavailable, using keyword matching: {}", textSearchError.getMessage());
+			return rankFieldMatchIds(collection, query, limit, 0.0);
+		}
+	}
+
+	private Map<Object, Document> fetchByIds(MongoCollection<Document> collection, List<Object> ids) {
+		Map<Object, Document> documentsById = new HashMap<>();
+		collection.find(Filters.in("_id", ids)).forEach(doc -> documentsById.put(doc.get("_id"), doc));
+		return documentsById;
+	}
+
+	private List<Document> fetchVectorHits(MongoCollection<Document> collection, List<VectorHit> hits) {
+		if (hits.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		Map<Object, Document> documentsById = fetchByIds(collection, hits.stream().map(VectorHit::id).toList());
+
+		List<Document> results = new ArrayList<>(hits.size());
+		for (VectorHit hit : hits) {
+			Document doc = documentsById.get(hit.id());
+			if (doc != null) {
+				results.add(doc.append("similarity_score", hit.score()));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Searches the chunks of a chunked collection and folds the hits back into their parents: each parent
+	 * scores as its best chunk and lists the matching chunks with their offsets. A filter applies to the
+	 * parents and is turned into a restriction on their chunks.
+	 */
+	private List<Document> searchChunks(MongoCollection<Document> collection, MongoCollection<Document> chunks,
+			String vectorFieldName, float[] query, int limit, SimilarityMetric metric, Document filter)
+			throws InterruptedException {
+		List<VectorHit> hits = findNearest(chunks, vectorFieldName, query,
+				Math.max(limit * CHUNK_CANDIDATE_FACTOR, 20), metric,
+				filter != null ? chunksOf(collection, chunks, filter) : null);
+		if (hits.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		Map<Object, Document> chunksById = new HashMap<>();
+		chunks.find(Filters.in("_id", hits.stream().map(VectorHit::id).toList()))
+				.projection(Projections.include("parentId", "chunk", "start", "end"))
+				.forEach(doc -> chunksById.put(doc.get("_id"), doc));
+		// Hits are best first, so the first chunk seen for a parent is its best one
+		Map<Object, List<Document>> matchesByParent = new LinkedHashMap<>();
+		for (VectorHit hit : hits) {
+			Document chunk = chunksById.get(hit.id());
+			if (chunk == null) {
+				continue;
+			}
+			Object parentId = chunk.get("parentId");
+			if (matchesByParent.size() == limit && !matchesByParent.containsKey(parentId)) {
+				continue;
+			}
+			matchesByParent.computeIfAbsent(parentId, id -> new ArrayList<>()).add(new Document("chunk",
+					chunk.get("chunk")).append("start", chunk.get("start")).append("end", chunk.get("end"))
+					.append("score", hit.score()));
+		}
+
+		Map<Object, Document> parentsById = fetchByIds(collection, new ArrayList<>(matchesByParent.keySet()));
+		List<Document> results = new ArrayList<>(matchesByParent.size());
+		matchesByParent.forEach((parentId, matches) -> {
+			Document parent = parentsById.get(parentId);
+			if (parent != null) {
+				results.add(parent.append("similarity_score", matches.get(0).get("score"))
+						.append("matched_chunks", matches));
+			}
+		});
+		return results;
+	}
+
+	private void addVectorMatches(List<Document> results, MappedVectorStore store, String dbName,
+			String collectionName, String naturalLanguageQuery, int limit, double threshold) {
+		float[] embedding = embed(naturalLanguageQuery);
+		if (embedding.length != store.dimensions()) {
+			return;
+		}
+		Set<Object> seen = new HashSet<>();
+		results.forEach(doc -> seen.add(doc.get("_id")));
+		List<VectorHit> hits = store.search(embedding, limit).stream()
+				.filter(hit -> hit.score() >= threshold && !seen.contains(hit.id()))
+				.limit(limit - results.size())
+				.toList();
+		results.addAll(fetchVectorHits(mongoClient.getDatabase(dbName).getCollection(collectionName), hits));
 	}
 
 	private Map<String, Object> analyzeDocumentSentiment(Document document) {
@@ -449,17 +1218,16 @@ public class MongoAIService {
 	}
 
 	private List<String> extractKeywords(Document document) {
-		List<String> keywords = new ArrayList<>();
-		extractTextFields(document).forEach(text -> {
+		Set<String> keywords = new LinkedHashSet<>();
+		for (String text : extractTextFields(document)) {
 			// Simple keyword extraction simulation
-			String[] words = text.toLowerCase().split("\\s+");
-			for (String word : words) {
-				if (word.length() > 4 && !keywords.contains(word)) {
-					keywords.add(word);
+			for (String term : TextAnalyzer.ENGLISH.terms(text)) {
+				if (term.length() > 4 && keywords.add(term) && keywords.size() == 10) {
+					return List.copyOf(keywords);
 				}
 			}
-		});
-		return keywords.stream().limit(10).toList();
+		}
+		return List.copyOf(keywords);
 	}
 
 	private String generateDocumentSummary(Document document) {
@@ -521,54 +1289,17 @@ public class MongoAIService {
 	}
 
 	// Additional helper methods for AI operations...
-	private Map<String, Object> analyzeCollectionSchema(List<Document> sampleDocs) {
+	private Map<String, Object> analyzeCollectionSchema(SchemaProfile profile) {
 		Map<String, Object> schema = new HashMap<>();
-		Set<String> allFields = new HashSet<>();
-		Map<String, String> fieldTypes = new HashMap<>();
-
-		for (Document doc : sampleDocs) {
-			for (Map.Entry<String, Object> entry : doc.entrySet()) {
-				allFields.add(entry.getKey());
-				fieldTypes.put(entry.getKey(), entry.getValue().getClass().getSimpleName());
-			}
-		}
+		Map<String, String> fieldTypes = profile.dominantTypes();
 
-		schema.put("totalFields", allFields.size());
-		schema.put("fields", allFields);
+		schema.put("totalFields", fieldTypes.size());
+		schema.put("fields", fieldTypes.keySet());
 		schema.put("commonFieldTypes", fieldTypes);
+		schema.putAll(profile.summary());
 		return schema;
 	}
 
-	private Map<String, Object> findDataPatterns(List<Document> sampleDocs) {
-		Map<String, Object> patterns = new HashMap<>();
-		patterns.put("commonPatterns", "Structured data with consistent field types");
-		patterns.put("documentSizeVariation", "Low to medium");
-		return patterns;
-	}
-
-	private Map<String, Object> assessDataQuality(List<Document> sampleDocs) {
-		Map<String, Object> quality = new HashMap<>();
-		quality.put("completeness", "85%");
-		quality.put("consistency", "High");
-		quality.put("duplicates", "Low");
-		return quality;
-	}
-
-	private Map<String, Object> findDataRelationships(List<Document> sampleDocs) {
-		Map<String, Object> relationships = new HashMap<>();
-		relationships.put("foreignKeys", "Potential references detected");
-		relationships.put("nested", "Embedded documents found");
-		return relationships;
-	}
-
-	private Map<String, Object> generateCollectionOverview(List<Document> sampleDocs) {
-		Map<String, Object> overview = new HashMap<>();
-		overview.put("sampleSize", sampleDocs.size());
-		overview.put("avgDocumentSize", sampleDocs.stream().mapToInt(Document::size).average().orElse(0));
-		overview.put("complexity", "Medium");
-		return overview;
-	}
-
 	private List<Map<String, Object>> generateFindQuerySuggestions(String userQuery, List<Document> indexes) {
 		List<Map<String, Object>> suggestions = new ArrayList<>();
 		Map<String, Object> suggestion = new HashMap<>();
@@ -657,55 +1388,44 @@ public class MongoAIService {
 		return analysis;
 	}
 
-	private List<String> extractSearchKeywords(String naturalLanguageQuery) {
-		// Simple keyword extraction from natural language
-		String[] words = naturalLanguageQuery.toLowerCase().replaceAll("[^a-zA-Z0-9\\s]", "").split("\\s+");
-
-		List<String> keywords = new ArrayList<>();
-		Set<String> stopWords = Set.of("the", "a", "an", "and", "or", "but", "in", "on", "at", "to", "for", "of",
-				"with", "by", "is", "are", "was", "were", "find", "search", "get", "show", "list");
-
-		for (String word : words) {
-			if (word.length() > 2 && !stopWords.contains(word)) {
-				keywords.add(word);
-			}
-		}
-
-		return keywords;
-	}
-
 	private Document buildSemanticFieldQuery(List<String> keywords) {
 		List<Document> orConditions = new ArrayList<>();
 
 		for (String keyword : keywords) {
+			// Keywords are stems; the one suffix stemming rewrites is -ies to -y
+			String pattern = keyword.endsWith("y") ? keyword.substring(0, keyword.length() - 1) + "(y|ies)" : keyword;
 			// Search in common text fields
-			orConditions.add(new Document("name", new Document("$regex", keyword).append("$options", "i")));
-			orConditions.add(new Document("title", new Document("$regex", keyword).append("$options", "i")));
-			orConditions.add(new Document("description", new Document("$regex", keyword).append("$options", "i")));
-			orConditions.add(new Document("content", new Document("$regex", keyword).append("$options", "i")));
+			for (String field : SEMANTIC_FIELDS) {
+				orConditions.add(new Document(field, new Document("$regex", pattern).append("$options", "i")));
+			}
 		}
 
 		return new Document("$or", orConditions);
 	}
 
-	private List<Document> filterBySemanticRelevance(List<Document> results, String query, double threshold) {
+	private List<Document> filterBySemanticRelevance(List<Document> results, TextAnalyzer.Query query,
+			double threshold) {
 		// Simple relevance filtering based on text matching
 		return results.stream().filter(doc -> calculateRelevanceScore(doc, query) >= threshold).toList();
 	}
 
-	private double calculateRelevanceScore(Document document, String query) {
-		// Simple scoring based on keyword matches
-		String queryLower = query.toLowerCase();
-		List<String> textFields = extractTextFields(document);
-
-		long matches = textFields.stream().mapToLong(text -> {
-			String textLower = text.toLowerCase();
-			return queryLower.split("\\s+").length > 0
-					? Arrays.stream(queryLower.split("\\s+")).mapToLong(word -> textLower.contains(word) ? 1 : 0).sum()
-					: 0;
-		}).sum();
+	/**
+	 * Fraction of the query's terms found in the document's text fields, read in one pass.
+	 */
+	private double calculateRelevanceScore(Document document, TextAnalyzer.Query query) {
+		return query.score(extractTextFields(document));
+	}
 
-		return Math.min(1.0, matches / (double) queryLower.split("\\s+").length);
+	/**
+	 * The text to chunk: {@code textField} when the document has it, otherwise its substantial string fields,
+	 * kept as separate segments rather than concatenated.
+	 */
+	private List<String> textSegments(Document document, String textField) {
+		Object fieldValue = textField != null ? document.get(textField) : null;
+		if (fieldValue != null) {
+			return List.of(fieldValue.toString());
+		}
+		return extractTextFields(document);
 	}
 
 	private String extractTextForEmbedding(Document document, String textField) {
@@ -719,18 +1439,4 @@ public class MongoAIService {
 		// Fallback: concatenate all text fields
 		return String.join(" ", extractTextFields(document));
 	}
-
-	private List<Double> generateMockEmbedding(String text) {
-		// Generate a mock 384-dimensional embedding (like sentence-transformers)
-		List<Double> embedding = new ArrayList<>();
-		Random random = new Random(text.hashCode()); // Deterministic based on text
-
-		for (int i = 0; i < 384; i++) {
-			embedding.add(random.nextGaussian());
-		}
-
-		// Normalize the vector
-		double magnitude = Math.sqrt(embedding.stream().mapToDouble(x -> x * x).sum());
-		return embedding.stream().map(x -> x / magnitude).toList();
-	}
 }
\ No newline at end of file
@@ -1,8 +1,18 @@
 package com.deepai.service;
 
+import com.deepai.analytics.ApproximateAggregator;
+import com.deepai.analytics.DistinctValuePager;
+import com.deepai.vector.HnswIndex;
+import com.deepai.vector.IvfIndex;
+import com.deepai.vector.QuantizedVectorIndex;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorIndexKey;
+import com.deepai.vector.VectorIndexManager;
+import com.deepai.vector.VectorQuantizer;
 import com.mongodb.client.*;
 import com.mongodb.client.model.*;
 import com.mongodb.ExplainVerbosity;
+import com.mongodb.MongoCommandException;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.slf4j.Logger;
@@ -13,6 +23,7 @@ import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -22,11 +33,18 @@ public class MongoAdvancedAnalyticsService {
 	private static final Logger logger = LoggerFactory.getLogger(MongoAdvancedAnalyticsService.class);
 	private final MongoClient mongoClient;
 	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final VectorIndexManager vectorIndexManager;
+	private final ApproximateAggregator approximateAggregator;
+	private final DistinctValuePager distinctValuePager;
 
 	@Autowired
-	public MongoAdvancedAnalyticsService(MongoServiceClient mongoServiceClient) {
+	public MongoAdvancedAnalyticsService(MongoServiceClient mongoServiceClient, VectorIndexManager vectorIndexManager,
+			ApproximateAggregator approximateAggregator, DistinctValuePager distinctValuePager) {
 		// Get mongoClient from the main service
 		this.mongoClient = mongoServiceClient.getMongoClient();
+		this.vectorIndexManager = vectorIndexManager;
+		this.approximateAggregator = approximateAggregator;
+		this.distinctValuePager = distinctValuePager;
 	}
 
 	// ========== ADVANCED QUERIES & ANALYTICS ==========
@@ -77,39 +95,49 @@ public class MongoAdvancedAnalyticsService {
 	}
 
 	/**
-	 * Get distinct values from a field - FIXED codec issue.
+	 * Distinct values of a field, one typed page at a time, or estimated from a sample.
 	 */
-	@Tool(description = "Get distinct values from a specific field in the collection.")
-	public List<String> distinctValues(String dbName, String collectionName, String fieldName, String filterJson) {
-		logger.info("Getting distinct values for field '{}' in {}.{}", fieldName, dbName, collectionName);
+	@Tool(description = "Get distinct values from a specific field in the collection, one page at a time in BSON sort order. Each value keeps its type (reported as int, long, double, decimal, string, objectId, date, ...) and comes with the number of occurrences. pageSize sets the values per page (default 100, capped server-side); pass the returned nextToken as pageToken to get the next page, until hasMore is false. Works on fields with millions of distinct values. approximate=true answers in bounded time on any collection size: it reads a random sample (or the whole collection when it is smaller than the sample) and returns the estimated number of distinct values with lower and upper bounds, plus the most frequent values with estimated counts and 95% confidence intervals, instead of every value. errorBound states the bound that applies.")
+	public Map<String, Object> distinctValues(String dbName, String collectionName, String fieldName, String filterJson,
+			boolean approximate, int pageSize, String pageToken) {
+		logger.info("Getting {}distinct values for field '{}' in {}.{}", approximate ? "approximate " : "", fieldName,
+				dbName, collectionName);
 		try {
 			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
 
 			Bson filter = filterJson != null && !filterJson.isEmpty() ? Document.parse(filterJson) : new Document();
 
-			// FIXED: Use String.class instead of Object.class to avoid codec issues
-			List<String> distinctValues = new ArrayList<>();
-			collection.distinct(fieldName, filter, String.class).into(distinctValues);
+			if (approximate) {
+				return approximateAggregator.distinct(collection, fieldName, filter);
+			}
 
-			logger.info("Found {} distinct values for field '{}'", distinctValues.size(), fieldName);
-			return distinctValues;
+			return distinctValuePager.page(collection, fieldName, filter, pageSize, pageToken);
 		} catch (Exception e) {
 			logger.error("Failed to get distinct values for field '{}' in {}.{}: {}", fieldName, dbName, collectionName,
 					e.getMessage());
-			return List.of("Error: " + e.getMessage());
+			Map<String, Object> error = new LinkedHashMap<>();
+			error.put("error", e.getMessage());
+			return error;
 		}
 	}
 
 	/**
-	 * Group documents by field.
+	 * Group documents by field, exactly or from a sample.
 	 */
-	@Tool(description = "Group documents by a specific field and get counts.")
+	@Tool(description = "Group documents by a specific field and get counts. approximate=true answers in bounded time on any collection size: counts (and totals of countField) are estimated from a random sample, each group carrying countLow/countHigh (and totalLow/totalHigh) 95% confidence bounds, and only the most frequent groups are returned.")
 	public List<Document> groupByField(String dbName, String collectionName, String groupByField, String countField,
-			String sortBy) {
-		logger.info("Grouping documents by field '{}' in {}.{}", groupByField, dbName, collectionName);
+			String sortBy, boolean approximate) {
+		logger.info("Grouping documents by field '{}' in {}.{}{}", groupByField, dbName, collectionName,
+				approximate ? " (approximate)" : "");
 		try {
 			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
 
+			if (approximate) {
+				String sumField = countField != null && !countField.isEmpty() && !countField.equals("count")
+						? countField : null;
+				return approximateAggregator.groupBy(collection, groupByField, sumField, sortBy);
+			}
+
 			List<Bson> pipeline = new ArrayList<>();
 
 			// Group stage
@@ -251,32 +279,109 @@ public class MongoAdvancedAnalyticsService {
 	}
 
 	/**
-	 * Create vector index for AI operations - FIXED for MongoDB compatibility.
+	 * Create vector index for AI operations. A local HNSW index is built in-process and used by vectorSearch;
+	 * Atlas deployments additionally get a native vector search index for clients querying with
+	 * {@code $vectorSearch}. The indexType option selects a local IVF index instead, and requesting quantization
+	 * builds a local int8 or product-quantized index.
 	 */
-	@Tool(description = "Create vector search index for AI embeddings.")
+	@Tool(description = "Create vector search index for AI embeddings. indexOptions JSON supports indexType (hnsw|ivf), m, efConstruction and efSearch for HNSW, lists, nprobe and trainingSample for IVF, quantization (int8|pq), pqSubspaces, rerank and rerankFactor for a compressed index, and recallSamples.")
 	public String createVectorIndex(String dbName, String collectionName, String vectorField, int dimensions,
-			String similarity) {
+			String similarity, String indexOptions) {
 		logger.info("Creating vector index on field '{}' in {}.{}", vectorField, dbName, collectionName);
 		try {
 			MongoCollection<Document> collection = mongoClient.getDatabase(dbName).getCollection(collectionName);
+			Document optionsDoc = indexOptions != null && !indexOptions.isEmpty() ? Document.parse(indexOptions)
+					: new Document();
+			SimilarityMetric metric = SimilarityMetric.fromString(similarity);
+			VectorIndexKey key = new VectorIndexKey(dbName, collectionName, vectorField);
+			VectorQuantizer.Type quantization = VectorQuantizer.Type.fromString(optionsDoc.getString("quantization"));
+			if (quantization != null) {
+				return createQuantizedIndex(key, quantization, metric, optionsDoc);
+			}
+			String indexType = optionsDoc.getString("indexType");
+			if ("ivf".equalsIgnoreCase(indexType)) {
+				return createIvfIndex(key, metric, optionsDoc);
+			}
+			if (indexType != null && !"hnsw".equalsIgnoreCase(indexType)) {
+				return "Failed to create vector index: unsupported indexType '" + indexType + "' (use hnsw or ivf)";
+			}
 
-			// FIXED: Use 2dsphere index for vector-like operations (compatible with standard MongoDB)
-			// For true vector search, you'd need MongoDB Atlas Search or similar
-			Document vectorIndexSpec = new Document(vectorField, "2dsphere");
-			
-			IndexOptions options = new IndexOptions()
-				.name(vectorField + "_vector_index")
-				.background(true);
+			String atlasIndexName = null;
+			if (dimensions > 0 && indexType == null) {
+				try {
+					Document definition = new Document("fields", List.of(new Document("type", "vector")
+							.append("path", vectorField)
+							.append("numDimensions", dimensions)
+							.append("similarity", metric.atlasName())));
+					String indexName = vectorField + "_vector_index";
+					collection.createSearchIndexes(
+							List.of(new SearchIndexModel(indexName, definition, SearchIndexType.vectorSearch())));
+					logger.info("Atlas vector search index '{}' created successfully", indexName);
+					atlasIndexName = indexName;
+				} catch (MongoCommandException atlasError) {
+					logger.info("Atlas vector search unavailable ({}), building local HNSW index only",
+							atlasError.getErrorMessage());
+				}
+			}
 
-			String indexName = collection.createIndex(vectorIndexSpec, options);
-			logger.info("Vector index '{}' created successfully", indexName);
-			return "Vector index '" + indexName + "' created successfully for AI operations.";
+			long start = System.currentTimeMillis();
+			HnswIndex index = vectorIndexManager.buildIndex(key, dimensions, metric, optionsDoc.getInteger("m"),
+					optionsDoc.getInteger("efConstruction"), optionsDoc.getInteger("efSearch"));
+			long buildMillis = System.currentTimeMillis() - start;
+			double recall = index.measureRecall(optionsDoc.getInteger("recallSamples", 20), 10);
+
+			logger.info("Local HNSW index for {} built: {} vectors, recall@10={}", key, index.size(), recall);
+			// vectorSearch is served by the local index; the Atlas index is there for $vectorSearch clients
+			String atlas = atlasIndexName != null
+					? "Atlas vector search index '" + atlasIndexName + "' created successfully for AI operations. "
+					: "";
+			return atlas + String.format(Locale.ROOT,
+					"Local HNSW vector index built for field '%s' in collection '%s': %d vectors, %d dimensions, "
+							+ "%s similarity, M=%d, efSearch=%d, recall@10=%.3f vs brute force, built in %d ms.",
+					vectorField, collectionName, index.size(), index.dimensions(), metric.atlasName(), index.getM(),
+					index.getEfSearch(), recall, buildMillis);
 		} catch (Exception e) {
 			logger.error("Failed to create vector index: {}", e.getMessage());
 			return "Failed to create vector index: " + e.getMessage();
 		}
 	}
 
+	private String createIvfIndex(VectorIndexKey key, SimilarityMetric metric, Document optionsDoc)
+			throws IOException {
+		long start = System.currentTimeMillis();
+		IvfIndex index = vectorIndexManager.buildIvfIndex(key, metric, optionsDoc.getInteger("lists"),
+				optionsDoc.getInteger("nprobe"), optionsDoc.getInteger("trainingSample"));
+		long buildMillis = System.currentTimeMillis() - start;
+		double recall = index.measureRecall(optionsDoc.getInteger("recallSamples", 20), 10);
+
+		logger.info("Local IVF index for {} built: {} vectors, recall@10={}", key, index.size(), recall);
+		return String.format(Locale.ROOT,
+				"Local IVF vector index built for field '%s' in collection '%s': %d vectors, %d dimensions, "
+						+ "%s similarity, %d lists (largest %d), nprobe=%d, recall@10=%.3f vs exact, built in %d ms.",
+				key.field(), key.collection(), index.size(), index.dimensions(), metric.atlasName(), index.lists(),
+				index.largestList(), index.getNprobe(), recall, buildMillis);
+	}
+
+	private String createQuantizedIndex(VectorIndexKey key, VectorQuantizer.Type quantization,
+			SimilarityMetric metric, Document optionsDoc) throws IOException {
+		long start = System.currentTimeMillis();
+		int rerankFactor = optionsDoc.getBoolean("rerank", true) ? optionsDoc.getInteger("rerankFactor", 4) : 0;
+		QuantizedVectorIndex index = vectorIndexManager.buildQuantizedIndex(key, quantization, metric,
+				optionsDoc.getInteger("pqSubspaces", 48), rerankFactor, optionsDoc.getInteger("trainingSample", 0));
+		long buildMillis = System.currentTimeMillis() - start;
+		double recall = index.measureRecall(optionsDoc.getInteger("recallSamples", 20), 10);
+
+		logger.info("Local {} index for {} built: {} vectors, recall@10={}", quantization.label(), key, index.size(),
+				recall);
+		return String.format(Locale.ROOT,
+				"Local %s quantized vector index built for field '%s' in collection '%s': %d vectors, %d dimensions, "
+						+ "%s similarity, %d bytes per vector (%.1fx smaller than float32), re-rank %s, "
+						+ "recall@10=%.3f vs exact, built in %d ms.",
+				quantization.label(), key.field(), key.collection(), index.size(), index.dimensions(),
+				metric.atlasName(), index.codeSize(), index.compressionRatio(),
+				rerankFactor > 0 ? "top " + rerankFactor + "x candidates" : "off", recall, buildMillis);
+	}
+
 	/**
 	 * Drop an index.
 	 */
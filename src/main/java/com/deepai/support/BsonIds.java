@@ -0,0 +1,27 @@
+package com.deepai.support;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonValue;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+
+/**
+ * Conversion of raw BSON {@code _id}s, as read from change-stream document keys and raw cursors, into the
+ * values the driver's {@code Document} codec produces, so ids from both sources compare equal.
+ */
+public final class BsonIds {
+
+	private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+	private BsonIds() {
+	}
+
+	/**
+	 * Converts a BSON {@code _id} into the Java value the driver's {@code Document} codec would produce.
+	 */
+	public static Object toJavaValue(BsonValue value) {
+		BsonDocument wrapper = new BsonDocument("v", value);
+		return DOCUMENT_CODEC.decode(new BsonDocumentReader(wrapper), DecoderContext.builder().build()).get("v");
+	}
+}
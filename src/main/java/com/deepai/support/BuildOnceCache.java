@@ -0,0 +1,135 @@
+package com.deepai.support;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Values built on first lookup, once per key: the first caller builds while concurrent callers for the same
+ * key wait for that build, and a failed build is forgotten so the next lookup retries. With a positive
+ * {@code maxEntries} the least recently used built values beyond it are evicted and handed to
+ * {@code onEvict}; values still being built are never evicted.
+ */
+public final class BuildOnceCache<K, V> {
+
+	private final String description;
+	private final int maxEntries;
+	private final Consumer<? super V> onEvict;
+	// Access-ordered, so iteration starts at the least recently used key
+	private final LinkedHashMap<K, CompletableFuture<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * @param description what the values are, for interruption messages, e.g. {@code "BM25 index"}
+	 * @param maxEntries  built values kept; 0 or less keeps all
+	 * @param onEvict     receives evicted values, outside the cache's lock
+	 */
+	public BuildOnceCache(String description, int maxEntries, Consumer<? super V> onEvict) {
+		this.description = description;
+		this.maxEntries = maxEntries;
+		this.onEvict = onEvict;
+	}
+
+	/**
+	 * The key's value, built with {@code build} by the first caller. Build failures propagate to the caller
+	 * and to everyone waiting on the same build.
+	 */
+	public V get(K key, Function<? super K, ? extends V> build) {
+		CompletableFuture<V> created = new CompletableFuture<>();
+		CompletableFuture<V> existing;
+		synchronized (this) {
+			existing = entries.putIfAbsent(key, created);
+		}
+		if (existing == null) {
+			try {
+				created.complete(build.apply(key));
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					entries.remove(key, created);
+				}
+				created.completeExceptionally(e);
+				throw e;
+			}
+			evictOverflow();
+			return created.join();
+		}
+		try {
+			return existing.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for " + description + " of " + key, e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The key's value if it has been built, without building it.
+	 */
+	public synchronized Optional<V> getIfBuilt(K key) {
+		return Optional.ofNullable(built(entries.get(key)));
+	}
+
+	/**
+	 * Forgets the key if it still maps to this very {@code value}, so the next lookup builds it again. It is not
+	 * handed to {@code onEvict}.
+	 */
+	public synchronized boolean remove(K key, V value) {
+		CompletableFuture<V> future = entries.get(key);
+		if (future == null || built(future) != value) {
+			return false;
+		}
+		entries.remove(key);
+		return true;
+	}
+
+	/**
+	 * All built values, least recently used first.
+	 */
+	public synchronized List<V> values() {
+		List<V> values = new ArrayList<>(entries.size());
+		for (CompletableFuture<V> future : entries.values()) {
+			V value = built(future);
+			if (value != null) {
+				values.add(value);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Forgets every key and returns the values built so far.
+	 */
+	public synchronized List<V> clear() {
+		List<V> values = values();
+		entries.clear();
+		return values;
+	}
+
+	private void evictOverflow() {
+		if (maxEntries <= 0) {
+			return;
+		}
+		List<V> evicted = new ArrayList<>();
+		synchronized (this) {
+			Iterator<CompletableFuture<V>> iterator = entries.values().iterator();
+			while (entries.size() > maxEntries && iterator.hasNext()) {
+				V value = built(iterator.next());
+				if (value != null) {
+					iterator.remove();
+					evicted.add(value);
+				}
+			}
+		}
+		evicted.forEach(onEvict);
+	}
+
+	private V built(CompletableFuture<V> future) {
+		return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+	}
+}
@@ -0,0 +1,254 @@
+package com.deepai.support;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * One collection's change stream, followed on a named daemon thread and handed to a {@link Listener} in
+ * batches of up to {@code batchSize} events or {@code maxWaitMillis} milliseconds, whichever comes first.
+ * After errors the stream reopens from the last batch's resume token with exponential backoff. It ends for
+ * good when the server does not support change streams (standalone servers), or when it can no longer account
+ * for every write: the collection was dropped or renamed, or the resume point fell off the oplog.
+ */
+public final class ChangeStreamWatcher implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+	// $changeStream only supported on replica sets / unrecognized pipeline stage on very old servers
+	private static final Set<Integer> UNSUPPORTED_CODES = Set.of(40573, 40324);
+	// ChangeStreamFatalError / ChangeStreamHistoryLost: the stream cannot be resumed without missing writes
+	private static final Set<Integer> UNRECOVERABLE_CODES = Set.of(280, 286);
+	private static final Set<OperationType> INVALIDATING = EnumSet.of(OperationType.INVALIDATE, OperationType.DROP,
+			OperationType.RENAME, OperationType.DROP_DATABASE);
+	private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+	/**
+	 * Receives a watcher's events. Callbacks run on the watcher's thread.
+	 */
+	public interface Listener {
+
+		/**
+		 * Applies one batch of events in stream order; called after every await period, with an empty list
+		 * when nothing changed.
+		 */
+		void apply(List<ChangeStreamDocument<Document>> events);
+
+		/**
+		 * Called once when the stream can no longer account for every write. Events received before the
+		 * invalidating one have been applied.
+		 */
+		void invalidated(String reason);
+
+		/**
+		 * Called once when the server does not support change streams.
+		 */
+		void unavailable(String reason);
+	}
+
+	private final String name;
+	private final Supplier<ChangeStreamIterable<Document>> stream;
+	private final int batchSize;
+	private final long maxWaitMillis;
+	private final Listener listener;
+	private volatile BsonDocument resumeToken;
+	private volatile BsonTimestamp startAt;
+	private volatile boolean running;
+	private volatile String status = "starting";
+	private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+	private Thread thread;
+
+	/**
+	 * @param name   thread name, also used in log messages
+	 * @param stream a fresh, unpositioned stream on each call, e.g. {@code collection.watch()} with its
+	 *               full-document option; batch size, await time and start position are set here
+	 */
+	public ChangeStreamWatcher(String name, Supplier<ChangeStreamIterable<Document>> stream, int batchSize,
+			long maxWaitMillis, Listener listener) {
+		this.name = name;
+		this.stream = stream;
+		this.batchSize = Math.max(1, batchSize);
+		this.maxWaitMillis = Math.max(1, maxWaitMillis);
+		this.listener = listener;
+	}
+
+	/**
+	 * The cluster time of a no-op on {@code database}, to start a stream that covers every write made after
+	 * a scan begun now. Null when the deployment reports none.
+	 */
+	public static BsonTimestamp operationTime(MongoClient mongoClient, String database) {
+		try (ClientSession session = mongoClient.startSession()) {
+			mongoClient.getDatabase(database).runCommand(session, new Document("ping", 1));
+			return session.getOperationTime();
+		} catch (Exception e) {
+			logger.debug("No operation time available for {}: {}", database, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Starts following the stream after {@code resumeAfter}, otherwise at {@code startAt}, otherwise now.
+	 */
+	public synchronized void start(BsonDocument resumeAfter, BsonTimestamp startAt) {
+		this.resumeToken = resumeAfter;
+		this.startAt = startAt;
+		this.running = true;
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * True from {@link #start} until the stream is stopped or ends for good.
+	 */
+	public boolean live() {
+		return running;
+	}
+
+	/**
+	 * The position after the last batch handed to the listener, or the one the watcher was started after;
+	 * null until the first batch of a stream started at an operation time. A snapshot of the listener's state
+	 * taken after reading this position can resume from it: replaying covers every later write.
+	 */
+	public BsonDocument resumeToken() {
+		return resumeToken;
+	}
+
+	/**
+	 * Human-readable state, e.g. {@code watching}, {@code retrying: ...} or {@code unavailable: ...}.
+	 */
+	public String status() {
+		return status;
+	}
+
+	public synchronized void stop() {
+		running = false;
+		status = "stopped";
+		MongoChangeStreamCursor<ChangeStreamDocument<Document>> open = cursor;
+		if (open != null) {
+			try {
+				open.close();
+			} catch (RuntimeException e) {
+				logger.debug("Error closing change stream {}: {}", name, e.getMessage());
+			}
+		}
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		long backoff = 1000;
+		while (running) {
+			try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> opened = open()) {
+				cursor = opened;
+				status = "watching";
+				backoff = 1000;
+				logger.debug("Change stream {} open", name);
+				while (running) {
+					if (!applyNextBatch(opened)) {
+						return;
+					}
+				}
+			} catch (MongoCommandException e) {
+				if (!running) {
+					return;
+				}
+				if (UNSUPPORTED_CODES.contains(e.getErrorCode())) {
+					end("unavailable: change streams need a replica set or sharded cluster");
+					listener.unavailable(status);
+					return;
+				}
+				if (UNRECOVERABLE_CODES.contains(e.getErrorCode())) {
+					end("invalidated: stream cannot resume: " + e.getErrorMessage());
+					listener.invalidated(status);
+					return;
+				}
+				backoff = retryAfter(e, backoff);
+			} catch (MongoException | IllegalStateException e) {
+				if (!running) {
+					return;
+				}
+				backoff = retryAfter(e, backoff);
+			}
+		}
+	}
+
+	private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+		ChangeStreamIterable<Document> opened = stream.get()
+				.batchSize(batchSize)
+				.maxAwaitTime(maxWaitMillis, TimeUnit.MILLISECONDS);
+		if (resumeToken != null) {
+			opened = opened.resumeAfter(resumeToken);
+		} else if (startAt != null) {
+			opened = opened.startAtOperationTime(startAt);
+		}
+		return opened.cursor();
+	}
+
+	/**
+	 * Collects events until the batch is full or the wait budget is spent and hands them to the listener.
+	 * Returns false once the stream has been invalidated.
+	 */
+	private boolean applyNextBatch(MongoChangeStreamCursor<ChangeStreamDocument<Document>> opened) {
+		List<ChangeStreamDocument<Document>> events = new ArrayList<>();
+		long deadline = System.currentTimeMillis() + maxWaitMillis;
+		while (running && events.size() < batchSize && System.currentTimeMillis() < deadline) {
+			ChangeStreamDocument<Document> event = opened.tryNext();
+			if (event == null) {
+				if (!events.isEmpty()) {
+					break;
+				}
+				continue;
+			}
+			if (INVALIDATING.contains(event.getOperationType())) {
+				listener.apply(events);
+				end("invalidated: received " + event.getOperationType().getValue() + " event");
+				listener.invalidated(status);
+				return false;
+			}
+			events.add(event);
+		}
+		BsonDocument token = opened.getResumeToken();
+		listener.apply(events);
+		// Advanced only once the batch is applied, so the token never runs ahead of the listener's state
+		if (token != null) {
+			resumeToken = token;
+		}
+		return true;
+	}
+
+	private void end(String reason) {
+		running = false;
+		status = reason;
+	}
+
+	private long retryAfter(Exception error, long backoff) {
+		status = "retrying: " + error.getMessage();
+		logger.warn("Change stream {} failed, retrying in {} ms: {}", name, backoff, error.getMessage());
+		try {
+			Thread.sleep(backoff);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			running = false;
+		}
+		return Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+	}
+}
@@ -0,0 +1,87 @@
+package com.deepai.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closes resources that were replaced while reads may still be using them, such as a memory-mapped vector
+ * store swapped for a rebuilt one. Each retired resource is closed once {@code graceMillis} have passed, which
+ * should be longer than any single read, on one named daemon thread. A retired resource that is taken back
+ * into use before then can be {@linkplain #cancel cancelled}.
+ */
+public final class DeferredCloser {
+
+	private static final Logger logger = LoggerFactory.getLogger(DeferredCloser.class);
+
+	private final long graceMillis;
+	private final ScheduledExecutorService reaper;
+	private final Set<Closeable> pending = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param name        thread name, e.g. {@code "vector-store-reaper"}
+	 * @param graceMillis delay between retiring and closing a resource
+	 */
+	public DeferredCloser(String name, long graceMillis) {
+		this.graceMillis = Math.max(0, graceMillis);
+		this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Closes {@code resource} after the grace period; retiring it again before then has no further effect.
+	 */
+	public void retire(Closeable resource) {
+		if (!pending.add(resource)) {
+			return;
+		}
+		try {
+			reaper.schedule(() -> closeIfPending(resource), graceMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// Shut down already: nothing reads any more
+			closeIfPending(resource);
+		}
+	}
+
+	/**
+	 * Keeps a retired resource open after all; returns false if it was not waiting to be closed.
+	 */
+	public boolean cancel(Closeable resource) {
+		return pending.remove(resource);
+	}
+
+	public int pending() {
+		return pending.size();
+	}
+
+	/**
+	 * Closes every retired resource now, e.g. on shutdown.
+	 */
+	public void closeAll() {
+		reaper.shutdownNow();
+		List.copyOf(pending).forEach(this::closeIfPending);
+	}
+
+	private void closeIfPending(Closeable resource) {
+		if (!pending.remove(resource)) {
+			return;
+		}
+		try {
+			resource.close();
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Failed to close retired {}: {}", resource, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.deepai.support;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a collection into {@code _id} ranges of about equal size for parallel cursors. Split points are
+ * evenly spaced quantiles of a sorted {@code $sample} of {@code _id}s; ranges are applied as {@code _id}
+ * index bounds, which follow the index's order across BSON types where a {@code $gte}/{@code $lt} query
+ * would not.
+ */
+public final class IdRanges {
+
+	private static final int SAMPLES_PER_RANGE = 16;
+	private static final Document ID_INDEX = new Document("_id", 1);
+
+	private IdRanges() {
+	}
+
+	/**
+	 * Up to {@code ranges - 1} ascending split points; duplicates are dropped so no range is empty by
+	 * construction. Empty for a single range or an empty collection.
+	 */
+	public static List<BsonValue> splitPoints(MongoCollection<?> collection, int ranges) {
+		if (ranges <= 1) {
+			return List.of();
+		}
+		List<BsonValue> sample = new ArrayList<>();
+		collection.withDocumentClass(BsonDocument.class)
+				.aggregate(List.of(Aggregates.sample(ranges * SAMPLES_PER_RANGE),
+						Aggregates.project(Projections.include("_id")), Aggregates.sort(Sorts.ascending("_id"))))
+				.forEach(doc -> sample.add(doc.get("_id")));
+		List<BsonValue> splits = new ArrayList<>(ranges - 1);
+		for (int i = 1; i < ranges && !sample.isEmpty(); i++) {
+			BsonValue split = sample.get(i * sample.size() / ranges);
+			if (splits.isEmpty() || !splits.get(splits.size() - 1).equals(split)) {
+				splits.add(split);
+			}
+		}
+		return splits;
+	}
+
+	/**
+	 * Restricts {@code cursor} to {@code _id}s from {@code lower} inclusive to {@code upper} exclusive; a null
+	 * bound leaves that end open.
+	 */
+	public static <T> FindIterable<T> bound(FindIterable<T> cursor, BsonValue lower, BsonValue upper) {
+		if (lower != null || upper != null) {
+			cursor = cursor.hint(ID_INDEX);
+		}
+		if (lower != null) {
+			cursor = cursor.min(new BsonDocument("_id", lower));
+		}
+		if (upper != null) {
+			cursor = cursor.max(new BsonDocument("_id", upper));
+		}
+		return cursor;
+	}
+}
@@ -0,0 +1,91 @@
+package com.deepai.vector;
+
+/**
+ * Bounded min-heap of (int payload, score) pairs on primitive arrays, shared by {@link TopK}, whose payloads
+ * are vector ordinals, and {@link ScoredTopK}, whose payloads are slots in its item array. Swaps only move
+ * primitives, so the hot offer loop never allocates or dispatches on the payload type.
+ */
+abstract class BoundedScoreHeap {
+
+	final int capacity;
+	final int[] payloads;
+	final double[] scores;
+	int size;
+
+	BoundedScoreHeap(int capacity) {
+		this.capacity = Math.max(capacity, 1);
+		this.payloads = new int[this.capacity];
+		this.scores = new double[this.capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * True if a candidate with {@code score} would currently be kept; lets callers skip building it.
+	 */
+	public final boolean accepts(double score) {
+		return size < capacity || score > scores[0];
+	}
+
+	final void push(int payload, double score) {
+		payloads[size] = payload;
+		scores[size] = score;
+		siftUp(size++);
+	}
+
+	/**
+	 * Replaces the lowest-scoring entry; callers check {@link #accepts} first.
+	 */
+	final void replaceTop(int payload, double score) {
+		payloads[0] = payload;
+		scores[0] = score;
+		siftDown(0);
+	}
+
+	/**
+	 * Removes the lowest-scoring entry; read it from index 0 first.
+	 */
+	final void removeTop() {
+		size--;
+		payloads[0] = payloads[size];
+		scores[0] = scores[size];
+		siftDown(0);
+	}
+
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (scores[parent] <= scores[index]) {
+				return;
+			}
+			swap(parent, index);
+			index = parent;
+		}
+	}
+
+	private void siftDown(int index) {
+		while (true) {
+			int left = 2 * index + 1;
+			if (left >= size) {
+				return;
+			}
+			int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+			if (scores[index] <= scores[smallest]) {
+				return;
+			}
+			swap(index, smallest);
+			index = smallest;
+		}
+	}
+
+	private void swap(int a, int b) {
+		int payload = payloads[a];
+		payloads[a] = payloads[b];
+		payloads[b] = payload;
+		double score = scores[a];
+		scores[a] = scores[b];
+		scores[b] = score;
+	}
+}
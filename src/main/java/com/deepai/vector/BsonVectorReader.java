@@ -0,0 +1,71 @@
+package com.deepai.vector;
+
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.io.ByteBufferBsonInput;
+
+import java.util.Arrays;
+
+/**
+ * Reads vector fields straight from raw BSON bytes, so scoring a streamed document does not materialise a
+ * {@code List<Double>} of boxed values.
+ */
+public final class BsonVectorReader {
+
+	private BsonVectorReader() {
+	}
+
+	/**
+	 * Decodes the top-level vector {@code field} of {@code document}, either a packed float32 binary or a legacy
+	 * array of numbers, or returns null when the field is missing, empty or neither.
+	 */
+	public static float[] read(RawBsonDocument document, String field) {
+		try (BsonBinaryReader reader = new BsonBinaryReader(new ByteBufferBsonInput(document.getByteBuffer()))) {
+			reader.readStartDocument();
+			while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+				if (!reader.readName().equals(field)) {
+					reader.skipValue();
+					continue;
+				}
+				return switch (reader.getCurrentBsonType()) {
+				case ARRAY -> readArray(reader);
+				case BINARY -> readBinary(reader);
+				default -> null;
+				};
+			}
+			return null;
+		}
+	}
+
+	private static float[] readBinary(BsonBinaryReader reader) {
+		BsonBinary binary = reader.readBinaryData();
+		return Float32VectorCodec.unpack(binary.getType(), binary.getData());
+	}
+
+	private static float[] readArray(BsonBinaryReader reader) {
+		float[] values = new float[64];
+		int size = 0;
+		reader.readStartArray();
+		BsonType type;
+		while ((type = reader.readBsonType()) != BsonType.END_OF_DOCUMENT) {
+			float value;
+			switch (type) {
+			case DOUBLE -> value = (float) reader.readDouble();
+			case INT32 -> value = reader.readInt32();
+			case INT64 -> value = reader.readInt64();
+			case DECIMAL128 -> value = reader.readDecimal128().bigDecimalValue().floatValue();
+			default -> {
+				return null;
+			}
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+		reader.readEndArray();
+		return size == 0 ? null : size == values.length ? values : Arrays.copyOf(values, size);
+	}
+}
@@ -0,0 +1,59 @@
+package com.deepai.vector;
+
+import org.bson.types.Binary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stores embeddings as a BSON binary vector (subtype 9, dtype {@code float32}): a two byte header followed by
+ * the little-endian floats, half the size of an array of doubles and decoded with one bulk copy. The layout
+ * matches the server's and Atlas Vector Search's packed float32 format, so indexes can read the field as is.
+ * Vectors are written as {@link Binary} values and read back with {@link #unpack}, so no codec registry is
+ * involved.
+ */
+public final class Float32VectorCodec {
+
+	private static final byte VECTOR_SUBTYPE = 9;
+	private static final byte FLOAT32_DTYPE = 0x27;
+	private static final int HEADER_BYTES = 2;
+
+	private Float32VectorCodec() {
+	}
+
+	/**
+	 * The binary vector value for {@code vector}, ready to be set on a {@code Document}.
+	 */
+	public static Binary toBinary(float[] vector) {
+		return new Binary(VECTOR_SUBTYPE, pack(vector));
+	}
+
+	/**
+	 * Whether {@code data} of a binary of {@code subtype} holds a packed float32 vector.
+	 */
+	public static boolean isVector(byte subtype, byte[] data) {
+		return subtype == VECTOR_SUBTYPE && data.length >= HEADER_BYTES && data[0] == FLOAT32_DTYPE
+				&& (data.length - HEADER_BYTES) % Float.BYTES == 0;
+	}
+
+	/**
+	 * Decodes a packed float32 vector, or returns null when {@code data} is not one or holds no values.
+	 */
+	public static float[] unpack(byte subtype, byte[] data) {
+		if (!isVector(subtype, data) || data.length == HEADER_BYTES) {
+			return null;
+		}
+		float[] vector = new float[(data.length - HEADER_BYTES) / Float.BYTES];
+		ByteBuffer.wrap(data, HEADER_BYTES, data.length - HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+				.asFloatBuffer().get(vector);
+		return vector;
+	}
+
+	private static byte[] pack(float[] vector) {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + vector.length * Float.BYTES)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(FLOAT32_DTYPE).put((byte) 0);
+		buffer.asFloatBuffer().put(vector);
+		return buffer.array();
+	}
+}
@@ -0,0 +1,627 @@
+package com.deepai.vector;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory HNSW (Hierarchical Navigable Small World) graph for approximate nearest neighbour search.
+ * For cosine similarity vectors are L2-normalised on insert, so scoring reduces to a dot product; euclidean
+ * graphs rank by negative squared distance internally and report {@code 1 / (1 + distance)}.
+ *
+ * <p>Graphs built from a {@link MappedVectorStore} can be saved as a snapshot of their links (little-endian: a
+ * fixed header, then per node its level count and each level's neighbour count and ordinals). Vectors and ids
+ * are not duplicated; {@link #load(Path, MappedVectorStore)} takes them from the store the graph was built on.
+ */
+public class HnswIndex implements VectorSearchIndex {
+
+	static final int MAGIC = 0x484E5357; // "HNSW"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+
+	private static final Comparator<Candidate> NEAREST_FIRST = (a, b) -> Float.compare(b.score, a.score);
+	private static final Comparator<Candidate> FURTHEST_FIRST = (a, b) -> Float.compare(a.score, b.score);
+
+	private final int dimensions;
+	private final int m;
+	private final int maxM0;
+	private final int efConstruction;
+	private final SimilarityMetric metric;
+	private final VectorKernel kernel = VectorKernels.get();
+	private final double levelMultiplier;
+	private final Random random;
+	private volatile int efSearch;
+
+	private final List<float[]> vectors = new ArrayList<>();
+	private final List<Object> ids = new ArrayList<>();
+	private final Map<Object, Integer> ordinalsById = new HashMap<>();
+	// Nodes superseded by a later add of the same id; still traversed, never returned
+	private final BitSet replaced = new BitSet();
+	// links.get(node)[level] holds the neighbour count at index 0 followed by neighbour ordinals
+	private final List<int[][]> links = new ArrayList<>();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private int entryPoint = -1;
+	private int maxLevel = -1;
+
+	public HnswIndex(int dimensions, int m, int efConstruction, int efSearch) {
+		this(dimensions, m, efConstruction, efSearch, SimilarityMetric.COSINE);
+	}
+
+	public HnswIndex(int dimensions, int m, int efConstruction, int efSearch, SimilarityMetric metric) {
+		if (dimensions <= 0) {
+			throw new IllegalArgumentException("dimensions must be positive");
+		}
+		if (m < 2) {
+			throw new IllegalArgumentException("M must be at least 2");
+		}
+		this.dimensions = dimensions;
+		this.m = m;
+		this.maxM0 = m * 2;
+		this.efConstruction = Math.max(efConstruction, m);
+		this.efSearch = Math.max(efSearch, 1);
+		this.metric = metric;
+		this.levelMultiplier = 1.0 / Math.log(m);
+		this.random = new Random(42);
+	}
+
+	/**
+	 * Builds a graph over every row of {@code store}, inserted in ordinal order.
+	 */
+	public static HnswIndex build(MappedVectorStore store, int m, int efConstruction, int efSearch,
+			SimilarityMetric metric) {
+		HnswIndex index = new HnswIndex(store.dimensions(), m, efConstruction, efSearch, metric);
+		Object[] ids = store.ids();
+		float[] row = new float[store.dimensions()];
+		for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+			store.read(ordinal, row);
+			index.add(ids[ordinal], row);
+		}
+		return index;
+	}
+
+	/**
+	 * Reopens a graph saved by {@link #save(Path, long)} over the store it was built from. The links are read
+	 * through one mapping of the file; vectors come from the store, so loading costs a pass over the rows
+	 * instead of a rebuild.
+	 *
+	 * @throws IOException if the file is not a graph snapshot or was built from a different store generation
+	 */
+	public static HnswIndex load(Path path, MappedVectorStore store) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not an HNSW snapshot: " + path);
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			if (mapped.getInt() != MAGIC) {
+				throw new IOException("Not an HNSW snapshot: " + path);
+			}
+			int version = mapped.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported HNSW snapshot version " + version + " in " + path);
+			}
+			int dimensions = mapped.getInt();
+			SimilarityMetric metric = SimilarityMetric.values()[mapped.getInt()];
+			int m = mapped.getInt();
+			int efConstruction = mapped.getInt();
+			int efSearch = mapped.getInt();
+			int nodes = mapped.getInt();
+			int entryPoint = mapped.getInt();
+			int maxLevel = mapped.getInt();
+			long sourceCreatedAt = mapped.getLong();
+			if (dimensions != store.dimensions() || sourceCreatedAt != store.createdAt()) {
+				throw new IOException("HNSW snapshot " + path + " was built from a different vector store");
+			}
+
+			HnswIndex index = new HnswIndex(dimensions, m, efConstruction, efSearch, metric);
+			Object[] ids = store.ids();
+			float[] row = new float[dimensions];
+			for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+				store.read(ordinal, row);
+				// Same skip rule as add(), so node ordinals line up with the saved links
+				float[] prepared = index.prepare(row);
+				if (prepared != null) {
+					index.supersede(index.ordinalsById.put(ids[ordinal], index.vectors.size()));
+					index.vectors.add(prepared);
+					index.ids.add(ids[ordinal]);
+				}
+			}
+			if (index.vectors.size() != nodes) {
+				throw new IOException("HNSW snapshot " + path + " has " + nodes + " nodes, store yields "
+						+ index.vectors.size());
+			}
+
+			IntBuffer body = mapped.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			for (int node = 0; node < nodes; node++) {
+				int[][] nodeLinks = new int[body.get()][];
+				for (int l = 0; l < nodeLinks.length; l++) {
+					int count = body.get();
+					nodeLinks[l] = new int[index.maxConnections(l) + 2];
+					nodeLinks[l][0] = count;
+					body.get(nodeLinks[l], 1, count);
+				}
+				index.links.add(nodeLinks);
+			}
+			index.entryPoint = entryPoint;
+			index.maxLevel = maxLevel;
+			return index;
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt HNSW snapshot " + path + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes the graph's links to {@code target}, replacing it atomically. {@code sourceCreatedAt} is the
+	 * {@link MappedVectorStore#createdAt()} of the store the graph was built from; loading checks it.
+	 */
+	public void save(Path target, long sourceCreatedAt) throws IOException {
+		lock.readLock().lock();
+		try (SnapshotWriter out = SnapshotWriter.create(target)) {
+			out.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(metric.ordinal())
+					.putInt(m).putInt(efConstruction).putInt(efSearch).putInt(vectors.size())
+					.putInt(entryPoint).putInt(maxLevel).putLong(sourceCreatedAt)
+					.padTo(HEADER_BYTES);
+			for (int[][] nodeLinks : links) {
+				out.putInt(nodeLinks.length);
+				for (int[] neighbours : nodeLinks) {
+					out.putInt(neighbours[0]);
+					for (int i = 1; i <= neighbours[0]; i++) {
+						out.putInt(neighbours[i]);
+					}
+				}
+			}
+			out.commit();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Inserts a vector and returns its ordinal, or -1 if the vector has the wrong size (or zero length under
+	 * cosine similarity). Adding an id again supersedes its previous node: that node stays linked so the graph
+	 * remains connected, but searches no longer return it.
+	 */
+	public int add(Object id, float[] vector) {
+		float[] normalized = prepare(vector);
+		if (normalized == null) {
+			return -1;
+		}
+
+		lock.writeLock().lock();
+		try {
+			int node = vectors.size();
+			int level = randomLevel();
+			int[][] nodeLinks = new int[level + 1][];
+			for (int l = 0; l <= level; l++) {
+				nodeLinks[l] = new int[maxConnections(l) + 2];
+			}
+			vectors.add(normalized);
+			ids.add(id);
+			supersede(ordinalsById.put(id, node));
+			links.add(nodeLinks);
+
+			if (entryPoint < 0) {
+				entryPoint = node;
+				maxLevel = level;
+				return node;
+			}
+
+			int current = entryPoint;
+			for (int l = maxLevel; l > level; l--) {
+				current = greedyClosest(normalized, current, l);
+			}
+			for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+				List<Candidate> candidates = searchLayer(normalized, List.of(current), efConstruction, l, null);
+				List<Candidate> neighbours = selectNeighbours(candidates, m);
+				for (Candidate neighbour : neighbours) {
+					addLink(node, neighbour.node, l);
+					addLink(neighbour.node, node, l);
+				}
+				current = candidates.get(0).node;
+			}
+			if (level > maxLevel) {
+				maxLevel = level;
+				entryPoint = node;
+			}
+			return node;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Approximate top-k search using the configured efSearch.
+	 */
+	@Override
+	public List<VectorHit> search(float[] query, int k) {
+		return search(query, k, efSearch, null);
+	}
+
+	/**
+	 * Approximate top-k search over the allowed ordinals. The graph is still traversed through filtered-out
+	 * nodes so it stays connected; they are just never returned. Selective filters are answered exactly.
+	 */
+	@Override
+	public List<VectorHit> search(float[] query, int k, BitSet allowed) {
+		if (VectorSearchIndex.preferExact(allowed, size())) {
+			return exactSearch(query, k, allowed);
+		}
+		return search(query, k, efSearch, allowed);
+	}
+
+	/**
+	 * Approximate top-k search; {@code ef} is raised to {@code k} if smaller.
+	 */
+	public List<VectorHit> search(float[] query, int k, int ef) {
+		return search(query, k, ef, null);
+	}
+
+	private List<VectorHit> search(float[] query, int k, int ef, BitSet allowed) {
+		float[] normalized = prepare(query);
+		if (normalized == null || k <= 0) {
+			return List.of();
+		}
+		lock.readLock().lock();
+		try {
+			if (entryPoint < 0) {
+				return List.of();
+			}
+			int current = entryPoint;
+			for (int l = maxLevel; l > 0; l--) {
+				current = greedyClosest(normalized, current, l);
+			}
+			List<Candidate> candidates = searchLayer(normalized, List.of(current), Math.max(ef, k), 0,
+					withoutReplaced(allowed));
+			return toHits(candidates, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Exact top-k by scanning every vector; used as the recall baseline.
+	 */
+	public List<VectorHit> exactSearch(float[] query, int k) {
+		return exactSearch(query, k, null);
+	}
+
+	/**
+	 * Exact top-k over the allowed ordinals, or every vector when {@code allowed} is null.
+	 */
+	public List<VectorHit> exactSearch(float[] query, int k, BitSet allowed) {
+		float[] normalized = prepare(query);
+		if (normalized == null || k <= 0) {
+			return List.of();
+		}
+		lock.readLock().lock();
+		try {
+			PriorityQueue<Candidate> top = new PriorityQueue<>(FURTHEST_FIRST);
+			int size = vectors.size();
+			allowed = withoutReplaced(allowed);
+			for (int node = allowed == null ? 0 : allowed.nextSetBit(0); node >= 0 && node < size;
+					node = allowed == null ? node + 1 : allowed.nextSetBit(node + 1)) {
+				offer(top, new Candidate(node, similarity(normalized, vectors.get(node))), k);
+			}
+			List<Candidate> sorted = new ArrayList<>(top);
+			sorted.sort(NEAREST_FIRST);
+			return toHits(sorted, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Estimates recall@k against a brute-force baseline using stored vectors as sample queries.
+	 */
+	public double measureRecall(int sampleQueries, int k) {
+		int size = size();
+		if (size == 0 || sampleQueries <= 0 || k <= 0) {
+			return 1.0;
+		}
+		Random sampler = new Random(7);
+		int queries = Math.min(sampleQueries, size);
+		long found = 0;
+		long expected = 0;
+		for (int q = 0; q < queries; q++) {
+			float[] query = vector(sampler.nextInt(size));
+			Set<Integer> truth = new HashSet<>();
+			exactSearch(query, k).forEach(hit -> truth.add(hit.ordinal()));
+			for (VectorHit hit : search(query, k)) {
+				if (truth.contains(hit.ordinal())) {
+					found++;
+				}
+			}
+			expected += truth.size();
+		}
+		return expected == 0 ? 1.0 : (double) found / expected;
+	}
+
+	@Override
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return vectors.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String type() {
+		return "hnsw";
+	}
+
+	@Override
+	public int dimensions() {
+		return dimensions;
+	}
+
+	@Override
+	public SimilarityMetric metric() {
+		return metric;
+	}
+
+	public int getM() {
+		return m;
+	}
+
+	public int getEfConstruction() {
+		return efConstruction;
+	}
+
+	public int getEfSearch() {
+		return efSearch;
+	}
+
+	public void setEfSearch(int efSearch) {
+		this.efSearch = Math.max(efSearch, 1);
+	}
+
+	@Override
+	public int ordinal(Object id) {
+		lock.readLock().lock();
+		try {
+			return ordinalsById.getOrDefault(id, -1);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public Object id(int ordinal) {
+		lock.readLock().lock();
+		try {
+			return ids.get(ordinal);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private float[] vector(int ordinal) {
+		lock.readLock().lock();
+		try {
+			return vectors.get(ordinal);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// ========== GRAPH INTERNALS ==========
+
+	private void supersede(Integer previous) {
+		if (previous != null) {
+			replaced.set(previous);
+		}
+	}
+
+	/**
+	 * {@code allowed} minus the superseded nodes, or {@code allowed} itself when no node was superseded.
+	 * Called with the lock held.
+	 */
+	private BitSet withoutReplaced(BitSet allowed) {
+		if (replaced.isEmpty()) {
+			return allowed;
+		}
+		BitSet live;
+		if (allowed != null) {
+			live = (BitSet) allowed.clone();
+		} else {
+			live = new BitSet(vectors.size());
+			live.set(0, vectors.size());
+		}
+		live.andNot(replaced);
+		return live;
+	}
+
+	private float[] prepare(float[] vector) {
+		if (vector == null || vector.length != dimensions) {
+			return null;
+		}
+		return metric == SimilarityMetric.COSINE ? VectorMath.normalize(vector) : vector.clone();
+	}
+
+	/**
+	 * Internal similarity where higher is closer for every metric.
+	 */
+	private float similarity(float[] a, float[] b) {
+		return metric == SimilarityMetric.EUCLIDEAN ? -kernel.squaredDistance(a, b) : kernel.dot(a, b);
+	}
+
+	private double reportedScore(float similarity) {
+		return metric == SimilarityMetric.EUCLIDEAN ? 1.0 / (1.0 + Math.sqrt(-similarity)) : similarity;
+	}
+
+	private int randomLevel() {
+		return (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+	}
+
+	private int maxConnections(int level) {
+		return level == 0 ? maxM0 : m;
+	}
+
+	private int greedyClosest(float[] query, int start, int level) {
+		int current = start;
+		float best = similarity(query, vectors.get(current));
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			int[] neighbours = links.get(current)[level];
+			for (int i = 1; i <= neighbours[0]; i++) {
+				int candidate = neighbours[i];
+				float score = similarity(query, vectors.get(candidate));
+				if (score > best) {
+					best = score;
+					current = candidate;
+					improved = true;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Best-first search of one layer. Returns up to {@code ef} candidates, nearest first. When {@code allowed}
+	 * is set, every node is still expanded but only allowed nodes enter the result set.
+	 */
+	private List<Candidate> searchLayer(float[] query, List<Integer> entryPoints, int ef, int level,
+			BitSet allowed) {
+		BitSet visited = new BitSet(vectors.size());
+		PriorityQueue<Candidate> candidates = new PriorityQueue<>(NEAREST_FIRST);
+		PriorityQueue<Candidate> results = new PriorityQueue<>(FURTHEST_FIRST);
+
+		for (int entry : entryPoints) {
+			visited.set(entry);
+			Candidate candidate = new Candidate(entry, similarity(query, vectors.get(entry)));
+			candidates.add(candidate);
+			if (allowed == null || allowed.get(entry)) {
+				results.add(candidate);
+			}
+		}
+
+		while (!candidates.isEmpty()) {
+			Candidate closest = candidates.poll();
+			if (results.size() >= ef && closest.score < results.peek().score) {
+				break;
+			}
+			int[][] nodeLinks = links.get(closest.node);
+			if (level >= nodeLinks.length) {
+				continue;
+			}
+			int[] neighbours = nodeLinks[level];
+			for (int i = 1; i <= neighbours[0]; i++) {
+				int neighbour = neighbours[i];
+				if (visited.get(neighbour)) {
+					continue;
+				}
+				visited.set(neighbour);
+				float score = similarity(query, vectors.get(neighbour));
+				if (results.size() < ef || score > results.peek().score) {
+					Candidate candidate = new Candidate(neighbour, score);
+					candidates.add(candidate);
+					if (allowed == null || allowed.get(neighbour)) {
+						offer(results, candidate, ef);
+					}
+				}
+			}
+		}
+
+		List<Candidate> sorted = new ArrayList<>(results);
+		sorted.sort(NEAREST_FIRST);
+		return sorted;
+	}
+
+	/**
+	 * HNSW neighbour selection heuristic: keep a candidate only if it is closer to the base node than to any
+	 * neighbour already kept, then top up with the pruned candidates to preserve connectivity.
+	 */
+	private List<Candidate> selectNeighbours(List<Candidate> candidates, int maxNeighbours) {
+		if (candidates.size() <= maxNeighbours) {
+			return candidates;
+		}
+		List<Candidate> selected = new ArrayList<>(maxNeighbours);
+		List<Candidate> pruned = new ArrayList<>();
+		for (Candidate candidate : candidates) {
+			if (selected.size() >= maxNeighbours) {
+				break;
+			}
+			float[] vector = vectors.get(candidate.node);
+			boolean diverse = true;
+			for (Candidate kept : selected) {
+				if (similarity(vector, vectors.get(kept.node)) > candidate.score) {
+					diverse = false;
+					break;
+				}
+			}
+			if (diverse) {
+				selected.add(candidate);
+			} else {
+				pruned.add(candidate);
+			}
+		}
+		for (int i = 0; i < pruned.size() && selected.size() < maxNeighbours; i++) {
+			selected.add(pruned.get(i));
+		}
+		return selected;
+	}
+
+	private void addLink(int from, int to, int level) {
+		int[] neighbours = links.get(from)[level];
+		int count = neighbours[0];
+		int limit = maxConnections(level);
+		if (count < limit) {
+			neighbours[count + 1] = to;
+			neighbours[0] = count + 1;
+			return;
+		}
+
+		// Over capacity: re-select the neighbourhood including the new link
+		float[] base = vectors.get(from);
+		List<Candidate> candidates = new ArrayList<>(count + 1);
+		for (int i = 1; i <= count; i++) {
+			candidates.add(new Candidate(neighbours[i], similarity(base, vectors.get(neighbours[i]))));
+		}
+		candidates.add(new Candidate(to, similarity(base, vectors.get(to))));
+		candidates.sort(NEAREST_FIRST);
+		List<Candidate> kept = selectNeighbours(candidates, limit);
+		neighbours[0] = kept.size();
+		for (int i = 0; i < kept.size(); i++) {
+			neighbours[i + 1] = kept.get(i).node;
+		}
+	}
+
+	private static void offer(PriorityQueue<Candidate> heap, Candidate candidate, int capacity) {
+		if (heap.size() < capacity) {
+			heap.add(candidate);
+		} else if (candidate.score > heap.peek().score) {
+			heap.poll();
+			heap.add(candidate);
+		}
+	}
+
+	private List<VectorHit> toHits(List<Candidate> candidates, int k) {
+		List<VectorHit> hits = new ArrayList<>(Math.min(k, candidates.size()));
+		for (int i = 0; i < candidates.size() && hits.size() < k; i++) {
+			Candidate candidate = candidates.get(i);
+			hits.add(new VectorHit(candidate.node, ids.get(candidate.node), reportedScore(candidate.score)));
+		}
+		return Collections.unmodifiableList(hits);
+	}
+
+	private record Candidate(int node, float score) {
+	}
+}
@@ -0,0 +1,380 @@
+package com.deepai.vector;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Inverted-file index over a {@link MappedVectorStore}: k-means centroids partition the rows into posting
+ * lists and a query only scans the {@code nprobe} lists whose centroids score best. Vectors stay in the
+ * store, so the index itself is just the centroids and one ordinal per row.
+ *
+ * <p>Snapshot layout (little-endian): a fixed header, {@code lists * dimensions} centroid floats, one int size
+ * per posting list, then the posting lists' ordinals back to back.
+ */
+public final class IvfIndex implements VectorSearchIndex {
+
+	static final int MAGIC = 0x49564658; // "IVFX"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+
+	private static final int KMEANS_ITERATIONS = 20;
+	private static final int TRAINING_POINTS_PER_LIST = 40;
+	private static final int MIN_LEAF_SIZE = 1024;
+
+	private final MappedVectorStore store;
+	private final SimilarityMetric metric;
+	private final float[][] centroids;
+	private final float[] centroidNorms;
+	private final int[][] postings;
+	private volatile int nprobe;
+
+	private IvfIndex(MappedVectorStore store, SimilarityMetric metric, float[][] centroids, int[][] postings,
+			int nprobe) {
+		this.store = store;
+		this.metric = metric;
+		this.centroids = centroids;
+		this.postings = postings;
+		this.centroidNorms = new float[centroids.length];
+		for (int c = 0; c < centroids.length; c++) {
+			centroidNorms[c] = VectorMath.norm(centroids[c]);
+		}
+		setNprobe(nprobe);
+	}
+
+	/**
+	 * Trains {@code lists} centroids on a sample of the store and assigns every row to its nearest centroid.
+	 *
+	 * @param lists          number of posting lists; non-positive picks {@code sqrt(size)}
+	 * @param trainingSample rows used for k-means; non-positive picks {@code 40 * lists}
+	 */
+	public static IvfIndex build(MappedVectorStore store, SimilarityMetric metric, int lists, int nprobe,
+			int trainingSample, ForkJoinPool pool) {
+		int count = store.size();
+		if (count == 0) {
+			throw new IllegalStateException("Vector store " + store.path() + " is empty");
+		}
+		int listCount = Math.min(count, lists > 0 ? lists : Math.max(1, (int) Math.sqrt(count)));
+		int sampleSize = Math.min(count,
+				trainingSample > 0 ? trainingSample : listCount * TRAINING_POINTS_PER_LIST);
+		boolean normalize = metric == SimilarityMetric.COSINE;
+
+		float[][] sample = new float[sampleSize][];
+		double stride = (double) count / sampleSize;
+		for (int i = 0; i < sampleSize; i++) {
+			sample[i] = row(store, (int) (i * stride), normalize);
+		}
+		float[][] centroids = KMeans.train(sample, listCount, KMEANS_ITERATIONS, 42L, pool);
+
+		int[] assignment = new int[count];
+		int leafSize = Math.max(MIN_LEAF_SIZE, count / (pool.getParallelism() * 4));
+		pool.invoke(new KMeans.RangeAction(0, count, leafSize, (from, to) -> {
+			float[] vector = new float[store.dimensions()];
+			for (int ordinal = from; ordinal < to; ordinal++) {
+				store.read(ordinal, vector);
+				assignment[ordinal] = KMeans.nearest(centroids, normalize ? normalized(vector) : vector);
+			}
+		}));
+
+		int[] sizes = new int[listCount];
+		for (int list : assignment) {
+			sizes[list]++;
+		}
+		int[][] postings = new int[listCount][];
+		for (int list = 0; list < listCount; list++) {
+			postings[list] = new int[sizes[list]];
+			sizes[list] = 0;
+		}
+		for (int ordinal = 0; ordinal < count; ordinal++) {
+			int list = assignment[ordinal];
+			postings[list][sizes[list]++] = ordinal;
+		}
+		return new IvfIndex(store, metric, centroids, postings, nprobe);
+	}
+
+	/**
+	 * Reopens an index saved by {@link #save(Path)} over the store it was built from.
+	 *
+	 * @throws IOException if the file is not an IVF snapshot or was built from a different store generation
+	 */
+	public static IvfIndex open(Path path, MappedVectorStore store) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not an IVF snapshot: " + path);
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			if (mapped.getInt() != MAGIC) {
+				throw new IOException("Not an IVF snapshot: " + path);
+			}
+			int version = mapped.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported IVF snapshot version " + version + " in " + path);
+			}
+			int dimensions = mapped.getInt();
+			SimilarityMetric metric = SimilarityMetric.values()[mapped.getInt()];
+			int lists = mapped.getInt();
+			int nprobe = mapped.getInt();
+			int rows = mapped.getInt();
+			mapped.getInt(); // reserved
+			long sourceCreatedAt = mapped.getLong();
+			if (dimensions != store.dimensions() || rows != store.size() || sourceCreatedAt != store.createdAt()) {
+				throw new IOException("IVF snapshot " + path + " was built from a different vector store");
+			}
+
+			mapped.position(HEADER_BYTES);
+			float[][] centroids = new float[lists][dimensions];
+			for (float[] centroid : centroids) {
+				for (int d = 0; d < dimensions; d++) {
+					centroid[d] = mapped.getFloat();
+				}
+			}
+			int[][] postings = new int[lists][];
+			for (int list = 0; list < lists; list++) {
+				postings[list] = new int[mapped.getInt()];
+			}
+			for (int[] posting : postings) {
+				mapped.asIntBuffer().get(posting);
+				mapped.position(mapped.position() + posting.length * Integer.BYTES);
+			}
+			return new IvfIndex(store, metric, centroids, postings, nprobe);
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt IVF snapshot " + path + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes the centroids and posting lists to {@code target}, replacing it atomically.
+	 */
+	public void save(Path target) throws IOException {
+		try (SnapshotWriter out = SnapshotWriter.create(target)) {
+			out.putInt(MAGIC).putInt(VERSION).putInt(store.dimensions()).putInt(metric.ordinal())
+					.putInt(centroids.length).putInt(nprobe).putInt(store.size()).putInt(0)
+					.putLong(store.createdAt())
+					.padTo(HEADER_BYTES);
+			for (float[] centroid : centroids) {
+				out.putFloats(centroid);
+			}
+			for (int[] posting : postings) {
+				out.putInt(posting.length);
+			}
+			for (int[] posting : postings) {
+				for (int ordinal : posting) {
+					out.putInt(ordinal);
+				}
+			}
+			out.commit();
+		}
+	}
+
+	@Override
+	public String type() {
+		return "ivf";
+	}
+
+	@Override
+	public int dimensions() {
+		return store.dimensions();
+	}
+
+	@Override
+	public SimilarityMetric metric() {
+		return metric;
+	}
+
+	@Override
+	public int size() {
+		return store.size();
+	}
+
+	public int lists() {
+		return centroids.length;
+	}
+
+	public int getNprobe() {
+		return nprobe;
+	}
+
+	public void setNprobe(int nprobe) {
+		this.nprobe = Math.max(1, Math.min(nprobe, centroids.length));
+	}
+
+	/**
+	 * Size of the largest posting list, a quick check for badly skewed partitions.
+	 */
+	public int largestList() {
+		int largest = 0;
+		for (int[] posting : postings) {
+			largest = Math.max(largest, posting.length);
+		}
+		return largest;
+	}
+
+	@Override
+	public List<VectorHit> search(float[] query, int k) {
+		return search(query, k, nprobe, null);
+	}
+
+	/**
+	 * Top-k over the allowed ordinals. Selective filters are scored exactly; otherwise probing continues past
+	 * {@code nprobe} lists until {@code k} allowed rows have been seen.
+	 */
+	@Override
+	public List<VectorHit> search(float[] query, int k, BitSet allowed) {
+		if (VectorSearchIndex.preferExact(allowed, size())) {
+			return store.search(query, k, metric, allowed);
+		}
+		return search(query, k, nprobe, allowed);
+	}
+
+	/**
+	 * Answers a batch of queries list by list: each query picks its {@code nprobe} lists, then every probed
+	 * posting list is read once and scored against all the queries that chose it.
+	 */
+	@Override
+	public List<List<VectorHit>> searchBatch(float[][] queries, int k, BitSet allowed) {
+		if (VectorSearchIndex.preferExact(allowed, size())) {
+			return store.searchBatch(queries, k, metric, allowed);
+		}
+		if (allowed != null) {
+			// Filtered probing adapts per query, so it gains nothing from sharing lists
+			return VectorSearchIndex.super.searchBatch(queries, k, allowed);
+		}
+		VectorKernel kernel = VectorKernels.get();
+		int probes = nprobe;
+		List<List<Integer>> queriesByList = new ArrayList<>(centroids.length);
+		for (int c = 0; c < centroids.length; c++) {
+			queriesByList.add(new ArrayList<>());
+		}
+		TopK[] tops = new TopK[queries.length];
+		double[] queryNorms = new double[queries.length];
+		for (int q = 0; q < queries.length; q++) {
+			if (queries[q].length != store.dimensions()) {
+				throw new IllegalArgumentException("Query " + q + " has " + queries[q].length
+						+ " dimensions, index has " + store.dimensions());
+			}
+			tops[q] = new TopK(k);
+			queryNorms[q] = VectorMath.norm(queries[q]);
+			TopK nearestLists = new TopK(probes);
+			for (int c = 0; c < centroids.length; c++) {
+				nearestLists.offer(c, metric.score(kernel.dot(queries[q], centroids[c]), queryNorms[q],
+						centroidNorms[c]));
+			}
+			for (VectorHit list : nearestLists.toHits(c -> null)) {
+				queriesByList.get(list.ordinal()).add(q);
+			}
+		}
+
+		for (int list = 0; list < centroids.length; list++) {
+			List<Integer> members = queriesByList.get(list);
+			if (members.isEmpty()) {
+				continue;
+			}
+			int[] groupQueries = members.stream().mapToInt(Integer::intValue).toArray();
+			float[][] group = new float[groupQueries.length][];
+			for (int i = 0; i < group.length; i++) {
+				group[i] = queries[groupQueries[i]];
+			}
+			float[] dots = new float[group.length];
+			for (int ordinal : postings[list]) {
+				store.dots(ordinal, group, dots);
+				float rowNorm = store.norm(ordinal);
+				for (int i = 0; i < group.length; i++) {
+					int q = groupQueries[i];
+					tops[q].offer(ordinal, metric.score(dots[i], queryNorms[q], rowNorm));
+				}
+			}
+		}
+
+		List<List<VectorHit>> results = new ArrayList<>(queries.length);
+		for (TopK top : tops) {
+			results.add(top.toHits(store::id));
+		}
+		return results;
+	}
+
+	/**
+	 * Top-k over the posting lists of the {@code probes} best-scoring centroids.
+	 */
+	public List<VectorHit> search(float[] query, int k, int probes) {
+		return search(query, k, probes, null);
+	}
+
+	private List<VectorHit> search(float[] query, int k, int probes, BitSet allowed) {
+		if (query == null || query.length != store.dimensions() || k <= 0) {
+			return List.of();
+		}
+		double queryNorm = VectorMath.norm(query);
+		VectorKernel kernel = VectorKernels.get();
+		// Rank every list when filtering, since probing may have to go past nprobe to find k allowed rows
+		TopK nearestLists = new TopK(allowed == null ? Math.max(1, Math.min(probes, centroids.length))
+				: centroids.length);
+		for (int c = 0; c < centroids.length; c++) {
+			nearestLists.offer(c, metric.score(kernel.dot(query, centroids[c]), queryNorm, centroidNorms[c]));
+		}
+
+		TopK top = new TopK(k);
+		int probed = 0;
+		for (VectorHit list : nearestLists.toHits(c -> null)) {
+			if (probed >= probes && top.size() >= k) {
+				break;
+			}
+			for (int ordinal : postings[list.ordinal()]) {
+				if (allowed == null || allowed.get(ordinal)) {
+					top.offer(ordinal, store.score(ordinal, query, queryNorm, metric));
+				}
+			}
+			probed++;
+		}
+		return top.toHits(store::id);
+	}
+
+	@Override
+	public int ordinal(Object id) {
+		return store.ordinal(id);
+	}
+
+	/**
+	 * Fraction of exact top-k neighbours found, averaged over {@code samples} stored rows used as queries.
+	 */
+	public double measureRecall(int samples, int k) {
+		if (samples <= 0) {
+			return 1.0;
+		}
+		Random random = new Random(7);
+		float[] query = new float[store.dimensions()];
+		int found = 0;
+		int expected = 0;
+		for (int i = 0; i < samples; i++) {
+			store.read(random.nextInt(store.size()), query);
+			List<VectorHit> exact = store.search(query, k, metric);
+			List<Integer> approximate = search(query, k).stream().map(VectorHit::ordinal).toList();
+			for (VectorHit hit : exact) {
+				if (approximate.contains(hit.ordinal())) {
+					found++;
+				}
+			}
+			expected += exact.size();
+		}
+		return expected == 0 ? 1.0 : (double) found / expected;
+	}
+
+	private static float[] row(MappedVectorStore store, int ordinal, boolean normalize) {
+		float[] vector = new float[store.dimensions()];
+		store.read(ordinal, vector);
+		return normalize ? normalized(vector) : vector;
+	}
+
+	private static float[] normalized(float[] vector) {
+		float[] unit = VectorMath.normalize(vector);
+		return unit != null ? unit : vector;
+	}
+}
@@ -0,0 +1,209 @@
+package com.deepai.vector;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Lloyd's k-means over squared euclidean distance with k-means++ seeding. The assignment step and the
+ * seeding distance updates are split over a fork/join pool; each leaf accumulates its own centroid sums so
+ * no state is shared between workers.
+ */
+public final class KMeans {
+
+	private static final int MIN_LEAF_SIZE = 256;
+
+	private KMeans() {
+	}
+
+	/**
+	 * Trains {@code k} centroids on the common fork/join pool.
+	 */
+	public static float[][] train(float[][] data, int k, int iterations, long seed) {
+		return train(data, k, iterations, seed, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Trains {@code k} centroids on {@code data} using {@code pool}. When there are fewer points than
+	 * {@code k}, points are reused so callers always get {@code k} centroids.
+	 */
+	public static float[][] train(float[][] data, int k, int iterations, long seed, ForkJoinPool pool) {
+		if (data.length == 0) {
+			throw new IllegalArgumentException("k-means needs at least one training vector");
+		}
+		Random random = new Random(seed);
+		int leafSize = Math.max(MIN_LEAF_SIZE, data.length / (pool.getParallelism() * 4));
+		float[][] centroids = seed(data, k, random, pool, leafSize);
+		int[] assignment = new int[data.length];
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			Partial step = pool.invoke(new AssignTask(data, centroids, assignment, 0, data.length, leafSize));
+			if (step.changed == 0 && iteration > 0) {
+				break;
+			}
+			for (int c = 0; c < k; c++) {
+				if (step.counts[c] == 0) {
+					// Re-seed empty clusters with a random point
+					centroids[c] = data[random.nextInt(data.length)].clone();
+					continue;
+				}
+				float inverse = 1f / step.counts[c];
+				for (int d = 0; d < centroids[c].length; d++) {
+					centroids[c][d] = step.sums[c][d] * inverse;
+				}
+			}
+		}
+		return centroids;
+	}
+
+	/**
+	 * Index of the centroid closest to {@code vector} by squared euclidean distance.
+	 */
+	public static int nearest(float[][] centroids, float[] vector) {
+		VectorKernel kernel = VectorKernels.get();
+		int best = 0;
+		float bestDistance = Float.MAX_VALUE;
+		for (int c = 0; c < centroids.length; c++) {
+			float distance = kernel.squaredDistance(centroids[c], vector);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	private static float[][] seed(float[][] data, int k, Random random, ForkJoinPool pool, int leafSize) {
+		VectorKernel kernel = VectorKernels.get();
+		float[][] centroids = new float[k][];
+		centroids[0] = data[random.nextInt(data.length)].clone();
+		float[] distances = new float[data.length];
+		Arrays.fill(distances, Float.MAX_VALUE);
+		for (int c = 1; c <= k; c++) {
+			float[] latest = centroids[c - 1];
+			pool.invoke(new RangeAction(0, data.length, leafSize, (from, to) -> {
+				for (int i = from; i < to; i++) {
+					distances[i] = Math.min(distances[i], kernel.squaredDistance(latest, data[i]));
+				}
+			}));
+			if (c == k) {
+				break;
+			}
+			double total = 0.0;
+			for (float distance : distances) {
+				total += distance;
+			}
+			int chosen;
+			if (total == 0.0) {
+				chosen = random.nextInt(data.length);
+			} else {
+				double target = random.nextDouble() * total;
+				chosen = 0;
+				for (double running = distances[0]; running < target && chosen < data.length - 1; ) {
+					running += distances[++chosen];
+				}
+			}
+			centroids[c] = data[chosen].clone();
+		}
+		return centroids;
+	}
+
+	@FunctionalInterface
+	interface RangeBody {
+
+		void run(int from, int to);
+	}
+
+	/**
+	 * Runs {@code body} over {@code [from, to)} split into leaves of at most {@code leafSize} items.
+	 */
+	static final class RangeAction extends RecursiveAction {
+
+		private final int from;
+		private final int to;
+		private final int leafSize;
+		private final RangeBody body;
+
+		RangeAction(int from, int to, int leafSize, RangeBody body) {
+			this.from = from;
+			this.to = to;
+			this.leafSize = leafSize;
+			this.body = body;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= leafSize) {
+				body.run(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RangeAction(from, middle, leafSize, body), new RangeAction(middle, to, leafSize, body));
+		}
+	}
+
+	private record Partial(float[][] sums, int[] counts, int changed) {
+
+		Partial merge(Partial other) {
+			for (int c = 0; c < counts.length; c++) {
+				counts[c] += other.counts[c];
+				float[] sum = sums[c];
+				float[] add = other.sums[c];
+				for (int d = 0; d < sum.length; d++) {
+					sum[d] += add[d];
+				}
+			}
+			return new Partial(sums, counts, changed + other.changed);
+		}
+	}
+
+	private static final class AssignTask extends RecursiveTask<Partial> {
+
+		private final float[][] data;
+		private final float[][] centroids;
+		private final int[] assignment;
+		private final int from;
+		private final int to;
+		private final int leafSize;
+
+		AssignTask(float[][] data, float[][] centroids, int[] assignment, int from, int to, int leafSize) {
+			this.data = data;
+			this.centroids = centroids;
+			this.assignment = assignment;
+			this.from = from;
+			this.to = to;
+			this.leafSize = leafSize;
+		}
+
+		@Override
+		protected Partial compute() {
+			if (to - from > leafSize) {
+				int middle = (from + to) >>> 1;
+				AssignTask right = new AssignTask(data, centroids, assignment, middle, to, leafSize);
+				right.fork();
+				Partial left = new AssignTask(data, centroids, assignment, from, middle, leafSize).compute();
+				return left.merge(right.join());
+			}
+			int dims = data[from].length;
+			float[][] sums = new float[centroids.length][dims];
+			int[] counts = new int[centroids.length];
+			int changed = 0;
+			for (int i = from; i < to; i++) {
+				int nearest = nearest(centroids, data[i]);
+				if (nearest != assignment[i]) {
+					assignment[i] = nearest;
+					changed++;
+				}
+				counts[nearest]++;
+				float[] sum = sums[nearest];
+				float[] point = data[i];
+				for (int d = 0; d < dims; d++) {
+					sum[d] += point[d];
+				}
+			}
+			return new Partial(sums, counts, changed);
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.deepai.vector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a built index current between rebuilds. Vectors written since the base was built live in a small
+ * delta that is scored exactly, and the base rows they replace (or that were deleted) are masked out of base
+ * searches. Writers publish a new delta copy-on-write once per applied batch, so searches never wait on them.
+ *
+ * <p>Delta rows get ordinals after the base's, starting at the base size, so prefilter bitsets resolved
+ * through {@link #ordinal(Object)} cover both. The delta only grows, deleted slots included, so once it is large
+ * enough the index is compacted: {@link #writeTo} merges base and delta into a new store, and a base built over
+ * that store replaces this index.
+ */
+public final class LiveVectorIndex implements VectorSearchIndex {
+
+	private final VectorSearchIndex base;
+	private final int baseSize;
+	private volatile Delta delta;
+
+	public LiveVectorIndex(VectorSearchIndex base) {
+		this.base = base;
+		this.baseSize = base.size();
+		this.delta = new Delta(new Object[0], new float[0][], new float[0], Map.of(), null, 0, 0);
+	}
+
+	public VectorSearchIndex base() {
+		return base;
+	}
+
+	@Override
+	public String type() {
+		return base.type();
+	}
+
+	@Override
+	public int dimensions() {
+		return base.dimensions();
+	}
+
+	@Override
+	public SimilarityMetric metric() {
+		return base.metric();
+	}
+
+	@Override
+	public int size() {
+		Delta current = delta;
+		return baseSize - current.masked + current.live;
+	}
+
+	/**
+	 * Vectors currently served from the delta rather than the base.
+	 */
+	public int deltaSize() {
+		return delta.live;
+	}
+
+	/**
+	 * Delta slots every query scans, live or deleted.
+	 */
+	public int deltaRows() {
+		return delta.ids.length;
+	}
+
+	/**
+	 * Base rows hidden because their document was updated or deleted.
+	 */
+	public int maskedCount() {
+		return delta.masked;
+	}
+
+	/**
+	 * Applies one batch of writes. A null or wrongly sized vector in {@code upserts} removes the document
+	 * from the index, the same as listing it in {@code deletes}.
+	 */
+	public synchronized void apply(Map<Object, float[]> upserts, Set<Object> deletes) {
+		if (upserts.isEmpty() && deletes.isEmpty()) {
+			return;
+		}
+		Delta current = delta;
+		int capacity = current.ids.length + upserts.size();
+		Object[] ids = Arrays.copyOf(current.ids, capacity);
+		float[][] vectors = Arrays.copyOf(current.vectors, capacity);
+		float[] norms = Arrays.copyOf(current.norms, capacity);
+		Map<Object, Integer> slots = new HashMap<>(current.slots);
+		BitSet baseLive = current.baseLive != null ? (BitSet) current.baseLive.clone() : null;
+		int masked = current.masked;
+		int live = current.live;
+		int next = current.ids.length;
+
+		for (Object id : deletes) {
+			Integer slot = slots.remove(id);
+			if (slot != null) {
+				vectors[slot] = null;
+				live--;
+			}
+			baseLive = mask(id, baseLive);
+		}
+		for (Map.Entry<Object, float[]> upsert : upserts.entrySet()) {
+			Object id = upsert.getKey();
+			float[] vector = upsert.getValue();
+			boolean valid = vector != null && vector.length == base.dimensions();
+			Integer slot = slots.get(id);
+			if (slot == null && valid) {
+				slot = next++;
+				slots.put(id, slot);
+				ids[slot] = id;
+				live++;
+			} else if (slot != null && !valid) {
+				slots.remove(id);
+				live--;
+			}
+			if (slot != null) {
+				vectors[slot] = valid ? vector : null;
+				norms[slot] = valid ? VectorMath.norm(vector) : 0f;
+			}
+			baseLive = mask(id, baseLive);
+		}
+		if (baseLive != null) {
+			masked = baseSize - baseLive.cardinality();
+		}
+		delta = new Delta(Arrays.copyOf(ids, next), Arrays.copyOf(vectors, next), Arrays.copyOf(norms, next), slots,
+				baseLive, masked, live);
+	}
+
+	/**
+	 * Writes the rows this index serves to {@code writer}: every row of {@code store}, the store the base was
+	 * built over, that is neither masked nor replaced, then the live delta rows. Reads one delta snapshot, so
+	 * batches applied meanwhile are left out.
+	 *
+	 * @return the number of rows written
+	 */
+	public int writeTo(MappedVectorStore store, MappedVectorStore.Writer writer) throws IOException {
+		Delta current = delta;
+		Object[] ids = store.ids();
+		float[] row = new float[store.dimensions()];
+		int written = 0;
+		for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+			Object id = ids[ordinal];
+			int baseOrdinal = base.ordinal(id);
+			if (baseOrdinal < 0 || current.slots.containsKey(id)
+					|| (current.baseLive != null && !current.baseLive.get(baseOrdinal))) {
+				continue;
+			}
+			store.read(ordinal, row);
+			if (writer.add(id, row)) {
+				written++;
+			}
+		}
+		for (int slot = 0; slot < current.vectors.length; slot++) {
+			if (current.vectors[slot] != null && writer.add(current.ids[slot], current.vectors[slot])) {
+				written++;
+			}
+		}
+		return written;
+	}
+
+	@Override
+	public List<VectorHit> search(float[] query, int k, BitSet allowed) {
+		if (query == null || query.length != dimensions() || k <= 0) {
+			return List.of();
+		}
+		Delta current = delta;
+		List<VectorHit> baseHits = base.search(query, k, baseFilter(current, allowed));
+		if (current.live == 0) {
+			return baseHits;
+		}
+		ScoredTopK<VectorHit> top = new ScoredTopK<>(k);
+		baseHits.forEach(hit -> top.offer(hit, hit.score()));
+		offerDelta(current, top, query, VectorMath.norm(query), allowed);
+		return top.drain().stream().map(ScoredTopK.Scored::item).toList();
+	}
+
+	@Override
+	public List<List<VectorHit>> searchBatch(float[][] queries, int k, BitSet allowed) {
+		Delta current = delta;
+		List<List<VectorHit>> baseHits = base.searchBatch(queries, k, baseFilter(current, allowed));
+		if (current.live == 0) {
+			return baseHits;
+		}
+		List<List<VectorHit>> results = new ArrayList<>(queries.length);
+		for (int q = 0; q < queries.length; q++) {
+			ScoredTopK<VectorHit> top = new ScoredTopK<>(k);
+			baseHits.get(q).forEach(hit -> top.offer(hit, hit.score()));
+			offerDelta(current, top, queries[q], VectorMath.norm(queries[q]), allowed);
+			results.add(top.drain().stream().map(ScoredTopK.Scored::item).toList());
+		}
+		return results;
+	}
+
+	@Override
+	public int ordinal(Object id) {
+		Delta current = delta;
+		Integer slot = current.slots.get(id);
+		if (slot != null) {
+			return baseSize + slot;
+		}
+		int ordinal = base.ordinal(id);
+		return ordinal >= 0 && (current.baseLive == null || current.baseLive.get(ordinal)) ? ordinal : -1;
+	}
+
+	private BitSet mask(Object id, BitSet baseLive) {
+		int ordinal = base.ordinal(id);
+		if (ordinal < 0) {
+			return baseLive;
+		}
+		if (baseLive == null) {
+			baseLive = new BitSet(baseSize);
+			baseLive.set(0, baseSize);
+		}
+		baseLive.clear(ordinal);
+		return baseLive;
+	}
+
+	/**
+	 * The base-ordinal part of {@code allowed} with masked rows removed; null when nothing is excluded.
+	 */
+	private BitSet baseFilter(Delta current, BitSet allowed) {
+		if (allowed == null) {
+			return current.baseLive;
+		}
+		BitSet filter = allowed.get(0, baseSize);
+		if (current.baseLive != null) {
+			filter.and(current.baseLive);
+		}
+		return filter;
+	}
+
+	private void offerDelta(Delta current, ScoredTopK<VectorHit> top, float[] query, double queryNorm,
+			BitSet allowed) {
+		VectorKernel kernel = VectorKernels.get();
+		SimilarityMetric metric = metric();
+		for (int slot = 0; slot < current.vectors.length; slot++) {
+			float[] vector = current.vectors[slot];
+			if (vector == null || (allowed != null && !allowed.get(baseSize + slot))) {
+				continue;
+			}
+			double score = metric.score(kernel.dot(query, vector), queryNorm, current.norms[slot]);
+			if (top.accepts(score)) {
+				top.offer(new VectorHit(baseSize + slot, current.ids[slot], score), score);
+			}
+		}
+	}
+
+	/**
+	 * Immutable snapshot of the writes applied since the base was built; deleted slots keep a null vector.
+	 */
+	private record Delta(Object[] ids, float[][] vectors, float[] norms, Map<Object, Integer> slots,
+			BitSet baseLive, int masked, int live) {
+	}
+}
@@ -0,0 +1,562 @@
+package com.deepai.vector;
+
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Off-heap store of float32 vectors for one vector field, backed by a single memory-mapped file.
+ *
+ * <p>File layout (little-endian): a fixed header, {@code count} contiguous rows of {@code dimensions} floats,
+ * {@code count} precomputed L2 norms, {@code count} long offsets into the id section, the id lookup table, then
+ * each {@code _id} as canonical extended JSON. The lookup table holds one long per row, the 32-bit hash of the
+ * row's id JSON above its ordinal, sorted, so {@link #ordinal(Object)} is a binary search over the mapping rather
+ * than a heap map of every id. Rows are scored straight from the mapping, so scanning the store allocates nothing
+ * per vector.
+ */
+public final class MappedVectorStore implements Closeable {
+
+	static final int MAGIC = 0x4D564543; // "MVEC"
+	static final int VERSION = 3;
+	static final int HEADER_BYTES = 64;
+
+	private static final long MAX_SEGMENT_BYTES = 1L << 30;
+	private static final JsonWriterSettings ID_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED)
+			.build();
+
+	private final Path path;
+	private final FileChannel channel;
+	private final int dimensions;
+	private final int count;
+	private final long fingerprint;
+	private final long createdAt;
+	private final long idBlobsPosition;
+	private final long idBlobsBytes;
+	private final int rowsPerSegment;
+	private final ByteBuffer[] segments;
+	private final ByteBuffer norms;
+	private final LongSection idOffsets;
+	private final LongSection idLookup;
+
+	private MappedVectorStore(Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(header, 0);
+			header.flip();
+			if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+				throw new IOException("Not a vector store file: " + path);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported vector store version " + version + " in " + path);
+			}
+			this.dimensions = header.getInt();
+			header.getInt(); // reserved
+			this.count = (int) header.getLong();
+			long normsPosition = header.getLong();
+			long idOffsetsPosition = header.getLong();
+			this.idBlobsPosition = header.getLong();
+			this.fingerprint = header.getLong();
+			this.createdAt = header.getLong();
+
+			long rowBytes = (long) dimensions * Float.BYTES;
+			this.rowsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / rowBytes);
+			int segmentCount = (count + rowsPerSegment - 1) / rowsPerSegment;
+			this.segments = new ByteBuffer[segmentCount];
+			for (int s = 0; s < segmentCount; s++) {
+				int rows = Math.min(rowsPerSegment, count - s * rowsPerSegment);
+				long position = HEADER_BYTES + s * rowsPerSegment * rowBytes;
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position, rows * rowBytes)
+						.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			this.norms = channel.map(FileChannel.MapMode.READ_ONLY, normsPosition, (long) count * Float.BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			this.idOffsets = new LongSection(channel, idOffsetsPosition, count);
+			this.idLookup = new LongSection(channel, idOffsetsPosition + (long) count * Long.BYTES, count);
+			this.idBlobsBytes = channel.size() - idBlobsPosition;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens an existing store file.
+	 */
+	public static MappedVectorStore open(Path path) throws IOException {
+		return new MappedVectorStore(path);
+	}
+
+	/**
+	 * Starts writing a new store file. The file only appears at {@code path} once {@link Writer#commit(long)}
+	 * succeeds.
+	 */
+	public static Writer writer(Path path, int dimensions) throws IOException {
+		return new Writer(path, dimensions);
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int dimensions() {
+		return dimensions;
+	}
+
+	/**
+	 * Change marker of the source documents when the store was built, used to detect a stale file on reuse.
+	 */
+	public long fingerprint() {
+		return fingerprint;
+	}
+
+	public long createdAt() {
+		return createdAt;
+	}
+
+	public Path path() {
+		return path;
+	}
+
+	/**
+	 * Copies the vector at {@code ordinal} into {@code target}.
+	 */
+	public void read(int ordinal, float[] target) {
+		ByteBuffer segment = segment(ordinal);
+		int offset = rowOffset(ordinal);
+		for (int i = 0; i < dimensions; i++) {
+			target[i] = segment.getFloat(offset + i * Float.BYTES);
+		}
+	}
+
+	/**
+	 * The precomputed L2 norm of the row at {@code ordinal}.
+	 */
+	public float norm(int ordinal) {
+		return norms.getFloat(ordinal * Float.BYTES);
+	}
+
+	/**
+	 * Scores the stored row against {@code query} with one dot-product pass over the mapping and the
+	 * precomputed row norm.
+	 */
+	public double score(int ordinal, float[] query, double queryNorm, SimilarityMetric metric) {
+		float dot = VectorKernels.get().dot(segment(ordinal), rowOffset(ordinal), query);
+		return metric.score(dot, queryNorm, norm(ordinal));
+	}
+
+	/**
+	 * Dot products between the row at {@code ordinal} and every query, read from the mapping once.
+	 */
+	void dots(int ordinal, float[][] queries, float[] out) {
+		VectorKernels.get().dotMany(segment(ordinal), rowOffset(ordinal), queries, out);
+	}
+
+	/**
+	 * Exact top-k by cosine similarity over every stored row.
+	 */
+	public List<VectorHit> search(float[] query, int k) {
+		return search(query, k, SimilarityMetric.COSINE);
+	}
+
+	/**
+	 * Exact top-k under {@code metric} over every stored row.
+	 */
+	public List<VectorHit> search(float[] query, int k, SimilarityMetric metric) {
+		return search(query, k, metric, null);
+	}
+
+	/**
+	 * Exact top-k under {@code metric} over the rows set in {@code allowed}, or every row when it is null.
+	 */
+	public List<VectorHit> search(float[] query, int k, SimilarityMetric metric, BitSet allowed) {
+		if (query == null || query.length != dimensions || k <= 0) {
+			return List.of();
+		}
+		double queryNorm = VectorMath.norm(query);
+		TopK top = new TopK(k);
+		scoreRange(top, 0, count, query, queryNorm, metric, allowed);
+		return top.toHits(this::id);
+	}
+
+	/**
+	 * Offers every row in {@code [from, to)} that is set in {@code allowed} (or all of them) to {@code top}.
+	 */
+	void scoreRange(TopK top, int from, int to, float[] query, double queryNorm, SimilarityMetric metric,
+			BitSet allowed) {
+		if (allowed == null) {
+			for (int ordinal = from; ordinal < to; ordinal++) {
+				top.offer(ordinal, score(ordinal, query, queryNorm, metric));
+			}
+			return;
+		}
+		for (int ordinal = allowed.nextSetBit(from); ordinal >= 0 && ordinal < to;
+				ordinal = allowed.nextSetBit(ordinal + 1)) {
+			top.offer(ordinal, score(ordinal, query, queryNorm, metric));
+		}
+	}
+
+	/**
+	 * Exact top-k for each of {@code queries} in one pass over the rows set in {@code allowed} (all when null).
+	 * Every query must have the store's dimension; result {@code i} belongs to query {@code i}.
+	 */
+	public List<List<VectorHit>> searchBatch(float[][] queries, int k, SimilarityMetric metric, BitSet allowed) {
+		TopK[] tops = new TopK[queries.length];
+		double[] queryNorms = new double[queries.length];
+		for (int q = 0; q < queries.length; q++) {
+			if (queries[q].length != dimensions) {
+				throw new IllegalArgumentException("Query " + q + " has " + queries[q].length
+						+ " dimensions, store has " + dimensions);
+			}
+			tops[q] = new TopK(k);
+			queryNorms[q] = VectorMath.norm(queries[q]);
+		}
+		scoreRangeBatch(tops, 0, count, queries, queryNorms, metric, allowed);
+		List<List<VectorHit>> results = new ArrayList<>(queries.length);
+		for (TopK top : tops) {
+			results.add(top.toHits(this::id));
+		}
+		return results;
+	}
+
+	/**
+	 * Batched form of {@link #scoreRange}: each row is read once and scored against every query.
+	 */
+	void scoreRangeBatch(TopK[] tops, int from, int to, float[][] queries, double[] queryNorms,
+			SimilarityMetric metric, BitSet allowed) {
+		float[] dots = new float[queries.length];
+		for (int ordinal = allowed == null ? from : allowed.nextSetBit(from); ordinal >= 0 && ordinal < to;
+				ordinal = allowed == null ? ordinal + 1 : allowed.nextSetBit(ordinal + 1)) {
+			dots(ordinal, queries, dots);
+			float rowNorm = norm(ordinal);
+			for (int q = 0; q < queries.length; q++) {
+				tops[q].offer(ordinal, metric.score(dots[q], queryNorms[q], rowNorm));
+			}
+		}
+	}
+
+	/**
+	 * Ordinal of the row stored for {@code id}, or -1. Binary-searches the lookup table for the hash of the id's
+	 * JSON and confirms each candidate against the stored bytes, so hash collisions cannot return a wrong row.
+	 */
+	public int ordinal(Object id) {
+		byte[] json = idJson(id);
+		int hash = idHash(json);
+		long key = (long) hash << 32;
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (idLookup.get(mid) < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		for (int i = low; i < count; i++) {
+			long entry = idLookup.get(i);
+			if ((int) (entry >> 32) != hash) {
+				break;
+			}
+			int ordinal = (int) entry;
+			if (Arrays.equals(json, idBytes(ordinal))) {
+				return ordinal;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Decodes the {@code _id} stored for {@code ordinal}.
+	 */
+	public Object id(int ordinal) {
+		return Document.parse(new String(idBytes(ordinal), StandardCharsets.UTF_8)).get("_id");
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return "vector store " + path;
+	}
+
+	/**
+	 * Decodes every stored {@code _id}, indexed by ordinal, in one sequential read of the id section.
+	 */
+	Object[] ids() {
+		Object[] ids = new Object[count];
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		buffer.flip();
+		long position = idBlobsPosition;
+		try {
+			for (int ordinal = 0; ordinal < count; ordinal++) {
+				int length = idLength(ordinal);
+				if (buffer.remaining() < length) {
+					buffer.compact();
+					if (buffer.capacity() < length) {
+						buffer = ByteBuffer.allocate(length).put(buffer.flip());
+					}
+					while (buffer.position() < length) {
+						int read = channel.read(buffer, position);
+						if (read < 0) {
+							throw new IOException("Truncated id section");
+						}
+						position += read;
+					}
+					buffer.flip();
+				}
+				ids[ordinal] = Document.parse(new String(buffer.array(), buffer.position(), length,
+						StandardCharsets.UTF_8)).get("_id");
+				buffer.position(buffer.position() + length);
+			}
+			return ids;
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read _ids from " + path, e);
+		}
+	}
+
+	private int idLength(int ordinal) {
+		long end = ordinal + 1 < count ? idOffsets.get(ordinal + 1) : idBlobsBytes;
+		return Math.toIntExact(end - idOffsets.get(ordinal));
+	}
+
+	private byte[] idBytes(int ordinal) {
+		ByteBuffer buffer = ByteBuffer.allocate(idLength(ordinal));
+		long position = idBlobsPosition + idOffsets.get(ordinal);
+		try {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new IOException("Truncated id section");
+				}
+			}
+			return buffer.array();
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read _id " + ordinal + " from " + path, e);
+		}
+	}
+
+	private static byte[] idJson(Object id) {
+		return new Document("_id", id).toJson(ID_JSON).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 32-bit hash of an id's JSON: 64-bit FNV-1a finished with the MurmurHash3 mixer, high half.
+	 */
+	static int idHash(byte[] json) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : json) {
+			hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return (int) (hash >>> 32);
+	}
+
+	private ByteBuffer segment(int ordinal) {
+		return segments[ordinal / rowsPerSegment];
+	}
+
+	private int rowOffset(int ordinal) {
+		return (ordinal % rowsPerSegment) * dimensions * Float.BYTES;
+	}
+
+	/**
+	 * A table of {@code count} little-endian longs mapped in segments of at most {@value #MAX_SEGMENT_BYTES}
+	 * bytes, so id offsets and the lookup table stay addressable past 2 GB.
+	 */
+	private static final class LongSection {
+
+		private static final int LONGS_PER_SEGMENT = (int) (MAX_SEGMENT_BYTES / Long.BYTES);
+
+		private final ByteBuffer[] segments;
+
+		private LongSection(FileChannel channel, long position, int count) throws IOException {
+			int segmentCount = (count + LONGS_PER_SEGMENT - 1) / LONGS_PER_SEGMENT;
+			this.segments = new ByteBuffer[segmentCount];
+			for (int s = 0; s < segmentCount; s++) {
+				int longs = Math.min(LONGS_PER_SEGMENT, count - s * LONGS_PER_SEGMENT);
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+						position + (long) s * LONGS_PER_SEGMENT * Long.BYTES, (long) longs * Long.BYTES)
+						.order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+
+		long get(int index) {
+			return segments[index / LONGS_PER_SEGMENT].getLong((index % LONGS_PER_SEGMENT) * Long.BYTES);
+		}
+	}
+
+	/**
+	 * Streams rows into temporary files and assembles the final store on {@link #commit(long)}.
+	 */
+	public static final class Writer implements Closeable {
+
+		private final Path target;
+		private final int dimensions;
+		private final Path rowsFile;
+		private final Path normsFile;
+		private final Path offsetsFile;
+		private final Path idsFile;
+		private final FileChannel rows;
+		private final FileChannel norms;
+		private final FileChannel offsets;
+		private final FileChannel ids;
+		private final ByteBuffer rowBuffer;
+		private final ByteBuffer normBuffer = ByteBuffer.allocate(Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		private final ByteBuffer offsetBuffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		private long idBytes;
+		private long[] lookup = new long[1024];
+		private int count;
+
+		private Writer(Path target, int dimensions) throws IOException {
+			if (dimensions <= 0) {
+				throw new IllegalArgumentException("dimensions must be positive");
+			}
+			Files.createDirectories(target.toAbsolutePath().getParent());
+			this.target = target;
+			this.dimensions = dimensions;
+			this.rowsFile = target.resolveSibling(target.getFileName() + ".rows.tmp");
+			this.normsFile = target.resolveSibling(target.getFileName() + ".norms.tmp");
+			this.offsetsFile = target.resolveSibling(target.getFileName() + ".offsets.tmp");
+			this.idsFile = target.resolveSibling(target.getFileName() + ".ids.tmp");
+			this.rows = openTemp(rowsFile);
+			this.norms = openTemp(normsFile);
+			this.offsets = openTemp(offsetsFile);
+			this.ids = openTemp(idsFile);
+			this.rowBuffer = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		/**
+		 * Appends a row; returns false if the vector does not match the store dimension.
+		 */
+		public boolean add(Object id, float[] vector) throws IOException {
+			if (vector == null || vector.length != dimensions) {
+				return false;
+			}
+			rowBuffer.clear();
+			rowBuffer.asFloatBuffer().put(vector);
+			writeFully(rows, rowBuffer);
+
+			normBuffer.clear();
+			normBuffer.putFloat(VectorMath.norm(vector)).flip();
+			writeFully(norms, normBuffer);
+
+			offsetBuffer.clear();
+			offsetBuffer.putLong(idBytes).flip();
+			writeFully(offsets, offsetBuffer);
+
+			byte[] idJson = idJson(id);
+			writeFully(ids, ByteBuffer.wrap(idJson));
+			idBytes += idJson.length;
+			if (count == lookup.length) {
+				lookup = Arrays.copyOf(lookup, count * 2);
+			}
+			lookup[count] = (long) idHash(idJson) << 32 | count;
+			count++;
+			return true;
+		}
+
+		public int count() {
+			return count;
+		}
+
+		/**
+		 * Assembles header, rows, offsets, the sorted id lookup table and ids into the target file and opens it.
+		 */
+		public MappedVectorStore commit(long fingerprint) throws IOException {
+			long rowsBytes = (long) count * dimensions * Float.BYTES;
+			long normsPosition = HEADER_BYTES + rowsBytes;
+			long offsetsPosition = normsPosition + (long) count * Float.BYTES;
+			long idsPosition = offsetsPosition + 2L * count * Long.BYTES;
+
+			Path assembled = target.resolveSibling(target.getFileName() + ".tmp");
+			try (FileChannel out = FileChannel.open(assembled, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(0).putLong(count)
+						.putLong(normsPosition).putLong(offsetsPosition).putLong(idsPosition).putLong(fingerprint)
+						.putLong(System.currentTimeMillis());
+				header.position(HEADER_BYTES).flip();
+				writeFully(out, header);
+				transfer(rows, out);
+				transfer(norms, out);
+				transfer(offsets, out);
+				writeLookup(out);
+				transfer(ids, out);
+				out.force(true);
+			}
+			close();
+			Files.move(assembled, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return MappedVectorStore.open(target);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try (rows; norms; offsets; ids) {
+				// channels closed by try-with-resources
+			} finally {
+				Files.deleteIfExists(rowsFile);
+				Files.deleteIfExists(normsFile);
+				Files.deleteIfExists(offsetsFile);
+				Files.deleteIfExists(idsFile);
+			}
+		}
+
+		private void writeLookup(FileChannel out) throws IOException {
+			long[] sorted = Arrays.copyOf(lookup, count);
+			lookup = null;
+			Arrays.parallelSort(sorted);
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+			for (long entry : sorted) {
+				if (!buffer.hasRemaining()) {
+					writeFully(out, buffer.flip());
+					buffer.clear();
+				}
+				buffer.putLong(entry);
+			}
+			writeFully(out, buffer.flip());
+		}
+
+		private static FileChannel openTemp(Path file) throws IOException {
+			return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+
+		private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		private static void transfer(FileChannel source, FileChannel target) throws IOException {
+			long size = source.size();
+			long position = 0;
+			while (position < size) {
+				position += source.transferTo(position, size - position, target);
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.deepai.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SIMD kernel on the {@code jdk.incubator.vector} API. Only loaded by {@link VectorKernels} when the JVM was
+ * started with {@code --add-modules jdk.incubator.vector}.
+ */
+final class PanamaVectorKernel implements VectorKernel {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public float dot(float[] a, float[] b) {
+		int length = a.length;
+		int bound = SPECIES.loopBound(length);
+		FloatVector acc = FloatVector.zero(SPECIES);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+			FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+			acc = va.fma(vb, acc);
+		}
+		float sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	@Override
+	public float squaredDistance(float[] a, float[] b) {
+		int length = a.length;
+		int bound = SPECIES.loopBound(length);
+		FloatVector acc = FloatVector.zero(SPECIES);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector diff = FloatVector.fromArray(SPECIES, a, i).sub(FloatVector.fromArray(SPECIES, b, i));
+			acc = diff.fma(diff, acc);
+		}
+		float sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			float d = a[i] - b[i];
+			sum += d * d;
+		}
+		return sum;
+	}
+
+	@Override
+	public float dot(ByteBuffer rows, int byteOffset, float[] query) {
+		int length = query.length;
+		int bound = SPECIES.loopBound(length);
+		FloatVector acc = FloatVector.zero(SPECIES);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			FloatVector row = FloatVector.fromByteBuffer(SPECIES, rows, byteOffset + i * Float.BYTES,
+					ByteOrder.LITTLE_ENDIAN);
+			acc = row.fma(FloatVector.fromArray(SPECIES, query, i), acc);
+		}
+		float sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += query[i] * rows.getFloat(byteOffset + i * Float.BYTES);
+		}
+		return sum;
+	}
+
+	@Override
+	public void dotMany(ByteBuffer rows, int byteOffset, float[][] queries, float[] out) {
+		int q = 0;
+		for (; q + 3 < queries.length; q += 4) {
+			float[] a = queries[q];
+			float[] b = queries[q + 1];
+			float[] c = queries[q + 2];
+			float[] d = queries[q + 3];
+			int length = a.length;
+			int bound = SPECIES.loopBound(length);
+			FloatVector accA = FloatVector.zero(SPECIES);
+			FloatVector accB = FloatVector.zero(SPECIES);
+			FloatVector accC = FloatVector.zero(SPECIES);
+			FloatVector accD = FloatVector.zero(SPECIES);
+			int i = 0;
+			for (; i < bound; i += SPECIES.length()) {
+				FloatVector row = FloatVector.fromByteBuffer(SPECIES, rows, byteOffset + i * Float.BYTES,
+						ByteOrder.LITTLE_ENDIAN);
+				accA = row.fma(FloatVector.fromArray(SPECIES, a, i), accA);
+				accB = row.fma(FloatVector.fromArray(SPECIES, b, i), accB);
+				accC = row.fma(FloatVector.fromArray(SPECIES, c, i), accC);
+				accD = row.fma(FloatVector.fromArray(SPECIES, d, i), accD);
+			}
+			float sumA = accA.reduceLanes(VectorOperators.ADD);
+			float sumB = accB.reduceLanes(VectorOperators.ADD);
+			float sumC = accC.reduceLanes(VectorOperators.ADD);
+			float sumD = accD.reduceLanes(VectorOperators.ADD);
+			for (; i < length; i++) {
+				float value = rows.getFloat(byteOffset + i * Float.BYTES);
+				sumA += a[i] * value;
+				sumB += b[i] * value;
+				sumC += c[i] * value;
+				sumD += d[i] * value;
+			}
+			out[q] = sumA;
+			out[q + 1] = sumB;
+			out[q + 2] = sumC;
+			out[q + 3] = sumD;
+		}
+		for (; q < queries.length; q++) {
+			out[q] = dot(rows, byteOffset, queries[q]);
+		}
+	}
+
+	@Override
+	public String name() {
+		return "simd-" + SPECIES.vectorBitSize() + "bit";
+	}
+}
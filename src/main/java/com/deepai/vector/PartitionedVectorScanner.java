@@ -0,0 +1,306 @@
+package com.deepai.vector;
+
+import com.deepai.support.BsonIds;
+import com.deepai.support.IdRanges;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exact top-k search split across cores. Each partition is scored into its own bounded heap on a dedicated
+ * executor and the partial results are merged, so exact recall scales with the number of threads.
+ *
+ * <p>Vector stores are partitioned by ordinal range. Collections are partitioned into {@code _id} ranges
+ * whose split points come from a sorted {@code $sample}; ranges are applied as {@code _id} index bounds
+ * ({@code min}/{@code max}), which follow index order across BSON types, so every document falls in exactly
+ * one partition.
+ */
+@Component
+public class PartitionedVectorScanner {
+
+	private static final Logger logger = LoggerFactory.getLogger(PartitionedVectorScanner.class);
+
+	private final int threads;
+	private final int minPartitionSize;
+	private final ExecutorService executor;
+
+	public PartitionedVectorScanner(@Value("${mcp.vector.scan.threads:0}") int threads,
+			@Value("${mcp.vector.scan.min-partition-size:20000}") int minPartitionSize) {
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.minPartitionSize = Math.max(1, minPartitionSize);
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "vector-scan-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Exact top-k over every row of {@code store}.
+	 */
+	public List<VectorHit> search(MappedVectorStore store, float[] query, int k, SimilarityMetric metric)
+			throws InterruptedException {
+		return search(store, query, k, metric, null);
+	}
+
+	/**
+	 * Exact top-k over the rows of {@code store} set in {@code allowed}, or every row when it is null.
+	 */
+	public List<VectorHit> search(MappedVectorStore store, float[] query, int k, SimilarityMetric metric,
+			BitSet allowed) throws InterruptedException {
+		int partitions = partitionCount(allowed != null ? allowed.cardinality() : store.size());
+		if (partitions <= 1 || query == null || query.length != store.dimensions() || k <= 0) {
+			return store.search(query, k, metric, allowed);
+		}
+		double queryNorm = VectorMath.norm(query);
+		int chunk = (store.size() + partitions - 1) / partitions;
+		List<Future<List<VectorHit>>> futures = new ArrayList<>(partitions);
+		for (int from = 0; from < store.size(); from += chunk) {
+			int start = from;
+			int end = Math.min(store.size(), from + chunk);
+			futures.add(executor.submit(() -> {
+				TopK local = new TopK(k);
+				store.scoreRange(local, start, end, query, queryNorm, metric, allowed);
+				return local.toHits(ordinal -> null);
+			}));
+		}
+		TopK merged = new TopK(k);
+		for (List<VectorHit> partial : collect(futures)) {
+			for (VectorHit hit : partial) {
+				merged.offer(hit.ordinal(), hit.score());
+			}
+		}
+		return merged.toHits(store::id);
+	}
+
+	/**
+	 * Exact top-k for each of {@code queries} over the rows of {@code store} set in {@code allowed} (all when
+	 * null). Each partition reads its rows once and scores them against the whole batch.
+	 */
+	public List<List<VectorHit>> searchBatch(MappedVectorStore store, float[][] queries, int k,
+			SimilarityMetric metric, BitSet allowed) throws InterruptedException {
+		int partitions = partitionCount(allowed != null ? allowed.cardinality() : store.size());
+		if (partitions <= 1 || queries.length == 0 || k <= 0) {
+			return store.searchBatch(queries, k, metric, allowed);
+		}
+		double[] queryNorms = new double[queries.length];
+		for (int q = 0; q < queries.length; q++) {
+			if (queries[q].length != store.dimensions()) {
+				throw new IllegalArgumentException("Query " + q + " has " + queries[q].length
+						+ " dimensions, store has " + store.dimensions());
+			}
+			queryNorms[q] = VectorMath.norm(queries[q]);
+		}
+		int chunk = (store.size() + partitions - 1) / partitions;
+		List<Future<TopK[]>> futures = new ArrayList<>(partitions);
+		for (int from = 0; from < store.size(); from += chunk) {
+			int start = from;
+			int end = Math.min(store.size(), from + chunk);
+			futures.add(executor.submit(() -> {
+				TopK[] local = newTopKs(queries.length, k);
+				store.scoreRangeBatch(local, start, end, queries, queryNorms, metric, allowed);
+				return local;
+			}));
+		}
+		TopK[] merged = newTopKs(queries.length, k);
+		for (TopK[] partial : collect(futures)) {
+			for (int q = 0; q < queries.length; q++) {
+				for (VectorHit hit : partial[q].toHits(ordinal -> null)) {
+					merged[q].offer(hit.ordinal(), hit.score());
+				}
+			}
+		}
+		List<List<VectorHit>> results = new ArrayList<>(queries.length);
+		for (TopK top : merged) {
+			results.add(top.toHits(store::id));
+		}
+		return results;
+	}
+
+	/**
+	 * Exact top-k over every document of {@code collection} that has {@code field} and matches {@code filter}
+	 * (may be null). Only {@code _id} and the vector field are read, and each partition holds at most
+	 * {@code k} candidates.
+	 */
+	public List<VectorHit> scan(MongoCollection<Document> collection, String field, float[] query, int k,
+			SimilarityMetric metric, Bson filter) throws InterruptedException {
+		Bson match = filter != null ? Filters.and(Filters.exists(field), filter) : Filters.exists(field);
+		MongoCollection<RawBsonDocument> raw = collection.withDocumentClass(RawBsonDocument.class);
+		int partitions = partitionCount(collection.estimatedDocumentCount());
+		List<BsonValue> splits = IdRanges.splitPoints(raw, partitions);
+		logger.debug("Scanning {} in {} partitions", collection.getNamespace(), splits.size() + 1);
+
+		double queryNorm = VectorMath.norm(query);
+		List<Future<List<ScoredTopK.Scored<BsonValue>>>> futures = new ArrayList<>(splits.size() + 1);
+		for (int i = 0; i <= splits.size(); i++) {
+			BsonValue lower = i > 0 ? splits.get(i - 1) : null;
+			BsonValue upper = i < splits.size() ? splits.get(i) : null;
+			futures.add(executor.submit(() -> scanRange(raw, field, match, lower, upper, query, queryNorm, k, metric)));
+		}
+		ScoredTopK<BsonValue> merged = new ScoredTopK<>(k);
+		for (List<ScoredTopK.Scored<BsonValue>> partial : collect(futures)) {
+			for (ScoredTopK.Scored<BsonValue> scored : partial) {
+				merged.offer(scored.item(), scored.score());
+			}
+		}
+		return merged.drain().stream()
+				.map(scored -> new VectorHit(-1, BsonIds.toJavaValue(scored.item()), scored.score()))
+				.toList();
+	}
+
+	/**
+	 * Batched form of {@link #scan}: each document's vector is decoded once and scored against every query,
+	 * and the collection is read once for the whole batch.
+	 */
+	public List<List<VectorHit>> scanBatch(MongoCollection<Document> collection, String field, float[][] queries,
+			int k, SimilarityMetric metric, Bson filter) throws InterruptedException {
+		Bson match = filter != null ? Filters.and(Filters.exists(field), filter) : Filters.exists(field);
+		MongoCollection<RawBsonDocument> raw = collection.withDocumentClass(RawBsonDocument.class);
+		int partitions = partitionCount(collection.estimatedDocumentCount());
+		List<BsonValue> splits = IdRanges.splitPoints(raw, partitions);
+		logger.debug("Scanning {} in {} partitions for {} queries", collection.getNamespace(), splits.size() + 1,
+				queries.length);
+
+		double[] queryNorms = new double[queries.length];
+		for (int q = 0; q < queries.length; q++) {
+			queryNorms[q] = VectorMath.norm(queries[q]);
+		}
+		List<Future<List<List<ScoredTopK.Scored<BsonValue>>>>> futures = new ArrayList<>(splits.size() + 1);
+		for (int i = 0; i <= splits.size(); i++) {
+			BsonValue lower = i > 0 ? splits.get(i - 1) : null;
+			BsonValue upper = i < splits.size() ? splits.get(i) : null;
+			futures.add(executor.submit(
+					() -> scanRangeBatch(raw, field, match, lower, upper, queries, queryNorms, k, metric)));
+		}
+		List<ScoredTopK<BsonValue>> merged = new ArrayList<>(queries.length);
+		for (int q = 0; q < queries.length; q++) {
+			merged.add(new ScoredTopK<>(k));
+		}
+		for (List<List<ScoredTopK.Scored<BsonValue>>> partial : collect(futures)) {
+			for (int q = 0; q < queries.length; q++) {
+				for (ScoredTopK.Scored<BsonValue> scored : partial.get(q)) {
+					merged.get(q).offer(scored.item(), scored.score());
+				}
+			}
+		}
+		List<List<VectorHit>> results = new ArrayList<>(queries.length);
+		for (ScoredTopK<BsonValue> top : merged) {
+			results.add(top.drain().stream()
+					.map(scored -> new VectorHit(-1, BsonIds.toJavaValue(scored.item()), scored.score()))
+					.toList());
+		}
+		return results;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private List<ScoredTopK.Scored<BsonValue>> scanRange(MongoCollection<RawBsonDocument> raw, String field,
+			Bson match, BsonValue lower, BsonValue upper, float[] query, double queryNorm, int k,
+			SimilarityMetric metric) {
+		ScoredTopK<BsonValue> top = new ScoredTopK<>(k);
+		for (RawBsonDocument doc : rangeCursor(raw, field, match, lower, upper)) {
+			float[] vector = BsonVectorReader.read(doc, field);
+			if (vector == null || vector.length != query.length) {
+				continue;
+			}
+			double score = metric.score(query, queryNorm, vector);
+			if (top.accepts(score)) {
+				top.offer(doc.get("_id"), score);
+			}
+		}
+		return top.drain();
+	}
+
+	private List<List<ScoredTopK.Scored<BsonValue>>> scanRangeBatch(MongoCollection<RawBsonDocument> raw,
+			String field, Bson match, BsonValue lower, BsonValue upper, float[][] queries, double[] queryNorms, int k,
+			SimilarityMetric metric) {
+		List<ScoredTopK<BsonValue>> tops = new ArrayList<>(queries.length);
+		for (int q = 0; q < queries.length; q++) {
+			tops.add(new ScoredTopK<>(k));
+		}
+		VectorKernel kernel = VectorKernels.get();
+		for (RawBsonDocument doc : rangeCursor(raw, field, match, lower, upper)) {
+			float[] vector = BsonVectorReader.read(doc, field);
+			if (vector == null) {
+				continue;
+			}
+			double vectorNorm = VectorMath.norm(vector);
+			BsonValue id = null;
+			for (int q = 0; q < queries.length; q++) {
+				if (vector.length != queries[q].length) {
+					continue;
+				}
+				double score = metric.score(kernel.dot(queries[q], vector), queryNorms[q], vectorNorm);
+				if (tops.get(q).accepts(score)) {
+					if (id == null) {
+						id = doc.get("_id");
+					}
+					tops.get(q).offer(id, score);
+				}
+			}
+		}
+		List<List<ScoredTopK.Scored<BsonValue>>> results = new ArrayList<>(queries.length);
+		for (ScoredTopK<BsonValue> top : tops) {
+			results.add(top.drain());
+		}
+		return results;
+	}
+
+	private static FindIterable<RawBsonDocument> rangeCursor(MongoCollection<RawBsonDocument> raw, String field,
+			Bson match, BsonValue lower, BsonValue upper) {
+		return IdRanges.bound(raw.find(match).projection(Projections.include(field)), lower, upper);
+	}
+
+	private static TopK[] newTopKs(int count, int k) {
+		TopK[] tops = new TopK[count];
+		for (int i = 0; i < count; i++) {
+			tops[i] = new TopK(k);
+		}
+		return tops;
+	}
+
+	private int partitionCount(long size) {
+		return (int) Math.min(threads * 2L, Math.max(1L, size / minPartitionSize));
+	}
+
+	private static <T> List<T> collect(List<Future<T>> futures) throws InterruptedException {
+		List<T> results = new ArrayList<>(futures.size());
+		try {
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			Throwable cause = e.getCause();
+			throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			futures.forEach(future -> future.cancel(true));
+			throw e;
+		}
+	}
+}
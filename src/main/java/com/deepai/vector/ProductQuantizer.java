@@ -0,0 +1,146 @@
+package com.deepai.vector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Product quantizer: the vector is split into equal sub-vectors and each one is replaced by the index of its
+ * nearest centroid in a per-subspace k-means codebook, giving one byte per subspace.
+ */
+public final class ProductQuantizer implements VectorQuantizer {
+
+	private static final int MAX_CENTROIDS = 256;
+
+	private final int dimensions;
+	private final int subspaces;
+	private final int subDimensions;
+	private final int centroids;
+	// [subspace][centroid][subDimension] flattened
+	private final float[] codebook;
+
+	private ProductQuantizer(int dimensions, int subspaces, int centroids, float[] codebook) {
+		this.dimensions = dimensions;
+		this.subspaces = subspaces;
+		this.subDimensions = dimensions / subspaces;
+		this.centroids = centroids;
+		this.codebook = codebook;
+	}
+
+	/**
+	 * Trains one k-means codebook per subspace. {@code requestedSubspaces} is lowered to the nearest divisor
+	 * of the dimension count.
+	 */
+	public static ProductQuantizer train(float[][] sample, int requestedSubspaces, int iterations, long seed) {
+		int dims = sample[0].length;
+		int subspaces = subspaceCount(dims, requestedSubspaces);
+		int subDims = dims / subspaces;
+		int centroids = Math.min(MAX_CENTROIDS, sample.length);
+		float[] codebook = new float[subspaces * centroids * subDims];
+
+		float[][] slice = new float[sample.length][subDims];
+		for (int s = 0; s < subspaces; s++) {
+			for (int i = 0; i < sample.length; i++) {
+				System.arraycopy(sample[i], s * subDims, slice[i], 0, subDims);
+			}
+			float[][] trained = KMeans.train(slice, centroids, iterations, seed + s);
+			for (int c = 0; c < centroids; c++) {
+				System.arraycopy(trained[c], 0, codebook, (s * centroids + c) * subDims, subDims);
+			}
+		}
+		return new ProductQuantizer(dims, subspaces, centroids, codebook);
+	}
+
+	static ProductQuantizer read(ByteBuffer source, int dimensions) {
+		int subspaces = source.getInt();
+		int centroids = source.getInt();
+		float[] codebook = new float[subspaces * centroids * (dimensions / subspaces)];
+		source.asFloatBuffer().get(codebook);
+		source.position(source.position() + codebook.length * Float.BYTES);
+		return new ProductQuantizer(dimensions, subspaces, centroids, codebook);
+	}
+
+	static int subspaceCount(int dimensions, int requested) {
+		int subspaces = Math.max(1, Math.min(requested, dimensions));
+		while (dimensions % subspaces != 0) {
+			subspaces--;
+		}
+		return subspaces;
+	}
+
+	@Override
+	public Type type() {
+		return Type.PQ;
+	}
+
+	@Override
+	public int dimensions() {
+		return dimensions;
+	}
+
+	@Override
+	public int codeSize() {
+		return subspaces;
+	}
+
+	public int subspaces() {
+		return subspaces;
+	}
+
+	@Override
+	public void encode(float[] vector, byte[] code) {
+		for (int s = 0; s < subspaces; s++) {
+			int offset = s * subDimensions;
+			int best = 0;
+			float bestDistance = Float.MAX_VALUE;
+			for (int c = 0; c < centroids; c++) {
+				int base = (s * centroids + c) * subDimensions;
+				float distance = 0f;
+				for (int d = 0; d < subDimensions; d++) {
+					float diff = vector[offset + d] - codebook[base + d];
+					distance += diff * diff;
+				}
+				if (distance < bestDistance) {
+					bestDistance = distance;
+					best = c;
+				}
+			}
+			code[s] = (byte) best;
+		}
+	}
+
+	@Override
+	public CodeScorer scorer(float[] query) {
+		// One lookup table of query . centroid per subspace, then each code costs `subspaces` table reads
+		float[] table = new float[subspaces * centroids];
+		for (int s = 0; s < subspaces; s++) {
+			int offset = s * subDimensions;
+			for (int c = 0; c < centroids; c++) {
+				int base = (s * centroids + c) * subDimensions;
+				float dot = 0f;
+				for (int d = 0; d < subDimensions; d++) {
+					dot += query[offset + d] * codebook[base + d];
+				}
+				table[s * centroids + c] = dot;
+			}
+		}
+		return (codes, offset) -> {
+			float sum = 0f;
+			for (int s = 0; s < subspaces; s++) {
+				sum += table[s * centroids + (codes.get(offset + s) & 0xFF)];
+			}
+			return sum;
+		};
+	}
+
+	@Override
+	public int codebookBytes() {
+		return 2 * Integer.BYTES + codebook.length * Float.BYTES;
+	}
+
+	@Override
+	public void writeCodebook(ByteBuffer target) {
+		target.putInt(subspaces).putInt(centroids);
+		for (float value : codebook) {
+			target.putFloat(value);
+		}
+	}
+}
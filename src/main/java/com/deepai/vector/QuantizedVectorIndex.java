@@ -0,0 +1,285 @@
+package com.deepai.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Flat index over quantized codes of a {@link MappedVectorStore}. Queries scan the compact codes, keep the
+ * best {@code k * rerankFactor} candidates and, when re-ranking is enabled, rescore those exactly against the
+ * float32 rows so only a handful of full vectors are touched per query.
+ *
+ * <p>File layout (little-endian): a fixed header, the trained codebook, then {@code count} codes of
+ * {@code codeSize} bytes in store ordinal order. The header records the source store's creation time so a
+ * codes file is never paired with a rebuilt store.
+ */
+public final class QuantizedVectorIndex implements VectorSearchIndex, Closeable {
+
+	static final int MAGIC = 0x51564543; // "QVEC"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+
+	private static final int DEFAULT_TRAINING_SAMPLE = 20_000;
+	private static final int KMEANS_ITERATIONS = 15;
+	private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedVectorStore store;
+	private final VectorQuantizer quantizer;
+	private final SimilarityMetric metric;
+	private final int rerankFactor;
+	private final int count;
+	private final int codeSize;
+	private final ByteBuffer codes;
+
+	private QuantizedVectorIndex(Path path, MappedVectorStore store) throws IOException {
+		this.path = path;
+		this.store = store;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(header, 0);
+			header.flip();
+			if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+				throw new IOException("Not a quantized index file: " + path);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported quantized index version " + version + " in " + path);
+			}
+			VectorQuantizer.Type type = VectorQuantizer.Type.fromId(header.getInt());
+			int dims = header.getInt();
+			this.count = header.getInt();
+			this.codeSize = header.getInt();
+			this.metric = SimilarityMetric.values()[header.getInt()];
+			this.rerankFactor = header.getInt();
+			long sourceCreatedAt = header.getLong();
+			long codesPosition = header.getLong();
+			if (sourceCreatedAt != store.createdAt() || count != store.size() || dims != store.dimensions()) {
+				throw new IOException("Quantized index " + path + " does not match vector store " + store.path());
+			}
+
+			ByteBuffer codebook = ByteBuffer.allocate((int) (codesPosition - HEADER_BYTES))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			while (codebook.hasRemaining() && channel.read(codebook, HEADER_BYTES + codebook.position()) >= 0) {
+				// read until the codebook is complete
+			}
+			codebook.flip();
+			this.quantizer = type == VectorQuantizer.Type.INT8 ? ScalarQuantizer.read(codebook, dims)
+					: ProductQuantizer.read(codebook, dims);
+
+			long codesBytes = (long) count * codeSize;
+			if (codesBytes > Integer.MAX_VALUE) {
+				throw new IOException("Quantized codes exceed 2 GiB in " + path);
+			}
+			this.codes = channel.map(FileChannel.MapMode.READ_ONLY, codesPosition, codesBytes);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens a codes file written for {@code store}; fails if it was built from a different store generation.
+	 */
+	public static QuantizedVectorIndex open(Path path, MappedVectorStore store) throws IOException {
+		return new QuantizedVectorIndex(path, store);
+	}
+
+	/**
+	 * Trains a quantizer on a sample of {@code store}, encodes every row into {@code target} and opens it.
+	 *
+	 * @param subspaces    PQ subspace count (bytes per code); ignored for int8
+	 * @param rerankFactor candidates per requested hit to rescore exactly; 0 disables re-ranking
+	 */
+	public static QuantizedVectorIndex build(MappedVectorStore store, Path target, VectorQuantizer.Type type,
+			SimilarityMetric metric, int subspaces, int rerankFactor, int trainingSample) throws IOException {
+		if (store.size() == 0) {
+			throw new IllegalStateException("Vector store " + store.path() + " is empty");
+		}
+		float[][] sample = sample(store, trainingSample > 0 ? trainingSample : DEFAULT_TRAINING_SAMPLE);
+		VectorQuantizer quantizer = type == VectorQuantizer.Type.INT8 ? ScalarQuantizer.train(sample)
+				: ProductQuantizer.train(sample, subspaces, KMEANS_ITERATIONS, 42L);
+		write(store, target, quantizer, metric, Math.max(0, rerankFactor));
+		return open(target, store);
+	}
+
+	@Override
+	public String type() {
+		return quantizer.type().label();
+	}
+
+	@Override
+	public int dimensions() {
+		return store.dimensions();
+	}
+
+	@Override
+	public SimilarityMetric metric() {
+		return metric;
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	public int codeSize() {
+		return codeSize;
+	}
+
+	public int rerankFactor() {
+		return rerankFactor;
+	}
+
+	/**
+	 * Bytes of a float32 row divided by bytes of its code.
+	 */
+	public double compressionRatio() {
+		return (double) store.dimensions() * Float.BYTES / codeSize;
+	}
+
+	public Path path() {
+		return path;
+	}
+
+	@Override
+	public List<VectorHit> search(float[] query, int k, BitSet allowed) {
+		return search(query, k, allowed, rerankFactor > 0);
+	}
+
+	/**
+	 * Top-k over the codes, optionally re-ranking the best {@code k * rerankFactor} candidates exactly.
+	 */
+	public List<VectorHit> search(float[] query, int k, boolean rerank) {
+		return search(query, k, null, rerank);
+	}
+
+	/**
+	 * Top-k over the codes of the allowed ordinals (all when {@code allowed} is null), optionally re-ranking
+	 * the best {@code k * rerankFactor} candidates exactly.
+	 */
+	public List<VectorHit> search(float[] query, int k, BitSet allowed, boolean rerank) {
+		if (query == null || query.length != store.dimensions() || k <= 0) {
+			return List.of();
+		}
+		double queryNorm = VectorMath.norm(query);
+		VectorQuantizer.CodeScorer scorer = quantizer.scorer(query);
+		TopK candidates = new TopK(rerank ? k * Math.max(1, rerankFactor) : k);
+		for (int ordinal = allowed == null ? 0 : allowed.nextSetBit(0); ordinal >= 0 && ordinal < count;
+				ordinal = allowed == null ? ordinal + 1 : allowed.nextSetBit(ordinal + 1)) {
+			float dot = scorer.dot(codes, ordinal * codeSize);
+			candidates.offer(ordinal, metric.score(dot, queryNorm, store.norm(ordinal)));
+		}
+		if (!rerank) {
+			return candidates.toHits(store::id);
+		}
+		TopK reranked = new TopK(k);
+		for (VectorHit candidate : candidates.toHits(ordinal -> null)) {
+			reranked.offer(candidate.ordinal(), store.score(candidate.ordinal(), query, queryNorm, metric));
+		}
+		return reranked.toHits(store::id);
+	}
+
+	@Override
+	public int ordinal(Object id) {
+		return store.ordinal(id);
+	}
+
+	/**
+	 * Fraction of exact top-k neighbours found, averaged over {@code samples} stored rows used as queries.
+	 */
+	public double measureRecall(int samples, int k) {
+		if (count == 0 || samples <= 0) {
+			return 1.0;
+		}
+		Random random = new Random(7);
+		float[] query = new float[store.dimensions()];
+		int found = 0;
+		int expected = 0;
+		for (int i = 0; i < samples; i++) {
+			store.read(random.nextInt(count), query);
+			List<VectorHit> exact = store.search(query, k, metric);
+			List<Integer> approximate = search(query, k).stream().map(VectorHit::ordinal).toList();
+			for (VectorHit hit : exact) {
+				if (approximate.contains(hit.ordinal())) {
+					found++;
+				}
+			}
+			expected += exact.size();
+		}
+		return expected == 0 ? 1.0 : (double) found / expected;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static float[][] sample(MappedVectorStore store, int size) {
+		int count = store.size();
+		int sampleSize = Math.min(count, size);
+		float[][] sample = new float[sampleSize][store.dimensions()];
+		// Evenly strided rows keep the sample spread across the whole collection
+		double stride = (double) count / sampleSize;
+		for (int i = 0; i < sampleSize; i++) {
+			store.read((int) (i * stride), sample[i]);
+		}
+		return sample;
+	}
+
+	private static void write(MappedVectorStore store, Path target, VectorQuantizer quantizer,
+			SimilarityMetric metric, int rerankFactor) throws IOException {
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		long codesPosition = HEADER_BYTES + quantizer.codebookBytes();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer head = ByteBuffer.allocate((int) codesPosition).order(ByteOrder.LITTLE_ENDIAN);
+			head.putInt(MAGIC).putInt(VERSION).putInt(quantizer.type().id()).putInt(store.dimensions())
+					.putInt(store.size()).putInt(quantizer.codeSize()).putInt(metric.ordinal()).putInt(rerankFactor)
+					.putLong(store.createdAt()).putLong(codesPosition);
+			head.position(HEADER_BYTES);
+			quantizer.writeCodebook(head);
+			head.flip();
+			writeFully(out, head);
+
+			float[] row = new float[store.dimensions()];
+			byte[] code = new byte[quantizer.codeSize()];
+			ByteBuffer buffer = ByteBuffer.allocate(Math.max(WRITE_BUFFER_BYTES, code.length));
+			for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+				store.read(ordinal, row);
+				quantizer.encode(row, code);
+				if (buffer.remaining() < code.length) {
+					buffer.flip();
+					writeFully(out, buffer);
+					buffer.clear();
+				}
+				buffer.put(code);
+			}
+			buffer.flip();
+			writeFully(out, buffer);
+			out.force(true);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
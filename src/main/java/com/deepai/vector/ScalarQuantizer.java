@@ -0,0 +1,105 @@
+package com.deepai.vector;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * int8 scalar quantizer: each dimension is mapped linearly onto 256 levels between the per-dimension minimum
+ * and maximum of the training sample (4x smaller than float32).
+ */
+public final class ScalarQuantizer implements VectorQuantizer {
+
+	private final float[] minimums;
+	private final float[] steps;
+
+	private ScalarQuantizer(float[] minimums, float[] steps) {
+		this.minimums = minimums;
+		this.steps = steps;
+	}
+
+	public static ScalarQuantizer train(float[][] sample) {
+		int dims = sample[0].length;
+		float[] minimums = new float[dims];
+		float[] maximums = new float[dims];
+		Arrays.fill(minimums, Float.MAX_VALUE);
+		Arrays.fill(maximums, -Float.MAX_VALUE);
+		for (float[] vector : sample) {
+			for (int d = 0; d < dims; d++) {
+				minimums[d] = Math.min(minimums[d], vector[d]);
+				maximums[d] = Math.max(maximums[d], vector[d]);
+			}
+		}
+		float[] steps = new float[dims];
+		for (int d = 0; d < dims; d++) {
+			steps[d] = (maximums[d] - minimums[d]) / 255f;
+		}
+		return new ScalarQuantizer(minimums, steps);
+	}
+
+	static ScalarQuantizer read(ByteBuffer source, int dimensions) {
+		float[] minimums = new float[dimensions];
+		float[] steps = new float[dimensions];
+		source.asFloatBuffer().get(minimums);
+		source.position(source.position() + dimensions * Float.BYTES);
+		source.asFloatBuffer().get(steps);
+		source.position(source.position() + dimensions * Float.BYTES);
+		return new ScalarQuantizer(minimums, steps);
+	}
+
+	@Override
+	public Type type() {
+		return Type.INT8;
+	}
+
+	@Override
+	public int dimensions() {
+		return minimums.length;
+	}
+
+	@Override
+	public int codeSize() {
+		return minimums.length;
+	}
+
+	@Override
+	public void encode(float[] vector, byte[] code) {
+		for (int d = 0; d < minimums.length; d++) {
+			int level = steps[d] == 0f ? 0 : Math.round((vector[d] - minimums[d]) / steps[d]);
+			code[d] = (byte) Math.max(0, Math.min(255, level));
+		}
+	}
+
+	@Override
+	public CodeScorer scorer(float[] query) {
+		// q . (min + step * c) = q . min + sum((q * step) * c)
+		float[] weights = new float[query.length];
+		float bias = 0f;
+		for (int d = 0; d < query.length; d++) {
+			weights[d] = query[d] * steps[d];
+			bias += query[d] * minimums[d];
+		}
+		float constant = bias;
+		return (codes, offset) -> {
+			float sum = constant;
+			for (int d = 0; d < weights.length; d++) {
+				sum += weights[d] * (codes.get(offset + d) & 0xFF);
+			}
+			return sum;
+		};
+	}
+
+	@Override
+	public int codebookBytes() {
+		return 2 * minimums.length * Float.BYTES;
+	}
+
+	@Override
+	public void writeCodebook(ByteBuffer target) {
+		for (float minimum : minimums) {
+			target.putFloat(minimum);
+		}
+		for (float step : steps) {
+			target.putFloat(step);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.deepai.vector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Portable fallback kernel. Loops are unrolled by four so the JIT can keep independent accumulators in flight.
+ */
+final class ScalarVectorKernel implements VectorKernel {
+
+	@Override
+	public float dot(float[] a, float[] b) {
+		int length = a.length;
+		int i = 0;
+		float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+		for (; i + 3 < length; i += 4) {
+			s0 += a[i] * b[i];
+			s1 += a[i + 1] * b[i + 1];
+			s2 += a[i + 2] * b[i + 2];
+			s3 += a[i + 3] * b[i + 3];
+		}
+		for (; i < length; i++) {
+			s0 += a[i] * b[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	@Override
+	public float squaredDistance(float[] a, float[] b) {
+		int length = a.length;
+		int i = 0;
+		float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+		for (; i + 3 < length; i += 4) {
+			float d0 = a[i] - b[i];
+			float d1 = a[i + 1] - b[i + 1];
+			float d2 = a[i + 2] - b[i + 2];
+			float d3 = a[i + 3] - b[i + 3];
+			s0 += d0 * d0;
+			s1 += d1 * d1;
+			s2 += d2 * d2;
+			s3 += d3 * d3;
+		}
+		for (; i < length; i++) {
+			float d = a[i] - b[i];
+			s0 += d * d;
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	@Override
+	public float dot(ByteBuffer rows, int byteOffset, float[] query) {
+		int length = query.length;
+		int i = 0;
+		float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+		for (; i + 3 < length; i += 4) {
+			int offset = byteOffset + i * Float.BYTES;
+			s0 += query[i] * rows.getFloat(offset);
+			s1 += query[i + 1] * rows.getFloat(offset + 4);
+			s2 += query[i + 2] * rows.getFloat(offset + 8);
+			s3 += query[i + 3] * rows.getFloat(offset + 12);
+		}
+		for (; i < length; i++) {
+			s0 += query[i] * rows.getFloat(byteOffset + i * Float.BYTES);
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	@Override
+	public void dotMany(ByteBuffer rows, int byteOffset, float[][] queries, float[] out) {
+		int q = 0;
+		for (; q + 3 < queries.length; q += 4) {
+			float[] a = queries[q];
+			float[] b = queries[q + 1];
+			float[] c = queries[q + 2];
+			float[] d = queries[q + 3];
+			float sumA = 0f, sumB = 0f, sumC = 0f, sumD = 0f;
+			for (int i = 0; i < a.length; i++) {
+				float value = rows.getFloat(byteOffset + i * Float.BYTES);
+				sumA += a[i] * value;
+				sumB += b[i] * value;
+				sumC += c[i] * value;
+				sumD += d[i] * value;
+			}
+			out[q] = sumA;
+			out[q + 1] = sumB;
+			out[q + 2] = sumC;
+			out[q + 3] = sumD;
+		}
+		for (; q < queries.length; q++) {
+			out[q] = dot(rows, byteOffset, queries[q]);
+		}
+	}
+
+	@Override
+	public String name() {
+		return "scalar";
+	}
+}
@@ -0,0 +1,55 @@
+package com.deepai.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded min-heap of scored items. Holds at most {@code capacity} items, so streaming a cursor through it
+ * keeps memory at O(k): an item that falls out of the heap is no longer referenced. Items sit in fixed slots;
+ * the heap orders slot numbers, and a replaced entry's slot is reused for the new item.
+ */
+public final class ScoredTopK<T> extends BoundedScoreHeap {
+
+	private final Object[] items;
+
+	public ScoredTopK(int capacity) {
+		super(capacity);
+		this.items = new Object[this.capacity];
+	}
+
+	/**
+	 * Offers an item; returns true if it was kept.
+	 */
+	public boolean offer(T item, double score) {
+		if (size < capacity) {
+			items[size] = item;
+			push(size, score);
+			return true;
+		}
+		if (score <= scores[0]) {
+			return false;
+		}
+		int slot = payloads[0];
+		items[slot] = item;
+		replaceTop(slot, score);
+		return true;
+	}
+
+	/**
+	 * Drains the heap into a list ordered best first.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Scored<T>> drain() {
+		Scored<T>[] sorted = new Scored[size];
+		for (int i = size - 1; i >= 0; i--) {
+			int slot = payloads[0];
+			sorted[i] = new Scored<>((T) items[slot], scores[0]);
+			items[slot] = null;
+			removeTop();
+		}
+		return new ArrayList<>(List.of(sorted));
+	}
+
+	public record Scored<T>(T item, double score) {
+	}
+}
@@ -0,0 +1,58 @@
+package com.deepai.vector;
+
+/**
+ * Similarity metrics supported by the local vector indexes. Every metric is expressed so that a higher score
+ * means a closer match; euclidean distance is reported as {@code 1 / (1 + distance)}.
+ */
+public enum SimilarityMetric {
+
+	COSINE, DOT_PRODUCT, EUCLIDEAN;
+
+	/**
+	 * Parses the {@code similarity} tool parameter. Empty values mean cosine; unknown names are rejected.
+	 */
+	public static SimilarityMetric fromString(String value) {
+		if (value == null || value.isBlank()) {
+			return COSINE;
+		}
+		return switch (value.trim().toLowerCase().replace("_", "")) {
+		case "cosine" -> COSINE;
+		case "dot", "dotproduct", "innerproduct", "ip" -> DOT_PRODUCT;
+		case "euclidean", "l2" -> EUCLIDEAN;
+		default -> throw new IllegalArgumentException(
+				"Unknown similarity '" + value + "', expected cosine, dotProduct or euclidean");
+		};
+	}
+
+	/**
+	 * Scores a candidate from its dot product with the query and the two precomputed L2 norms.
+	 */
+	public double score(double dot, double queryNorm, double vectorNorm) {
+		return switch (this) {
+		case COSINE -> queryNorm == 0.0 || vectorNorm == 0.0 ? 0.0 : dot / (queryNorm * vectorNorm);
+		case DOT_PRODUCT -> dot;
+		case EUCLIDEAN -> 1.0 / (1.0 + Math.sqrt(
+				Math.max(0.0, queryNorm * queryNorm + vectorNorm * vectorNorm - 2.0 * dot)));
+		};
+	}
+
+	/**
+	 * Scores two heap vectors; {@code queryNorm} is the precomputed L2 norm of {@code query}.
+	 */
+	public double score(float[] query, double queryNorm, float[] vector) {
+		VectorKernel kernel = VectorKernels.get();
+		return switch (this) {
+		case COSINE -> score(kernel.dot(query, vector), queryNorm, Math.sqrt(kernel.dot(vector, vector)));
+		case DOT_PRODUCT -> kernel.dot(query, vector);
+		case EUCLIDEAN -> 1.0 / (1.0 + Math.sqrt(kernel.squaredDistance(query, vector)));
+		};
+	}
+
+	public String atlasName() {
+		return switch (this) {
+		case COSINE -> "cosine";
+		case DOT_PRODUCT -> "dotProduct";
+		case EUCLIDEAN -> "euclidean";
+		};
+	}
+}
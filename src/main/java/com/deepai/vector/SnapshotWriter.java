@@ -0,0 +1,104 @@
+package com.deepai.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered little-endian writer for index snapshot files. Output goes to a temporary sibling that replaces
+ * the target atomically on {@link #commit()}; closing without committing discards it.
+ */
+final class SnapshotWriter implements Closeable {
+
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private final Path target;
+	private final Path temp;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	private long position;
+	private boolean committed;
+
+	private SnapshotWriter(Path target) throws IOException {
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		this.target = target;
+		this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+		this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+	}
+
+	static SnapshotWriter create(Path target) throws IOException {
+		return new SnapshotWriter(target);
+	}
+
+	SnapshotWriter putInt(int value) throws IOException {
+		ensure(Integer.BYTES);
+		buffer.putInt(value);
+		position += Integer.BYTES;
+		return this;
+	}
+
+	SnapshotWriter putLong(long value) throws IOException {
+		ensure(Long.BYTES);
+		buffer.putLong(value);
+		position += Long.BYTES;
+		return this;
+	}
+
+	SnapshotWriter putFloats(float[] values) throws IOException {
+		for (float value : values) {
+			ensure(Float.BYTES);
+			buffer.putFloat(value);
+		}
+		position += (long) values.length * Float.BYTES;
+		return this;
+	}
+
+	/**
+	 * Zero-fills up to {@code offset}, e.g. the end of a fixed-size header.
+	 */
+	SnapshotWriter padTo(long offset) throws IOException {
+		while (position < offset) {
+			ensure(1);
+			buffer.put((byte) 0);
+			position++;
+		}
+		return this;
+	}
+
+	void commit() throws IOException {
+		flush();
+		channel.force(true);
+		channel.close();
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		committed = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!committed) {
+			channel.close();
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,56 @@
+package com.deepai.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded min-heap of (ordinal, score) pairs on primitive arrays. Keeps the {@code capacity} highest scores
+ * seen so far without allocating per offer.
+ */
+public final class TopK extends BoundedScoreHeap {
+
+	public TopK(int capacity) {
+		super(capacity);
+	}
+
+	/**
+	 * Offers a candidate; returns true if it was kept.
+	 */
+	public boolean offer(int ordinal, double score) {
+		if (size < capacity) {
+			push(ordinal, score);
+			return true;
+		}
+		if (score <= scores[0]) {
+			return false;
+		}
+		replaceTop(ordinal, score);
+		return true;
+	}
+
+	/**
+	 * Lowest score currently kept, or negative infinity while the heap is not full.
+	 */
+	public double threshold() {
+		return size < capacity ? Double.NEGATIVE_INFINITY : scores[0];
+	}
+
+	/**
+	 * Drains the heap into hits ordered best first, resolving ids through {@code idLookup}.
+	 */
+	public List<VectorHit> toHits(IntFunction<Object> idLookup) {
+		int[] sortedOrdinals = new int[size];
+		double[] sortedScores = new double[size];
+		for (int i = size - 1; i >= 0; i--) {
+			sortedOrdinals[i] = payloads[0];
+			sortedScores[i] = scores[0];
+			removeTop();
+		}
+		List<VectorHit> hits = new ArrayList<>(sortedOrdinals.length);
+		for (int i = 0; i < sortedOrdinals.length; i++) {
+			hits.add(new VectorHit(sortedOrdinals[i], idLookup.apply(sortedOrdinals[i]), sortedScores[i]));
+		}
+		return hits;
+	}
+}
@@ -0,0 +1,234 @@
+package com.deepai.vector;
+
+import com.deepai.service.MongoServiceClient;
+import com.deepai.support.BsonIds;
+import com.deepai.support.ChangeStreamWatcher;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps live vector indexes in step with their collections. One change stream per indexed field feeds
+ * inserts, updates and deletes of the vector field to the index in micro-batches of up to
+ * {@code mcp.vector.live-updates.batch-size} events or {@code max-wait-ms} milliseconds, whichever comes
+ * first. A watcher starts from the resume token recorded before its index's store was scanned, so the writes
+ * made since then are replayed first. Later positions are persisted when the index is compacted into a new
+ * store, which records the position its contents were read at.
+ *
+ * <p>Change streams need a replica set or sharded cluster. On a standalone server the watcher stops with an
+ * "unavailable" status and the index keeps serving the snapshot it was built from.
+ */
+@Component
+public class VectorChangeStreamUpdater {
+
+	private static final Logger logger = LoggerFactory.getLogger(VectorChangeStreamUpdater.class);
+
+	private final MongoClient mongoClient;
+	private final boolean enabled;
+	private final int batchSize;
+	private final long maxWaitMillis;
+	private final Map<VectorIndexKey, Watcher> watchers = new ConcurrentHashMap<>();
+
+	public VectorChangeStreamUpdater(MongoServiceClient mongoServiceClient,
+			@Value("${mcp.vector.live-updates.enabled:true}") boolean enabled,
+			@Value("${mcp.vector.live-updates.batch-size:256}") int batchSize,
+			@Value("${mcp.vector.live-updates.max-wait-ms:200}") long maxWaitMillis) {
+		this.mongoClient = mongoServiceClient.getMongoClient();
+		this.enabled = enabled;
+		this.batchSize = Math.max(1, batchSize);
+		this.maxWaitMillis = Math.max(1, maxWaitMillis);
+	}
+
+	/**
+	 * Whether watchers are started at all; without them a persisted index cannot replay missed writes.
+	 */
+	public boolean enabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts applying the field's writes to {@code index}, replacing any watcher already running for the key.
+	 * The stream resumes after {@code resumeAfter} when given, otherwise starts now.
+	 *
+	 * @param onApplied     called on the watcher thread after each batch that changed the index
+	 * @param onInvalidated called once if the stream can no longer account for every write, e.g. after the
+	 *                      collection was dropped or the resume point fell off the oplog
+	 */
+	public void watch(VectorIndexKey key, LiveVectorIndex index, BsonDocument resumeAfter, Runnable onApplied,
+			Runnable onInvalidated) {
+		if (!enabled) {
+			return;
+		}
+		Watcher watcher = new Watcher(key, index, onApplied, onInvalidated);
+		Watcher previous = watchers.put(key, watcher);
+		if (previous != null) {
+			previous.stream.stop();
+		}
+		watcher.stream.start(resumeAfter, null);
+	}
+
+	public void stop(VectorIndexKey key) {
+		Watcher watcher = watchers.remove(key);
+		if (watcher != null) {
+			watcher.stream.stop();
+		}
+	}
+
+	/**
+	 * Stream position after the last batch applied to {@code index}, if its watcher is running and has one.
+	 * Every write up to that position is reflected in the index.
+	 */
+	public Optional<BsonDocument> resumeToken(VectorIndexKey key, LiveVectorIndex index) {
+		Watcher watcher = watchers.get(key);
+		return watcher != null && watcher.index == index ? Optional.ofNullable(watcher.stream.resumeToken())
+				: Optional.empty();
+	}
+
+	/**
+	 * Human-readable state of the key's watcher, e.g. {@code watching} or {@code unavailable: ...}.
+	 */
+	public String status(VectorIndexKey key) {
+		if (!enabled) {
+			return "disabled";
+		}
+		Watcher watcher = watchers.get(key);
+		return watcher != null ? watcher.stream.status() : "not watching";
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		watchers.values().forEach(watcher -> watcher.stream.stop());
+		watchers.clear();
+	}
+
+	private final class Watcher implements ChangeStreamWatcher.Listener {
+
+		private final VectorIndexKey key;
+		private final LiveVectorIndex index;
+		private final Runnable onApplied;
+		private final Runnable onInvalidated;
+		private final ChangeStreamWatcher stream;
+
+		private Watcher(VectorIndexKey key, LiveVectorIndex index, Runnable onApplied, Runnable onInvalidated) {
+			this.key = key;
+			this.index = index;
+			this.onApplied = onApplied;
+			this.onInvalidated = onInvalidated;
+			MongoCollection<Document> collection = mongoClient.getDatabase(key.database())
+					.getCollection(key.collection());
+			this.stream = new ChangeStreamWatcher("vector-changes-" + key,
+					() -> collection.watch().fullDocument(FullDocument.UPDATE_LOOKUP), batchSize, maxWaitMillis, this);
+		}
+
+		/**
+		 * Collapses the batch per document and applies it to the index.
+		 */
+		@Override
+		public void apply(List<ChangeStreamDocument<Document>> events) {
+			Map<Object, float[]> upserts = new LinkedHashMap<>();
+			Set<Object> deletes = new HashSet<>();
+			int applied = 0;
+			for (ChangeStreamDocument<Document> event : events) {
+				if (collect(event, upserts, deletes)) {
+					applied++;
+				}
+			}
+			if (applied > 0) {
+				index.apply(upserts, deletes);
+				logger.debug("Applied {} vector changes to {} ({} in delta)", applied, key, index.deltaSize());
+				if (onApplied != null) {
+					onApplied.run();
+				}
+			}
+		}
+
+		@Override
+		public void invalidated(String reason) {
+			logger.warn("Live updates for {} stopped, {}; dropping the local index until it is rebuilt", key, reason);
+			watchers.remove(key, this);
+			if (onInvalidated != null) {
+				onInvalidated.run();
+			}
+		}
+
+		@Override
+		public void unavailable(String reason) {
+			logger.info("Live updates for {} {}; index serves its build snapshot", key, reason);
+		}
+
+		/**
+		 * Folds one event into the batch, last write per document winning. Returns false for events that do
+		 * not touch the vector field.
+		 */
+		private boolean collect(ChangeStreamDocument<Document> event, Map<Object, float[]> upserts,
+				Set<Object> deletes) {
+			BsonDocument documentKey = event.getDocumentKey();
+			if (documentKey == null || !documentKey.containsKey("_id")) {
+				return false;
+			}
+			Object id = BsonIds.toJavaValue(documentKey.get("_id"));
+			switch (event.getOperationType()) {
+			case DELETE -> {
+				upserts.remove(id);
+				deletes.add(id);
+				return true;
+			}
+			case UPDATE -> {
+				if (!touchesField(event.getUpdateDescription())) {
+					return false;
+				}
+			}
+			case INSERT, REPLACE -> {
+				// handled below
+			}
+			default -> {
+				return false;
+			}
+			}
+			Document document = event.getFullDocument();
+			deletes.remove(id);
+			// A missing document means it was deleted before the lookup; a missing field removes it too
+			upserts.put(id, document != null ? VectorMath.toFloatArray(document.get(key.field())) : null);
+			return true;
+		}
+
+		private boolean touchesField(UpdateDescription description) {
+			if (description == null) {
+				return true;
+			}
+			String field = key.field();
+			if (description.getRemovedFields() != null
+					&& description.getRemovedFields().stream().anyMatch(path -> overlaps(path, field))) {
+				return true;
+			}
+			if (description.getTruncatedArrays() != null && description.getTruncatedArrays().stream()
+					.anyMatch(array -> overlaps(array.getField(), field))) {
+				return true;
+			}
+			BsonDocument updated = description.getUpdatedFields();
+			return updated != null && updated.keySet().stream().anyMatch(path -> overlaps(path, field));
+		}
+
+		private boolean overlaps(String path, String field) {
+			return path.equals(field) || path.startsWith(field + ".") || field.startsWith(path + ".");
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package com.deepai.vector;
+
+/**
+ * A single vector search result: the local vector ordinal, the document {@code _id} and its similarity score.
+ */
+public record VectorHit(int ordinal, Object id, double score) {
+}
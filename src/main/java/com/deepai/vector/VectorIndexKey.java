@@ -0,0 +1,16 @@
+package com.deepai.vector;
+
+/**
+ * Identifies a local vector index by database, collection and vector field.
+ */
+public record VectorIndexKey(String database, String collection, String field) {
+
+	public String namespace() {
+		return database + "." + collection;
+	}
+
+	@Override
+	public String toString() {
+		return namespace() + ":" + field;
+	}
+}
@@ -0,0 +1,438 @@
+package com.deepai.vector;
+
+import com.deepai.support.DeferredCloser;
+import org.bson.BsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Registry of in-process vector indexes, one per (database, collection, vector field).
+ * Indexes are built on demand over the field's vector store and then serve vectorSearch queries locally.
+ * Quantized indexes, and snapshots of HNSW and IVF indexes, are persisted next to the field's vector store and
+ * reopened lazily after a restart, so the first search after launch does not wait for a rebuild.
+ * Every registered index is wrapped in a {@link LiveVectorIndex} that the change-stream updater keeps current,
+ * starting from the resume token recorded before its store was scanned. A reopened snapshot is validated by
+ * that replay: if the stream can no longer resume from the token, the snapshot and its store are discarded.
+ * Without a token, or with live updates disabled, a snapshot is only reopened while its store is current.
+ * Once a live index's delta holds {@code mcp.vector.compaction.max-delta-rows} rows, deleted ones included, or
+ * {@code max-masked-fraction} of its base rows are masked, it is compacted in the background: its rows are
+ * written to a new store generation together with the stream position they reflect, an index of the same type
+ * and parameters is built over it, swapped in and snapshotted, so replay after a restart starts there.
+ * Each registered index holds a reference on the store it was built over; a replaced or dropped index
+ * releases it, and file-backed indexes are closed after {@code mcp.vector.retire-grace-ms}.
+ */
+@Component
+public class VectorIndexManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(VectorIndexManager.class);
+
+	private final VectorStoreManager vectorStoreManager;
+	private final VectorChangeStreamUpdater changeStreamUpdater;
+	private final Map<VectorIndexKey, VectorSearchIndex> indexes = new ConcurrentHashMap<>();
+	// The store each registered index was built over, whose reference it holds
+	private final Map<VectorSearchIndex, MappedVectorStore> storesByIndex = new ConcurrentHashMap<>();
+	// Replaced file-backed indexes may still be read by in-flight searches
+	private final DeferredCloser retired;
+	private final int defaultM;
+	private final int defaultEfConstruction;
+	private final int defaultEfSearch;
+	private final int defaultNprobe;
+	private final boolean snapshotsEnabled;
+	private final int compactionMaxDeltaRows;
+	private final double compactionMaxMaskedFraction;
+	private final ForkJoinPool trainingPool;
+	private final ExecutorService compactor;
+	private final Set<VectorIndexKey> compacting = ConcurrentHashMap.newKeySet();
+
+	public VectorIndexManager(VectorStoreManager vectorStoreManager,
+			VectorChangeStreamUpdater changeStreamUpdater,
+			@Value("${mcp.vector.hnsw.m:16}") int defaultM,
+			@Value("${mcp.vector.hnsw.ef-construction:200}") int defaultEfConstruction,
+			@Value("${mcp.vector.hnsw.ef-search:64}") int defaultEfSearch,
+			@Value("${mcp.vector.ivf.nprobe:8}") int defaultNprobe,
+			@Value("${mcp.vector.ivf.training-threads:0}") int trainingThreads,
+			@Value("${mcp.vector.snapshots.enabled:true}") boolean snapshotsEnabled,
+			@Value("${mcp.vector.retire-grace-ms:60000}") long retireGraceMillis,
+			@Value("${mcp.vector.compaction.max-delta-rows:10000}") int compactionMaxDeltaRows,
+			@Value("${mcp.vector.compaction.max-masked-fraction:0.2}") double compactionMaxMaskedFraction) {
+		this.vectorStoreManager = vectorStoreManager;
+		this.changeStreamUpdater = changeStreamUpdater;
+		this.defaultM = defaultM;
+		this.defaultEfConstruction = defaultEfConstruction;
+		this.defaultEfSearch = defaultEfSearch;
+		this.defaultNprobe = defaultNprobe;
+		this.snapshotsEnabled = snapshotsEnabled;
+		this.compactionMaxDeltaRows = compactionMaxDeltaRows;
+		this.compactionMaxMaskedFraction = compactionMaxMaskedFraction;
+		this.trainingPool = new ForkJoinPool(
+				trainingThreads > 0 ? trainingThreads : Runtime.getRuntime().availableProcessors());
+		this.retired = new DeferredCloser("vector-index-reaper", retireGraceMillis);
+		this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "vector-index-compactor");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Builds (or rebuilds) the HNSW index for the given field over its vector store, then saves a snapshot of
+	 * the graph next to the store. A positive {@code dimensions} must match the stored vectors.
+	 */
+	public HnswIndex buildIndex(VectorIndexKey key, int dimensions, SimilarityMetric metric, Integer m,
+			Integer efConstruction, Integer efSearch) throws IOException {
+		logger.info("Building HNSW index for {}", key);
+		long start = System.currentTimeMillis();
+		MappedVectorStore store = vectorStoreManager.acquire(key);
+		HnswIndex index;
+		try {
+			if (dimensions > 0 && dimensions != store.dimensions()) {
+				throw new IllegalArgumentException("Field '" + key.field() + "' of " + key.namespace() + " holds "
+						+ store.dimensions() + "-dimensional vectors, not " + dimensions);
+			}
+			index = HnswIndex.build(store, m != null ? m : defaultM,
+					efConstruction != null ? efConstruction : defaultEfConstruction,
+					efSearch != null ? efSearch : defaultEfSearch, metric);
+		} catch (RuntimeException e) {
+			vectorStoreManager.release(store);
+			throw e;
+		}
+		register(key, index, store, vectorStoreManager.resumeToken(key, store).orElse(null));
+		logger.info("HNSW index for {} built with {} vectors ({} skipped) in {} ms", key, index.size(),
+				store.size() - index.size(), System.currentTimeMillis() - start);
+		persist(key, index, store);
+		return index;
+	}
+
+	/**
+	 * Builds (or rebuilds) an IVF index over the field's vector store. Centroids are trained with k-means on
+	 * the index's fork/join pool.
+	 *
+	 * @param lists          posting list count; null picks {@code sqrt(vectors)}
+	 * @param trainingSample rows sampled for k-means; null picks 40 per list
+	 */
+	public IvfIndex buildIvfIndex(VectorIndexKey key, SimilarityMetric metric, Integer lists, Integer nprobe,
+			Integer trainingSample) throws IOException {
+		logger.info("Building IVF index for {}", key);
+		long start = System.currentTimeMillis();
+		MappedVectorStore store = vectorStoreManager.acquire(key);
+		IvfIndex index;
+		try {
+			index = IvfIndex.build(store, metric, lists != null ? lists : 0, nprobe != null ? nprobe : defaultNprobe,
+					trainingSample != null ? trainingSample : 0, trainingPool);
+		} catch (RuntimeException e) {
+			vectorStoreManager.release(store);
+			throw e;
+		}
+		register(key, index, store, vectorStoreManager.resumeToken(key, store).orElse(null));
+		logger.info("IVF index for {} built with {} vectors in {} lists in {} ms", key, index.size(), index.lists(),
+				System.currentTimeMillis() - start);
+		persist(key, index, store);
+		return index;
+	}
+
+	/**
+	 * Builds (or rebuilds) a flat quantized index over the field's vector store and persists its codes next to
+	 * the store file.
+	 *
+	 * @param subspaces    PQ subspace count; ignored for int8
+	 * @param rerankFactor candidates per hit rescored against the float32 rows; 0 disables re-ranking
+	 */
+	public QuantizedVectorIndex buildQuantizedIndex(VectorIndexKey key, VectorQuantizer.Type type,
+			SimilarityMetric metric, int subspaces, int rerankFactor, int trainingSample) throws IOException {
+		logger.info("Building {} quantized index for {}", type.label(), key);
+		long start = System.currentTimeMillis();
+		MappedVectorStore store = vectorStoreManager.acquire(key);
+		Path target = vectorStoreManager.quantizedPath(key, store, type);
+		QuantizedVectorIndex index;
+		try {
+			index = QuantizedVectorIndex.build(store, target, type, metric, subspaces, rerankFactor, trainingSample);
+		} catch (IOException | RuntimeException e) {
+			vectorStoreManager.release(store);
+			throw e;
+		}
+		register(key, index, store, vectorStoreManager.resumeToken(key, store).orElse(null));
+		persist(key, index, store);
+		logger.info("{} quantized index for {} built with {} vectors, {} bytes per code in {} ms", type.label(), key,
+				index.size(), index.codeSize(), System.currentTimeMillis() - start);
+		return index;
+	}
+
+	/**
+	 * Returns the index built for the field, reopening a persisted quantized index or HNSW/IVF snapshot if one
+	 * matches the current vector store.
+	 */
+	public Optional<VectorSearchIndex> getIndex(VectorIndexKey key) {
+		VectorSearchIndex index = indexes.get(key);
+		if (index != null) {
+			return Optional.of(index);
+		}
+		return loadPersisted(key);
+	}
+
+	/**
+	 * State of the change stream keeping the field's index current, e.g. {@code watching}.
+	 */
+	public String liveUpdateStatus(VectorIndexKey key) {
+		return changeStreamUpdater.status(key);
+	}
+
+	public boolean dropIndex(VectorIndexKey key) {
+		changeStreamUpdater.stop(key);
+		VectorSearchIndex removed = indexes.remove(key);
+		if (removed != null) {
+			retire(removed);
+		}
+		return removed != null;
+	}
+
+	@PreDestroy
+	public synchronized void closeAll() {
+		compactor.shutdownNow();
+		trainingPool.shutdownNow();
+		indexes.keySet().forEach(changeStreamUpdater::stop);
+		List<VectorSearchIndex> open = new ArrayList<>(indexes.values());
+		indexes.clear();
+		storesByIndex.clear();
+		retired.closeAll();
+		for (VectorSearchIndex index : open) {
+			if (unwrap(index) instanceof Closeable closeable) {
+				try {
+					closeable.close();
+				} catch (IOException e) {
+					logger.warn("Failed to close {} index: {}", index.type(), e.getMessage());
+				}
+			}
+		}
+	}
+
+	private Optional<VectorSearchIndex> loadPersisted(VectorIndexKey key) {
+		try {
+			if (!vectorStoreManager.hasIndexFiles(key)) {
+				return Optional.empty();
+			}
+			synchronized (this) {
+				VectorSearchIndex existing = indexes.get(key);
+				if (existing != null) {
+					return Optional.of(existing);
+				}
+				Optional<VectorStoreManager.PersistedIndex> persisted = vectorStoreManager.persistedIndex(key);
+				if (persisted.isEmpty()) {
+					return Optional.empty();
+				}
+				VectorStoreManager.PersistedIndex snapshot = persisted.get();
+				boolean replayable = snapshot.resumeToken() != null && changeStreamUpdater.enabled();
+				if (!replayable && !vectorStoreManager.isCurrent(key, snapshot.store())) {
+					logger.info("Discarding persisted index {}: its store is stale and no change stream can replay "
+							+ "the writes since", snapshot.file());
+					vectorStoreManager.discard(key, snapshot.store());
+					vectorStoreManager.release(snapshot.store());
+					return Optional.empty();
+				}
+				long start = System.currentTimeMillis();
+				VectorSearchIndex loaded;
+				try {
+					loaded = openPersisted(snapshot.file(), snapshot.store());
+				} catch (IOException | RuntimeException e) {
+					vectorStoreManager.release(snapshot.store());
+					throw e;
+				}
+				// Writes made since the store was scanned, including while the process was down, are replayed
+				LiveVectorIndex live = register(key, loaded, snapshot.store(), snapshot.resumeToken());
+				logger.info("Reopened {} index {} with {} vectors in {} ms", loaded.type(), snapshot.file(),
+						loaded.size(), System.currentTimeMillis() - start);
+				return Optional.of(live);
+			}
+		} catch (Exception e) {
+			logger.warn("Persisted index for {} unavailable: {}", key, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private static VectorSearchIndex openPersisted(Path file, MappedVectorStore store) throws IOException {
+		String name = file.getFileName().toString();
+		if (name.endsWith(".hnsw.vidx")) {
+			return HnswIndex.load(file, store);
+		}
+		if (name.endsWith(".ivf.vidx")) {
+			return IvfIndex.open(file, store);
+		}
+		return QuantizedVectorIndex.open(file, store);
+	}
+
+	/**
+	 * Persists a freshly registered index: HNSW and IVF indexes as a snapshot when snapshots are enabled, while
+	 * quantized codes were written by the build. Index files of the field's other store generations go.
+	 */
+	private void persist(VectorIndexKey key, VectorSearchIndex index, MappedVectorStore store) {
+		if (index instanceof QuantizedVectorIndex quantized) {
+			vectorStoreManager.deleteOtherIndexFiles(key, quantized.path());
+		} else if (snapshotsEnabled && index instanceof HnswIndex hnsw) {
+			saveSnapshot(key, vectorStoreManager.snapshotPath(key, store, hnsw.type()),
+					target -> hnsw.save(target, store.createdAt()));
+		} else if (snapshotsEnabled && index instanceof IvfIndex ivf) {
+			saveSnapshot(key, vectorStoreManager.snapshotPath(key, store, ivf.type()), ivf::save);
+		}
+	}
+
+	/**
+	 * Writes a snapshot of a freshly registered index. A failed write only costs the next cold start a rebuild.
+	 */
+	private void saveSnapshot(VectorIndexKey key, Path target, SnapshotAction save) {
+		long start = System.currentTimeMillis();
+		try {
+			save.writeTo(target);
+			vectorStoreManager.deleteOtherIndexFiles(key, target);
+			logger.info("Saved index snapshot {} in {} ms", target, System.currentTimeMillis() - start);
+		} catch (IOException e) {
+			logger.warn("Failed to save index snapshot for {}: {}", key, e.getMessage());
+		}
+	}
+
+	/**
+	 * Serves {@code index} for the field and keeps it current from the change stream, replaying from
+	 * {@code resumeAfter}, the position recorded before {@code store} was scanned. Takes over the caller's
+	 * reference on {@code store}.
+	 */
+	private synchronized LiveVectorIndex register(VectorIndexKey key, VectorSearchIndex index,
+			MappedVectorStore store, BsonDocument resumeAfter) {
+		LiveVectorIndex live = new LiveVectorIndex(index);
+		storesByIndex.put(live, store);
+		VectorSearchIndex previous = indexes.put(key, live);
+		if (previous != null) {
+			retire(previous);
+		}
+		changeStreamUpdater.watch(key, live, resumeAfter, () -> compactIfDue(key, live), () -> {
+			if (indexes.remove(key, live)) {
+				retire(live);
+			}
+			// The persisted files cannot be brought up to date either, so they are not reopened
+			vectorStoreManager.discard(key, store);
+		});
+		return live;
+	}
+
+	/**
+	 * Queues a compaction of {@code live} once its delta or masked rows cross the configured limits.
+	 */
+	private void compactIfDue(VectorIndexKey key, LiveVectorIndex live) {
+		boolean due = compactionMaxDeltaRows > 0 && live.deltaRows() >= compactionMaxDeltaRows
+				|| compactionMaxMaskedFraction > 0
+						&& live.maskedCount() >= compactionMaxMaskedFraction * live.base().size();
+		if (!due || !compacting.add(key)) {
+			return;
+		}
+		try {
+			compactor.execute(() -> {
+				try {
+					compact(key, live);
+				} finally {
+					compacting.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			compacting.remove(key);
+		}
+	}
+
+	/**
+	 * Merges {@code live} into a new store generation, builds an index of the same type and parameters over
+	 * it and swaps that in, watching from the position the merged rows reflect. Writes applied to {@code live}
+	 * meanwhile are replayed by the new watcher. A failed compaction leaves {@code live} serving.
+	 */
+	private void compact(VectorIndexKey key, LiveVectorIndex live) {
+		MappedVectorStore base = storesByIndex.get(live);
+		if (base == null || indexes.get(key) != live) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		int deltaRows = live.deltaRows();
+		int masked = live.maskedCount();
+		try {
+			BsonDocument[] resumeAfter = new BsonDocument[1];
+			MappedVectorStore store = vectorStoreManager.compact(key, live.dimensions(), () -> {
+				resumeAfter[0] = changeStreamUpdater.resumeToken(key, live).orElse(null);
+				return resumeAfter[0];
+			}, writer -> live.writeTo(base, writer));
+			VectorSearchIndex index;
+			try {
+				index = rebuild(key, live.base(), store);
+			} catch (IOException | RuntimeException e) {
+				vectorStoreManager.release(store);
+				throw e;
+			}
+			synchronized (this) {
+				if (indexes.get(key) != live) {
+					// Replaced or dropped meanwhile
+					vectorStoreManager.release(store);
+					if (index instanceof Closeable closeable) {
+						retired.retire(closeable);
+					}
+					return;
+				}
+				register(key, index, store, resumeAfter[0]);
+			}
+			persist(key, index, store);
+			logger.info("Compacted {} index for {}: {} delta rows and {} masked rows merged into {} vectors in {} ms",
+					index.type(), key, deltaRows, masked, index.size(), System.currentTimeMillis() - start);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Compaction of the {} index for {} failed, its delta keeps growing: {}", live.type(), key,
+					e.getMessage());
+		}
+	}
+
+	/**
+	 * A fresh index of the same type and parameters as {@code previous}, built over {@code store}.
+	 */
+	private VectorSearchIndex rebuild(VectorIndexKey key, VectorSearchIndex previous, MappedVectorStore store)
+			throws IOException {
+		if (previous instanceof HnswIndex hnsw) {
+			return HnswIndex.build(store, hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEfSearch(), hnsw.metric());
+		}
+		if (previous instanceof IvfIndex ivf) {
+			return IvfIndex.build(store, ivf.metric(), ivf.lists(), ivf.getNprobe(), 0, trainingPool);
+		}
+		if (previous instanceof QuantizedVectorIndex quantized) {
+			VectorQuantizer.Type type = VectorQuantizer.Type.fromString(quantized.type());
+			return QuantizedVectorIndex.build(store, vectorStoreManager.quantizedPath(key, store, type), type,
+					quantized.metric(), quantized.codeSize(), quantized.rerankFactor(), 0);
+		}
+		throw new IllegalStateException("Cannot rebuild a " + previous.type() + " index");
+	}
+
+	private synchronized void retire(VectorSearchIndex index) {
+		MappedVectorStore store = storesByIndex.remove(index);
+		if (store != null) {
+			vectorStoreManager.release(store);
+		}
+		if (unwrap(index) instanceof Closeable closeable) {
+			retired.retire(closeable);
+		}
+	}
+
+	private static VectorSearchIndex unwrap(VectorSearchIndex index) {
+		return index instanceof LiveVectorIndex live ? live.base() : index;
+	}
+
+	@FunctionalInterface
+	private interface SnapshotAction {
+		void writeTo(Path target) throws IOException;
+	}
+}
@@ -0,0 +1,28 @@
+package com.deepai.vector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Primitive similarity kernels over heap arrays and little-endian off-heap rows.
+ * Obtain the best available implementation through {@link VectorKernels#get()}.
+ */
+public interface VectorKernel {
+
+	float dot(float[] a, float[] b);
+
+	float squaredDistance(float[] a, float[] b);
+
+	/**
+	 * Dot product between {@code query} and the float32 row starting at {@code byteOffset} in {@code rows}.
+	 */
+	float dot(ByteBuffer rows, int byteOffset, float[] query);
+
+	/**
+	 * Dot products between the float32 row at {@code byteOffset} and every query, written to {@code out}.
+	 * Queries are taken in groups of four so each slice of the row is loaded once per group rather than once
+	 * per query.
+	 */
+	void dotMany(ByteBuffer rows, int byteOffset, float[][] queries, float[] out);
+
+	String name();
+}
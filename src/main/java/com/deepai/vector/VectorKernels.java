@@ -0,0 +1,42 @@
+package com.deepai.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the fastest {@link VectorKernel} available in this JVM: the SIMD kernel when the
+ * {@code jdk.incubator.vector} module is present, otherwise the scalar fallback.
+ */
+public final class VectorKernels {
+
+	private static final Logger logger = LoggerFactory.getLogger(VectorKernels.class);
+	private static final VectorKernel SCALAR = new ScalarVectorKernel();
+	private static final VectorKernel BEST = select();
+
+	private VectorKernels() {
+	}
+
+	public static VectorKernel get() {
+		return BEST;
+	}
+
+	public static VectorKernel scalar() {
+		return SCALAR;
+	}
+
+	private static VectorKernel select() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			logger.info("jdk.incubator.vector not enabled, using scalar vector kernels");
+			return SCALAR;
+		}
+		try {
+			VectorKernel kernel = (VectorKernel) Class.forName("com.deepai.vector.PanamaVectorKernel")
+					.getDeclaredConstructor().newInstance();
+			logger.info("Using {} vector kernels", kernel.name());
+			return kernel;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			logger.warn("SIMD vector kernels unavailable, using scalar fallback: {}", e.toString());
+			return SCALAR;
+		}
+	}
+}
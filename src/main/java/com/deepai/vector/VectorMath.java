@@ -0,0 +1,59 @@
+package com.deepai.vector;
+
+import org.bson.types.Binary;
+
+import java.util.List;
+
+/**
+ * Primitive vector helpers shared by the local vector indexes.
+ */
+public final class VectorMath {
+
+	private VectorMath() {
+	}
+
+	public static float dot(float[] a, float[] b) {
+		return VectorKernels.get().dot(a, b);
+	}
+
+	public static float norm(float[] vector) {
+		return (float) Math.sqrt(VectorKernels.get().dot(vector, vector));
+	}
+
+	/**
+	 * Returns an L2-normalised copy of the vector, or null for a zero vector.
+	 */
+	public static float[] normalize(float[] vector) {
+		float norm = norm(vector);
+		if (norm == 0f) {
+			return null;
+		}
+		float inverse = 1f / norm;
+		float[] normalized = new float[vector.length];
+		for (int i = 0; i < vector.length; i++) {
+			normalized[i] = vector[i] * inverse;
+		}
+		return normalized;
+	}
+
+	/**
+	 * Converts a decoded BSON vector value, a packed float32 binary or a legacy list of numbers, into a float
+	 * array, or null if it is not a vector.
+	 */
+	public static float[] toFloatArray(Object value) {
+		if (value instanceof Binary binary) {
+			return Float32VectorCodec.unpack(binary.getType(), binary.getData());
+		}
+		if (!(value instanceof List<?> list) || list.isEmpty()) {
+			return null;
+		}
+		float[] vector = new float[list.size()];
+		for (int i = 0; i < vector.length; i++) {
+			if (!(list.get(i) instanceof Number number)) {
+				return null;
+			}
+			vector[i] = number.floatValue();
+		}
+		return vector;
+	}
+}
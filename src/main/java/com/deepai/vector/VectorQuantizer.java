@@ -0,0 +1,90 @@
+package com.deepai.vector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses float vectors into fixed-size byte codes and scores queries against those codes without
+ * decoding them.
+ */
+public interface VectorQuantizer {
+
+	/**
+	 * Identifier persisted in quantized index files.
+	 */
+	Type type();
+
+	int dimensions();
+
+	/**
+	 * Bytes per encoded vector.
+	 */
+	int codeSize();
+
+	void encode(float[] vector, byte[] code);
+
+	/**
+	 * Prepares an asymmetric scorer for {@code query}: the query stays in float precision and only stored
+	 * vectors are approximated.
+	 */
+	CodeScorer scorer(float[] query);
+
+	/**
+	 * Serialized size of the trained codebook.
+	 */
+	int codebookBytes();
+
+	void writeCodebook(ByteBuffer target);
+
+	/**
+	 * Approximate dot product between a prepared query and one stored code.
+	 */
+	@FunctionalInterface
+	interface CodeScorer {
+
+		float dot(ByteBuffer codes, int offset);
+	}
+
+	enum Type {
+
+		INT8(1, "int8"), PQ(2, "pq");
+
+		private final int id;
+		private final String label;
+
+		Type(int id, String label) {
+			this.id = id;
+			this.label = label;
+		}
+
+		public int id() {
+			return id;
+		}
+
+		public String label() {
+			return label;
+		}
+
+		public static Type fromId(int id) {
+			for (Type type : values()) {
+				if (type.id == id) {
+					return type;
+				}
+			}
+			throw new IllegalArgumentException("Unknown quantizer type " + id);
+		}
+
+		/**
+		 * Parses the {@code quantization} index option; returns null when quantization is not requested.
+		 */
+		public static Type fromString(String value) {
+			if (value == null || value.isBlank() || value.equalsIgnoreCase("none")) {
+				return null;
+			}
+			return switch (value.trim().toLowerCase()) {
+			case "int8", "sq8", "scalar" -> INT8;
+			case "pq", "product" -> PQ;
+			default -> throw new IllegalArgumentException("Unsupported quantization '" + value + "'");
+			};
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.deepai.vector;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A local index that answers top-k queries for one vector field.
+ */
+public interface VectorSearchIndex {
+
+	/**
+	 * Short type name reported to tools, e.g. {@code hnsw}.
+	 */
+	String type();
+
+	int dimensions();
+
+	SimilarityMetric metric();
+
+	int size();
+
+	/**
+	 * Top-k hits for {@code query}, best first.
+	 */
+	default List<VectorHit> search(float[] query, int k) {
+		return search(query, k, null);
+	}
+
+	/**
+	 * Top-k hits restricted to the ordinals set in {@code allowed}; a null bitset means no restriction.
+	 */
+	List<VectorHit> search(float[] query, int k, BitSet allowed);
+
+	/**
+	 * Top-k hits for each of {@code queries}, with result {@code i} belonging to query {@code i}. The default
+	 * runs the queries one by one; indexes that can share a pass over their data override it.
+	 */
+	default List<List<VectorHit>> searchBatch(float[][] queries, int k, BitSet allowed) {
+		List<List<VectorHit>> results = new ArrayList<>(queries.length);
+		for (float[] query : queries) {
+			results.add(search(query, k, allowed));
+		}
+		return results;
+	}
+
+	/**
+	 * Ordinal of the vector indexed for {@code id}, or -1 if the id is not indexed.
+	 */
+	int ordinal(Object id);
+
+	/**
+	 * Whether a prefilter is selective enough that scoring just its ordinals beats traversing the index.
+	 * Small matching sets are scored exactly, which also keeps recall from collapsing under tight filters.
+	 */
+	static boolean preferExact(BitSet allowed, int size) {
+		return allowed != null && allowed.cardinality() <= Math.max(2048, size / 50);
+	}
+}
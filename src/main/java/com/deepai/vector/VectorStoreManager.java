@@ -0,0 +1,628 @@
+package com.deepai.vector;
+
+import com.deepai.service.MongoServiceClient;
+import com.deepai.support.DeferredCloser;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Owns the memory-mapped vector stores, one file per (database, collection, vector field).
+ * Files live under {@code mcp.vector.store-dir} and are reused, also across restarts, while the field's change
+ * marker (the collection's document count and the largest {@code _id} holding the field) is unchanged and no write
+ * made through this server has touched the collection since the file was built. The marker is re-checked at most
+ * every {@code mcp.vector.store-check-interval-ms}. Vectors rewritten in place by other clients leave the marker
+ * unchanged; live indexes pick those up from their change stream. While writes through this server keep
+ * arriving, e.g. during an embedding back-fill, the open store keeps serving until they have paused for
+ * {@code mcp.vector.store-rebuild-delay-ms}, so the store is rebuilt once afterwards rather than per batch.
+ *
+ * <p>Each store file is named after its generation, the time its build began, and keeps the collection's
+ * change-stream resume token from before the build scan in a {@code .resume} file next to it. Persisted
+ * indexes carry the generation of the store they were built over, so after a restart they reopen over that
+ * store and replay the writes since its token. Store generations that a persisted index still refers to are
+ * kept when the field's store is rebuilt, and are removed once no index file refers to them. A live index is
+ * also {@linkplain #compact compacted} into a new generation written from its own rows, whose token is the
+ * stream position those rows reflect, so replay after a restart starts at the last compaction.
+ *
+ * <p>A store stays open while it is the field's current store or an index built over it holds a reference
+ * ({@link #acquire}/{@link #release}). After that it is closed once {@code mcp.vector.retire-grace-ms} have
+ * passed, so searches that picked it up just before it was replaced can finish.
+ */
+@Component
+public class VectorStoreManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(VectorStoreManager.class);
+	private static final Pattern STORE_FILE = Pattern.compile("(.+)\\.(\\d+)\\.vec");
+	// Quantized codes (.qvec) and graph/IVF snapshots (.vidx), tagged with the store generation they index
+	private static final Pattern INDEX_FILE = Pattern.compile("(.+)\\.(\\d+)\\.(\\w+)\\.(qvec|vidx)");
+	private static final String RESUME_SUFFIX = ".resume";
+
+	private final MongoClient mongoClient;
+	private final Path storeDirectory;
+	private final Map<VectorIndexKey, MappedVectorStore> stores = new ConcurrentHashMap<>();
+	// References held by indexes built over a store, guarded by this
+	private final Map<MappedVectorStore, Integer> references = new HashMap<>();
+	// Unreferenced stores that are no longer current may still be read by in-flight searches
+	private final DeferredCloser retired;
+	// Wall-clock time of the last write made through this server, per collection namespace
+	private final Map<String, Long> writtenAt = new ConcurrentHashMap<>();
+	// When the open store's change marker last matched the collection
+	private final Map<VectorIndexKey, Long> verifiedAt = new ConcurrentHashMap<>();
+	private final long checkIntervalMillis;
+	private final long rebuildDelayMillis;
+
+	public VectorStoreManager(MongoServiceClient mongoServiceClient,
+			@Value("${mcp.vector.store-dir:./data/vectors}") String storeDirectory,
+			@Value("${mcp.vector.store-check-interval-ms:1000}") long checkIntervalMillis,
+			@Value("${mcp.vector.store-rebuild-delay-ms:5000}") long rebuildDelayMillis,
+			@Value("${mcp.vector.retire-grace-ms:60000}") long retireGraceMillis) {
+		this.mongoClient = mongoServiceClient.getMongoClient();
+		this.storeDirectory = Paths.get(storeDirectory);
+		this.checkIntervalMillis = Math.max(0, checkIntervalMillis);
+		this.rebuildDelayMillis = Math.max(0, rebuildDelayMillis);
+		this.retired = new DeferredCloser("vector-store-reaper", retireGraceMillis);
+	}
+
+	/**
+	 * Returns a store that matches the field's current change marker, reusing the open store or the newest file
+	 * on disk when possible and rebuilding from the collection otherwise. While the collection is still being
+	 * written through this server the open store is returned as it is.
+	 */
+	public MappedVectorStore getOrBuild(VectorIndexKey key) throws IOException {
+		MappedVectorStore current = stores.get(key);
+		if (current != null && (settling(key) || isCurrent(key, current))) {
+			return current;
+		}
+		synchronized (this) {
+			current = stores.get(key);
+			if (current != null && (settling(key) || isCurrent(key, current))) {
+				return current;
+			}
+			// Taken before the scan, so writes racing with the build show up as a changed marker later
+			long fingerprint = fingerprint(key);
+			if (current == null) {
+				MappedVectorStore persisted = openNewest(key);
+				if (persisted != null && isCurrent(key, persisted, fingerprint)) {
+					logger.info("Reusing vector store {} with {} vectors", persisted.path(), persisted.size());
+					stores.put(key, persisted);
+					verifiedAt.put(key, System.currentTimeMillis());
+					return persisted;
+				}
+				if (persisted != null) {
+					retired.retire(persisted);
+				}
+			}
+			MappedVectorStore rebuilt = build(key, fingerprint);
+			replace(key, rebuilt);
+			return rebuilt;
+		}
+	}
+
+	/**
+	 * {@link #getOrBuild} for a long-lived reader such as an index built over the store: the store stays open,
+	 * even after it is replaced, until the reference is handed back with {@link #release}.
+	 */
+	public MappedVectorStore acquire(VectorIndexKey key) throws IOException {
+		while (true) {
+			MappedVectorStore store = getOrBuild(key);
+			synchronized (this) {
+				// Replaced in between and possibly retired already; take the store that replaced it instead
+				if (stores.get(key) == store) {
+					references.merge(store, 1, Integer::sum);
+					return store;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hands back a reference taken by {@link #acquire} or {@link #persistedIndex}. A store that is neither
+	 * referenced nor current any more is closed after the grace period.
+	 */
+	public synchronized void release(MappedVectorStore store) {
+		references.computeIfPresent(store, (released, count) -> count > 1 ? count - 1 : null);
+		retireIfUnused(store);
+	}
+
+	/**
+	 * Marks the stores of every vector field of the collection stale after a write made through this server,
+	 * e.g. an embedding back-fill batch, so the first search once writes have paused rebuilds them.
+	 */
+	public void invalidate(String database, String collection) {
+		writtenAt.put(database + "." + collection, System.currentTimeMillis());
+	}
+
+	/**
+	 * Finds a store for any vector field of the collection, either open in this process or persisted on disk.
+	 */
+	public Optional<MappedVectorStore> findStore(String database, String collection) {
+		try {
+			Optional<VectorIndexKey> key = stores.keySet().stream()
+					.filter(k -> k.database().equals(database) && k.collection().equals(collection))
+					.findFirst()
+					.or(() -> persistedFields(database, collection).stream()
+							.map(field -> new VectorIndexKey(database, collection, field))
+							.findFirst());
+			return key.isPresent() ? Optional.of(getOrBuild(key.get())) : Optional.empty();
+		} catch (Exception e) {
+			logger.warn("Vector store for {}.{} unavailable: {}", database, collection, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Location of the quantized codes derived from {@code store}; the store generation is part of the name so
+	 * codes are never reused with a rebuilt store.
+	 */
+	public Path quantizedPath(VectorIndexKey key, MappedVectorStore store, VectorQuantizer.Type type) {
+		return file(key, "." + generation(store.path()) + "." + type.label() + ".qvec");
+	}
+
+	/**
+	 * Location of an HNSW or IVF snapshot built over {@code store}, named like quantized codes with
+	 * {@code type} in place of the quantizer label.
+	 */
+	public Path snapshotPath(VectorIndexKey key, MappedVectorStore store, String type) {
+		return file(key, "." + generation(store.path()) + "." + type + ".vidx");
+	}
+
+	/**
+	 * A persisted index file together with the store generation it was built over, and the resume token taken
+	 * before that store's build scan (null where change streams were unavailable).
+	 */
+	public record PersistedIndex(Path file, MappedVectorStore store, BsonDocument resumeToken) {
+	}
+
+	/**
+	 * The most recently written persisted index of the field (quantized codes or snapshot) whose store file
+	 * still exists, opened over that store. The store need not be the field's current one; the caller holds a
+	 * reference on it and hands it back with {@link #release}.
+	 */
+	public synchronized Optional<PersistedIndex> persistedIndex(VectorIndexKey key) throws IOException {
+		for (Path indexFile : indexFiles(key).stream()
+				.sorted(Comparator.comparingLong(VectorStoreManager::lastModified).reversed())
+				.toList()) {
+			Path storeFile = file(key, "." + indexGeneration(indexFile) + ".vec");
+			if (!Files.isRegularFile(storeFile)) {
+				continue;
+			}
+			MappedVectorStore current = stores.get(key);
+			MappedVectorStore store = current != null && current.path().equals(storeFile) ? current
+					: MappedVectorStore.open(storeFile);
+			references.merge(store, 1, Integer::sum);
+			return Optional.of(new PersistedIndex(indexFile, store, resumeToken(key, store).orElse(null)));
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * The collection's change-stream resume token taken before {@code store} was scanned, if one was recorded.
+	 */
+	public Optional<BsonDocument> resumeToken(VectorIndexKey key, MappedVectorStore store) {
+		Path file = file(key, "." + generation(store.path()) + RESUME_SUFFIX);
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.ofNullable(BsonDocument.parse(Files.readString(file)).getDocument("resumeToken", null));
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Ignoring unreadable resume token file {}: {}", file, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Writes a new store generation for the field from {@code rows} instead of the collection, records
+	 * {@code resumeToken} as the position those rows reflect and makes it the field's current store. The
+	 * change marker is taken before the token is read, as for a build scan. Returns the store with a reference
+	 * for the caller, as {@link #acquire} does.
+	 *
+	 * @param resumeToken read after the marker and before {@code rows} runs; the compaction fails if it is null
+	 */
+	public MappedVectorStore compact(VectorIndexKey key, int dimensions, Supplier<BsonDocument> resumeToken,
+			StoreRows rows) throws IOException {
+		long fingerprint = fingerprint(key);
+		BsonDocument token = resumeToken.get();
+		if (token == null) {
+			throw new IllegalStateException("No change-stream position to record for " + key);
+		}
+		long generation = System.currentTimeMillis();
+		MappedVectorStore current = stores.get(key);
+		if (current != null) {
+			generation = Math.max(generation, generation(current.path()) + 1);
+		}
+		MappedVectorStore store;
+		try (MappedVectorStore.Writer writer = MappedVectorStore.writer(file(key, "." + generation + ".vec"),
+				dimensions)) {
+			rows.writeTo(writer);
+			if (writer.count() == 0) {
+				throw new IllegalStateException("No vectors left in field '" + key.field() + "' of "
+						+ key.namespace());
+			}
+			store = writer.commit(fingerprint);
+		}
+		writeResumeToken(key, generation, token);
+		synchronized (this) {
+			references.merge(store, 1, Integer::sum);
+			replace(key, store);
+		}
+		return store;
+	}
+
+	/**
+	 * Rows of a compacted store; see {@link #compact}.
+	 */
+	@FunctionalInterface
+	public interface StoreRows {
+		void writeTo(MappedVectorStore.Writer writer) throws IOException;
+	}
+
+	public boolean hasIndexFiles(VectorIndexKey key) {
+		return !indexFiles(key).isEmpty();
+	}
+
+	/**
+	 * Removes persisted index files of the field other than {@code keep}, then the store generations no
+	 * index refers to any more; only the registered index is reopened after a restart.
+	 */
+	public synchronized void deleteOtherIndexFiles(VectorIndexKey key, Path keep) {
+		for (Path file : indexFiles(key)) {
+			if (!file.equals(keep)) {
+				deleteQuietly(file);
+			}
+		}
+		MappedVectorStore current = stores.get(key);
+		deleteUnreferencedStores(key, current != null ? generation(current.path()) : indexGeneration(keep));
+	}
+
+	/**
+	 * Drops an index's persisted files and the store generation it was built over, after its change stream
+	 * could not account for every write since that store's resume token. The field's next search or index
+	 * build starts from a fresh store.
+	 */
+	public synchronized void discard(VectorIndexKey key, MappedVectorStore store) {
+		long generation = generation(store.path());
+		for (Path file : indexFiles(key)) {
+			if (indexGeneration(file) == generation) {
+				deleteQuietly(file);
+			}
+		}
+		if (stores.remove(key, store)) {
+			retireIfUnused(store);
+		}
+		deleteGeneration(key, generation);
+	}
+
+	@PreDestroy
+	public synchronized void closeAll() {
+		Set<MappedVectorStore> open = new HashSet<>(stores.values());
+		open.addAll(references.keySet());
+		stores.clear();
+		references.clear();
+		retired.closeAll();
+		for (MappedVectorStore store : open) {
+			try {
+				store.close();
+			} catch (IOException e) {
+				logger.warn("Failed to close vector store {}: {}", store.path(), e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Whether the store still matches the collection; the change marker of the field's open store is only
+	 * queried again once its last match is older than the check interval.
+	 */
+	public boolean isCurrent(VectorIndexKey key, MappedVectorStore store) {
+		if (!unchangedHere(key, store)) {
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		boolean open = stores.get(key) == store;
+		Long verified = verifiedAt.get(key);
+		if (open && verified != null && now - verified < checkIntervalMillis) {
+			return true;
+		}
+		if (store.fingerprint() != fingerprint(key)) {
+			return false;
+		}
+		if (open) {
+			verifiedAt.put(key, now);
+		}
+		return true;
+	}
+
+	private boolean isCurrent(VectorIndexKey key, MappedVectorStore store, long fingerprint) {
+		return unchangedHere(key, store) && store.fingerprint() == fingerprint;
+	}
+
+	/**
+	 * Whether a write through this server touched the collection within the rebuild delay, so more are likely
+	 * to follow before a rebuilt store would be current.
+	 */
+	private boolean settling(VectorIndexKey key) {
+		Long written = writtenAt.get(key.namespace());
+		return written != null && System.currentTimeMillis() - written < rebuildDelayMillis;
+	}
+
+	/**
+	 * No write through this server has touched the collection since the build began. The generation is the
+	 * build's start time, so writes landing during the scan count as later.
+	 */
+	private boolean unchangedHere(VectorIndexKey key, MappedVectorStore store) {
+		return generation(store.path()) > writtenAt.getOrDefault(key.namespace(), 0L);
+	}
+
+	/**
+	 * Change marker of the field: the collection's document count as kept in its metadata, mixed with the
+	 * largest {@code _id} holding the field. Inserts, deletes and writes that add the field to a newer document
+	 * move it. Both parts are cheap enough for the search path: the count is read from collection metadata
+	 * without touching documents, and the {@code _id} lookup walks the {@code _id} index backwards and stops at
+	 * the first match.
+	 */
+	private long fingerprint(VectorIndexKey key) {
+		MongoCollection<Document> collection = collection(key);
+		long count = collection.estimatedDocumentCount();
+		Document newest = collection.find(Filters.exists(key.field())).projection(Projections.include("_id"))
+				.sort(Sorts.descending("_id")).first();
+		long newestHash = newest != null ? newest.toJson().hashCode() : 0;
+		return (count << 32) ^ (newestHash & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * The collection's current change-stream position, or null where change streams are unavailable. Taken
+	 * before a build scan, so replaying from it covers every write the scan may have missed.
+	 */
+	private BsonDocument currentResumeToken(VectorIndexKey key) {
+		try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = collection(key).watch().cursor()) {
+			return cursor.getResumeToken();
+		} catch (MongoException e) {
+			logger.debug("No change-stream position for {}: {}", key, e.getMessage());
+			return null;
+		}
+	}
+
+	private void writeResumeToken(VectorIndexKey key, long generation, BsonDocument resumeToken) {
+		Path file = file(key, "." + generation + RESUME_SUFFIX);
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.writeString(temp, new BsonDocument("resumeToken", resumeToken).toJson());
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// Indexes over this store then only reopen while the store is current
+			logger.warn("Failed to persist resume token for {}: {}", key, e.getMessage());
+		}
+	}
+
+	private MappedVectorStore build(VectorIndexKey key, long fingerprint) throws IOException {
+		logger.info("Building vector store for {}", key);
+		long start = System.currentTimeMillis();
+		long generation = System.currentTimeMillis();
+		Path target = file(key, "." + generation + ".vec");
+		BsonDocument resumeToken = currentResumeToken(key);
+		MappedVectorStore.Writer writer = null;
+		try {
+			int skipped = 0;
+			for (Document doc : collection(key).find(Filters.exists(key.field()))
+					.projection(Projections.include(key.field()))) {
+				float[] vector = VectorMath.toFloatArray(doc.get(key.field()));
+				if (vector == null) {
+					skipped++;
+					continue;
+				}
+				if (writer == null) {
+					writer = MappedVectorStore.writer(target, vector.length);
+				}
+				if (!writer.add(doc.get("_id"), vector)) {
+					skipped++;
+				}
+			}
+			if (writer == null) {
+				throw new IllegalStateException(
+						"No vectors found in field '" + key.field() + "' of " + key.namespace());
+			}
+			MappedVectorStore store = writer.commit(fingerprint);
+			if (resumeToken != null) {
+				writeResumeToken(key, generation, resumeToken);
+			}
+			logger.info("Vector store {} written with {} vectors ({} skipped) in {} ms", store.path(), store.size(),
+					skipped, System.currentTimeMillis() - start);
+			return store;
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+		}
+	}
+
+	private void replace(VectorIndexKey key, MappedVectorStore store) {
+		verifiedAt.put(key, System.currentTimeMillis());
+		MappedVectorStore previous = stores.put(key, store);
+		if (previous != null) {
+			retireIfUnused(previous);
+		}
+		deleteOlderFiles(key, store.path());
+	}
+
+	private void retireIfUnused(MappedVectorStore store) {
+		if (!references.containsKey(store) && !stores.containsValue(store)) {
+			retired.retire(store);
+		}
+	}
+
+	private MappedVectorStore openNewest(VectorIndexKey key) {
+		Path newest = storeFiles(key).stream().reduce((a, b) -> generation(a) >= generation(b) ? a : b).orElse(null);
+		if (newest == null) {
+			return null;
+		}
+		try {
+			return MappedVectorStore.open(newest);
+		} catch (IOException e) {
+			logger.warn("Ignoring unreadable vector store {}: {}", newest, e.getMessage());
+			return null;
+		}
+	}
+
+	private void deleteOlderFiles(VectorIndexKey key, Path keep) {
+		deleteUnreferencedStores(key, generation(keep));
+	}
+
+	/**
+	 * Deletes store generations of the field other than {@code keep} that no persisted index was built over.
+	 */
+	private void deleteUnreferencedStores(VectorIndexKey key, long keep) {
+		Set<Long> referenced = new HashSet<>();
+		indexFiles(key).forEach(file -> referenced.add(indexGeneration(file)));
+		for (Path file : storeFiles(key)) {
+			long generation = generation(file);
+			if (generation != keep && !referenced.contains(generation)) {
+				deleteGeneration(key, generation);
+			}
+		}
+	}
+
+	private void deleteGeneration(VectorIndexKey key, long generation) {
+		deleteQuietly(file(key, "." + generation + ".vec"));
+		deleteQuietly(file(key, "." + generation + RESUME_SUFFIX));
+	}
+
+	private void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// Still mapped by a retired store on some platforms; removed on a later rebuild
+			logger.debug("Could not delete old vector file {}: {}", file, e.getMessage());
+		}
+	}
+
+	private List<Path> storeFiles(VectorIndexKey key) {
+		return listFiles(key, STORE_FILE);
+	}
+
+	private List<Path> indexFiles(VectorIndexKey key) {
+		return listFiles(key, INDEX_FILE);
+	}
+
+	private List<Path> listFiles(VectorIndexKey key, Pattern pattern) {
+		List<Path> files = new ArrayList<>();
+		Path directory = directory(key);
+		if (!Files.isDirectory(directory)) {
+			return files;
+		}
+		try (Stream<Path> entries = Files.list(directory)) {
+			entries.forEach(file -> {
+				Matcher matcher = pattern.matcher(file.getFileName().toString());
+				if (matcher.matches() && matcher.group(1).equals(key.field())) {
+					files.add(file);
+				}
+			});
+		} catch (IOException e) {
+			logger.warn("Failed to list vector stores in {}: {}", directory, e.getMessage());
+		}
+		return files;
+	}
+
+	private List<String> persistedFields(String database, String collection) {
+		List<String> fields = new ArrayList<>();
+		Path directory = directory(database, collection);
+		if (!Files.isDirectory(directory)) {
+			return fields;
+		}
+		try (Stream<Path> entries = Files.list(directory)) {
+			entries.forEach(file -> {
+				Matcher matcher = STORE_FILE.matcher(file.getFileName().toString());
+				if (matcher.matches() && !fields.contains(matcher.group(1))) {
+					fields.add(matcher.group(1));
+				}
+			});
+		} catch (IOException e) {
+			logger.warn("Failed to list vector stores in {}: {}", directory, e.getMessage());
+		}
+		return fields;
+	}
+
+	private static long generation(Path file) {
+		Matcher matcher = STORE_FILE.matcher(file.getFileName().toString());
+		return matcher.matches() ? Long.parseLong(matcher.group(2)) : 0L;
+	}
+
+	private static long indexGeneration(Path file) {
+		Matcher matcher = INDEX_FILE.matcher(file.getFileName().toString());
+		return matcher.matches() ? Long.parseLong(matcher.group(2)) : -1L;
+	}
+
+	private static long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0L;
+		}
+	}
+
+	private Path directory(VectorIndexKey key) {
+		return directory(key.database(), key.collection());
+	}
+
+	/**
+	 * The collection's directory under {@code store-dir}. Names come from tool callers, so names that would
+	 * resolve anywhere else, such as {@code ../x}, absolute paths or nested paths, are rejected.
+	 */
+	private Path directory(String database, String collection) {
+		Path root = storeDirectory.toAbsolutePath().normalize();
+		Path directory = root.resolve(database).resolve(collection).normalize();
+		if (!directory.startsWith(root) || directory.getNameCount() != root.getNameCount() + 2) {
+			throw new IllegalArgumentException(
+					"Cannot keep a vector store for " + database + "." + collection + " under " + root);
+		}
+		return directory;
+	}
+
+	/**
+	 * A file of the field's store directory named after the field plus {@code suffix}; fields whose name would
+	 * place the file elsewhere are rejected.
+	 */
+	private Path file(VectorIndexKey key, String suffix) {
+		Path directory = directory(key);
+		Path file = directory.resolve(key.field() + suffix).normalize();
+		if (!directory.equals(file.getParent())) {
+			throw new IllegalArgumentException("Cannot keep a vector store for field '" + key.field() + "'");
+		}
+		return file;
+	}
+
+	private MongoCollection<Document> collection(VectorIndexKey key) {
+		return mongoClient.getDatabase(key.database()).getCollection(key.collection());
+	}
+}
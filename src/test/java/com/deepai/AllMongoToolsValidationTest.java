@@ -17,7 +17,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Comprehensive test for ALL MongoDB MCP Server @Tool methods.
- * Validates all 39 @Tool annotated methods across all service classes.
+ * Validates all 48 @Tool annotated methods across all service classes.
  */
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 @DisplayName("All MongoDB Tools Comprehensive Validation")
@@ -94,8 +94,8 @@ public class AllMongoToolsValidationTest {
         
         // Advanced query tools
         assertToolMethodExists(clazz, "aggregatePipeline", String.class, String.class, String.class);
-        assertToolMethodExists(clazz, "distinctValues", String.class, String.class, String.class, String.class);
-        assertToolMethodExists(clazz, "groupByField", String.class, String.class, String.class, String.class, String.class);
+        assertToolMethodExists(clazz, "distinctValues", String.class, String.class, String.class, String.class, boolean.class, int.class, String.class);
+        assertToolMethodExists(clazz, "groupByField", String.class, String.class, String.class, String.class, String.class, boolean.class);
         assertToolMethodExists(clazz, "textSearch", String.class, String.class, String.class, String.class, int.class);
         assertToolMethodExists(clazz, "geoSearch", String.class, String.class, String.class, double.class, double.class, double.class, int.class);
         
@@ -109,7 +109,7 @@ public class AllMongoToolsValidationTest {
         
         // Index management tools
         assertToolMethodExists(clazz, "createIndex", String.class, String.class, String.class, String.class);
-        assertToolMethodExists(clazz, "createVectorIndex", String.class, String.class, String.class, int.class, String.class);
+        assertToolMethodExists(clazz, "createVectorIndex", String.class, String.class, String.class, int.class, String.class, String.class);
         assertToolMethodExists(clazz, "dropIndex", String.class, String.class, String.class);
         assertToolMethodExists(clazz, "reIndex", String.class, String.class);
         
@@ -136,10 +136,20 @@ public class AllMongoToolsValidationTest {
         Class<MongoAIService> clazz = MongoAIService.class;
         
         // AI vector tools
-        assertToolMethodExists(clazz, "vectorSearch", String.class, String.class, String.class, String.class, int.class, String.class);
+        assertToolMethodExists(clazz, "vectorSearch", String.class, String.class, String.class, String.class, int.class, String.class, String.class, boolean.class);
         assertToolMethodExists(clazz, "generateEmbeddings", String.class, String.class, String.class, String.class, String.class, int.class);
-        
-        System.out.println("✅ All 2 AI Vector Tools validated");
+        assertToolMethodExists(clazz, "hybridSearch", String.class, String.class, String.class, String.class, String.class, int.class, String.class, double.class);
+        assertToolMethodExists(clazz, "vectorSearchBatch", String.class, String.class, String.class, String.class, int.class, String.class, String.class);
+        assertToolMethodExists(clazz, "generateChunkEmbeddings", String.class, String.class, String.class, String.class, int.class, int.class, int.class);
+        
+        // Background embedding jobs
+        assertToolMethodExists(clazz, "startEmbeddingJob", String.class, String.class, String.class, String.class, String.class);
+        assertToolMethodExists(clazz, "getEmbeddingJobStatus", String.class);
+        assertToolMethodExists(clazz, "pauseEmbeddingJob", String.class);
+        assertToolMethodExists(clazz, "resumeEmbeddingJob", String.class);
+        assertToolMethodExists(clazz, "cancelEmbeddingJob", String.class);
+        
+        System.out.println("✅ All 10 AI Vector and Embedding Job Tools validated");
     }
 
     @Test
@@ -153,8 +163,9 @@ public class AllMongoToolsValidationTest {
         assertToolMethodExists(clazz, "aiQuerySuggestion", String.class, String.class, String.class, String.class);
         assertToolMethodExists(clazz, "aiDocumentSummary", String.class, String.class, String.class, String.class, int.class);
         assertToolMethodExists(clazz, "semanticSearch", String.class, String.class, String.class, int.class, double.class);
+        assertToolMethodExists(clazz, "getCollectionSchema", String.class, String.class, boolean.class);
         
-        System.out.println("✅ All 5 AI Analysis Tools validated");
+        System.out.println("✅ All 6 AI Analysis Tools validated");
     }
 
     // ========== COMPREHENSIVE VALIDATION ==========
@@ -177,10 +188,10 @@ public class AllMongoToolsValidationTest {
         // Validate expected counts
         assertEquals(20, mongoServiceClientTools, "MongoServiceClient should have 20 @Tool methods");
         assertEquals(12, mongoAdvancedAnalyticsTools, "MongoAdvancedAnalyticsService should have 12 @Tool methods");
-        assertEquals(7, mongoAIServiceTools, "MongoAIService should have 7 @Tool methods");
-        assertEquals(39, totalTools, "Total @Tool methods should be 39");
+        assertEquals(16, mongoAIServiceTools, "MongoAIService should have 16 @Tool methods");
+        assertEquals(48, totalTools, "Total @Tool methods should be 48");
         
-        System.out.println("✅ All 39 MongoDB MCP Tools validated successfully!");
+        System.out.println("✅ All 48 MongoDB MCP Tools validated successfully!");
     }
 
     @Test
@@ -0,0 +1,109 @@
+package com.deepai;
+
+import com.deepai.analytics.ApproximateAggregator;
+import com.deepai.analytics.SpaceSaving;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SpaceSaving heavy-hitter sketch and the sample estimators behind approximate
+ * distinctValues and groupByField. Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Approximate Aggregation Tests")
+public class ApproximateAggregationTest {
+
+    @Test
+    @DisplayName("SpaceSaving counts exactly while items fit in its counters")
+    void exactBelowCapacity() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(10);
+        for (String item : List.of("a", "b", "a", "c", "a", "b")) {
+            sketch.offer(item, 2.0);
+        }
+
+        List<SpaceSaving.Counter<String>> top = sketch.top(10);
+        assertEquals(3, sketch.size());
+        assertEquals(0, sketch.evictions());
+        assertEquals(0, sketch.unmonitoredBound());
+        assertEquals("a", top.get(0).item());
+        assertEquals(3, top.get(0).count());
+        assertEquals(6.0, top.get(0).sum(), 1e-9);
+        assertEquals(12.0, top.get(0).sumOfSquares(), 1e-9);
+        assertEquals(List.of(3L, 2L, 1L), top.stream().map(SpaceSaving.Counter::count).toList());
+    }
+
+    @Test
+    @DisplayName("SpaceSaving keeps heavy hitters and bounds every count on skewed streams")
+    void heavyHittersOnSkewedStream() {
+        SplittableRandom random = new SplittableRandom(7);
+        SpaceSaving<Integer> sketch = new SpaceSaving<>(50);
+        Map<Integer, Long> exact = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            // Five heavy items take about half the stream, the rest is spread over 10,000 items
+            int item = random.nextInt(2) == 0 ? random.nextInt(5) : 100 + random.nextInt(10_000);
+            sketch.offer(item);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        Set<Integer> top = new HashSet<>();
+        for (SpaceSaving.Counter<Integer> counter : sketch.top(5)) {
+            top.add(counter.item());
+        }
+        assertEquals(Set.of(0, 1, 2, 3, 4), top);
+        for (SpaceSaving.Counter<Integer> counter : sketch.top(50)) {
+            long trueCount = exact.get(counter.item());
+            assertTrue(counter.count() >= trueCount);
+            assertTrue(counter.count() - counter.error() <= trueCount);
+        }
+        assertTrue(sketch.evictions() > 0);
+        assertTrue(sketch.unmonitoredBound() <= sketch.total() / 50);
+    }
+
+    @Test
+    @DisplayName("Sampled counts and totals scale up with intervals that cover the true values")
+    void sampledCountsAndTotals() {
+        // 2,000 of 100,000 documents sampled; a group seen 500 times holds about a quarter of them
+        ApproximateAggregator.Interval count = ApproximateAggregator.count(500, 0, 2_000, 100_000);
+        assertEquals(25_000, count.estimate(), 1e-6);
+        assertTrue(count.low() < 25_000 && count.high() > 25_000);
+        assertEquals(1_879, count.high() - count.estimate(), 5);
+
+        ApproximateAggregator.Interval total = ApproximateAggregator.total(5_000, 60_000, 2_000, 100_000);
+        assertEquals(250_000, total.estimate(), 1e-6);
+        assertTrue(total.low() < 250_000 && total.high() > 250_000);
+
+        // Sketch error widens the lower bound
+        ApproximateAggregator.Interval widened = ApproximateAggregator.count(500, 40, 2_000, 100_000);
+        assertTrue(widened.low() < count.low() - 1_900);
+
+        // Reading the whole population is exact
+        ApproximateAggregator.Interval exact = ApproximateAggregator.count(500, 0, 2_000, 2_000);
+        assertTrue(exact.exact());
+        assertEquals(500, exact.estimate());
+    }
+
+    @Test
+    @DisplayName("GEE distinct estimates stay within their ratio bound")
+    void distinctEstimates() {
+        // Low cardinality: every value repeated in the sample, so nothing unseen is extrapolated
+        ApproximateAggregator.Interval low = ApproximateAggregator.distinct(12, 0, 10_000, 1_000_000);
+        assertEquals(12, low.estimate(), 1e-9);
+        assertEquals(12, low.low(), 1e-9);
+
+        // All sampled values unique: the estimate scales by sqrt(N/n) and is capped by the population
+        ApproximateAggregator.Interval unique = ApproximateAggregator.distinct(10_000, 10_000, 10_000, 1_000_000);
+        assertEquals(100_000, unique.estimate(), 1e-6);
+        assertEquals(10_000, unique.low(), 1e-6);
+        assertEquals(1_000_000, unique.high(), 1e-6);
+        assertTrue(unique.low() <= unique.estimate() && unique.estimate() <= unique.high());
+        System.out.println("✅ Approximate aggregation estimators validated");
+    }
+}
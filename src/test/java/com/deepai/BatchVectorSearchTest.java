@@ -0,0 +1,112 @@
+package com.deepai;
+
+import com.deepai.vector.IvfIndex;
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.PartitionedVectorScanner;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorHit;
+import com.deepai.vector.VectorKernel;
+import com.deepai.vector.VectorKernels;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.deepai.VectorFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for batched multi-query vector search: every batched path must return exactly what the same
+ * queries return one at a time. Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Batched Vector Search Tests")
+public class BatchVectorSearchTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("dotMany matches per-query dot products for scalar and best kernels")
+    void dotManyMatchesDot() {
+        Random random = new Random(5);
+        int dims = 19;
+        ByteBuffer row = ByteBuffer.allocate(8 + dims * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int d = 0; d < dims; d++) {
+            row.putFloat(8 + d * Float.BYTES, (float) random.nextGaussian());
+        }
+        float[][] queries = randomVectors(random, 7, dims);
+
+        for (VectorKernel kernel : List.of(VectorKernels.scalar(), VectorKernels.get())) {
+            float[] dots = new float[queries.length];
+            kernel.dotMany(row, 8, queries, dots);
+            for (int q = 0; q < queries.length; q++) {
+                assertEquals(kernel.dot(row, 8, queries[q]), dots[q], 1e-4, kernel.name() + " query " + q);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Store batch search returns the same hits as one search per query, with and without a filter")
+    void storeBatchMatchesSingleQueries() throws Exception {
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.1.vec"), 2000, 24)) {
+            float[][] queries = randomVectors(new Random(11), 9, 24);
+            BitSet allowed = new BitSet();
+            for (int i = 0; i < 2000; i += 3) {
+                allowed.set(i);
+            }
+
+            for (SimilarityMetric metric : SimilarityMetric.values()) {
+                List<List<VectorHit>> batch = store.searchBatch(queries, 5, metric, null);
+                List<List<VectorHit>> filtered = store.searchBatch(queries, 5, metric, allowed);
+                for (int q = 0; q < queries.length; q++) {
+                    assertSameHits(store.search(queries[q], 5, metric), batch.get(q), 1e-5);
+                    assertSameHits(store.search(queries[q], 5, metric, allowed), filtered.get(q), 1e-5);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("IVF batch search shares posting lists without changing any query's result")
+    void ivfBatchMatchesSingleQueries() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.2.vec"), 3000, 16)) {
+            IvfIndex index = IvfIndex.build(store, SimilarityMetric.COSINE, 25, 4, 0, pool);
+            float[][] queries = randomVectors(new Random(13), 12, 16);
+
+            List<List<VectorHit>> batch = index.searchBatch(queries, 10, null);
+
+            assertEquals(queries.length, batch.size());
+            for (int q = 0; q < queries.length; q++) {
+                assertSameHits(index.search(queries[q], 10), batch.get(q), 1e-5);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Partitioned batch search merges partitions into the exact per-query top-k")
+    void partitionedBatchMatchesSingleQueries() throws Exception {
+        PartitionedVectorScanner scanner = new PartitionedVectorScanner(3, 200);
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.3.vec"), 2500, 12)) {
+            float[][] queries = randomVectors(new Random(17), 6, 12);
+
+            List<List<VectorHit>> batch = scanner.searchBatch(store, queries, 8, SimilarityMetric.DOT_PRODUCT, null);
+
+            for (int q = 0; q < queries.length; q++) {
+                assertSameHits(store.search(queries[q], 8, SimilarityMetric.DOT_PRODUCT), batch.get(q), 1e-5);
+            }
+            System.out.println("✅ Batched search over " + queries.length + " queries matches single-query results");
+        } finally {
+            scanner.shutdown();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.deepai;
+
+import com.deepai.search.Bm25Index;
+import com.deepai.search.RankFusion;
+import com.deepai.search.TextAnalyzer;
+import com.deepai.search.VariableByteCodec;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the local BM25 inverted index and its variable-byte posting encoding.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("BM25 Index Tests")
+public class Bm25IndexTest {
+
+    private static final List<String> FIELDS = List.of("title", "content");
+
+    @Test
+    @DisplayName("Variable-byte values round-trip and small values take one byte")
+    void variableByteRoundTrip() {
+        int[] values = {0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE};
+        VariableByteCodec.Writer writer = new VariableByteCodec.Writer();
+        for (int value : values) {
+            writer.write(value);
+        }
+
+        VariableByteCodec.Reader reader = new VariableByteCodec.Reader(writer.toByteArray());
+        for (int value : values) {
+            assertEquals(value, reader.next());
+        }
+        assertFalse(reader.hasNext());
+        assertEquals(1, new VariableByteCodec.Writer().write(127).size());
+        assertEquals(2, new VariableByteCodec.Writer().write(128).size());
+        assertThrows(IllegalArgumentException.class, () -> writer.write(-1));
+    }
+
+    @Test
+    @DisplayName("Rarer terms and denser matches rank higher")
+    void ranksByBm25() {
+        Bm25Index index = new Bm25Index(FIELDS, TextAnalyzer.ENGLISH, Bm25Index.DEFAULT_K1, Bm25Index.DEFAULT_B);
+        index.put(1, new Document("title", "MongoDB replication guide").append("content", "Replica sets and oplog"));
+        index.put(2, new Document("title", "MongoDB sharding").append("content", "Shard keys, chunks and balancing"));
+        index.put(3, new Document("title", "Cooking pasta").append("content", "Boil water, add salt"));
+        index.put(4, new Document("content", List.of("Replication lag", "replication monitoring", 42)));
+
+        List<RankFusion.Candidate> hits = index.search(List.of("replication"), 10);
+
+        assertEquals(List.of(4, 1), hits.stream().map(RankFusion.Candidate::id).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertEquals(Set.of(2, 3), Set.copyOf(index.search(List.of("sharding", "pasta-free"), 10).stream()
+                .map(RankFusion.Candidate::id).toList()));
+        assertTrue(index.search(List.of("nothing"), 10).isEmpty());
+        assertEquals(List.of(1), index.search(List.of("guides"), 10).stream().map(RankFusion.Candidate::id).toList());
+    }
+
+    @Test
+    @DisplayName("Updates replace documents, deletes remove them, and stats count tombstones")
+    void appliesChanges() {
+        Bm25Index index = new Bm25Index(FIELDS, TextAnalyzer.ENGLISH, Bm25Index.DEFAULT_K1, Bm25Index.DEFAULT_B);
+        for (int i = 0; i < 100; i++) {
+            index.put(i, new Document("title", "document number " + i).append("content", "common words here"));
+        }
+        index.put(7, new Document("title", "vector search internals"));
+
+        Document replacement = new Document("title", "vector databases");
+        Document unrelated = new Document("title", "unrelated");
+        index.apply(Map.of(8, replacement, 9, unrelated), Set.of(7));
+
+        assertEquals(List.of(8), index.search(List.of("vector"), 10).stream().map(RankFusion.Candidate::id).toList());
+        assertEquals(99, index.size());
+        assertEquals(97, index.search(List.of("common"), 200).size());
+        Map<String, Object> stats = index.stats();
+        assertEquals(4, stats.get("tombstones"));
+        assertTrue((Long) stats.get("postingBytes") < (Long) stats.get("postings") * 2 * Integer.BYTES);
+        assertFalse(index.needsRebuild());
+        System.out.println("✅ BM25 index stats: " + stats);
+    }
+
+    @Test
+    @DisplayName("A snapshot round-trips documents, tombstones and postings and keeps accepting updates")
+    void snapshotRoundTrip() throws Exception {
+        Bm25Index index = new Bm25Index(FIELDS, TextAnalyzer.ENGLISH, Bm25Index.DEFAULT_K1, Bm25Index.DEFAULT_B);
+        index.put(new ObjectId("65a000000000000000000001"), new Document("title", "replica set elections"));
+        index.put("doc-2", new Document("title", "sharded cluster balancing"));
+        index.put(3L, new Document("content", "replica set oplog sizing"));
+        index.remove("doc-2");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        Bm25Index restored = Bm25Index.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                FIELDS, TextAnalyzer.ENGLISH, Bm25Index.DEFAULT_K1, Bm25Index.DEFAULT_B);
+
+        assertEquals(index.stats(), restored.stats());
+        assertEquals(index.search(List.of("replica"), 10), restored.search(List.of("replica"), 10));
+        assertTrue(restored.search(List.of("balancing"), 10).isEmpty());
+        restored.put("doc-4", new Document("title", "replica lag alerts"));
+        restored.put(3L, new Document("content", "unrelated"));
+        assertEquals(Set.of(new ObjectId("65a000000000000000000001"), "doc-4"), Set.copyOf(restored
+                .search(List.of("replica"), 10).stream().map(RankFusion.Candidate::id).toList()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.deepai;
+
+import com.deepai.support.BuildOnceCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the build-once cache behind the schema registry and the BM25 index manager.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Build Once Cache Tests")
+public class BuildOnceCacheTest {
+
+    @Test
+    @DisplayName("Concurrent lookups of one key share a single build")
+    void concurrentLookupsShareBuild() throws Exception {
+        BuildOnceCache<String, String> cache = new BuildOnceCache<>("value", 0, value -> { });
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("a", key -> {
+                builds.incrementAndGet();
+                building.countDown();
+                await(release);
+                return key + "-built";
+            }));
+            assertTrue(building.await(5, TimeUnit.SECONDS));
+            List<Future<String>> waiting = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                waiting.add(executor.submit(() -> cache.get("a", key -> key + "-rebuilt")));
+            }
+            release.countDown();
+
+            assertEquals("a-built", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> future : waiting) {
+                assertEquals("a-built", future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, builds.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A failed build is forgotten and a removed key is built again")
+    void failedAndRemovedBuildsRetry() {
+        BuildOnceCache<String, String> cache = new BuildOnceCache<>("value", 0, value -> { });
+
+        assertThrows(IllegalArgumentException.class, () -> cache.get("a", key -> {
+            throw new IllegalArgumentException("no such collection");
+        }));
+        assertEquals(Optional.empty(), cache.getIfBuilt("a"));
+        String built = cache.get("a", key -> key + "1");
+        assertEquals("a1", built);
+
+        assertFalse(cache.remove("a", "other"));
+        assertTrue(cache.remove("a", built));
+        assertEquals("a2", cache.get("a", key -> key + "2"));
+    }
+
+    @Test
+    @DisplayName("Keys beyond the maximum are evicted least recently used first")
+    void evictsLeastRecentlyUsed() {
+        List<String> evicted = new ArrayList<>();
+        BuildOnceCache<String, String> cache = new BuildOnceCache<>("value", 2, evicted::add);
+
+        cache.get("a", key -> key);
+        cache.get("b", key -> key);
+        cache.get("a", key -> "unused");
+        cache.get("c", key -> key);
+
+        assertEquals(List.of("b"), evicted);
+        assertEquals(List.of("a", "c"), cache.values());
+        cache.getIfBuilt("a");
+        cache.get("d", key -> key);
+        assertEquals(List.of("b", "c"), evicted);
+        assertEquals(List.of("a", "d"), cache.clear());
+        assertEquals(List.of(), cache.values());
+        System.out.println("✅ Build-once cache evicts the least recently used values beyond its maximum");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.deepai;
+
+import com.deepai.support.DeferredCloser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the deferred closer behind replaced vector stores and indexes.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Deferred Closer Tests")
+public class DeferredCloserTest {
+
+    @Test
+    @DisplayName("A retired resource is closed once, after the grace period")
+    void closesAfterGracePeriod() throws Exception {
+        DeferredCloser closer = new DeferredCloser("test-reaper", 200);
+        CountDownLatch closed = new CountDownLatch(1);
+        AtomicInteger closes = new AtomicInteger();
+        Closeable resource = () -> {
+            closes.incrementAndGet();
+            closed.countDown();
+        };
+
+        long start = System.nanoTime();
+        closer.retire(resource);
+        closer.retire(resource);
+        assertEquals(1, closer.pending());
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, closes.get());
+        assertEquals(0, closer.pending());
+        closer.closeAll();
+    }
+
+    @Test
+    @DisplayName("A cancelled resource stays open and shutdown closes the pending ones at once")
+    void cancelAndCloseAll() {
+        DeferredCloser closer = new DeferredCloser("test-reaper", 60_000);
+        AtomicInteger kept = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+        Closeable reused = kept::incrementAndGet;
+        Closeable replaced = dropped::incrementAndGet;
+
+        closer.retire(reused);
+        closer.retire(replaced);
+        assertTrue(closer.cancel(reused));
+        assertFalse(closer.cancel(reused));
+        closer.closeAll();
+
+        assertEquals(0, kept.get());
+        assertEquals(1, dropped.get());
+        closer.retire(reused);
+        assertEquals(1, kept.get(), "retiring after shutdown closes immediately");
+        System.out.println("✅ Deferred closer closes retired resources after their grace period");
+    }
+}
@@ -0,0 +1,74 @@
+package com.deepai;
+
+import com.deepai.analytics.DistinctValuePager;
+import org.bson.BsonArray;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for paged distinct values: page tokens and type-preserving value rendering. Runs without Spring
+ * context or MongoDB connectivity.
+ */
+@DisplayName("Distinct Value Pager Tests")
+public class DistinctValuePagerTest {
+
+    @Test
+    @DisplayName("Page tokens round-trip the query and the last value with its BSON type")
+    void pageTokensKeepTypes() {
+        BsonDocument filter = new BsonDocument("status", new BsonString("active"));
+        ObjectId id = new ObjectId();
+        for (BsonValue after : List.of(new BsonInt32(7), new BsonInt64(7L), new BsonObjectId(id),
+                new BsonDecimal128(new Decimal128(new BigDecimal("1.50"))), new BsonString("$notAField"))) {
+            DistinctValuePager.PageToken token = new DistinctValuePager.PageToken("c-1", "shop.orders",
+                    "customer.id", filter, after);
+
+            DistinctValuePager.PageToken decoded = DistinctValuePager.PageToken.decode(token.encode());
+
+            assertEquals(token, decoded);
+            assertEquals(after.getBsonType(), decoded.after().getBsonType());
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed page tokens are rejected")
+    void malformedTokensRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DistinctValuePager.PageToken.decode("not a token!"));
+        assertThrows(IllegalArgumentException.class, () -> DistinctValuePager.PageToken.decode("AAAA"));
+    }
+
+    @Test
+    @DisplayName("Values keep their types instead of being forced to strings")
+    void valuesKeepTheirTypes() {
+        ObjectId id = new ObjectId("5f1d7a3b9c1e4a2b3c4d5e6f");
+
+        assertEquals(42, DistinctValuePager.toJson(new BsonInt32(42)));
+        assertEquals("int", DistinctValuePager.typeOf(new BsonInt32(42)));
+        assertEquals(42L, DistinctValuePager.toJson(new BsonInt64(42L)));
+        assertEquals("long", DistinctValuePager.typeOf(new BsonInt64(42L)));
+        assertEquals("5f1d7a3b9c1e4a2b3c4d5e6f", DistinctValuePager.toJson(new BsonObjectId(id)));
+        assertEquals("objectId", DistinctValuePager.typeOf(new BsonObjectId(id)));
+        assertEquals("1970-01-01T00:00:01Z", DistinctValuePager.toJson(new BsonDateTime(1000)));
+        assertEquals("date", DistinctValuePager.typeOf(new BsonDateTime(1000)));
+
+        BsonDocument nested = new BsonDocument("tags", new BsonArray(List.of(new BsonString("a"), new BsonInt32(1))));
+        assertEquals(Map.of("tags", List.of("a", 1)), DistinctValuePager.toJson(nested));
+        assertEquals("object", DistinctValuePager.typeOf(nested));
+        System.out.println("✅ Distinct values keep their BSON types");
+    }
+}
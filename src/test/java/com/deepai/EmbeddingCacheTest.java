@@ -0,0 +1,100 @@
+package com.deepai;
+
+import com.deepai.embedding.EmbeddingCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the content-hash embedding cache: key normalization, per-model keys, hit-rate accounting and
+ * the memory bound. Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Embedding Cache Tests")
+public class EmbeddingCacheTest {
+
+    @Test
+    @DisplayName("Text that only differs in whitespace is embedded once")
+    void normalizedTextHits() {
+        EmbeddingCache cache = new EmbeddingCache(1 << 20);
+        AtomicInteger calls = new AtomicInteger();
+        Function<String, float[]> model = counting(calls, 16);
+
+        float[] first = cache.get("ada", "  The quick\tbrown   fox\n", model);
+        float[] second = cache.get("ada", "The quick brown fox", model);
+
+        assertEquals(1, calls.get());
+        assertArrayEquals(first, second);
+        assertEquals(EmbeddingCache.key("ada", "The quick brown fox"), EmbeddingCache.key("ada", " The quick brown fox "));
+        assertTrue(EmbeddingCache.key("ada", "fox").matches("ada:[0-9a-f]{64}"));
+    }
+
+    @Test
+    @DisplayName("The same text under different models is cached separately; empty results are not cached")
+    void modelsAreDistinctKeys() {
+        EmbeddingCache cache = new EmbeddingCache(1 << 20);
+        AtomicInteger calls = new AtomicInteger();
+        Function<String, float[]> model = counting(calls, 8);
+
+        cache.get("ada", "hello", model);
+        cache.get("minilm", "hello", model);
+        cache.get("ada", "hello", model);
+        assertNotEquals(EmbeddingCache.key("ada", "hello"), EmbeddingCache.key("minilm", "hello"));
+        assertEquals(2, calls.get());
+
+        assertNull(cache.get("ada", "nothing", text -> null));
+        assertNull(cache.get("ada", "nothing", text -> null));
+        assertEquals(4, ((Number) cache.stats().get("computed")).intValue());
+    }
+
+    @Test
+    @DisplayName("Stats report hits, misses and hit rate")
+    void reportsHitRate() {
+        EmbeddingCache cache = new EmbeddingCache(1 << 20);
+        Function<String, float[]> model = counting(new AtomicInteger(), 8);
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.get("ada", "text " + i, model);
+            }
+        }
+
+        Map<String, Object> stats = cache.stats();
+        assertEquals(30L, stats.get("hits"));
+        assertEquals(10L, stats.get("misses"));
+        assertEquals(0.75, (Double) stats.get("hitRate"), 1e-9);
+        assertEquals(10L, stats.get("computed"));
+        assertFalse(stats.containsKey("persistentHits"));
+        System.out.println("✅ Embedding cache stats: " + stats);
+    }
+
+    @Test
+    @DisplayName("The in-memory tier stays within its byte bound")
+    void staysWithinByteBound() {
+        // 384-dimensional embeddings weigh about 1.7 KB each, so 64 KB holds under forty
+        EmbeddingCache cache = new EmbeddingCache(64 * 1024);
+        Function<String, float[]> model = counting(new AtomicInteger(), 384);
+        IntStream.range(0, 500).forEach(i -> cache.get("ada", "document " + i, model));
+
+        Map<String, Object> stats = cache.stats();
+        long entries = (Long) stats.get("entries");
+        assertTrue(entries <= 64 * 1024 / (384 * Float.BYTES), "entries: " + entries);
+        assertTrue((Long) stats.get("evictions") > 0);
+    }
+
+    private static Function<String, float[]> counting(AtomicInteger calls, int dims) {
+        return text -> {
+            calls.incrementAndGet();
+            int seed = text.hashCode();
+            float[] embedding = new float[dims];
+            for (int i = 0; i < dims; i++) {
+                embedding[i] = (seed >>> (i % 32)) & 1;
+            }
+            return embedding;
+        };
+    }
+}
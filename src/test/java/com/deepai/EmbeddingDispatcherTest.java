@@ -0,0 +1,173 @@
+package com.deepai;
+
+import com.deepai.embedding.EmbeddingDispatcher;
+import com.deepai.embedding.EmbeddingProvider;
+import com.deepai.embedding.HashingEmbeddingProvider;
+import com.deepai.vector.VectorMath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the embedding provider SPI: the hashing stand-in and the micro-batching dispatcher.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Embedding Dispatcher Tests")
+public class EmbeddingDispatcherTest {
+
+    private EmbeddingDispatcher dispatcher;
+    private ExecutorService callers;
+
+    @AfterEach
+    void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (callers != null) {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("The hashing stand-in is deterministic, unit length and batch order preserving")
+    void hashingProviderIsDeterministic() {
+        HashingEmbeddingProvider provider = new HashingEmbeddingProvider(64, 16, 1);
+
+        List<float[]> batch = provider.embed(List.of("alpha", "beta", "alpha"));
+
+        assertEquals("hashing-64", provider.model());
+        assertEquals(3, batch.size());
+        assertEquals(64, batch.get(0).length);
+        assertArrayEquals(batch.get(0), batch.get(2));
+        assertFalse(Arrays.equals(batch.get(0), batch.get(1)));
+        assertArrayEquals(batch.get(1), provider.embed(List.of("beta")).get(0));
+        assertEquals(1.0, VectorMath.norm(batch.get(0)), 1e-5);
+    }
+
+    @Test
+    @DisplayName("Concurrent single-text calls are coalesced into batches within the provider's limits")
+    void coalescesConcurrentCalls() throws Exception {
+        RecordingProvider provider = new RecordingProvider(8, 2, 20);
+        dispatcher = new EmbeddingDispatcher(provider, 50, 256);
+        callers = Executors.newFixedThreadPool(32);
+        HashingEmbeddingProvider reference = new HashingEmbeddingProvider(16, 1, 1);
+
+        List<Future<float[]>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String text = "query " + i;
+            results.add(callers.submit(() -> dispatcher.embed(text)));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertArrayEquals(reference.embed(List.of("query " + i)).get(0), results.get(i).get());
+        }
+
+        assertTrue(provider.batchSizes.stream().allMatch(size -> size <= 8));
+        assertTrue(provider.batchSizes.size() < 64, "batches: " + provider.batchSizes);
+        assertTrue(provider.maxInFlight.get() <= 2);
+        Map<String, Object> stats = dispatcher.stats();
+        assertEquals(64L, stats.get("requests"));
+        assertTrue((Double) stats.get("meanBatchSize") > 1.0);
+        System.out.println("✅ Embedding dispatcher coalesced 64 calls into " + stats.get("batches") + " batches");
+    }
+
+    @Test
+    @DisplayName("A lone call is dispatched once its latency budget expires")
+    void loneCallRespectsLatencyBudget() {
+        dispatcher = new EmbeddingDispatcher(new RecordingProvider(64, 1, 0), 20, 16);
+
+        long start = System.nanoTime();
+        float[] embedding = dispatcher.embed("single");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(16, embedding.length);
+        assertTrue(elapsedMillis < 2000, "elapsed: " + elapsedMillis);
+    }
+
+    @Test
+    @DisplayName("Provider failures reach every caller of the failed batch")
+    void providerFailuresPropagate() {
+        EmbeddingProvider failing = new RecordingProvider(4, 1, 0) {
+            @Override
+            public List<float[]> embed(List<String> texts) {
+                throw new IllegalStateException("model unavailable");
+            }
+        };
+        dispatcher = new EmbeddingDispatcher(failing, 1, 16);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> dispatcher.embed("text"));
+        assertEquals("model unavailable", error.getMessage());
+        assertEquals(1L, dispatcher.stats().get("failedBatches"));
+
+        dispatcher.shutdown();
+        assertThrows(IllegalStateException.class, () -> dispatcher.embed("text"));
+    }
+
+    /**
+     * Hashing provider that records batch sizes and overlapping calls, with an optional per-batch delay.
+     */
+    private static class RecordingProvider implements EmbeddingProvider {
+
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final HashingEmbeddingProvider delegate = new HashingEmbeddingProvider(16, 1, 1);
+        private final int maxBatchSize;
+        private final int maxConcurrency;
+        private final long delayMillis;
+
+        RecordingProvider(int maxBatchSize, int maxConcurrency, long delayMillis) {
+            this.maxBatchSize = maxBatchSize;
+            this.maxConcurrency = maxConcurrency;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public String model() {
+            return "recording";
+        }
+
+        @Override
+        public int dimensions() {
+            return 16;
+        }
+
+        @Override
+        public int maxBatchSize() {
+            return maxBatchSize;
+        }
+
+        @Override
+        public int maxConcurrency() {
+            return maxConcurrency;
+        }
+
+        @Override
+        public List<float[]> embed(List<String> texts) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                batchSizes.add(texts.size());
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                return delegate.embed(texts);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
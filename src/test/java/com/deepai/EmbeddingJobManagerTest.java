@@ -0,0 +1,112 @@
+package com.deepai;
+
+import com.deepai.embedding.EmbeddingJobManager.ChunkSource;
+import com.deepai.embedding.EmbeddingJobManager.State;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for embedding job checkpoint chunks and job state transitions.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Embedding Job Manager Tests")
+public class EmbeddingJobManagerTest {
+
+    @Test
+    @DisplayName("A resumed chunk skips the checkpointed document and remembers the last _id read")
+    void resumedChunkSkipsCheckpoint() {
+        List<Document> chunk = documents(5, 6, 7, 8);
+        ChunkSource source = new ChunkSource(chunk, true, 5, () -> false);
+
+        assertEquals(List.of(6, 7, 8), ids(source));
+        assertEquals(3, source.read());
+        assertEquals(8, source.lastId());
+    }
+
+    @Test
+    @DisplayName("Only the first document is skipped, and only when it is the checkpoint")
+    void skipsOnlyALeadingCheckpoint() {
+        ChunkSource deleted = new ChunkSource(documents(6, 7), true, 5, () -> false);
+        assertEquals(List.of(6, 7), ids(deleted));
+
+        ChunkSource first = new ChunkSource(documents(5, 6), false, null, () -> false);
+        assertEquals(List.of(5, 6), ids(first));
+
+        ChunkSource repeated = new ChunkSource(documents(6, 5), true, 5, () -> false);
+        assertEquals(List.of(6, 5), ids(repeated));
+    }
+
+    @Test
+    @DisplayName("An empty chunk, or one holding only the checkpoint, reads nothing")
+    void exhaustedChunkReadsNothing() {
+        ChunkSource onlyCheckpoint = new ChunkSource(documents(5), true, 5, () -> false);
+        assertEquals(List.of(), ids(onlyCheckpoint));
+        assertEquals(0, onlyCheckpoint.read());
+        assertNull(onlyCheckpoint.lastId());
+
+        ChunkSource empty = new ChunkSource(List.of(), false, null, () -> false);
+        empty.iterator();
+        assertFalse(empty.hasNext());
+        assertThrows(NoSuchElementException.class, empty::next);
+    }
+
+    @Test
+    @DisplayName("A stop request ends the chunk at the last document handed out")
+    void stopEndsChunk() {
+        AtomicBoolean stopped = new AtomicBoolean();
+        ChunkSource source = new ChunkSource(documents(1, 2, 3, 4), false, null, stopped::get);
+
+        source.iterator();
+        assertEquals(1, source.next().get("_id"));
+        assertEquals(2, source.next().get("_id"));
+        stopped.set(true);
+
+        assertFalse(source.hasNext());
+        assertEquals(2, source.read());
+        assertEquals(2, source.lastId());
+    }
+
+    @Test
+    @DisplayName("Pause and cancel cannot be overwritten by a runner starting, completing or failing")
+    void transitionsGuardAgainstRaces() {
+        assertEquals(EnumSet.of(State.QUEUED, State.RUNNING), State.PAUSED.allowedFrom());
+        assertEquals(EnumSet.of(State.PAUSED, State.FAILED), State.QUEUED.allowedFrom());
+
+        for (State stopped : List.of(State.PAUSED, State.CANCELLED)) {
+            assertFalse(State.RUNNING.allowedFrom().contains(stopped), "start after " + stopped.label());
+            assertFalse(State.COMPLETED.allowedFrom().contains(stopped), "complete after " + stopped.label());
+            assertFalse(State.FAILED.allowedFrom().contains(stopped), "fail after " + stopped.label());
+        }
+        for (State finished : List.of(State.CANCELLED, State.COMPLETED)) {
+            for (State state : State.values()) {
+                assertFalse(state.allowedFrom().contains(finished), finished.label() + " -> " + state.label());
+            }
+        }
+        assertTrue(State.CANCELLED.allowedFrom().containsAll(
+                EnumSet.of(State.QUEUED, State.RUNNING, State.PAUSED, State.FAILED)));
+        assertTrue(State.RUNNING.allowedFrom().contains(State.RUNNING), "jobs left running are recovered");
+        System.out.println("✅ Job state transitions only start from the states they are allowed from");
+    }
+
+    private static List<Document> documents(int... ids) {
+        return IntStream.of(ids).mapToObj(id -> new Document("_id", id).append("text", "doc " + id)).toList();
+    }
+
+    private static List<Object> ids(ChunkSource source) {
+        List<Object> ids = new ArrayList<>();
+        for (Document document : source) {
+            ids.add(document.get("_id"));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,148 @@
+package com.deepai;
+
+import com.deepai.embedding.EmbeddingPipeline;
+import com.deepai.vector.VectorMath;
+import com.mongodb.client.model.UpdateOneModel;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the pipelined embedding back-fill: streaming source, worker pool and batched bulk writes.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Embedding Pipeline Tests")
+public class EmbeddingPipelineTest {
+
+    private EmbeddingPipeline pipeline;
+
+    @AfterEach
+    void shutdown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Every embedded document is written exactly once in batches capped by document count")
+    void writesEveryDocumentInCappedBatches() throws Exception {
+        pipeline = new EmbeddingPipeline(3, 40, Long.MAX_VALUE, 16);
+        List<List<UpdateOneModel<Document>>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        EmbeddingPipeline.Stats stats = pipeline.run(documents(250), "embedding", doc -> embedding(8),
+                batch -> {
+                    batches.add(List.copyOf(batch));
+                    return batch.size();
+                });
+
+        assertEquals(250, stats.read());
+        assertEquals(250, stats.written());
+        assertEquals(7, stats.bulkWrites());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 40));
+        Set<Object> ids = new HashSet<>();
+        batches.forEach(batch -> batch.forEach(update -> ids.add(update.getFilter().toBsonDocument().get("_id"))));
+        assertEquals(250, ids.size());
+        Document set = (Document) ((Document) batches.get(0).get(0).getUpdate()).get("$set");
+        assertEquals(8, VectorMath.toFloatArray(set.get("embedding")).length);
+        assertTrue(stats.documentsPerSecond() > 0);
+        assertTrue(stats.bytesPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("Batches are flushed early once their estimated size reaches the byte cap")
+    void flushesOnByteCap() throws Exception {
+        pipeline = new EmbeddingPipeline(2, 1000, 4096, 32);
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+
+        EmbeddingPipeline.Stats stats = pipeline.run(documents(100), "embedding", doc -> embedding(512),
+                batch -> {
+                    sizes.add(batch.size());
+                    return batch.size();
+                });
+
+        assertEquals(100, stats.written());
+        assertTrue(sizes.size() > 1, "512-dimensional updates exceed 4 KB within a few documents");
+        assertTrue(sizes.stream().allMatch(size -> size <= 3));
+        assertTrue(stats.bytesWritten() >= 100L * 512 * Float.BYTES);
+    }
+
+    @Test
+    @DisplayName("Every document is prefetched in a chunk before it is embedded")
+    void prefetchesChunksBeforeEmbedding() throws Exception {
+        pipeline = new EmbeddingPipeline(2, 50, Long.MAX_VALUE, 64);
+        Set<Object> prefetched = ConcurrentHashMap.newKeySet();
+        List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger embeddedBeforePrefetch = new AtomicInteger();
+
+        EmbeddingPipeline.Stats stats = pipeline.run(documents(200), "embedding", new EmbeddingPipeline.Embedder() {
+            @Override
+            public float[] embed(Document document) {
+                if (!prefetched.contains(document.get("_id"))) {
+                    embeddedBeforePrefetch.incrementAndGet();
+                }
+                return embedding(4);
+            }
+
+            @Override
+            public void prefetch(List<Document> documents) {
+                chunkSizes.add(documents.size());
+                documents.forEach(document -> prefetched.add(document.get("_id")));
+            }
+        }, List::size);
+
+        assertEquals(200, stats.written());
+        assertEquals(0, embeddedBeforePrefetch.get());
+        assertEquals(List.of(64, 64, 64, 8), chunkSizes, "chunks are capped by the queue capacity");
+    }
+
+    @Test
+    @DisplayName("Empty embeddings are skipped, embedder errors counted, and sink failures surface")
+    void skipsAndFailures() throws Exception {
+        pipeline = new EmbeddingPipeline(2, 10, Long.MAX_VALUE, 8);
+
+        EmbeddingPipeline.Stats stats = pipeline.run(documents(60), "embedding", doc -> {
+            int id = doc.getInteger("_id");
+            if (id % 10 == 0) {
+                throw new IllegalArgumentException("bad text");
+            }
+            return id % 3 == 0 ? null : embedding(4);
+        }, List::size);
+
+        assertEquals(60, stats.read());
+        assertEquals(6, stats.failed());
+        assertEquals(18, stats.skipped());
+        assertEquals(36, stats.written());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> pipeline.run(documents(500), "embedding", doc -> embedding(4), batch -> {
+                    throw new IllegalStateException("write concern failed");
+                }));
+        assertEquals("write concern failed", error.getMessage());
+        System.out.println("✅ Embedding pipeline wrote " + stats.written() + " documents in " + stats.bulkWrites()
+                + " bulk writes");
+    }
+
+    private static List<Document> documents(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Document("_id", i).append("text", "doc " + i)).toList();
+    }
+
+    private static float[] embedding(int dims) {
+        float[] embedding = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            embedding[i] = 1f / (i + 1);
+        }
+        return embedding;
+    }
+}
@@ -0,0 +1,118 @@
+package com.deepai;
+
+import com.deepai.vector.HnswIndex;
+import com.deepai.vector.VectorHit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static com.deepai.VectorFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the in-process HNSW vector index.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("HNSW Vector Index Tests")
+public class HnswIndexTest {
+
+    @Test
+    @DisplayName("Exact match is returned first with similarity 1.0")
+    void exactMatchRankedFirst() {
+        HnswIndex index = new HnswIndex(3, 4, 16, 16);
+        index.add("a", new float[] {1f, 0f, 0f});
+        index.add("b", new float[] {0f, 1f, 0f});
+        index.add("c", new float[] {0.9f, 0.1f, 0f});
+
+        List<VectorHit> hits = index.search(new float[] {1f, 0f, 0f}, 2);
+
+        assertEquals(2, hits.size());
+        assertEquals("a", hits.get(0).id());
+        assertEquals(1.0, hits.get(0).score(), 1e-5);
+        assertEquals("c", hits.get(1).id());
+    }
+
+    @Test
+    @DisplayName("Rejects vectors with the wrong dimension or zero length")
+    void rejectsInvalidVectors() {
+        HnswIndex index = new HnswIndex(3, 4, 16, 16);
+
+        assertEquals(-1, index.add("short", new float[] {1f, 0f}));
+        assertEquals(-1, index.add("zero", new float[] {0f, 0f, 0f}));
+        assertEquals(0, index.size());
+        assertTrue(index.search(new float[] {1f, 0f, 0f}, 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Re-adding an id replaces its vector in approximate and exact results")
+    void readdedIdSupersedesPreviousNode() {
+        HnswIndex index = new HnswIndex(3, 4, 16, 16);
+        index.add("a", new float[] {1f, 0f, 0f});
+        index.add("b", new float[] {1f, 1f, 0f});
+        int node = index.add("a", new float[] {0f, 0f, 1f});
+
+        assertEquals(node, index.ordinal("a"));
+        List<VectorHit> approximate = index.search(new float[] {1f, 0f, 0f}, 3);
+        assertEquals(List.of("b", "a"), approximate.stream().map(VectorHit::id).toList());
+        assertEquals(node, approximate.get(1).ordinal());
+        assertEquals(0.0, approximate.get(1).score(), 1e-5);
+
+        List<VectorHit> exact = index.exactSearch(new float[] {0f, 0f, 1f}, 3);
+        assertEquals(List.of("a", "b"), exact.stream().map(VectorHit::id).toList());
+        assertEquals(1.0, exact.get(0).score(), 1e-5);
+    }
+
+    @Test
+    @DisplayName("Recall against brute force is high on random vectors")
+    void recallAgainstBruteForce() {
+        Random random = new Random(1);
+        HnswIndex index = new HnswIndex(32, 16, 100, 64);
+        for (int i = 0; i < 2000; i++) {
+            index.add(i, randomVector(random, 32));
+        }
+
+        double recall = index.measureRecall(50, 10);
+
+        assertEquals(2000, index.size());
+        assertTrue(recall >= 0.9, "recall@10 should be at least 0.9 but was " + recall);
+        System.out.println("✅ HNSW recall@10 = " + recall);
+    }
+
+    @Test
+    @DisplayName("Filtered search only returns allowed ordinals and keeps recall under tight filters")
+    void filteredSearch() {
+        Random random = new Random(5);
+        HnswIndex index = new HnswIndex(16, 16, 100, 64);
+        for (int i = 0; i < 6000; i++) {
+            index.add("doc-" + i, randomVector(random, 16));
+        }
+        BitSet half = new BitSet();
+        BitSet few = new BitSet();
+        for (int i = 0; i < 6000; i++) {
+            if (i % 2 == 0) {
+                half.set(i);
+            }
+            if (i % 1000 == 7) {
+                few.set(i);
+            }
+        }
+        float[] query = new float[16];
+        query[0] = 1f;
+
+        List<VectorHit> halfHits = index.search(query, 10, half);
+        assertEquals(10, halfHits.size());
+        assertTrue(halfHits.stream().allMatch(hit -> half.get(hit.ordinal())));
+        long overlap = index.exactSearch(query, 10, half).stream().filter(halfHits::contains).count();
+        assertTrue(overlap >= 8, "filtered recall@10 should be at least 0.8 but was " + overlap / 10.0);
+
+        List<VectorHit> fewHits = index.search(query, 10, few);
+        assertEquals(6, fewHits.size());
+        assertEquals(index.exactSearch(query, 10, few), fewHits);
+        assertEquals(1007, index.ordinal("doc-1007"));
+        assertEquals(-1, index.ordinal("missing"));
+        System.out.println("✅ HNSW filtered search verified");
+    }
+}
@@ -0,0 +1,96 @@
+package com.deepai;
+
+import com.deepai.vector.HnswIndex;
+import com.deepai.vector.IvfIndex;
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorHit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.deepai.VectorFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HNSW and IVF index snapshots: a reloaded index must answer exactly like the one that was
+ * saved, and a snapshot must not be paired with a different vector store.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Index Snapshot Tests")
+public class IndexSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("A reloaded HNSW graph returns the same hits as the graph that was saved")
+    void hnswRoundTrip() throws Exception {
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.1.vec"), 1500, 24)) {
+            HnswIndex built = HnswIndex.build(store, 12, 100, 48, SimilarityMetric.COSINE);
+            Path snapshot = tempDir.resolve("embedding.1.hnsw.vidx");
+            built.save(snapshot, store.createdAt());
+
+            HnswIndex loaded = HnswIndex.load(snapshot, store);
+
+            assertEquals(built.size(), loaded.size());
+            assertEquals(built.getM(), loaded.getM());
+            assertEquals(built.getEfSearch(), loaded.getEfSearch());
+            assertEquals(built.ordinal(42), loaded.ordinal(42));
+            for (float[] query : randomVectors(new Random(3), 20, 24)) {
+                assertSameHits(built.search(query, 10), loaded.search(query, 10), 1e-6);
+            }
+            System.out.println("✅ HNSW snapshot of " + loaded.size() + " nodes: " + Files.size(snapshot) + " bytes");
+        }
+    }
+
+    @Test
+    @DisplayName("A reopened IVF index keeps its centroids, posting lists and nprobe")
+    void ivfRoundTrip() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.2.vec"), 3000, 16)) {
+            IvfIndex built = IvfIndex.build(store, SimilarityMetric.EUCLIDEAN, 30, 5, 0, pool);
+            Path snapshot = tempDir.resolve("embedding.2.ivf.vidx");
+            built.save(snapshot);
+
+            IvfIndex loaded = IvfIndex.open(snapshot, store);
+
+            assertEquals(built.lists(), loaded.lists());
+            assertEquals(built.largestList(), loaded.largestList());
+            assertEquals(5, loaded.getNprobe());
+            assertEquals(SimilarityMetric.EUCLIDEAN, loaded.metric());
+            for (float[] query : randomVectors(new Random(4), 20, 16)) {
+                assertSameHits(built.search(query, 10), loaded.search(query, 10), 1e-6);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots are rejected for a store they were not built from")
+    void rejectsForeignStore() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.3.vec"), 800, 8);
+             MappedVectorStore other = randomStore(tempDir.resolve("embedding.4.vec"), 900, 8)) {
+            Path hnsw = tempDir.resolve("embedding.3.hnsw.vidx");
+            Path ivf = tempDir.resolve("embedding.3.ivf.vidx");
+            HnswIndex.build(store, 8, 50, 32, SimilarityMetric.COSINE).save(hnsw, store.createdAt());
+            IvfIndex.build(store, SimilarityMetric.COSINE, 10, 2, 0, pool).save(ivf);
+
+            assertThrows(IOException.class, () -> HnswIndex.load(hnsw, other));
+            assertThrows(IOException.class, () -> IvfIndex.open(ivf, other));
+            assertThrows(IOException.class, () -> IvfIndex.open(hnsw, store));
+            assertFalse(Files.exists(tempDir.resolve("embedding.3.hnsw.vidx.tmp")));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.deepai;
+
+import com.deepai.vector.IvfIndex;
+import com.deepai.vector.KMeans;
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorHit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the IVF vector index and its fork/join k-means training.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("IVF Vector Index Tests")
+public class IvfIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("k-means separates well-separated clusters")
+    void kMeansFindsClusters() {
+        Random random = new Random(3);
+        float[][] data = new float[600][];
+        for (int i = 0; i < data.length; i++) {
+            float center = (i % 3) * 10f;
+            data[i] = new float[] {center + (float) random.nextGaussian() * 0.1f,
+                    center + (float) random.nextGaussian() * 0.1f};
+        }
+
+        float[][] centroids = KMeans.train(data, 3, 20, 1L, pool);
+
+        for (int i = 0; i < 3; i++) {
+            int nearest = KMeans.nearest(centroids, data[i]);
+            assertEquals(i * 10f, centroids[nearest][0], 0.1f);
+        }
+    }
+
+    @Test
+    @DisplayName("Probing every list matches brute force; fewer probes trade recall for speed")
+    void nprobeTradesRecall() throws Exception {
+        try (MappedVectorStore store = clusteredStore("embedding.1.vec", 3000, 16)) {
+            IvfIndex index = IvfIndex.build(store, SimilarityMetric.COSINE, 30, 30, 0, pool);
+
+            assertEquals("ivf", index.type());
+            assertEquals(30, index.lists());
+            assertEquals(1.0, index.measureRecall(20, 10), 1e-9);
+
+            index.setNprobe(3);
+            double recall = index.measureRecall(20, 10);
+            assertTrue(recall > 0.5, "recall@10 with nprobe=3 should exceed 0.5 but was " + recall);
+            System.out.println("✅ IVF recall@10 with nprobe=3 = " + recall);
+        }
+    }
+
+    @Test
+    @DisplayName("Search returns the stored row itself first")
+    void exactRowRankedFirst() throws Exception {
+        try (MappedVectorStore store = clusteredStore("embedding.2.vec", 500, 8)) {
+            IvfIndex index = IvfIndex.build(store, SimilarityMetric.EUCLIDEAN, 0, 2, 0, pool);
+            float[] query = new float[8];
+            store.read(42, query);
+
+            List<VectorHit> hits = index.search(query, 3);
+
+            assertEquals(3, hits.size());
+            assertEquals(42, hits.get(0).id());
+            assertEquals(1.0, hits.get(0).score(), 1e-5);
+        }
+    }
+
+    @Test
+    @DisplayName("Filtered search probes past nprobe until enough allowed rows are found")
+    void filteredSearchFindsAllowedRows() throws Exception {
+        try (MappedVectorStore store = clusteredStore("embedding.3.vec", 6000, 8)) {
+            IvfIndex index = IvfIndex.build(store, SimilarityMetric.COSINE, 40, 1, 0, pool);
+            BitSet allowed = new BitSet();
+            for (int i = 0; i < 6000; i += 2) {
+                allowed.set(i);
+            }
+            float[] query = new float[8];
+            store.read(1, query);
+
+            List<VectorHit> hits = index.search(query, 10, allowed);
+
+            assertEquals(10, hits.size());
+            assertTrue(hits.stream().allMatch(hit -> allowed.get(hit.ordinal())));
+            assertEquals(4, index.ordinal(4));
+        }
+    }
+
+    private MappedVectorStore clusteredStore(String name, int count, int dims) throws Exception {
+        Random random = new Random(count);
+        float[][] centers = new float[20][dims];
+        for (float[] center : centers) {
+            for (int d = 0; d < dims; d++) {
+                center[d] = (float) random.nextGaussian() * 5f;
+            }
+        }
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(tempDir.resolve(name), dims)) {
+            for (int i = 0; i < count; i++) {
+                float[] center = centers[i % centers.length];
+                float[] vector = new float[dims];
+                for (int d = 0; d < dims; d++) {
+                    vector[d] = center[d] + (float) random.nextGaussian();
+                }
+                writer.add(i, vector);
+            }
+            return writer.commit(count);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.deepai;
+
+import com.deepai.vector.HnswIndex;
+import com.deepai.vector.LiveVectorIndex;
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorHit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.deepai.VectorFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the delta overlay that keeps a built vector index current between rebuilds.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Live Vector Index Tests")
+public class LiveVectorIndexTest {
+
+    private static final int DIMS = 16;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Inserted, updated and deleted vectors are reflected without rebuilding the base")
+    void appliesWrites() {
+        LiveVectorIndex live = new LiveVectorIndex(baseIndex(300));
+        float[] fresh = randomVector(new Random(99), DIMS);
+        float[] moved = randomVector(new Random(100), DIMS);
+
+        live.apply(Map.of("new-doc", fresh, 5, moved), Set.of(7));
+
+        assertEquals(300, live.size());
+        assertEquals(2, live.deltaSize());
+        assertEquals(2, live.maskedCount());
+        assertEquals("new-doc", live.search(fresh, 1).get(0).id());
+        assertEquals(5, live.search(moved, 1).get(0).id());
+        assertEquals(-1, live.ordinal(7));
+        assertTrue(live.ordinal(5) >= 300, "updated documents are served from the delta");
+
+        float[] deletedVector = baseVectors(300)[7];
+        assertTrue(live.search(deletedVector, 10).stream().noneMatch(hit -> Integer.valueOf(7).equals(hit.id())));
+        float[] oldVectorOf5 = baseVectors(300)[5];
+        VectorHit top = live.search(oldVectorOf5, 1).get(0);
+        assertNotEquals(1.0, top.score(), 1e-6, "the superseded base row of document 5 must not be returned");
+    }
+
+    @Test
+    @DisplayName("Later batches replace earlier delta rows and removing the field drops the document")
+    void laterBatchesWin() {
+        LiveVectorIndex live = new LiveVectorIndex(baseIndex(50));
+        float[] first = randomVector(new Random(1), DIMS);
+        float[] second = randomVector(new Random(2), DIMS);
+
+        live.apply(Map.of("doc", first), Set.of());
+        live.apply(Map.of("doc", second), Set.of());
+        assertEquals(1, live.deltaSize());
+        assertEquals(1.0, live.search(second, 1).get(0).score(), 1e-5);
+
+        HashMap<Object, float[]> removal = new HashMap<>();
+        removal.put("doc", null);
+        live.apply(removal, Set.of());
+        assertEquals(0, live.deltaSize());
+        assertEquals(-1, live.ordinal("doc"));
+        assertEquals(50, live.size());
+    }
+
+    @Test
+    @DisplayName("Prefilters resolved through ordinal() cover base and delta rows; batches match single queries")
+    void filtersAndBatches() {
+        LiveVectorIndex live = new LiveVectorIndex(baseIndex(200));
+        float[] fresh = randomVector(new Random(7), DIMS);
+        live.apply(Map.of("extra", fresh), Set.of(3));
+
+        BitSet allowed = new BitSet();
+        for (Object id : List.of(1, 2, 3, "extra")) {
+            int ordinal = live.ordinal(id);
+            if (ordinal >= 0) {
+                allowed.set(ordinal);
+            }
+        }
+        List<VectorHit> hits = live.search(fresh, 10, allowed);
+        assertEquals(List.of("extra"), hits.stream().limit(1).map(VectorHit::id).toList());
+        assertEquals(3, hits.size());
+
+        float[][] queries = {fresh, baseVectors(200)[10], randomVector(new Random(8), DIMS)};
+        List<List<VectorHit>> batch = live.searchBatch(queries, 5, null);
+        for (int q = 0; q < queries.length; q++) {
+            assertEquals(live.search(queries[q], 5).stream().map(VectorHit::id).toList(),
+                    batch.get(q).stream().map(VectorHit::id).toList());
+        }
+        System.out.println("✅ Live index serves " + live.deltaSize() + " delta rows over a " + live.type() + " base");
+    }
+
+    @Test
+    @DisplayName("Compaction writes the served rows: unmasked base rows, then live delta rows")
+    void writesMergedRows() throws Exception {
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.1.vec"), 100, DIMS)) {
+            LiveVectorIndex live = new LiveVectorIndex(HnswIndex.build(store, 16, 200, 64, SimilarityMetric.COSINE));
+            float[] moved = randomVector(new Random(5), DIMS);
+            float[] fresh = randomVector(new Random(6), DIMS);
+            live.apply(Map.of(5, moved, "gone", fresh), Set.of(7));
+            live.apply(Map.of("new-doc", fresh), Set.of("gone"));
+            assertEquals(3, live.deltaRows(), "deleted delta slots are still scanned until compaction");
+            assertEquals(2, live.deltaSize());
+
+            int written;
+            try (MappedVectorStore.Writer writer = MappedVectorStore.writer(tempDir.resolve("embedding.2.vec"),
+                    DIMS)) {
+                written = live.writeTo(store, writer);
+                writer.commit(0L).close();
+            }
+
+            try (MappedVectorStore merged = MappedVectorStore.open(tempDir.resolve("embedding.2.vec"))) {
+                assertEquals(100, written);
+                assertEquals(live.size(), merged.size());
+                assertEquals(-1, merged.ordinal(7));
+                assertEquals(-1, merged.ordinal("gone"));
+                float[] row = new float[DIMS];
+                merged.read(merged.ordinal(5), row);
+                assertArrayEquals(moved, row);
+                merged.read(merged.ordinal("new-doc"), row);
+                assertArrayEquals(fresh, row);
+                merged.read(merged.ordinal(6), row);
+                float[] original = new float[DIMS];
+                store.read(6, original);
+                assertArrayEquals(original, row);
+            }
+        }
+    }
+
+    private static HnswIndex baseIndex(int count) {
+        HnswIndex index = new HnswIndex(DIMS, 16, 200, 128, SimilarityMetric.COSINE);
+        float[][] vectors = baseVectors(count);
+        for (int i = 0; i < count; i++) {
+            index.add(i, vectors[i]);
+        }
+        return index;
+    }
+
+    private static float[][] baseVectors(int count) {
+        return randomVectors(new Random(42), count, DIMS);
+    }
+}
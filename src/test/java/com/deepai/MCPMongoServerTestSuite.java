@@ -17,7 +17,7 @@ import org.junit.platform.suite.api.SuiteDisplayName;
  * - All Tools Validation: Complete @Tool method validation (12 tests)
  * - Advanced Business Logic: Complex scenarios and edge cases (10 tests)
  * 
- * Total Test Coverage: 46 test methods across ALL 39 MongoDB MCP tools
+ * Total Test Coverage: 46 test methods across ALL 48 MongoDB MCP tools
  */
 @Suite
 @SuiteDisplayName("MCP MongoDB Server - Complete Test Suite")
@@ -75,7 +75,7 @@ public class MCPMongoServerTestSuite {
      *   * Vector Tools: vectorSearch, generateEmbeddings
      *   * Analysis Tools: aiAnalyzeDocument, aiAnalyzeCollection, aiQuerySuggestions, aiSummarizeContent, naturalLanguageSearch
      * - Complete method signature and parameter validation
-     * - Return type validation for all 39 @Tool methods
+     * - Return type validation for all 48 @Tool methods
      * 
      * AdvancedMongoToolsBusinessLogicTest (10 tests):
      * - Advanced database name validation with edge cases
@@ -92,10 +92,10 @@ public class MCPMongoServerTestSuite {
      * COMPLETE MONGODB MCP SERVER VALIDATION:
      * ======================================
      * 
-     * ✅ ALL 39 @Tool Methods Validated:
+     * ✅ ALL 48 @Tool Methods Validated:
      *    - MongoServiceClient: 20 tools
      *    - MongoAdvancedAnalyticsService: 12 tools  
-     *    - MongoAIService: 7 tools
+     *    - MongoAIService: 16 tools
      * 
      * ✅ Comprehensive Testing Approach:
      *    - Method signature validation via reflection
@@ -124,7 +124,7 @@ public class MCPMongoServerTestSuite {
      * VALIDATION ACHIEVEMENTS:
      * =======================
      * 
-     * ✅ Complete @Tool method coverage (39/39 tools validated)
+     * ✅ Complete @Tool method coverage (48/48 tools validated)
      * ✅ Advanced business logic validation implemented
      * ✅ Comprehensive error handling and security testing
      * ✅ Edge case and boundary condition testing
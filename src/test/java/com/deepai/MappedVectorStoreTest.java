@@ -0,0 +1,99 @@
+package com.deepai;
+
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.VectorHit;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the memory-mapped float32 vector store.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Memory-Mapped Vector Store Tests")
+public class MappedVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Rows and _ids round-trip through the store file")
+    void roundTripsRowsAndIds() throws Exception {
+        Path file = tempDir.resolve("embedding.1.vec");
+        ObjectId objectId = new ObjectId();
+
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(file, 3)) {
+            assertTrue(writer.add(objectId, new float[] {1f, 2f, 3f}));
+            assertTrue(writer.add(42L, new float[] {4f, 5f, 6f}));
+            assertTrue(writer.add("doc-3", new float[] {0f, 0f, 1f}));
+            assertFalse(writer.add("wrong-size", new float[] {1f}));
+            writer.commit(10L).close();
+        }
+
+        try (MappedVectorStore store = MappedVectorStore.open(file)) {
+            assertEquals(3, store.size());
+            assertEquals(3, store.dimensions());
+            assertEquals(10L, store.fingerprint());
+            assertEquals(objectId, store.id(0));
+            assertEquals(42L, store.id(1));
+            assertEquals("doc-3", store.id(2));
+
+            float[] row = new float[3];
+            store.read(1, row);
+            assertArrayEquals(new float[] {4f, 5f, 6f}, row);
+        }
+    }
+
+    @Test
+    @DisplayName("Ordinals are found through the on-disk id lookup table")
+    void looksUpOrdinalsById() throws Exception {
+        Path file = tempDir.resolve("embedding.3.vec");
+        int count = 5000;
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(file, 2)) {
+            for (int i = 0; i < count; i++) {
+                Object id = i % 2 == 0 ? "doc-" + i : (Object) (long) i;
+                assertTrue(writer.add(id, new float[] {i, 1f}));
+            }
+            writer.commit(1L).close();
+        }
+
+        try (MappedVectorStore store = MappedVectorStore.open(file)) {
+            for (int i = 0; i < count; i++) {
+                Object id = i % 2 == 0 ? "doc-" + i : (Object) (long) i;
+                assertEquals(i, store.ordinal(id), id.toString());
+            }
+            assertEquals(-1, store.ordinal("doc-1"));
+            assertEquals(-1, store.ordinal(2L));
+            assertEquals(-1, store.ordinal(1), "an int32 id is not the int64 id of the same value");
+            assertEquals("doc-4998", store.id(4998));
+            System.out.println("✅ " + count + " ids resolve to their ordinals without a heap lookup map");
+        }
+    }
+
+    @Test
+    @DisplayName("Search ranks stored rows by cosine similarity")
+    void searchRanksByCosine() throws Exception {
+        Path file = tempDir.resolve("embedding.2.vec");
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(file, 2)) {
+            writer.add("east", new float[] {1f, 0f});
+            writer.add("north", new float[] {0f, 1f});
+            writer.add("north-east", new float[] {1f, 1f});
+            writer.commit(3L).close();
+        }
+
+        try (MappedVectorStore store = MappedVectorStore.open(file)) {
+            List<VectorHit> hits = store.search(new float[] {2f, 0.1f}, 2);
+
+            assertEquals(2, hits.size());
+            assertEquals("east", hits.get(0).id());
+            assertEquals("north-east", hits.get(1).id());
+            assertTrue(hits.get(0).score() > hits.get(1).score());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.deepai;
+
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.PartitionedVectorScanner;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorHit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static com.deepai.VectorFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the parallel partitioned exact vector scan.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Partitioned Vector Scanner Tests")
+public class PartitionedVectorScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Partitioned store search returns exactly the single-threaded top-k")
+    void matchesSingleThreadedSearch() throws Exception {
+        PartitionedVectorScanner scanner = new PartitionedVectorScanner(4, 100);
+        float[][] vectors = randomVectors(new Random(11), 1500, 24);
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(tempDir.resolve("embedding.1.vec"), 24)) {
+            for (int i = 0; i < vectors.length; i++) {
+                writer.add("doc-" + i, vectors[i]);
+            }
+            try (MappedVectorStore store = writer.commit(1500)) {
+                float[] query = new float[24];
+                store.read(77, query);
+                for (SimilarityMetric metric : SimilarityMetric.values()) {
+                    List<VectorHit> expected = store.search(query, 10, metric);
+                    List<VectorHit> actual = scanner.search(store, query, 10, metric);
+
+                    assertEquals(expected.stream().map(VectorHit::id).toList(),
+                            actual.stream().map(VectorHit::id).toList(), metric.name());
+                }
+                assertEquals("doc-77", scanner.search(store, query, 1, SimilarityMetric.COSINE).get(0).id());
+            }
+        } finally {
+            scanner.shutdown();
+        }
+        System.out.println("✅ Partitioned scan matches single-threaded scan");
+    }
+}
@@ -0,0 +1,85 @@
+package com.deepai;
+
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.QuantizedVectorIndex;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorHit;
+import com.deepai.vector.VectorQuantizer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.deepai.VectorFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the int8 and product-quantized vector indexes.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Quantized Vector Index Tests")
+public class QuantizedVectorIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("int8 codes are 4x smaller and keep recall high after re-ranking")
+    void int8RecallWithRerank() throws Exception {
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.1.vec"), 2000, 32);
+             QuantizedVectorIndex index = QuantizedVectorIndex.build(store, tempDir.resolve("embedding.1.int8.qvec"),
+                     VectorQuantizer.Type.INT8, SimilarityMetric.COSINE, 0, 4, 0)) {
+            assertEquals("int8", index.type());
+            assertEquals(32, index.codeSize());
+            assertEquals(4.0, index.compressionRatio(), 1e-9);
+
+            double recall = index.measureRecall(30, 10);
+            assertTrue(recall >= 0.95, "int8 recall@10 should be at least 0.95 but was " + recall);
+            System.out.println("✅ int8 recall@10 = " + recall);
+        }
+    }
+
+    @Test
+    @DisplayName("PQ codes use one byte per subspace and re-ranking returns exact scores")
+    void productQuantizationWithRerank() throws Exception {
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.2.vec"), 1500, 32);
+             QuantizedVectorIndex index = QuantizedVectorIndex.build(store, tempDir.resolve("embedding.2.pq.qvec"),
+                     VectorQuantizer.Type.PQ, SimilarityMetric.COSINE, 8, 10, 0)) {
+            assertEquals("pq", index.type());
+            assertEquals(8, index.codeSize());
+            assertEquals(16.0, index.compressionRatio(), 1e-9);
+
+            float[] query = new float[32];
+            store.read(5, query);
+            List<VectorHit> hits = index.search(query, 5, true);
+            assertEquals(5, hits.size());
+            assertEquals(5, hits.get(0).ordinal());
+            assertEquals(1.0, hits.get(0).score(), 1e-5);
+
+            double recall = index.measureRecall(30, 10);
+            assertTrue(recall >= 0.6, "PQ recall@10 with re-rank should be at least 0.6 but was " + recall);
+            System.out.println("✅ PQ recall@10 = " + recall);
+        }
+    }
+
+    @Test
+    @DisplayName("Persisted codes reopen against their store and reject a different one")
+    void reopensOnlyWithMatchingStore() throws Exception {
+        Path codes = tempDir.resolve("embedding.3.int8.qvec");
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.3.vec"), 200, 16)) {
+            QuantizedVectorIndex.build(store, codes, VectorQuantizer.Type.INT8, SimilarityMetric.DOT_PRODUCT, 0, 0, 0)
+                    .close();
+            try (QuantizedVectorIndex reopened = QuantizedVectorIndex.open(codes, store)) {
+                assertEquals(200, reopened.size());
+                assertEquals(SimilarityMetric.DOT_PRODUCT, reopened.metric());
+                assertEquals(0, reopened.rerankFactor());
+            }
+        }
+        Thread.sleep(2);
+        try (MappedVectorStore other = randomStore(tempDir.resolve("embedding.4.vec"), 200, 16)) {
+            assertThrows(java.io.IOException.class, () -> QuantizedVectorIndex.open(codes, other));
+        }
+    }
+}
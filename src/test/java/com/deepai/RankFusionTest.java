@@ -0,0 +1,68 @@
+package com.deepai;
+
+import com.deepai.search.RankFusion;
+import com.deepai.search.RankFusion.Candidate;
+import com.deepai.search.RankFusion.Fused;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the rank fusion used by hybridSearch.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Rank Fusion Tests")
+public class RankFusionTest {
+
+    private static final List<Candidate> TEXT = List.of(
+            new Candidate("a", 9.0), new Candidate("b", 5.0), new Candidate("c", 1.0));
+    private static final List<Candidate> VECTOR = List.of(
+            new Candidate("c", 0.95), new Candidate("a", 0.90), new Candidate("d", 0.20));
+
+    @Test
+    @DisplayName("RRF favours documents ranked well by both legs and keeps the per-leg breakdown")
+    void reciprocalRankFusion() {
+        List<Fused> fused = RankFusion.fuse(TEXT, VECTOR, RankFusion.Method.RRF, 0.5, 10);
+
+        assertEquals(List.of("a", "c", "b", "d"), fused.stream().map(Fused::id).toList());
+        Fused top = fused.get(0);
+        assertEquals(1.0 / 61 + 1.0 / 62, top.score(), 1e-12);
+        assertEquals(1, top.textRank());
+        assertEquals(9.0, top.textScore());
+        assertEquals(2, top.vectorRank());
+        assertEquals(0.90, top.vectorScore());
+
+        Fused textOnly = fused.get(2);
+        assertEquals(2, textOnly.textRank());
+        assertNull(textOnly.vectorRank());
+        assertNull(textOnly.vectorScore());
+    }
+
+    @Test
+    @DisplayName("Weighted fusion min-max normalises each leg before applying the vector weight")
+    void weightedFusion() {
+        List<Fused> fused = RankFusion.fuse(TEXT, VECTOR, RankFusion.Method.WEIGHTED, 0.8, 2);
+
+        assertEquals(2, fused.size());
+        assertEquals("a", fused.get(0).id());
+        assertEquals(0.2 + 0.8 * (0.70 / 0.75), fused.get(0).score(), 1e-12);
+        assertEquals("c", fused.get(1).id());
+        assertEquals(0.8, fused.get(1).score(), 1e-12);
+
+        List<Fused> textOnly = RankFusion.fuse(TEXT, List.of(), RankFusion.Method.WEIGHTED, 0.0, 10);
+        assertEquals(List.of("a", "b", "c"), textOnly.stream().map(Fused::id).toList());
+        assertEquals(1.0, textOnly.get(0).score(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Fusion method parsing defaults to RRF")
+    void methodParsing() {
+        assertEquals(RankFusion.Method.WEIGHTED, RankFusion.Method.fromString(" Weighted "));
+        assertEquals(RankFusion.Method.RRF, RankFusion.Method.fromString("rrf"));
+        assertEquals(RankFusion.Method.RRF, RankFusion.Method.fromString(null));
+        assertEquals(RankFusion.Method.RRF, RankFusion.Method.fromString("unknown"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.deepai;
+
+import com.deepai.analytics.CollectionSampler;
+import com.deepai.analytics.ReservoirSampler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the reservoir sampler behind stratified and reservoir collection sampling. Runs without
+ * Spring context or MongoDB connectivity.
+ */
+@DisplayName("Reservoir Sampler Tests")
+public class ReservoirSamplerTest {
+
+    @Test
+    @DisplayName("Short streams are kept whole")
+    void keepsShortStreams() {
+        ReservoirSampler<Integer> sampler = new ReservoirSampler<>(10);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(sampler.wants());
+            sampler.offer(i);
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), sampler.items());
+        assertEquals(7, sampler.seen());
+    }
+
+    @Test
+    @DisplayName("Every item is equally likely to be kept, and most items are skipped without decoding")
+    void samplesUniformly() {
+        int streamLength = 1_000;
+        int capacity = 50;
+        int trials = 4_000;
+        int[] kept = new int[streamLength];
+        long wanted = 0;
+        SplittableRandom random = new SplittableRandom(7);
+        for (int trial = 0; trial < trials; trial++) {
+            ReservoirSampler<Integer> sampler = new ReservoirSampler<>(capacity, random.split());
+            for (int i = 0; i < streamLength; i++) {
+                if (sampler.wants()) {
+                    wanted++;
+                    sampler.offer(i);
+                } else {
+                    sampler.offer(null);
+                }
+            }
+            List<Integer> items = sampler.items();
+            assertEquals(capacity, new HashSet<>(items).size());
+            items.forEach(item -> kept[item]++);
+        }
+
+        double expected = trials * capacity / (double) streamLength;
+        for (int i = 0; i < streamLength; i += 50) {
+            assertEquals(expected, kept[i], expected * 0.3, "item " + i);
+        }
+        // k (1 + ln(n / k)) items are kept on average, far fewer than n
+        assertTrue(wanted / (double) trials < capacity * (1 + Math.log(streamLength / (double) capacity)) * 1.2);
+        System.out.println("✅ Reservoir sampler decoded " + wanted / trials + " of " + streamLength + " items a run");
+    }
+
+    @Test
+    @DisplayName("Sampling modes parse case-insensitively and default to random")
+    void parsesModes() {
+        assertEquals(CollectionSampler.Mode.STRATIFIED, CollectionSampler.Mode.fromString(" Stratified "));
+        assertEquals(CollectionSampler.Mode.RANDOM, CollectionSampler.Mode.fromString(null));
+        assertThrows(IllegalArgumentException.class, () -> CollectionSampler.Mode.fromString("systematic"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.deepai;
+
+import com.deepai.analytics.HyperLogLog;
+import com.deepai.analytics.SchemaProfile;
+import com.deepai.analytics.TDigest;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming schema profile and its sketches: HyperLogLog distinct counts, t-digest
+ * quantiles, nested and array paths, and merging partial profiles. Runs without Spring context or MongoDB
+ * connectivity.
+ */
+@DisplayName("Schema Profile Tests")
+public class SchemaProfileTest {
+
+    @Test
+    @DisplayName("HyperLogLog estimates distinct counts within a few percent and merges")
+    void hyperLogLogEstimates() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            left.add("user-" + i);
+            right.add("user-" + (i + 50_000));
+        }
+
+        assertEquals(100_000, left.estimate(), 100_000 * 0.05);
+        left.merge(right);
+        assertEquals(150_000, left.estimate(), 150_000 * 0.05);
+
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 1_000; i++) {
+            small.add(i % 10);
+            small.add((double) (i % 10));
+        }
+        assertEquals(10, small.estimate());
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    @DisplayName("t-digest quantiles track exact quantiles, including tails and after merging")
+    void tDigestQuantiles() {
+        Random random = new Random(42);
+        double[] values = new double[200_000];
+        TDigest first = new TDigest();
+        TDigest second = new TDigest();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian() * 100 + 1_000;
+            (i % 2 == 0 ? first : second).add(values[i]);
+        }
+        first.merge(second);
+        Arrays.sort(values);
+
+        assertEquals(values.length, first.count());
+        assertEquals(values[0], first.min());
+        assertEquals(values[values.length - 1], first.max());
+        for (double q : new double[] {0.01, 0.5, 0.9, 0.99, 0.999}) {
+            double exact = values[(int) (q * (values.length - 1))];
+            assertEquals(exact, first.quantile(q), 5.0, "quantile " + q);
+        }
+        assertTrue(Double.isNaN(new TDigest().quantile(0.5)));
+    }
+
+    @Test
+    @DisplayName("Profiles nested paths and arrays with types, null rates and numeric stats")
+    void profilesPaths() {
+        SchemaProfile profile = new SchemaProfile(100);
+        for (int i = 0; i < 1_000; i++) {
+            Document doc = new Document("_id", i)
+                    .append("name", i % 10 == 0 ? null : "user-" + (i % 200))
+                    .append("address", new Document("city", "city-" + (i % 7))
+                            .append("zip", i % 2 == 0 ? 10_000 + i : "n/a"))
+                    .append("tags", List.of("a", "b", i % 3 == 0 ? "c" : "d"));
+            if (i % 4 == 0) {
+                doc.append("score", (double) i);
+            }
+            profile.accept(doc);
+        }
+
+        Map<String, Map<String, Object>> stats = profile.pathStats();
+
+        assertEquals(List.of("_id", "address", "address.city", "address.zip", "name", "score", "tags", "tags[]"),
+                List.copyOf(stats.keySet()));
+        assertEquals(0.1, stats.get("name").get("nullRate"));
+        // names repeat every 200 documents, and the 20 of them that fall on every tenth document are null
+        assertEquals(180, (Long) stats.get("name").get("distinctEstimate"), 3);
+        assertEquals(Map.of("int", 500L, "string", 500L), stats.get("address.zip").get("types"));
+        assertEquals(0.25, stats.get("score").get("presence"));
+        assertEquals(3_000L, stats.get("tags[]").get("values"));
+        assertEquals(1_000L, stats.get("tags[]").get("documents"));
+        assertEquals(4L, stats.get("tags[]").get("distinctEstimate"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> numeric = (Map<String, Object>) stats.get("score").get("numeric");
+        assertEquals(0.0, numeric.get("min"));
+        assertEquals(996.0, numeric.get("max"));
+        assertEquals(498.0, (Double) numeric.get("p50"), 10.0);
+        assertEquals("object", profile.dominantTypes().get("address"));
+        assertEquals("string", profile.dominantTypes().get("name"));
+        System.out.println("✅ Schema profile: " + profile.paths() + " paths over " + profile.documents() + " docs");
+    }
+
+    @Test
+    @DisplayName("Path cap bounds memory and merged profiles match a single pass")
+    void capsAndMerges() {
+        SchemaProfile capped = new SchemaProfile(3);
+        capped.accept(new Document("a", 1).append("b", new Document("c", 2).append("d", 3)));
+        assertEquals(3, capped.paths());
+        assertEquals(1L, capped.summary().get("untrackedValues"));
+
+        SchemaProfile whole = new SchemaProfile(100);
+        SchemaProfile left = new SchemaProfile(100);
+        SchemaProfile right = new SchemaProfile(100);
+        for (int i = 0; i < 500; i++) {
+            Document doc = new Document("n", i).append("nested", new Document("v", i % 5));
+            whole.accept(doc);
+            (i < 250 ? left : right).accept(doc);
+        }
+        left.merge(right);
+
+        assertEquals(whole.documents(), left.documents());
+        assertEquals(whole.pathStats().get("nested.v").get("types"), left.pathStats().get("nested.v").get("types"));
+        assertEquals(whole.pathStats().get("n").get("distinctEstimate"),
+                left.pathStats().get("n").get("distinctEstimate"));
+        assertEquals(1.0, left.pathStats().get("nested.v").get("presence"));
+    }
+
+    @Test
+    @DisplayName("Quality, patterns, relationships and overview are derived from the profiled values")
+    void derivedAssessments() {
+        SchemaProfile profile = new SchemaProfile(100);
+        for (int i = 0; i < 100; i++) {
+            Document doc = new Document("_id", new ObjectId())
+                    .append("status", i % 3 == 0 ? "active" : "closed")
+                    .append("customerId", new ObjectId())
+                    .append("code", i % 10 == 0 ? "n/a" : i)
+                    .append("address", new Document("city", "city-" + (i % 4)))
+                    .append("tags", List.of("a", "b"));
+            if (i % 2 == 0) {
+                doc.append("note", i % 4 == 0 ? null : "text");
+            }
+            profile.accept(doc);
+        }
+
+        Map<String, Object> quality = profile.quality();
+        // Six complete fields and a note present in half the documents, null in half of those
+        assertEquals((6 + 0.25) / 7, (Double) quality.get("completeness"), 1e-4);
+        assertEquals(List.of(Map.of("field", "note", "presence", 0.5, "nullRate", 0.5)),
+                quality.get("incompleteFields"));
+        // Ten string codes among 925 non-null values: 100 on each of seven paths, 200 tags and 25 notes
+        assertEquals(1 - 10.0 / 925, (Double) quality.get("consistency"), 1e-4);
+        assertEquals(List.of(Map.of("path", "code", "types", Map.of("int", 90L, "string", 10L))),
+                quality.get("mixedTypePaths"));
+        assertTrue(((List<?>) quality.get("identifierFields")).containsAll(List.of("_id", "customerId")));
+
+        Map<String, Object> patterns = profile.patterns();
+        assertEquals(List.of("_id", "status", "customerId", "code", "address", "tags"), patterns.get("requiredFields"));
+        assertEquals(List.of("note"), patterns.get("optionalFields"));
+        assertEquals(6.5, patterns.get("averageFieldCount"));
+        assertTrue(((List<?>) patterns.get("categoricalPaths")).containsAll(List.of("status", "address.city")));
+
+        Map<String, Object> relationships = profile.relationships();
+        assertEquals(List.of("customerId"), ((List<?>) relationships.get("references")).stream()
+                .map(reference -> ((Map<?, ?>) reference).get("path")).toList());
+        assertEquals(List.of("address"), relationships.get("embeddedDocuments"));
+        assertEquals(List.of("tags"), relationships.get("arrays"));
+
+        Map<String, Object> overview = profile.overview();
+        assertEquals(100L, overview.get("sampleSize"));
+        assertEquals(6.5, overview.get("averageFieldCount"));
+        assertEquals(1, overview.get("maxDepth"));
+        assertEquals("low", overview.get("complexity"));
+    }
+}
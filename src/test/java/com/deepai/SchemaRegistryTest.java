@@ -0,0 +1,78 @@
+package com.deepai;
+
+import com.deepai.analytics.SchemaProfile;
+import com.deepai.analytics.SchemaRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for schema registry versioning, update path mapping and resource URIs. Runs without Spring
+ * context or MongoDB connectivity.
+ */
+@DisplayName("Schema Registry Tests")
+public class SchemaRegistryTest {
+
+    private static SchemaRegistry.Snapshot snapshot(long version, Map<String, String> fields) {
+        return new SchemaRegistry.Snapshot("shop", "orders", version, fields, Map.of(), Map.of(), 0L, 0L, true);
+    }
+
+    @Test
+    @DisplayName("Versions start at 1 and only change when paths or dominant types change")
+    void versionsFollowSchemaChanges() {
+        SchemaProfile profile = new SchemaProfile(100);
+        profile.accept(new Document("name", "a").append("qty", 1));
+        SchemaRegistry.Snapshot first = snapshot(SchemaRegistry.nextVersion(null, profile.dominantTypes()),
+                profile.dominantTypes());
+        assertEquals(1, first.version());
+
+        // More documents of the same shape keep the version
+        profile.accept(new Document("name", "b").append("qty", 2));
+        assertEquals(1, SchemaRegistry.nextVersion(first, profile.dominantTypes()));
+
+        // A new nested path bumps it
+        profile.accept(new Document("name", "c").append("qty", 3).append("tags", List.of("x")));
+        assertEquals(2, SchemaRegistry.nextVersion(first, profile.dominantTypes()));
+
+        // So does a path whose dominant type changes
+        SchemaRegistry.Snapshot second = snapshot(2, profile.dominantTypes());
+        for (int i = 0; i < 5; i++) {
+            profile.accept(new Document("name", "d").append("qty", "many").append("tags", List.of("y")));
+        }
+        assertEquals("string", profile.dominantTypes().get("qty"));
+        assertEquals(3, SchemaRegistry.nextVersion(second, profile.dominantTypes()));
+    }
+
+    @Test
+    @DisplayName("Updated field names map to profile paths")
+    void updatedFieldsMapToProfilePaths() {
+        assertEquals("name", SchemaRegistry.profilePath("name"));
+        assertEquals("address.city", SchemaRegistry.profilePath("address.city"));
+        assertEquals("tags[]", SchemaRegistry.profilePath("tags.3"));
+        assertEquals("items[].price", SchemaRegistry.profilePath("items.0.price"));
+        assertEquals("matrix[][]", SchemaRegistry.profilePath("matrix.1.2"));
+    }
+
+    @Test
+    @DisplayName("Schema resource URIs round-trip to database and collection")
+    void resourceUrisRoundTrip() {
+        SchemaRegistry.Snapshot schema = new SchemaRegistry.Snapshot("shop", "orders/2024", 1, Map.of(), Map.of(),
+                Map.of(), 0L, 0L, false);
+        assertEquals("mongo://schema/shop/orders/2024", schema.resourceUri());
+
+        String[] namespace = SchemaRegistry.parseResourceUri(schema.resourceUri()).orElseThrow();
+        assertEquals("shop", namespace[0]);
+        assertEquals("orders/2024", namespace[1]);
+
+        assertTrue(SchemaRegistry.parseResourceUri("mongo://info").isEmpty());
+        assertTrue(SchemaRegistry.parseResourceUri("mongo://schema/shop").isEmpty());
+        assertTrue(SchemaRegistry.parseResourceUri("mongo://schema/shop/").isEmpty());
+        assertTrue(SchemaRegistry.parseResourceUri("mongo://schema//orders").isEmpty());
+        System.out.println("✅ Schema resource URIs parsed");
+    }
+}
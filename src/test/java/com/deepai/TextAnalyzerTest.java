@@ -0,0 +1,53 @@
+package com.deepai;
+
+import com.deepai.search.TextAnalyzer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the shared text analyzer: tokenization, stopwords, plural stemming and single-pass query
+ * scoring. Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Text Analyzer Tests")
+public class TextAnalyzerTest {
+
+    @Test
+    @DisplayName("Terms are lower-cased, filtered by length and stopwords, and stemmed")
+    void analyzesTerms() {
+        List<String> terms = TextAnalyzer.ENGLISH.terms("The Stories of MongoDB: Replica-sets, indexes and a db");
+
+        assertEquals(List.of("story", "mongodb", "replica", "set", "indexe"), terms);
+        assertEquals(List.of("status", "class", "horse", "toy"), TextAnalyzer.ENGLISH.terms("status class horses toys"));
+        assertEquals(List.of("sets"), new TextAnalyzer(Set.of(), 3, TextAnalyzer.Stemmer.NONE).terms("a sets"));
+        assertTrue(TextAnalyzer.ENGLISH.terms("").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Query words are stopword-filtered against the extended set and deduplicated")
+    void buildsQueries() {
+        TextAnalyzer queries = TextAnalyzer.ENGLISH.withStopWords("find", "show");
+
+        TextAnalyzer.Query query = queries.query("Find books about databases and more books");
+
+        assertEquals(List.of("book", "database", "more"), query.terms());
+        assertTrue(queries.query("show the").isEmpty());
+        assertEquals(0.0, queries.query("show the").score(List.of("anything at all")));
+    }
+
+    @Test
+    @DisplayName("Scores the fraction of query terms found across texts")
+    void scoresDocuments() {
+        TextAnalyzer.Query query = TextAnalyzer.ENGLISH.query("vector databases replication");
+
+        assertEquals(1.0, query.score(List.of("A Vector Database", "Replication lag explained")));
+        assertEquals(2.0 / 3, query.score(List.of("databases for VECTORS")), 1e-9);
+        assertEquals(0.0, query.score(List.of("vectorized storage")));
+        assertEquals(0.0, query.score(List.of()));
+        System.out.println("✅ Text analyzer scored query terms " + query.terms());
+    }
+}
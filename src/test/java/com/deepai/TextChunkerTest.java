@@ -0,0 +1,74 @@
+package com.deepai;
+
+import com.deepai.embedding.TextChunker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming text chunker: sentence-aware windows, overlap, long sentences and offsets
+ * across segments. Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Text Chunker Tests")
+public class TextChunkerTest {
+
+    @Test
+    @DisplayName("Windows end on sentence boundaries and repeat trailing sentences as overlap")
+    void sentenceWindowsWithOverlap() {
+        TextChunker chunker = new TextChunker(8, 3);
+        String text = "One two three. Four five. Six seven eight. Nine ten. Eleven twelve thirteen.";
+
+        List<TextChunker.Chunk> chunks = chunker.chunk(text);
+
+        assertEquals(List.of("One two three. Four five. Six seven eight.",
+                "Six seven eight. Nine ten. Eleven twelve thirteen."),
+                chunks.stream().map(TextChunker.Chunk::text).toList());
+        for (int i = 0; i < chunks.size(); i++) {
+            TextChunker.Chunk chunk = chunks.get(i);
+            assertEquals(i, chunk.index());
+            assertEquals(text.substring(chunk.start(), chunk.end()), chunk.text());
+            assertTrue(chunk.tokens() <= 8);
+        }
+    }
+
+    @Test
+    @DisplayName("Sentences longer than a window are cut at word boundaries")
+    void longSentencesAreSplit() {
+        TextChunker chunker = new TextChunker(10, 2);
+        String text = "word ".repeat(35).trim() + ".";
+
+        List<TextChunker.Chunk> chunks = chunker.chunk(text);
+
+        assertEquals(4, chunks.size());
+        assertEquals(List.of(10, 10, 10, 5), chunks.stream().map(TextChunker.Chunk::tokens).toList());
+        assertTrue(chunks.get(3).text().endsWith("word."));
+        assertTrue(chunker.chunk("").isEmpty());
+        assertTrue(chunker.chunk(" \n\t ").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Segments are chunked lazily with offsets into their space-joined text")
+    void segmentsAreNotConcatenated() {
+        TextChunker chunker = new TextChunker(6, 0);
+        List<String> segments = Arrays.asList("Title of the article.", null, "Body text starts here. It goes on.");
+        String joined = "Title of the article.  Body text starts here. It goes on.";
+
+        Iterator<TextChunker.Chunk> iterator = chunker.chunks(segments);
+        List<TextChunker.Chunk> chunks = new ArrayList<>();
+        iterator.forEachRemaining(chunks::add);
+
+        assertFalse(iterator.hasNext());
+        assertEquals(3, chunks.size());
+        for (TextChunker.Chunk chunk : chunks) {
+            assertEquals(joined.substring(chunk.start(), chunk.end()), chunk.text());
+        }
+        assertEquals("Body text starts here.", chunks.get(1).text());
+        System.out.println("✅ Text chunker produced " + chunks.size() + " chunks from " + segments.size() + " segments");
+    }
+}
@@ -0,0 +1,58 @@
+package com.deepai;
+
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.VectorHit;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shared fixtures for the vector index tests: seeded Gaussian vectors, vector stores filled with them, and
+ * hit-list comparison.
+ */
+final class VectorFixtures {
+
+    private VectorFixtures() {
+    }
+
+    static float[] randomVector(Random random, int dims) {
+        float[] vector = new float[dims];
+        for (int d = 0; d < dims; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    static float[][] randomVectors(Random random, int count, int dims) {
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = randomVector(random, dims);
+        }
+        return vectors;
+    }
+
+    /**
+     * Writes {@code count} random vectors, seeded by {@code count}, to a store at {@code file}. Row ids are the
+     * row ordinals.
+     */
+    static MappedVectorStore randomStore(Path file, int count, int dims) throws Exception {
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(file, dims)) {
+            for (float[] vector : randomVectors(new Random(count), count, dims)) {
+                writer.add(writer.count(), vector);
+            }
+            return writer.commit(count);
+        }
+    }
+
+    static void assertSameHits(List<VectorHit> expected, List<VectorHit> actual, double scoreDelta) {
+        assertEquals(expected.stream().map(VectorHit::ordinal).toList(),
+                actual.stream().map(VectorHit::ordinal).toList());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).score(), actual.get(i).score(), scoreDelta);
+            assertEquals(expected.get(i).id(), actual.get(i).id());
+        }
+    }
+}
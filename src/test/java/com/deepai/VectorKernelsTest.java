@@ -0,0 +1,62 @@
+package com.deepai;
+
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorKernel;
+import com.deepai.vector.VectorKernels;
+import com.deepai.vector.VectorMath;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the vector scoring kernels and similarity metrics.
+ * The best available kernel (SIMD when jdk.incubator.vector is enabled) must agree with the scalar fallback.
+ */
+@DisplayName("Vector Kernel Tests")
+public class VectorKernelsTest {
+
+    @Test
+    @DisplayName("Best kernel agrees with scalar kernel on arrays and off-heap rows")
+    void bestKernelMatchesScalar() {
+        Random random = new Random(3);
+        VectorKernel scalar = VectorKernels.scalar();
+        VectorKernel best = VectorKernels.get();
+        for (int dims : new int[] {1, 7, 16, 384, 1000}) {
+            float[] a = new float[dims];
+            float[] b = new float[dims];
+            ByteBuffer row = ByteBuffer.allocateDirect(dims * Float.BYTES + 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < dims; i++) {
+                a[i] = (float) random.nextGaussian();
+                b[i] = (float) random.nextGaussian();
+                row.putFloat(8 + i * Float.BYTES, b[i]);
+            }
+
+            assertEquals(scalar.dot(a, b), best.dot(a, b), 1e-3f * dims);
+            assertEquals(scalar.squaredDistance(a, b), best.squaredDistance(a, b), 1e-3f * dims);
+            assertEquals(scalar.dot(a, b), best.dot(row, 8, a), 1e-3f * dims);
+        }
+        System.out.println("✅ Kernel in use: " + best.name());
+    }
+
+    @Test
+    @DisplayName("Similarity parameter selects cosine, dot product or euclidean scoring")
+    void metricsScoreAsDocumented() {
+        float[] query = {3f, 4f};
+        float[] vector = {6f, 8f};
+        double queryNorm = VectorMath.norm(query);
+
+        assertEquals(1.0, SimilarityMetric.fromString("cosine").score(query, queryNorm, vector), 1e-6);
+        assertEquals(50.0, SimilarityMetric.fromString("dotProduct").score(query, queryNorm, vector), 1e-6);
+        assertEquals(1.0 / 6.0, SimilarityMetric.fromString("euclidean").score(query, queryNorm, vector), 1e-6);
+        assertEquals(1.0 / 6.0, SimilarityMetric.EUCLIDEAN.score(50.0, 5.0, 10.0), 1e-6);
+        assertEquals(SimilarityMetric.COSINE, SimilarityMetric.fromString(" "));
+        assertThrows(IllegalArgumentException.class, () -> SimilarityMetric.fromString("{}"));
+        assertThrows(IllegalArgumentException.class, () -> SimilarityMetric.fromString("cosin"));
+        assertEquals(SimilarityMetric.EUCLIDEAN, SimilarityMetric.fromString("l2"));
+    }
+}
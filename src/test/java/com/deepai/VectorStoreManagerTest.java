@@ -0,0 +1,94 @@
+package com.deepai;
+
+import com.deepai.service.MongoServiceClient;
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.VectorIndexKey;
+import com.deepai.vector.VectorQuantizer;
+import com.deepai.vector.VectorStoreManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.deepai.VectorFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for how the vector store manager places files under its store directory. Database, collection
+ * and field names come from tool callers, so none of them may steer a file outside that directory.
+ * Runs without Spring context or MongoDB connectivity.
+ */
+@DisplayName("Vector Store Manager Tests")
+public class VectorStoreManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MongoServiceClient mongoServiceClient;
+    private VectorStoreManager manager;
+
+    @BeforeEach
+    void setUp() {
+        // The client connects lazily; none of these tests reaches the server
+        mongoServiceClient = new MongoServiceClient("mongodb://localhost:27017");
+        manager = new VectorStoreManager(mongoServiceClient, tempDir.resolve("store").toString(), 1000, 5000,
+                60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.closeAll();
+        mongoServiceClient.getMongoClient().close();
+    }
+
+    @Test
+    @DisplayName("Traversal, absolute and nested database or collection names are rejected")
+    void rejectsUnsafeNamespaces() {
+        List<VectorIndexKey> unsafe = List.of(
+                new VectorIndexKey("..", "x", "embedding"),
+                new VectorIndexKey("db", "..", "embedding"),
+                new VectorIndexKey("../outside", "x", "embedding"),
+                new VectorIndexKey("db", "../../outside", "embedding"),
+                new VectorIndexKey(tempDir.resolve("elsewhere").toString(), "x", "embedding"),
+                new VectorIndexKey("db", "nested/collection", "embedding"),
+                new VectorIndexKey("db", ".", "embedding"));
+        for (VectorIndexKey key : unsafe) {
+            assertThrows(IllegalArgumentException.class, () -> manager.hasIndexFiles(key), key.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Field names that would leave the collection directory are rejected")
+    void rejectsUnsafeFields() throws Exception {
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.1700000000000.vec"), 8, 4)) {
+            for (String field : List.of("../embedding", "../../embedding", "nested/embedding",
+                    tempDir.resolve("embedding").toString())) {
+                VectorIndexKey key = new VectorIndexKey("db", "docs", field);
+                assertThrows(IllegalArgumentException.class, () -> manager.snapshotPath(key, store, "hnsw"), field);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Valid names resolve to files of the collection's directory inside store-dir")
+    void resolvesInsideStoreDirectory() throws Exception {
+        Path root = tempDir.resolve("store").toAbsolutePath().normalize();
+        try (MappedVectorStore store = randomStore(tempDir.resolve("embedding.1700000000000.vec"), 8, 4)) {
+            VectorIndexKey key = new VectorIndexKey("shop", "products.v2", "embedding");
+
+            Path snapshot = manager.snapshotPath(key, store, "hnsw");
+            Path codes = manager.quantizedPath(key, store, VectorQuantizer.Type.INT8);
+
+            assertEquals(root.resolve("shop").resolve("products.v2").resolve("embedding.1700000000000.hnsw.vidx"),
+                    snapshot);
+            assertEquals(root.resolve("shop").resolve("products.v2"), codes.getParent());
+            assertTrue(codes.startsWith(root));
+            assertFalse(manager.hasIndexFiles(key));
+            System.out.println("✅ Vector files resolve under " + root + ", unsafe names are rejected");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.deepai.benchmark;
+
+import com.deepai.vector.MappedVectorStore;
+import com.deepai.vector.SimilarityMetric;
+import com.deepai.vector.VectorKernel;
+import com.deepai.vector.VectorKernels;
+import com.deepai.vector.VectorMath;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for brute-force vector scoring: the legacy boxed List&lt;Double&gt; cosine loop against the
+ * primitive scalar kernel, the SIMD kernel and a full scan of the memory-mapped store.
+ *
+ * Not run by Surefire. After {@code mvn test-compile}, run {@link #main(String[])} from the IDE or
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main VectorScoringBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorScoringBenchmark {
+
+    @Param({"384"})
+    int dimensions;
+
+    @Param({"20000"})
+    int rows;
+
+    private List<List<Double>> boxedVectors;
+    private List<Double> boxedQuery;
+    private float[][] vectors;
+    private float[] norms;
+    private float[] query;
+    private float queryNorm;
+    private MappedVectorStore store;
+    private Path storeFile;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(11);
+        boxedVectors = new ArrayList<>(rows);
+        vectors = new float[rows][];
+        norms = new float[rows];
+        storeFile = Files.createTempFile("vector-benchmark", ".vec");
+        try (MappedVectorStore.Writer writer = MappedVectorStore.writer(storeFile, dimensions)) {
+            for (int r = 0; r < rows; r++) {
+                float[] vector = randomVector(random);
+                vectors[r] = vector;
+                norms[r] = VectorMath.norm(vector);
+                boxedVectors.add(box(vector));
+                writer.add(r, vector);
+            }
+            store = writer.commit(rows);
+        }
+        query = randomVector(random);
+        queryNorm = VectorMath.norm(query);
+        boxedQuery = box(query);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        store.close();
+        Files.deleteIfExists(storeFile);
+    }
+
+    @Benchmark
+    public void legacyBoxedCosine(Blackhole blackhole) {
+        for (List<Double> vector : boxedVectors) {
+            double dotProduct = 0.0;
+            double norm1 = 0.0;
+            double norm2 = 0.0;
+            for (int i = 0; i < boxedQuery.size(); i++) {
+                dotProduct += boxedQuery.get(i) * vector.get(i);
+                norm1 += Math.pow(boxedQuery.get(i), 2);
+                norm2 += Math.pow(vector.get(i), 2);
+            }
+            blackhole.consume(dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2)));
+        }
+    }
+
+    @Benchmark
+    public void scalarKernelCosine(Blackhole blackhole) {
+        scan(VectorKernels.scalar(), blackhole);
+    }
+
+    @Benchmark
+    public void bestKernelCosine(Blackhole blackhole) {
+        scan(VectorKernels.get(), blackhole);
+    }
+
+    @Benchmark
+    public Object mappedStoreTop10() {
+        return store.search(query, 10, SimilarityMetric.COSINE);
+    }
+
+    private void scan(VectorKernel kernel, Blackhole blackhole) {
+        for (int r = 0; r < rows; r++) {
+            blackhole.consume(SimilarityMetric.COSINE.score(kernel.dot(query, vectors[r]), queryNorm, norms[r]));
+        }
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static List<Double> box(float[] vector) {
+        List<Double> boxed = new ArrayList<>(vector.length);
+        for (float v : vector) {
+            boxed.add((double) v);
+        }
+        return boxed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(VectorScoringBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}